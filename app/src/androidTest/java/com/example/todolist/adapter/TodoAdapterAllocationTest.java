@@ -0,0 +1,117 @@
+package com.example.todolist.adapter;
+
+import android.content.Context;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.todolist.database.CategoryDictionary;
+import com.example.todolist.database.DatabaseHelper;
+import com.example.todolist.database.TestDatabaseRule;
+import com.example.todolist.models.TodoItem;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Binds 10k rows into a handful of recycled holders, as scrolling does, and counts the objects
+ * allocated on the main thread meanwhile. Any per-bind allocation would show up thousands of times.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TodoAdapterAllocationTest {
+
+    private static final String TAG = "TodoAdapterAllocationTest";
+    private static final String TEST_DATABASE = "todo_adapter_allocation_test.db";
+    private static final int CATEGORY_COUNT = 10;
+    private static final int ITEM_COUNT = 10_000;
+    private static final int HOLDER_COUNT = 12;
+    // Room for one-off framework work, such as the first ColorStateList of a text colour
+    private static final int MAX_ALLOCATIONS = 100;
+
+    @Rule
+    public final TestDatabaseRule database = new TestDatabaseRule(TEST_DATABASE);
+
+    private Context context;
+    private DatabaseHelper helper;
+    private int allocations;
+
+    @Before
+    public void setUp() {
+        context = database.getContext();
+        helper = database.getHelper();
+        // Categories are created as a task first names them
+        List<TodoItem> named = new ArrayList<>();
+        for (int i = 0; i < CATEGORY_COUNT; i++) {
+            TodoItem item = new TodoItem("Named " + i);
+            item.setCategory("Category " + i);
+            named.add(item);
+        }
+        helper.addTodoItems(named);
+    }
+
+    @Test
+    public void steadyStateBindingAllocatesNothing() {
+        CategoryDictionary categories = helper.getCategories();
+        List<TodoItem> items = new ArrayList<>();
+        for (int i = 1; i <= ITEM_COUNT; i++) {
+            TodoItem item = new TodoItem("Task " + i);
+            item.setId(i);
+            item.setPriority(1 + i % 3);
+            // Real ids, so every bind looks up a name and colour
+            item.setCategory("Category " + i % CATEGORY_COUNT);
+            item.setCategoryId(categories.idOf(item.getCategory()));
+            assertTrue(item.getCategoryId() != TodoItem.NO_CATEGORY);
+            item.setCompleted(i % 4 == 0);
+            if (i % 2 == 0) {
+                // Some overdue, some not
+                item.setDueDate(i % 3 == 0 ? "2000-01-01" : "2999-01-01");
+                item.setDueTime("09:00");
+            }
+            items.add(item);
+        }
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            RecyclerView parent = new RecyclerView(context);
+            parent.setLayoutManager(new LinearLayoutManager(context));
+            TodoAdapter adapter = new TodoAdapter(new TodoAdapter.OnItemClickListener() {
+                @Override public void onItemClick(int position) { }
+                @Override public void onCheckBoxClick(int position, boolean isChecked) { }
+                @Override public void onItemLongClick(int position) { }
+            }, categories);
+            // The first list is committed synchronously, there is nothing to diff against
+            adapter.submitList(items);
+
+            TodoAdapter.ViewHolder[] holders = new TodoAdapter.ViewHolder[HOLDER_COUNT];
+            for (int i = 0; i < HOLDER_COUNT; i++) {
+                holders[i] = adapter.createViewHolder(parent, 0);
+            }
+            // Warm up: every holder shows every kind of row once
+            for (int position = 0; position < 100; position++) {
+                adapter.bindViewHolder(holders[position % HOLDER_COUNT], position);
+            }
+
+            Debug.startAllocCounting();
+            Debug.resetThreadAllocCount();
+            for (int position = 0; position < ITEM_COUNT; position++) {
+                adapter.bindViewHolder(holders[position % HOLDER_COUNT], position);
+            }
+            allocations = Debug.getThreadAllocCount();
+            Debug.stopAllocCounting();
+        });
+
+        Log.i(TAG, ITEM_COUNT + " binds allocated " + allocations + " objects");
+        assertTrue("binding allocates: " + allocations + " objects for " + ITEM_COUNT + " rows",
+                allocations < MAX_ALLOCATIONS);
+    }
+}
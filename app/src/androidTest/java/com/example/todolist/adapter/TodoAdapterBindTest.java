@@ -0,0 +1,125 @@
+package com.example.todolist.adapter;
+
+import android.content.Context;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.todolist.database.CategoryDictionary;
+import com.example.todolist.database.DatabaseHelper;
+import com.example.todolist.database.TestDatabaseRule;
+import com.example.todolist.models.TodoItem;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Toggles one task in a 5k-item list and counts how many rows get rebound, and how.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TodoAdapterBindTest {
+
+    private static final String TEST_DATABASE = "todo_adapter_bind_test.db";
+    private static final int ITEM_COUNT = 5_000;
+    private static final int TOGGLED_POSITION = 3;
+
+    @Rule
+    public final TestDatabaseRule database = new TestDatabaseRule(TEST_DATABASE);
+
+    private Context context;
+    private DatabaseHelper helper;
+    private RecyclerView recyclerView;
+    private CountingAdapter adapter;
+
+    @Before
+    public void setUp() {
+        context = database.getContext();
+        helper = database.getHelper();
+    }
+
+    @Test
+    public void togglingOneItemRebindsOnlyItsCompletionState() throws Exception {
+        List<TodoItem> items = new ArrayList<>();
+        for (int i = 1; i <= ITEM_COUNT; i++) {
+            TodoItem item = new TodoItem("Task " + i);
+            item.setId(i);
+            items.add(item);
+        }
+
+        CategoryDictionary categories = helper.getCategories();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            recyclerView = new RecyclerView(context);
+            recyclerView.setLayoutManager(new LinearLayoutManager(context));
+            recyclerView.setItemAnimator(null);
+            adapter = new CountingAdapter(categories);
+            recyclerView.setAdapter(adapter);
+        });
+        submitAndLayout(items);
+        assertTrue("only visible rows should bind", adapter.fullBinds > 0 && adapter.fullBinds < 100);
+
+        List<TodoItem> toggled = new ArrayList<>(items);
+        TodoItem changed = new TodoItem(items.get(TOGGLED_POSITION));
+        changed.setCompleted(true);
+        toggled.set(TOGGLED_POSITION, changed);
+
+        adapter.fullBinds = 0;
+        adapter.payloadBinds = 0;
+        submitAndLayout(toggled);
+
+        assertEquals("no row should be fully rebound", 0, adapter.fullBinds);
+        assertEquals("only the toggled row should be rebound", 1, adapter.payloadBinds);
+        assertEquals(TodoAdapter.CHANGE_COMPLETION, adapter.lastPayload & TodoAdapter.CHANGE_COMPLETION);
+    }
+
+    private void submitAndLayout(List<TodoItem> items) throws InterruptedException {
+        CountDownLatch committed = new CountDownLatch(1);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> adapter.submitList(items, committed::countDown));
+        assertTrue("diff did not finish", committed.await(10, TimeUnit.SECONDS));
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            recyclerView.measure(
+                    View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+            recyclerView.layout(0, 0, 1080, 1920);
+        });
+    }
+
+    private static final class CountingAdapter extends TodoAdapter {
+        int fullBinds;
+        int payloadBinds;
+        int lastPayload;
+
+        CountingAdapter(CategoryDictionary categories) {
+            super(new OnItemClickListener() {
+                @Override public void onItemClick(int position) { }
+                @Override public void onCheckBoxClick(int position, boolean isChecked) { }
+                @Override public void onItemLongClick(int position) { }
+            }, categories);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+            if (payloads.isEmpty()) {
+                fullBinds++;
+            } else {
+                payloadBinds++;
+                for (Object payload : payloads) {
+                    lastPayload |= (Integer) payload;
+                }
+            }
+            super.onBindViewHolder(holder, position, payloads);
+        }
+    }
+}
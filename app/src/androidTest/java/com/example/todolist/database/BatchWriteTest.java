@@ -0,0 +1,110 @@
+package com.example.todolist.database;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.todolist.models.TaskStats;
+import com.example.todolist.models.TodoItem;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * The batch writes report exactly the rows they changed, keep the trigger-maintained stats
+ * right and tell observers once per batch.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BatchWriteTest {
+
+    private static final String TEST_DATABASE = "todo_batch_test.db";
+
+    @Rule
+    public final TestDatabaseRule database = new TestDatabaseRule(TEST_DATABASE, Runnable::run);
+
+    private DatabaseHelper helper;
+    private final List<Set<Integer>> invalidations = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        // Delivered inline so each notification is recorded as it is sent
+        database.getTracker().addObserver((tables, rowIds) -> invalidations.add(rowIds), DatabaseHelper.TABLE_TODO);
+        helper = database.getHelper();
+    }
+
+    @Test
+    public void addTodoItemsReturnsIdsInOrder() {
+        TodoItem due = new TodoItem("Pay rent");
+        due.setDueDate("2024-06-01");
+        due.setDueTime("09:30");
+        List<Integer> ids = helper.addTodoItems(Arrays.asList(due, new TodoItem("Buy milk"), new TodoItem("Call mum")));
+
+        assertEquals(3, ids.size());
+        assertEquals("Pay rent", helper.getTodoItemById(ids.get(0)).getTask());
+        assertEquals(due.getDueAt(), helper.getTodoItemById(ids.get(0)).getDueAt());
+        assertEquals("Call mum", helper.getTodoItemById(ids.get(2)).getTask());
+        assertEquals(Collections.singletonList(new HashSet<>(ids)), invalidations);
+        assertEquals(3, helper.getTaskStats().getTotal());
+    }
+
+    @Test
+    public void updateTodoItemsSkipsMissingRows() {
+        List<Integer> ids = helper.addTodoItems(Arrays.asList(new TodoItem("One"), new TodoItem("Two")));
+        TodoItem first = helper.getTodoItemById(ids.get(0));
+        first.setTask("One, edited");
+        first.setPriority(3);
+        TodoItem gone = helper.getTodoItemById(ids.get(1));
+        helper.deleteTodoItem(gone.getId());
+        invalidations.clear();
+
+        assertEquals(Collections.singletonList(first.getId()), helper.updateTodoItems(Arrays.asList(first, gone)));
+        assertEquals("One, edited", helper.getTodoItemById(first.getId()).getTask());
+        assertEquals(3, helper.getTodoItemById(first.getId()).getPriority());
+        // The FTS triggers followed the batch update
+        assertEquals(1, helper.searchTodoItems("edited").size());
+        assertEquals(1, invalidations.size());
+    }
+
+    @Test
+    public void setTodoItemsCompletedReportsOnlyChangedRows() {
+        List<Integer> ids = helper.addTodoItems(Arrays.asList(new TodoItem("A"), new TodoItem("B"), new TodoItem("C")));
+        helper.updateTodoItemCompletion(ids.get(0), true);
+        invalidations.clear();
+
+        List<Integer> changed = helper.setTodoItemsCompleted(ids, true);
+        assertEquals(Arrays.asList(ids.get(1), ids.get(2)), changed);
+        assertEquals(3, helper.getTaskStats().getCompleted());
+        assertEquals(Collections.singletonList(new HashSet<>(changed)), invalidations);
+
+        invalidations.clear();
+        assertTrue(helper.setTodoItemsCompleted(ids, true).isEmpty());
+        assertTrue("a no-op batch should not notify", invalidations.isEmpty());
+    }
+
+    @Test
+    public void deletesReturnTheRemovedIds() {
+        List<Integer> ids = helper.addTodoItems(Arrays.asList(
+                new TodoItem("A"), new TodoItem("B"), new TodoItem("C"), new TodoItem("D")));
+        helper.setTodoItemsCompleted(Arrays.asList(ids.get(1), ids.get(3)), true);
+
+        assertEquals(Collections.singletonList(ids.get(0)), helper.deleteTodoItems(Arrays.asList(ids.get(0), 9999)));
+        assertEquals(new HashSet<>(Arrays.asList(ids.get(1), ids.get(3))), new HashSet<>(helper.clearCompletedTasks()));
+        assertTrue(helper.clearCompletedTasks().isEmpty());
+
+        TaskStats stats = helper.getTaskStats();
+        assertEquals(1, stats.getTotal());
+        assertEquals(0, stats.getCompleted());
+        assertEquals(Collections.singletonList(ids.get(2)),
+                helper.deleteTodoItemsWhere(DatabaseHelper.COLUMN_TASK + " = ?", new String[]{"C"}));
+        assertEquals(0, helper.getTotalCount());
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.todolist.database;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Assume;
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+/**
+ * Keeps a benchmark class out of the ordinary connectedAndroidTest run. Benchmarks seed up to a
+ * million rows and compare timings that only mean something on a quiet device, so they run
+ * only when asked for with
+ * {@code ./gradlew connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.benchmark=true}
+ * (or {@code adb shell am instrument -e benchmark true ...}), and are skipped otherwise.
+ */
+final class BenchmarkGate implements TestRule {
+
+    static final String ARGUMENT = "benchmark";
+
+    @Override
+    public Statement apply(Statement base, Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                Assume.assumeTrue("Benchmarks run only with the instrumentation argument "
+                        + ARGUMENT + "=true", isRequested());
+                base.evaluate();
+            }
+        };
+    }
+
+    static boolean isRequested() {
+        return Boolean.parseBoolean(InstrumentationRegistry.getArguments().getString(ARGUMENT));
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.todolist.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.todolist.models.TodoItem;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Upgrading a version 10 database moves every category name into the categories table with the
+ * colour it always had, and the dictionary then names, colours and filters tasks by id.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CategoryDictionaryTest {
+
+    private static final String TEST_DATABASE = "todo_category_test.db";
+    private static final int ROW_COUNT = 90;
+
+    @Rule
+    public final TestDatabaseRule database = new TestDatabaseRule(TEST_DATABASE);
+
+    @Before
+    public void setUp() {
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(
+                database.getContext().getDatabasePath(TEST_DATABASE), null);
+        // The todo_items columns and a category list index as of version 10; only the v11 steps run
+        db.execSQL("CREATE TABLE todo_items(id INTEGER PRIMARY KEY AUTOINCREMENT, task TEXT, completed INTEGER,"
+                + " created_at TEXT, due_date TEXT, due_time TEXT, category TEXT, priority INTEGER,"
+                + " description TEXT, has_reminder INTEGER DEFAULT 0, alarm_time INTEGER DEFAULT 0,"
+                + " due_at INTEGER, created_at_ms INTEGER, deleted_at INTEGER)");
+        db.execSQL("CREATE INDEX idx_todo_category_priority ON todo_items(category, priority) WHERE deleted_at IS NULL");
+        SQLiteStatement insert = db.compileStatement("INSERT INTO todo_items"
+                + " (task, completed, category, priority, deleted_at) VALUES (?, 0, ?, 2, ?)");
+        for (int i = 0; i < ROW_COUNT; i++) {
+            insert.clearBindings();
+            insert.bindString(1, "Task " + i);
+            // Work, Home, no category, and one Garden task that was deleted
+            if (i == 0) {
+                insert.bindString(2, "Garden");
+                insert.bindLong(3, 1_000);
+            } else if (i % 3 != 2) {
+                insert.bindString(2, i % 3 == 0 ? "Work" : "Home");
+            }
+            insert.executeInsert();
+        }
+        insert.close();
+        db.setVersion(10);
+        db.close();
+    }
+
+    @Test
+    public void upgradeMovesNamesIntoTheTable() {
+        DatabaseHelper helper = database.getHelper();
+        CategoryDictionary categories = helper.getCategories();
+        assertEquals(Arrays.asList("Garden", "Home", "Work"), helper.getAllCategories());
+
+        List<TodoItem> work = helper.getTodoItems("CATEGORY", "Work", TaskSort.PRIORITY);
+        assertEquals(ROW_COUNT / 3 - 1, work.size());
+        for (TodoItem item : work) {
+            assertEquals("Work", item.getCategory());
+            assertEquals(categories.idOf("Work"), item.getCategoryId());
+            assertEquals(CategoryDictionary.colorFor("Work"), categories.colorOf(item.getCategoryId()));
+        }
+        assertEquals(ROW_COUNT / 3, helper.getTodoItems("CATEGORY", "Home", TaskSort.NAME).size());
+        assertNull(helper.getTodoItemById(3).getCategory());
+        assertEquals(TodoItem.NO_CATEGORY, helper.getTodoItemById(3).getCategoryId());
+
+        SQLiteDatabase db = helper.getReadableDatabase();
+        assertEquals(0, count(db, "SELECT COUNT(*) FROM todo_items WHERE category IS NOT NULL"));
+        assertEquals(0, count(db, "SELECT COUNT(*) FROM sqlite_master WHERE name = 'idx_todo_category_priority'"));
+        assertEquals(1, count(db, "SELECT COUNT(*) FROM sqlite_master WHERE name = 'idx_todo_category_id_priority'"));
+    }
+
+    @Test
+    public void newCategoriesAreStoredOnce() {
+        DatabaseHelper helper = database.getHelper();
+        TodoItem first = new TodoItem("Post letters");
+        first.setCategory("Errands");
+        helper.addTodoItem(first);
+        TodoItem second = new TodoItem("Collect parcel");
+        second.setCategory("Errands");
+        helper.addTodoItems(Arrays.asList(second, new TodoItem("Buy stamps")));
+
+        int errands = helper.getCategories().idOf("Errands");
+        assertTrue(errands != TodoItem.NO_CATEGORY);
+        assertEquals(2, helper.getTodoItems("CATEGORY", "Errands", TaskSort.PRIORITY).size());
+        assertTrue(helper.getTodoItems("CATEGORY", "Nowhere", TaskSort.PRIORITY).isEmpty());
+        assertEquals(1, count(helper.getReadableDatabase(),
+                "SELECT COUNT(*) FROM categories WHERE name = 'Errands'"));
+
+        // A fresh dictionary reads the same ids back from the table
+        DatabaseHelper reopened = database.reopen();
+        assertEquals("Errands", reopened.getCategories().nameOf(reopened.getCategories().idOf("Errands")));
+        // New tasks start in General
+        assertEquals(Arrays.asList("Errands", "Garden", "General", "Home", "Work"), reopened.getAllCategories());
+    }
+
+    @Test
+    public void failedRestoreForgetsItsCategories() {
+        DatabaseHelper helper = database.getHelper();
+        TodoItem restored = new TodoItem("Water plants");
+        restored.setId(1);
+        restored.setCategory("Balcony");
+        Iterator<TodoItem> items = new Iterator<TodoItem>() {
+            boolean returned;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public TodoItem next() {
+                if (returned) throw new IllegalStateException("Corrupt backup");
+                returned = true;
+                return restored;
+            }
+        };
+        try {
+            helper.replaceAllTodoItems(items);
+            fail("restore should have failed");
+        } catch (IllegalStateException expected) {
+            // Rolled back
+        }
+        assertFalse(helper.getAllCategories().contains("Balcony"));
+        assertEquals(TodoItem.NO_CATEGORY, helper.getCategories().idOf("Balcony"));
+        assertEquals(ROW_COUNT - 1, helper.getTotalCount());
+    }
+
+    private static int count(SQLiteDatabase db, String sql) {
+        Cursor cursor = db.rawQuery(sql, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+}
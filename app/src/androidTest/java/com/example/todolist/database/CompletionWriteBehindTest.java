@@ -0,0 +1,218 @@
+package com.example.todolist.database;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.todolist.models.TodoItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checkbox toggles show at once, merge per task, and reach the database as one transaction
+ * per batch window that writes only the tasks whose state really changed. Toggles flushed on
+ * pause are journaled until written, and a later start replays what never reached the table.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CompletionWriteBehindTest {
+
+    private static final String TEST_DATABASE = "todo_completion_write_test.db";
+    private static final String TEST_JOURNAL = "todo_completion_journal_test";
+
+    @Rule
+    public final TestDatabaseRule database = new TestDatabaseRule(TEST_DATABASE, Runnable::run);
+
+    private Context context;
+    private DatabaseHelper helper;
+    private SharedPreferences journal;
+    private ExecutorService writeExecutor;
+    private CompletionWriteBehind writes;
+    private final List<Set<Integer>> notifications = new ArrayList<>();
+    private List<TodoItem> items;
+
+    @Before
+    public void setUp() {
+        context = database.getContext();
+        helper = database.getHelper();
+        journal = context.getSharedPreferences(TEST_JOURNAL, Context.MODE_PRIVATE);
+        journal.edit().clear().commit();
+        writeExecutor = Executors.newSingleThreadExecutor();
+        writes = new CompletionWriteBehind(helper, writeExecutor, new Handler(Looper.getMainLooper()), journal);
+
+        items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            items.add(new TodoItem("Task " + i));
+        }
+        List<Integer> ids = helper.addTodoItems(items);
+        for (int i = 0; i < ids.size(); i++) {
+            items.get(i).setId(ids.get(i));
+        }
+        database.getTracker().addObserver((tables, rowIds) -> notifications.add(rowIds), Runnable::run, DatabaseHelper.TABLE_TODO);
+    }
+
+    @After
+    public void tearDown() {
+        writeExecutor.shutdownNow();
+        journal.edit().clear().commit();
+    }
+
+    @Test
+    public void repeatedTogglesMergeIntoOneWrite() {
+        onMain(() -> {
+            writes.toggle(items.get(0), true);
+            writes.toggle(toggled(items.get(0), true), false);
+            writes.toggle(items.get(0), true);
+            // Toggled back before the write: nothing to do
+            writes.toggle(items.get(1), true);
+            writes.toggle(toggled(items.get(1), true), false);
+            writes.toggle(items.get(2), true);
+            flushAndWait();
+        });
+
+        assertTrue(helper.getTodoItemById(items.get(0).getId()).isCompleted());
+        assertFalse(helper.getTodoItemById(items.get(1).getId()).isCompleted());
+        assertTrue(helper.getTodoItemById(items.get(2).getId()).isCompleted());
+        assertEquals(1, notifications.size());
+        Set<Integer> expected = new HashSet<>();
+        expected.add(items.get(0).getId());
+        expected.add(items.get(2).getId());
+        assertEquals(expected, notifications.get(0));
+    }
+
+    @Test
+    public void listsShowTogglesBeforeTheyAreWritten() {
+        onMain(() -> {
+            writes.toggle(items.get(3), true);
+            List<TodoItem> shown = writes.overlay(helper.getTodoItems("ALL", "", TaskSort.NAME));
+            assertTrue(find(shown, items.get(3).getId()).isCompleted());
+            assertFalse(helper.getTodoItemById(items.get(3).getId()).isCompleted());
+            flushAndWait();
+        });
+        assertTrue(helper.getTodoItemById(items.get(3).getId()).isCompleted());
+    }
+
+    @Test
+    public void writtenAfterTheBatchWindow() throws Exception {
+        onMain(() -> writes.toggle(items.get(4), true));
+        SystemClock.sleep(3 * CompletionWriteBehind.BATCH_WINDOW_MS);
+        // Wait for the write handed over when the window closed
+        writeExecutor.submit(() -> { }).get();
+        assertTrue(helper.getTodoItemById(items.get(4).getId()).isCompleted());
+    }
+
+    @Test
+    public void markedPendingGoesBackOnTheReminderQueue() {
+        TodoItem item = new TodoItem("Call back");
+        String tomorrow = new SimpleDateFormat("yyyy-MM-dd", Locale.US)
+                .format(new Date(System.currentTimeMillis() + 24 * 60 * 60 * 1000L));
+        item.setDueDate(tomorrow);
+        item.setDueTime("10:00");
+        item.setHasReminder(true);
+        item.setCompleted(true);
+        item.setAlarmTime(0);
+        item.setId((int) helper.addTodoItem(item));
+        long expected = item.calculateAlarmTime();
+        assertTrue(expected > 0);
+
+        onMain(() -> {
+            writes.toggle(item, false);
+            flushAndWait();
+        });
+        TodoItem stored = helper.getTodoItemById(item.getId());
+        assertFalse(stored.isCompleted());
+        assertEquals(expected, stored.getAlarmTime());
+        assertEquals("Call back", stored.getTask());
+    }
+
+    @Test
+    public void pausedTogglesSurviveTheProcess() throws Exception {
+        // The writer is busy with something else as the screen is paused
+        CountDownLatch busy = new CountDownLatch(1);
+        writeExecutor.execute(() -> {
+            try {
+                busy.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        onMain(() -> {
+            writes.toggle(items.get(5), true);
+            writes.flushDurably();
+        });
+        // Killed before the write ran
+        writeExecutor.shutdownNow();
+        assertFalse(helper.getTodoItemById(items.get(5).getId()).isCompleted());
+        assertEquals(1, journal.getAll().size());
+
+        // The next start replays it
+        writeExecutor = Executors.newSingleThreadExecutor();
+        writes = new CompletionWriteBehind(helper, writeExecutor, new Handler(Looper.getMainLooper()), journal);
+        writeExecutor.submit(() -> { }).get();
+        assertTrue(helper.getTodoItemById(items.get(5).getId()).isCompleted());
+        assertTrue(journal.getAll().isEmpty());
+    }
+
+    @Test
+    public void writtenTogglesLeaveTheJournal() throws Exception {
+        onMain(() -> {
+            writes.toggle(items.get(6), true);
+            writes.flushDurably();
+        });
+        writeExecutor.submit(() -> { }).get();
+        // Dropped from the journal on the main thread once the write is in
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        assertTrue(helper.getTodoItemById(items.get(6).getId()).isCompleted());
+        assertTrue(journal.getAll().isEmpty());
+    }
+
+    private static TodoItem toggled(TodoItem item, boolean completed) {
+        TodoItem copy = new TodoItem(item);
+        copy.setCompleted(completed);
+        return copy;
+    }
+
+    private static TodoItem find(List<TodoItem> items, int id) {
+        for (TodoItem item : items) {
+            if (item.getId() == id) return item;
+        }
+        throw new AssertionError("No task " + id);
+    }
+
+    // Hands the queued toggles over and waits for their transaction, as a test must
+    private void flushAndWait() {
+        Future<?> write = writes.flush();
+        assertNotNull(write);
+        try {
+            write.get();
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void onMain(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+}
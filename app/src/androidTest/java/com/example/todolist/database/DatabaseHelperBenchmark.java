@@ -0,0 +1,152 @@
+package com.example.todolist.database;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.example.todolist.models.TodoItem;
+
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the per-query cost of the shared WAL connection against the old
+ * open/query/close pattern on a 50k-row table, and a batch insert against a commit per row.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperBenchmark {
+
+    @ClassRule
+    public static final BenchmarkGate GATE = new BenchmarkGate();
+
+    private static final String TAG = "DatabaseHelperBenchmark";
+    private static final String TEST_DATABASE = "todo_benchmark.db";
+    private static final int ROW_COUNT = 50_000;
+    private static final int QUERY_COUNT = 200;
+    private static final int BATCH_SIZE = 500;
+
+    @Rule
+    public final TestDatabaseRule database = new TestDatabaseRule(TEST_DATABASE);
+
+    private Context context;
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        context = database.getContext();
+        helper = database.getHelper();
+        seed(helper, ROW_COUNT);
+    }
+
+    @Test
+    public void sharedConnectionIsCheaperPerQuery() {
+        // Warm up both paths once
+        helper.getPendingCount();
+        openQueryClose();
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            helper.getPendingCount();
+        }
+        long sharedNanos = (SystemClock.elapsedRealtimeNanos() - start) / QUERY_COUNT;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            openQueryClose();
+        }
+        long reopenNanos = (SystemClock.elapsedRealtimeNanos() - start) / QUERY_COUNT;
+
+        Log.i(TAG, "Per query on " + ROW_COUNT + " rows: shared=" + sharedNanos / 1000
+                + "us, open/close=" + reopenNanos / 1000 + "us");
+        assertTrue("Shared connection should beat open/close per call", sharedNanos < reopenNanos);
+    }
+
+    @Test
+    public void readersRunInParallelWithWal() throws Exception {
+        assertTrue(helper.getReadableDatabase().isWriteAheadLoggingEnabled());
+
+        Thread[] readers = new Thread[4];
+        final int[] counts = new int[readers.length];
+        for (int i = 0; i < readers.length; i++) {
+            final int index = i;
+            readers[i] = new Thread(() -> counts[index] = helper.getTotalCount());
+            readers[i].start();
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        for (int count : counts) {
+            assertEquals(ROW_COUNT, count);
+        }
+    }
+
+    @Test
+    public void batchInsertCommitsOnce() {
+        List<TodoItem> items = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            items.add(new TodoItem("Batch task " + i));
+        }
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (TodoItem item : items) {
+            helper.addTodoItem(item);
+        }
+        long singleNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        List<Integer> ids = helper.addTodoItems(items);
+        long batchNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        assertEquals(BATCH_SIZE, ids.size());
+        Log.i(TAG, "Inserting " + BATCH_SIZE + " rows: one transaction=" + batchNanos / 1_000_000
+                + "ms, one per row=" + singleNanos / 1_000_000 + "ms");
+        assertTrue("A single transaction should beat a commit per row", batchNanos < singleNanos);
+    }
+
+    // The pre-WAL behaviour: a fresh connection for every call
+    private void openQueryClose() {
+        DatabaseHelper perCall = new DatabaseHelper(context, TEST_DATABASE);
+        perCall.getPendingCount();
+        perCall.close();
+    }
+
+    private static void seed(DatabaseHelper helper, int rows) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        int work = helper.getCategories().idFor(db, "Work");
+        int personal = helper.getCategories().idFor(db, "Personal");
+        SQLiteStatement insert = db.compileStatement("INSERT INTO todo_items "
+                + "(task, completed, created_at, due_date, due_time, category_id, priority, description) "
+                + "VALUES (?, ?, '2024-01-01 09:00:00', ?, '09:00', ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < rows; i++) {
+                insert.clearBindings();
+                insert.bindString(1, "Task " + i);
+                insert.bindLong(2, i % 3 == 0 ? 1 : 0);
+                insert.bindString(3, String.format("2024-%02d-%02d", 1 + i % 12, 1 + i % 28));
+                insert.bindLong(4, i % 2 == 0 ? work : personal);
+                insert.bindLong(5, 1 + i % 3);
+                insert.bindString(6, "Description for task " + i);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        insert.close();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.todolist.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.todolist.models.TodoItem;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Upgrades a version 8 database holding only text dates and checks every row, across several
+ * backfill batches, gets the same due instant and creation time the app computes itself.
+ */
+@RunWith(AndroidJUnit4.class)
+public class EpochMigrationTest {
+
+    private static final String TEST_DATABASE = "todo_epoch_migration.db";
+    private static final int ROW_COUNT = 1234;
+
+    @Rule
+    public final TestDatabaseRule database = new TestDatabaseRule(TEST_DATABASE);
+
+    @Before
+    public void setUp() {
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(
+                database.getContext().getDatabasePath(TEST_DATABASE), null);
+        // The todo_items columns as of version 8; only the v9 step runs on upgrade
+        db.execSQL("CREATE TABLE todo_items(id INTEGER PRIMARY KEY AUTOINCREMENT, task TEXT, completed INTEGER,"
+                + " created_at TEXT, due_date TEXT, due_time TEXT, category TEXT, priority INTEGER,"
+                + " description TEXT, has_reminder INTEGER DEFAULT 0, alarm_time INTEGER DEFAULT 0)");
+        SQLiteStatement insert = db.compileStatement("INSERT INTO todo_items"
+                + " (task, completed, created_at, due_date, due_time, category, priority) VALUES (?, ?, ?, ?, ?, 'Work', 2)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < ROW_COUNT; i++) {
+                insert.clearBindings();
+                insert.bindString(1, "Task " + i);
+                insert.bindLong(2, i % 4 == 0 ? 1 : 0);
+                insert.bindString(3, String.format("2024-%02d-%02d 08:30:00", 1 + i % 12, 1 + i % 28));
+                // No date, an empty one, a date alone, and a date with a time
+                if (i % 4 == 1) {
+                    insert.bindString(4, "");
+                } else if (i % 4 > 1) {
+                    insert.bindString(4, String.format("2024-%02d-%02d", 1 + i % 12, 1 + i % 28));
+                }
+                if (i % 4 == 3) {
+                    insert.bindString(5, String.format("%02d:%02d", i % 24, i % 60));
+                }
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        insert.close();
+        db.setVersion(8);
+        db.close();
+    }
+
+    @Test
+    public void upgradeBackfillsEveryRow() {
+        DatabaseHelper helper = database.getHelper();
+        Cursor cursor = helper.getReadableDatabase().rawQuery(
+                "SELECT due_date, due_time, created_at, due_at, created_at_ms FROM todo_items", null);
+        assertEquals(ROW_COUNT, cursor.getCount());
+        while (cursor.moveToNext()) {
+            long expectedDueAt = TodoItem.dueAtOf(cursor.getString(0), cursor.getString(1));
+            if (expectedDueAt == TodoItem.NO_DUE) {
+                assertTrue("undated row has a due_at", cursor.isNull(3));
+            } else {
+                assertEquals(expectedDueAt, cursor.getLong(3));
+            }
+            assertEquals(TodoItem.createdAtMillisOf(cursor.getString(2)), cursor.getLong(4));
+        }
+        cursor.close();
+
+        Cursor index = helper.getReadableDatabase().rawQuery(
+                "SELECT name FROM sqlite_master WHERE type = 'index' AND name = 'idx_todo_pending_due_at'", null);
+        assertEquals(1, index.getCount());
+        index.close();
+    }
+}
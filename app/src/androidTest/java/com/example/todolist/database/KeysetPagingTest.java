@@ -0,0 +1,153 @@
+package com.example.todolist.database;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.todolist.models.TodoItem;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Walks each filtered list page by page in every sort order, forwards and backwards, and checks
+ * the pages join up to exactly the full list: no row skipped or repeated across ties and missing
+ * dates. Also checks the SQL orders agree with the comparators the list used to sort by in memory.
+ */
+@RunWith(AndroidJUnit4.class)
+public class KeysetPagingTest {
+
+    private static final String TEST_DATABASE = "todo_keyset_paging.db";
+    private static final int ROW_COUNT = 437;
+    private static final int PAGE = 20;
+
+    @Rule
+    public final TestDatabaseRule database = new TestDatabaseRule(TEST_DATABASE);
+
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        helper = database.getHelper();
+        for (int i = 0; i < ROW_COUNT; i++) {
+            // Names differing only in case, to tie under NOCASE
+            TodoItem item = new TodoItem((i % 3 == 0 ? "task " : "Task ") + (i % 50));
+            item.setPriority(1 + i % 3);
+            item.setCompleted(i % 4 == 0);
+            item.setCategory(i % 2 == 0 ? "Work" : "Home");
+            // Lots of ties, and both NULL and "" for a missing date or time
+            switch (i % 5) {
+                case 0: item.setDueDate(null); break;
+                case 1: item.setDueDate(""); break;
+                default: item.setDueDate("2024-06-0" + (1 + i % 3));
+            }
+            item.setDueTime(i % 7 == 0 ? null : (i % 7 == 1 ? "" : "0" + (i % 4) + ":00"));
+            helper.addTodoItem(item);
+        }
+    }
+
+    @Test
+    public void pagesJoinUpToTheFullList() {
+        for (TaskSort sort : TaskSort.values()) {
+            assertPagesMatch("ALL", "", sort);
+            assertPagesMatch("COMPLETED", "", sort);
+            assertPagesMatch("PENDING", "", sort);
+            assertPagesMatch("CATEGORY", "Work", sort);
+        }
+    }
+
+    @Test
+    public void inclusivePageStartsAtTheAnchor() {
+        for (TaskSort sort : TaskSort.values()) {
+            List<TodoItem> first = helper.getTodoItemsPageAfter("ALL", "", sort, null, false, PAGE);
+            TodoItem anchor = first.get(PAGE / 2);
+            List<TodoItem> from = helper.getTodoItemsPageAfter("ALL", "", sort, anchor, true, PAGE);
+            assertEquals(sort.toString(), anchor.getId(), from.get(0).getId());
+        }
+    }
+
+    @Test
+    public void sqlOrderMatchesInMemoryComparators() {
+        assertOrdered(TaskSort.PRIORITY, (item1, item2) -> {
+            int priorityCompare = Integer.compare(item1.getPriority(), item2.getPriority());
+            if (priorityCompare != 0) {
+                return priorityCompare;
+            }
+            if (item1.hasDueDate() && item2.hasDueDate()) {
+                int dateCompare = item1.getDueDate().compareTo(item2.getDueDate());
+                if (dateCompare == 0 && item1.hasDueTime() && item2.hasDueTime()) {
+                    return item1.getDueTime().compareTo(item2.getDueTime());
+                }
+                return dateCompare;
+            }
+            return Boolean.compare(!item1.hasDueDate(), !item2.hasDueDate());
+        });
+        assertOrdered(TaskSort.DATE, (item1, item2) -> {
+            if (item1.hasDueDate() && item2.hasDueDate()) {
+                int dateCompare = item1.getDueDate().compareTo(item2.getDueDate());
+                if (dateCompare == 0) {
+                    if (item1.hasDueTime() && item2.hasDueTime()) {
+                        return item1.getDueTime().compareTo(item2.getDueTime());
+                    }
+                    return Boolean.compare(!item1.hasDueTime(), !item2.hasDueTime());
+                }
+                return dateCompare;
+            }
+            return Boolean.compare(!item1.hasDueDate(), !item2.hasDueDate());
+        });
+        assertOrdered(TaskSort.NAME, (item1, item2) -> item1.getTask().compareToIgnoreCase(item2.getTask()));
+    }
+
+    private void assertOrdered(TaskSort sort, Comparator<TodoItem> comparator) {
+        List<TodoItem> items = helper.getTodoItems("ALL", "", sort);
+        assertEquals(ROW_COUNT, items.size());
+        for (int i = 1; i < items.size(); i++) {
+            assertTrue(sort + " order breaks at row " + i,
+                    comparator.compare(items.get(i - 1), items.get(i)) <= 0);
+        }
+    }
+
+    private void assertPagesMatch(String filter, String category, TaskSort sort) {
+        String name = filter + " by " + sort;
+        List<Integer> full = new ArrayList<>();
+        for (TodoItem item : helper.getTodoItems(filter, category, sort)) {
+            full.add(item.getId());
+        }
+
+        List<Integer> forward = new ArrayList<>();
+        TodoItem anchor = null;
+        List<TodoItem> page;
+        do {
+            page = helper.getTodoItemsPageAfter(filter, category, sort, anchor, false, PAGE);
+            for (TodoItem item : page) {
+                forward.add(item.getId());
+            }
+            if (!page.isEmpty()) {
+                anchor = page.get(page.size() - 1);
+            }
+        } while (page.size() == PAGE);
+        assertEquals(name + " pages differ from the full list", full, forward);
+        assertEquals(name + " pages repeat a row", forward.size(), new HashSet<>(forward).size());
+
+        // Back from the last row to the top again
+        List<Integer> backward = new ArrayList<>();
+        backward.add(0, anchor.getId());
+        do {
+            page = helper.getTodoItemsPageBefore(filter, category, sort, anchor, PAGE);
+            for (int i = page.size() - 1; i >= 0; i--) {
+                backward.add(0, page.get(i).getId());
+            }
+            if (!page.isEmpty()) {
+                anchor = page.get(0);
+            }
+        } while (page.size() == PAGE);
+        assertEquals(name + " backward pages differ", forward, backward);
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.todolist.database;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.todolist.models.TodoItem;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.*;
+
+/**
+ * Menu navigation between lists already shown is served from the cache, and a write drops
+ * exactly the cached lists it could have changed.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryCacheTest {
+
+    private static final String TEST_DATABASE = "todo_query_cache_test.db";
+    private static final int PAGE = 20;
+
+    @Rule
+    public final TestDatabaseRule database = new TestDatabaseRule(TEST_DATABASE, Runnable::run);
+
+    private DatabaseHelper helper;
+    private QueryCache cache;
+    private int queries;
+
+    @Before
+    public void setUp() {
+        helper = database.getHelper();
+        cache = new QueryCache(helper);
+        database.getTracker().addObserver(cache, Runnable::run, DatabaseHelper.TABLE_TODO);
+
+        List<TodoItem> items = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            TodoItem item = new TodoItem((i % 2 == 0 ? "Groceries " : "Report ") + i);
+            item.setCompleted(i % 3 == 0);
+            item.setCategory(i % 2 == 0 ? "Home" : "Work");
+            item.setPriority(1 + i % 3);
+            items.add(item);
+        }
+        helper.addTodoItems(items);
+    }
+
+    @Test
+    public void menuNavigationIsServedFromMemory() throws Exception {
+        String[][] menu = {{"ALL", ""}, {"COMPLETED", ""}, {"PENDING", ""}, {"CATEGORY", "Work"}};
+        for (int round = 0; round < 5; round++) {
+            for (String[] filter : menu) {
+                List<TodoItem> page = page(filter[0], filter[1], TaskSort.PRIORITY);
+                assertEquals(helper.getTodoItemsPageAfter(filter[0], filter[1], TaskSort.PRIORITY, null, true, PAGE).size(),
+                        page.size());
+            }
+        }
+        assertEquals(menu.length, queries);
+        assertEquals(menu.length, cache.getMisses());
+        assertEquals(4 * menu.length, cache.getHits());
+    }
+
+    @Test
+    public void shorterPagesAndWholeListsShareEntries() throws Exception {
+        List<TodoItem> whole = list("CATEGORY", "Home", TaskSort.NAME);
+        assertEquals(30, whole.size());
+        // The whole list answers its first page too
+        assertEquals(whole.get(0).getId(), page("CATEGORY", "Home", TaskSort.NAME).get(0).getId());
+        // Any category filter ignores the category
+        list("ALL", "", TaskSort.DATE);
+        list("ALL", "Home", TaskSort.DATE);
+        assertEquals(2, queries);
+    }
+
+    @Test
+    public void writesDropOnlyAffectedLists() throws Exception {
+        page("COMPLETED", "", TaskSort.PRIORITY);
+        page("PENDING", "", TaskSort.PRIORITY);
+        page("CATEGORY", "Home", TaskSort.PRIORITY);
+        page("CATEGORY", "Work", TaskSort.PRIORITY);
+        search("groceries");
+        assertEquals(5, queries);
+
+        // A completed Work task marked pending: the Home list and the search cannot have changed
+        List<TodoItem> completed = helper.getTodoItems("COMPLETED", "", TaskSort.NAME);
+        TodoItem work = completed.get(completed.size() - 1);
+        assertEquals("Work", work.getCategory());
+        helper.updateTodoItemCompletion(work.getId(), false);
+        page("CATEGORY", "Home", TaskSort.PRIORITY);
+        search("groceries");
+        assertEquals(5, queries);
+        page("COMPLETED", "", TaskSort.PRIORITY);
+        page("PENDING", "", TaskSort.PRIORITY);
+        page("CATEGORY", "Work", TaskSort.PRIORITY);
+        assertEquals(8, queries);
+
+        // A new Home task matching the search drops those two lists and nothing else
+        TodoItem added = new TodoItem("Groceries again");
+        added.setCategory("Home");
+        helper.addTodoItem(added);
+        page("CATEGORY", "Work", TaskSort.PRIORITY);
+        assertEquals(8, queries);
+        page("CATEGORY", "Home", TaskSort.PRIORITY);
+        assertTrue(containsTask(search("groceries"), "Groceries again"));
+        assertEquals(10, queries);
+    }
+
+    @Test
+    public void handedOutItemsAreCopies() throws Exception {
+        page("ALL", "", TaskSort.PRIORITY).get(0).setTask("Changed on screen");
+        assertFalse("Changed on screen".equals(page("ALL", "", TaskSort.PRIORITY).get(0).getTask()));
+    }
+
+    @Test
+    public void boundedByEntries() throws Exception {
+        for (int i = 0; i <= QueryCache.MAX_ENTRIES; i++) {
+            search("term" + i);
+        }
+        assertEquals(1, cache.getEvicted());
+        search("term0");
+        assertEquals(QueryCache.MAX_ENTRIES + 2, queries);
+    }
+
+    private List<TodoItem> page(String filter, String category, TaskSort sort) throws Exception {
+        return cache.cached(QueryCache.Key.list(filter, category, sort), PAGE,
+                counted(() -> helper.getTodoItemsPageAfter(filter, category, sort, null, true, PAGE))).call();
+    }
+
+    private List<TodoItem> list(String filter, String category, TaskSort sort) throws Exception {
+        return cache.cached(QueryCache.Key.list(filter, category, sort), -1,
+                counted(() -> helper.getTodoItems(filter, category, sort))).call();
+    }
+
+    private List<TodoItem> search(String text) throws Exception {
+        SearchQuery query = SearchQuery.parse(text);
+        return cache.cached(QueryCache.Key.search(query), -1, counted(() -> helper.searchTodoItems(query))).call();
+    }
+
+    private Callable<List<TodoItem>> counted(Callable<List<TodoItem>> query) {
+        return () -> {
+            queries++;
+            return query.call();
+        };
+    }
+
+    private static boolean containsTask(List<TodoItem> items, String task) {
+        for (TodoItem item : items) {
+            if (task.equals(item.getTask())) return true;
+        }
+        return false;
+    }
+}
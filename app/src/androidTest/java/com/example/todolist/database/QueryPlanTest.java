@@ -0,0 +1,149 @@
+package com.example.todolist.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.todolist.models.TodoItem;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs EXPLAIN QUERY PLAN for the query behind each public read method of DatabaseHelper
+ * and fails if any of them falls back to a full table scan or a temporary sort.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryPlanTest {
+
+    private static final String TEST_DATABASE = "todo_query_plan.db";
+
+    @Rule
+    public final TestDatabaseRule database = new TestDatabaseRule(TEST_DATABASE);
+
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        helper = database.getHelper();
+        db = helper.getReadableDatabase();
+    }
+
+    @Test
+    public void listQueriesUseIndexes() {
+        assertIndexed("getAllTodoItems", DatabaseHelper.SQL_ALL_ITEMS);
+        assertIndexed("getTodoItemsByCategory", DatabaseHelper.SQL_ITEMS_BY_CATEGORY, "1");
+        assertIndexed("getCompletedItems", DatabaseHelper.SQL_COMPLETED_ITEMS);
+        assertIndexed("getPendingItems", DatabaseHelper.SQL_PENDING_ITEMS);
+        assertIndexed("getTasksWithReminders", DatabaseHelper.SQL_ITEMS_WITH_REMINDERS);
+        assertIndexed("getTasksDueToday", DatabaseHelper.SQL_ITEMS_DUE_ON, "2024-06-01");
+        assertIndexed("getTasksSortedByDateTime", DatabaseHelper.SQL_ITEMS_BY_DATE_TIME);
+        assertIndexed("getUpcomingTasks", DatabaseHelper.SQL_UPCOMING_ITEMS, "2024-06-01", "2024-06-08");
+        assertIndexed("getTodoItemById", DatabaseHelper.SQL_ITEM_BY_ID, "1");
+        assertIndexed("getAllCategories", DatabaseHelper.SQL_CATEGORIES);
+        assertIndexed("getNextReminderTime", DatabaseHelper.SQL_NEXT_REMINDER_TIME);
+        assertIndexed("takeDueReminders", DatabaseHelper.SQL_DUE_REMINDERS, "1717200000000");
+        assertIndexed("getQueuedReminderCount", DatabaseHelper.SQL_QUEUED_REMINDER_COUNT, "1717200000000");
+        assertIndexed("purgeTombstones", DatabaseHelper.SQL_TOMBSTONES_BEFORE, "1717200000000", "200");
+    }
+
+    @Test
+    public void sortedListQueriesSeekTheListIndex() {
+        TodoItem anchor = new TodoItem("Groceries");
+        anchor.setId(42);
+        anchor.setPriority(2);
+        anchor.setDueDate("2024-06-01");
+        anchor.setDueTime("09:00");
+        for (TaskSort sort : TaskSort.values()) {
+            List<String> anchorArgs = new ArrayList<>();
+            for (String value : sort.keyValues(anchor)) {
+                anchorArgs.add(value);
+                anchorArgs.add(value);
+            }
+            anchorArgs.add("42");
+            for (String filter : new String[]{"ALL", "COMPLETED", "PENDING", "CATEGORY"}) {
+                String[] filterArg = filter.equals("ALL") ? new String[0]
+                        : new String[]{"1"};
+                String[] keyedArgs = concat(filterArg, anchorArgs.toArray(new String[0]));
+                String name = filter + " by " + sort;
+                assertIndexed("whole list " + name,
+                        DatabaseHelper.listQuery(filter, sort, false, false, false, -1), filterArg);
+                assertIndexed("first page " + name,
+                        DatabaseHelper.listQuery(filter, sort, false, false, false, TaskPager.PAGE_SIZE), filterArg);
+                assertIndexed("page after " + name,
+                        DatabaseHelper.listQuery(filter, sort, true, false, false, TaskPager.PAGE_SIZE), keyedArgs);
+                assertIndexed("page from " + name,
+                        DatabaseHelper.listQuery(filter, sort, true, false, true, TaskPager.PAGE_SIZE), keyedArgs);
+                assertIndexed("page before " + name,
+                        DatabaseHelper.listQuery(filter, sort, true, true, false, TaskPager.PAGE_SIZE), keyedArgs);
+            }
+        }
+    }
+
+    private static String[] concat(String[] first, String[] second) {
+        String[] result = new String[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    @Test
+    public void searchUsesFullTextIndex() {
+        // Ranking sorts the matched rows, so only a scan of todo_items itself is a failure here
+        List<String> plan = explain(DatabaseHelper.SQL_SEARCH, new String[]{"task:gro*", "gro*"});
+        assertNoTableScan("searchTodoItems", plan);
+        boolean usesFts = false;
+        for (String step : plan) {
+            usesFts |= step.contains("todo_fts") && step.contains("VIRTUAL TABLE INDEX");
+        }
+        assertTrue("searchTodoItems should query todo_fts: " + plan, usesFts);
+    }
+
+    @Test
+    public void countQueriesUseIndexes() {
+        assertIndexed("getTotalCount", DatabaseHelper.SQL_TOTAL_COUNT);
+        assertIndexed("getCompletedCount", DatabaseHelper.SQL_COMPLETED_COUNT);
+        assertIndexed("getPendingCount", DatabaseHelper.SQL_PENDING_COUNT);
+        assertIndexed("getReminderCount", DatabaseHelper.SQL_REMINDER_COUNT);
+        assertIndexed("getDueTodayCount", DatabaseHelper.SQL_DUE_ON_COUNT, "2024-06-01");
+        assertIndexed("getOverdueCount", DatabaseHelper.SQL_OVERDUE_COUNT, "1717200000000");
+        assertIndexed("getTaskStats", DatabaseHelper.SQL_TASK_STATS, "1717200000000", "2024-06-01");
+    }
+
+    private void assertIndexed(String method, String sql, String... args) {
+        List<String> plan = explain(sql, args);
+        assertNoTableScan(method, plan);
+        for (String step : plan) {
+            assertFalse(method + " sorts in a temp b-tree: " + plan, step.contains("TEMP B-TREE"));
+        }
+    }
+
+    private void assertNoTableScan(String method, List<String> plan) {
+        assertFalse(method + " returned no plan", plan.isEmpty());
+        for (String step : plan) {
+            // Old SQLite prints "SCAN TABLE todo_items", newer prints "SCAN todo_items"
+            boolean fullScan = step.startsWith("SCAN") && step.contains("todo_items") && !step.contains("INDEX");
+            assertFalse(method + " scans the table: " + plan, fullScan);
+        }
+    }
+
+    private List<String> explain(String sql, String[] args) {
+        List<String> plan = new ArrayList<>();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args.length == 0 ? null : args);
+        int detail = cursor.getColumnIndexOrThrow("detail");
+        while (cursor.moveToNext()) {
+            plan.add(cursor.getString(detail));
+        }
+        cursor.close();
+        return plan;
+    }
+}
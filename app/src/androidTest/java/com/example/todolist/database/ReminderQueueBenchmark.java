@@ -0,0 +1,141 @@
+package com.example.todolist.database;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.example.todolist.models.TodoItem;
+import com.example.todolist.utils.ReminderScheduler;
+
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays a day of reminders clustered on the quarter hours, the way people pick times, through
+ * the queue the reminder scheduler drains, and counts the wakeups against one alarm per task.
+ * Also times the boot-time read of the queue against loading every timed task as before.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class ReminderQueueBenchmark {
+
+    @ClassRule
+    public static final BenchmarkGate GATE = new BenchmarkGate();
+
+    private static final String TAG = "ReminderQueueBenchmark";
+    private static final String TEST_DATABASE = "todo_reminder_benchmark.db";
+    private static final long DAY_START = 1_717_200_000_000L;
+    private static final long QUARTER_HOUR = 15 * 60_000L;
+    private static final int REMINDER_COUNT = 500;
+    private static final int TIMED_TASK_COUNT = 20_000;
+    // What BootReceiver used to load: every pending task with a date and time, reminder or not
+    private static final String SQL_OLD_BOOT_SELECTION = "SELECT * FROM " + DatabaseHelper.TABLE_TODO
+            + " WHERE completed = 0 AND due_date IS NOT NULL AND due_time IS NOT NULL";
+
+    @Rule
+    public final TestDatabaseRule database = new TestDatabaseRule(TEST_DATABASE);
+
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        helper = database.getHelper();
+    }
+
+    @Test
+    public void clusteredRemindersShareWakeups() {
+        List<TodoItem> items = new ArrayList<>(REMINDER_COUNT);
+        for (int i = 0; i < REMINDER_COUNT; i++) {
+            TodoItem item = new TodoItem("Reminder " + i);
+            item.setHasReminder(true);
+            // Spread over the day's quarter hours, some a few seconds off the mark
+            item.setAlarmTime(DAY_START + (i * 7 % 96) * QUARTER_HOUR + (i % 3) * 10_000L);
+            items.add(item);
+        }
+        TodoItem completed = new TodoItem("Already done");
+        completed.setHasReminder(true);
+        completed.setCompleted(true);
+        completed.setAlarmTime(DAY_START);
+        items.add(completed);
+        helper.addTodoItems(items);
+
+        Set<Integer> delivered = new HashSet<>();
+        int wakeups = 0;
+        long queueNanos = 0;
+        long next;
+        while (true) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            next = helper.getNextReminderTime();
+            if (next == 0) break;
+            List<TodoItem> due = helper.takeDueReminders(next + ReminderScheduler.COALESCE_WINDOW_MS);
+            queueNanos += SystemClock.elapsedRealtimeNanos() - start;
+            wakeups++;
+            for (TodoItem reminder : due) {
+                assertTrue("Delivered twice: " + reminder.getId(), delivered.add(reminder.getId()));
+                assertTrue(reminder.getAlarmTime() - next <= ReminderScheduler.COALESCE_WINDOW_MS);
+                assertFalse(reminder.isCompleted());
+            }
+        }
+
+        Log.i(TAG, REMINDER_COUNT + " reminders in a day: " + wakeups + " wakeups, "
+                + (queueNanos / wakeups / 1000) + "us of queue work per wakeup");
+        assertEquals(REMINDER_COUNT, delivered.size());
+        assertTrue("Clustered reminders should share wakeups", wakeups <= 96);
+        assertEquals(0, helper.getNextReminderTime());
+    }
+
+    @Test
+    public void bootRestoreReadsOnlyQueuedReminders() {
+        List<TodoItem> items = new ArrayList<>(TIMED_TASK_COUNT);
+        int withReminder = 0;
+        for (int i = 0; i < TIMED_TASK_COUNT; i++) {
+            TodoItem item = new TodoItem("Timed " + i);
+            item.setDueDate("2024-06-" + (10 + i % 20));
+            item.setDueTime(String.format(Locale.US, "%02d:%02d", i % 24, i % 60));
+            if (i % 50 == 0) {
+                item.setHasReminder(true);
+                item.setAlarmTime(DAY_START + i * 60_000L);
+                withReminder++;
+            }
+            items.add(item);
+        }
+        helper.addTodoItems(items);
+
+        // Warm up both paths once
+        helper.getQueuedReminderCount(DAY_START);
+        loadOldBootSelection();
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        int queued = helper.getQueuedReminderCount(DAY_START - 1);
+        long next = helper.getNextReminderTime();
+        long queueNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        int oldRows = loadOldBootSelection();
+        long oldNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        Log.i(TAG, "Boot restore over " + TIMED_TASK_COUNT + " timed tasks: queue=" + queueNanos / 1000
+                + "us for " + queued + " reminders, old selection=" + oldNanos / 1000 + "us for " + oldRows + " rows");
+        assertEquals(withReminder, queued);
+        assertEquals(TIMED_TASK_COUNT, oldRows);
+        assertEquals(DAY_START, next);
+        assertTrue("Reading the reminder index should beat loading every timed task", queueNanos < oldNanos);
+    }
+
+    private int loadOldBootSelection() {
+        return TodoItemMapper.mapAll(helper.getReadableDatabase().rawQuery(SQL_OLD_BOOT_SELECTION, null), helper.getCategories()).size();
+    }
+}
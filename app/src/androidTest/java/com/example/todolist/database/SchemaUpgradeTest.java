@@ -0,0 +1,114 @@
+package com.example.todolist.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.todolist.models.TaskStats;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Upgrades version 2 and version 3 databases through every step to the current version and
+ * checks they end up with the indexes, triggers and tables a fresh install gets, and with their
+ * tasks searchable, counted and in their categories.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SchemaUpgradeTest {
+
+    private static final String TEST_DATABASE = "todo_schema_upgrade.db";
+    private static final String FRESH_DATABASE = "todo_schema_fresh.db";
+
+    @Rule
+    public final TestDatabaseRule database = new TestDatabaseRule(TEST_DATABASE);
+
+    @Rule
+    public final TestDatabaseRule fresh = new TestDatabaseRule(FRESH_DATABASE);
+
+    @Test
+    public void upgradeFromVersion2() {
+        // The todo_items columns as of version 2, before due times and reminders
+        createOldDatabase(2, "CREATE TABLE todo_items(id INTEGER PRIMARY KEY AUTOINCREMENT, task TEXT,"
+                + " completed INTEGER, created_at TEXT, due_date TEXT, category TEXT, priority INTEGER,"
+                + " description TEXT)",
+                "INSERT INTO todo_items (task, completed, created_at, due_date, category, priority, description)"
+                        + " VALUES ('Buy milk', 0, '2024-01-01 09:00:00', '2024-02-01', 'Personal', 2, 'Semi-skimmed')",
+                "INSERT INTO todo_items (task, completed, created_at, due_date, category, priority, description)"
+                        + " VALUES ('File report', 1, '2024-01-02 09:00:00', NULL, 'Work', 1, NULL)");
+
+        checkUpgraded(0);
+    }
+
+    @Test
+    public void upgradeFromVersion3() {
+        // The todo_items columns as of version 3, before any index
+        createOldDatabase(3, "CREATE TABLE todo_items(id INTEGER PRIMARY KEY AUTOINCREMENT, task TEXT,"
+                + " completed INTEGER, created_at TEXT, due_date TEXT, due_time TEXT, category TEXT,"
+                + " priority INTEGER, description TEXT, has_reminder INTEGER DEFAULT 0, alarm_time INTEGER DEFAULT 0)",
+                "INSERT INTO todo_items (task, completed, created_at, due_date, due_time, category, priority,"
+                        + " description, has_reminder, alarm_time) VALUES ('Buy milk', 0, '2024-01-01 09:00:00',"
+                        + " '2024-02-01', '08:30', 'Personal', 2, 'Semi-skimmed', 1, 1706776200000)",
+                "INSERT INTO todo_items (task, completed, created_at, due_date, due_time, category, priority,"
+                        + " description, has_reminder, alarm_time) VALUES ('File report', 1, '2024-01-02 09:00:00',"
+                        + " NULL, NULL, 'Work', 1, NULL, 0, 0)");
+
+        checkUpgraded(1);
+    }
+
+    private void createOldDatabase(int version, String createTable, String... inserts) {
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(
+                database.getContext().getDatabasePath(TEST_DATABASE), null);
+        db.execSQL(createTable);
+        for (String insert : inserts) {
+            db.execSQL(insert);
+        }
+        db.setVersion(version);
+        db.close();
+    }
+
+    private void checkUpgraded(int expectedReminders) {
+        SQLiteDatabase upgraded = database.getHelper().getReadableDatabase();
+        assertEquals(schemaOf(fresh.getHelper().getReadableDatabase()), schemaOf(upgraded));
+
+        TaskStats stats = database.getHelper().getTaskStats();
+        assertEquals(2, stats.getTotal());
+        assertEquals(1, stats.getCompleted());
+        assertEquals(expectedReminders, stats.getWithReminders());
+
+        Cursor categories = upgraded.rawQuery("SELECT t.task FROM todo_items t JOIN categories c"
+                + " ON c.id = t.category_id WHERE c.name = 'Work' AND t.category IS NULL", null);
+        assertEquals(1, categories.getCount());
+        categories.close();
+
+        Cursor search = upgraded.rawQuery("SELECT docid FROM todo_fts WHERE todo_fts MATCH 'skimmed'", null);
+        assertEquals(1, search.getCount());
+        search.close();
+
+        Cursor dueAt = upgraded.rawQuery("SELECT due_at FROM todo_items WHERE task = 'Buy milk'", null);
+        assertTrue(dueAt.moveToFirst());
+        assertFalse("dated row has no due_at", dueAt.isNull(0));
+        dueAt.close();
+    }
+
+    // Every index, trigger and table but todo_items itself, which keeps its unused category
+    // column after an upgrade, with the SQL that built it
+    private static List<String> schemaOf(SQLiteDatabase db) {
+        List<String> schema = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT type, name, sql FROM sqlite_master WHERE name != 'todo_items'"
+                + " ORDER BY type, name", null);
+        while (cursor.moveToNext()) {
+            String sql = cursor.isNull(2) ? "" : cursor.getString(2).replaceAll("\\s+", " ");
+            schema.add(cursor.getString(0) + " " + cursor.getString(1) + ": " + sql);
+        }
+        cursor.close();
+        return schema;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.todolist.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Search latency through the FTS index should not grow with the size of todo_items.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class SearchBenchmark {
+
+    @ClassRule
+    public static final BenchmarkGate GATE = new BenchmarkGate();
+
+    private static final String TAG = "SearchBenchmark";
+    private static final String TEST_DATABASE = "todo_search_benchmark.db";
+    private static final int QUERY_COUNT = 50;
+
+    @Rule
+    public final TestDatabaseRule database = new TestDatabaseRule(TEST_DATABASE);
+
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        helper = database.getHelper();
+    }
+
+    @Test
+    public void searchLatencyStaysFlatAsTableGrows() {
+        SQLiteDatabase db = helper.getWritableDatabase();
+
+        int general = helper.getCategories().idFor(db, "General");
+        seed(db, general, 0, 10_000, true);
+        long smallNanos = timeSearch("groceries");
+
+        seed(db, general, 10_000, 100_000, false);
+        long largeNanos = timeSearch("groceries");
+
+        Log.i(TAG, "Search per query: 10k rows=" + smallNanos / 1000 + "us, 100k rows=" + largeNanos / 1000 + "us");
+        assertEquals(20, helper.searchTodoItems("groceries").size());
+        // A LIKE scan grows ~10x here; the index lookup should stay within a small constant
+        assertTrue("Search latency grew with table size", largeNanos < smallNanos * 3);
+    }
+
+    private long timeSearch(String query) {
+        helper.searchTodoItems(query);
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            helper.searchTodoItems(query);
+        }
+        return (SystemClock.elapsedRealtimeNanos() - start) / QUERY_COUNT;
+    }
+
+    // Every row gets a long description; only the first block holds the 20 matching rows,
+    // so the result size is the same at both table sizes
+    private static void seed(SQLiteDatabase db, int categoryId, int from, int to, boolean withMatches) {
+        SQLiteStatement insert = db.compileStatement("INSERT INTO todo_items "
+                + "(task, completed, created_at, category_id, priority, description) "
+                + "VALUES (?, 0, '2024-01-01 09:00:00', ?, 2, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = from; i < to; i++) {
+                boolean match = withMatches && i % 500 == 0;
+                insert.clearBindings();
+                insert.bindString(1, match ? "Buy groceries " + i : "Task number " + i);
+                insert.bindLong(2, categoryId);
+                insert.bindString(3, "A fairly long description with plenty of words to index for row " + i
+                        + " so that every document carries realistic weight in the full text index");
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        insert.close();
+    }
+}
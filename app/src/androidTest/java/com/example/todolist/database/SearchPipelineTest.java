@@ -0,0 +1,188 @@
+package com.example.todolist.database;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.todolist.models.TodoItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Keystrokes within the debounce window cost one search, results of a search the user has
+ * moved on from are never shown, and narrowing a complete result set is answered in memory.
+ * Searches go to a fake source that answers only when told to, on a looper of the test's own.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SearchPipelineTest {
+
+    private static final List<TodoItem> TASKS = Arrays.asList(
+            new TodoItem("Buy milk"), new TodoItem("Buy eggs"), new TodoItem("Milk the goat"));
+
+    private HandlerThread thread;
+    private Handler handler;
+    private SearchPipeline pipeline;
+    private final FakeSource source = new FakeSource();
+    private final List<List<TodoItem>> shown = new ArrayList<>();
+    private int cleared;
+
+    @Before
+    public void setUp() {
+        thread = new HandlerThread("search-pipeline-test");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        pipeline = new SearchPipeline(source, new SearchPipeline.Listener() {
+            @Override
+            public void onSearchResults(List<TodoItem> results) {
+                shown.add(results);
+            }
+
+            @Override
+            public void onSearchCleared() {
+                cleared++;
+            }
+        }, handler);
+    }
+
+    @After
+    public void tearDown() {
+        thread.quit();
+    }
+
+    @Test
+    public void keystrokesWithinTheDebounceCostOneSearch() throws Exception {
+        type("m", "mi", "mil", "milk");
+        awaitDebounce();
+
+        assertEquals(Arrays.asList(SearchQuery.parse("milk")), source.queries);
+        assertEquals(1, pipeline.getQueriesIssued());
+        assertEquals(3, pipeline.getQueriesSkipped());
+    }
+
+    @Test
+    public void resultsOfAnAbandonedSearchAreDropped() throws Exception {
+        type("milk");
+        awaitDebounce();
+        answer(0);
+        type("eggs");
+        awaitDebounce();
+        // Back to the query on screen while the eggs search is still running
+        type("milk");
+        awaitDebounce();
+        answer(1);
+
+        assertEquals(1, shown.size());
+        assertEquals(2, pipeline.getQueriesIssued());
+        assertEquals(1, pipeline.getQueriesCancelled());
+    }
+
+    @Test
+    public void olderSearchLandingLateIsDropped() throws Exception {
+        type("eggs");
+        awaitDebounce();
+        type("goat");
+        awaitDebounce();
+        answer(1);
+        answer(0);
+
+        assertEquals(1, shown.size());
+        assertEquals("Milk the goat", shown.get(0).get(0).getTask());
+        assertEquals(1, pipeline.getQueriesCancelled());
+    }
+
+    @Test
+    public void narrowingIsAnsweredInMemory() throws Exception {
+        type("mi");
+        awaitDebounce();
+        answer(0);
+        type("milk go");
+        awaitDebounce();
+
+        assertEquals(1, source.queries.size());
+        assertEquals(1, pipeline.getQueriesRefined());
+        assertEquals(2, shown.size());
+        assertEquals(1, shown.get(1).size());
+        assertEquals("Milk the goat", shown.get(1).get(0).getTask());
+    }
+
+    @Test
+    public void clearingStopsWatchingWrites() throws Exception {
+        type("milk");
+        awaitDebounce();
+        assertEquals(1, source.observers.size());
+        type("");
+        awaitDebounce();
+
+        assertEquals(1, cleared);
+        assertTrue(source.observers.isEmpty());
+    }
+
+    private void type(String... texts) throws InterruptedException {
+        onLooper(() -> {
+            for (String text : texts) {
+                pipeline.onQueryTextChanged(text);
+            }
+        });
+    }
+
+    private void awaitDebounce() throws InterruptedException {
+        SystemClock.sleep(2 * SearchPipeline.DEBOUNCE_MS);
+        onLooper(() -> { });
+    }
+
+    // Delivers the index-th search issued, with the tasks its query matches
+    private void answer(int index) throws InterruptedException {
+        onLooper(() -> {
+            SearchQuery query = source.queries.get(index);
+            List<TodoItem> results = new ArrayList<>();
+            for (TodoItem task : TASKS) {
+                if (query.matches(task)) results.add(task);
+            }
+            source.callbacks.get(index).onResult(results);
+        });
+    }
+
+    private void onLooper(Runnable runnable) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        handler.post(() -> {
+            runnable.run();
+            done.countDown();
+        });
+        assertTrue("looper did not run", done.await(5, TimeUnit.SECONDS));
+    }
+
+    private static final class FakeSource implements SearchPipeline.Source {
+        final List<SearchQuery> queries = new ArrayList<>();
+        final List<TodoRepository.Callback<List<TodoItem>>> callbacks = new ArrayList<>();
+        final List<InvalidationTracker.Observer> observers = new ArrayList<>();
+
+        @Override
+        public void search(SearchQuery query, TodoRepository.Callback<List<TodoItem>> callback) {
+            queries.add(query);
+            callbacks.add(callback);
+        }
+
+        @Override
+        public void addObserver(InvalidationTracker.Observer observer) {
+            observers.add(observer);
+        }
+
+        @Override
+        public void removeObserver(InvalidationTracker.Observer observer) {
+            observers.remove(observer);
+        }
+    }
+}
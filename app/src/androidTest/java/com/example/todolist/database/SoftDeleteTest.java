@@ -0,0 +1,130 @@
+package com.example.todolist.database;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.todolist.models.TaskStats;
+import com.example.todolist.models.TodoItem;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * A task marked deleted drops out of every list, search, count and the stats row at once,
+ * comes back whole on undo, and is removed for good by the purge, a batch at a time.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SoftDeleteTest {
+
+    private static final String TEST_DATABASE = "todo_soft_delete_test.db";
+
+    @Rule
+    public final TestDatabaseRule database = new TestDatabaseRule(TEST_DATABASE);
+
+    private DatabaseHelper helper;
+    private List<Integer> ids;
+
+    @Before
+    public void setUp() {
+        helper = database.getHelper();
+
+        List<TodoItem> items = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            TodoItem item = new TodoItem("Groceries " + i);
+            item.setCompleted(i % 4 == 0);
+            item.setCategory(i == 0 ? "Garden" : "Home");
+            items.add(item);
+        }
+        ids = helper.addTodoItems(items);
+    }
+
+    @Test
+    public void deletedTasksLeaveEveryRead() {
+        // The only Garden task, which is also completed
+        int deleted = ids.get(0);
+        assertEquals(Collections.singletonList(deleted),
+                helper.markTodoItemsDeleted(Collections.singletonList(deleted), 1_000));
+
+        for (String filter : new String[]{"ALL", "COMPLETED", "PENDING"}) {
+            for (TaskSort sort : TaskSort.values()) {
+                assertFalse(filter + " by " + sort, containsId(helper.getTodoItems(filter, "", sort), deleted));
+            }
+        }
+        assertTrue(helper.getTodoItems("CATEGORY", "Garden", TaskSort.PRIORITY).isEmpty());
+        // The category itself stays: categories are rows of their own now, not read off the tasks
+        assertTrue(helper.getAllCategories().contains("Garden"));
+        assertFalse(containsId(helper.searchTodoItems("groceries"), deleted));
+        assertNull(helper.getTodoItemById(deleted));
+        assertTrue(helper.getTodoItemsByIds(new int[]{deleted}).isEmpty());
+
+        TaskStats stats = helper.getTaskStats();
+        assertEquals(19, stats.getTotal());
+        assertEquals(4, stats.getCompleted());
+        assertEquals(helper.getTotalCount(), stats.getTotal());
+        assertEquals(helper.getCompletedCount(), stats.getCompleted());
+
+        // Marking it again changes nothing
+        assertTrue(helper.markTodoItemsDeleted(Collections.singletonList(deleted), 2_000).isEmpty());
+    }
+
+    @Test
+    public void undoBringsTheTaskBack() {
+        int deleted = ids.get(0);
+        helper.markTodoItemsDeleted(Collections.singletonList(deleted), 1_000);
+        assertEquals(Collections.singletonList(deleted), helper.undeleteTodoItems(Collections.singletonList(deleted)));
+
+        assertTrue(containsId(helper.getTodoItems("CATEGORY", "Garden", TaskSort.PRIORITY), deleted));
+        assertTrue(containsId(helper.searchTodoItems("groceries"), deleted));
+        TaskStats stats = helper.getTaskStats();
+        assertEquals(20, stats.getTotal());
+        assertEquals(5, stats.getCompleted());
+    }
+
+    @Test
+    public void purgeRemovesOnlyOldTombstonesInBatches() {
+        helper.markTodoItemsDeleted(ids.subList(0, 15), 1_000);
+        helper.markTodoItemsDeleted(ids.subList(15, 18), 5_000);
+
+        assertEquals(10, helper.purgeTombstones(2_000, 10));
+        assertEquals(5, helper.purgeTombstones(2_000, 10));
+        assertEquals(0, helper.purgeTombstones(2_000, 10));
+
+        // Still within their undo window: one comes back, the rest are purged later
+        assertEquals(Collections.singletonList(ids.get(15)),
+                helper.undeleteTodoItems(Collections.singletonList(ids.get(15))));
+        assertTrue(helper.undeleteTodoItems(ids.subList(0, 15)).isEmpty());
+        assertEquals(2, helper.purgeTombstones(10_000, 10));
+
+        assertEquals(3, helper.getTotalCount());
+        assertEquals(3, helper.getTaskStats().getTotal());
+        assertEquals(3, helper.searchTodoItems("groceries").size());
+    }
+
+    @Test
+    public void clearingCompletedTasksKeepsTombstonesUndoable() {
+        // Completed, and deleted moments ago
+        int deleted = ids.get(0);
+        helper.markTodoItemsDeleted(Collections.singletonList(deleted), 1_000);
+
+        List<Integer> cleared = helper.clearCompletedTasks();
+        assertEquals(4, cleared.size());
+        assertFalse(cleared.contains(deleted));
+
+        assertEquals(Collections.singletonList(deleted), helper.undeleteTodoItems(Collections.singletonList(deleted)));
+        assertEquals(16, helper.getTaskStats().getTotal());
+    }
+
+    private static boolean containsId(List<TodoItem> items, int id) {
+        for (TodoItem item : items) {
+            if (item.getId() == id) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.todolist.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Times a filter switch at 100k and 1M tasks: the SQL list query that getTodoItemsWithQuery runs,
+ * walked to the end, against the column store filtering and sorting the whole list and reading
+ * the first page of rows. The SQL side only walks the cursor without building a TodoItem per row,
+ * which at 1M would not fit the test heap, so it is timed at its cheapest. Both sides must agree
+ * on the count and on the first page, id for id, and the store must switch faster.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class TaskColumnStoreBenchmark {
+
+    @ClassRule
+    public static final BenchmarkGate GATE = new BenchmarkGate();
+
+    private static final String TAG = "TaskColumnStoreBenchmark";
+    private static final String TEST_DATABASE = "todo_column_store_benchmark.db";
+    private static final int FIRST_PAGE = TaskPager.PAGE_SIZE;
+    private static final String[][] FILTERS = {{"ALL", null}, {"PENDING", "0"}, {"COMPLETED", "1"}, {"CATEGORY", "Work"}};
+    private static final TaskSort[] SORTS = {TaskSort.PRIORITY, TaskSort.DATE};
+
+    @Rule
+    public final TestDatabaseRule database = new TestDatabaseRule(TEST_DATABASE);
+
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        helper = database.getHelper();
+    }
+
+    @Test
+    public void filterSwitchAt100k() {
+        compare(100_000);
+    }
+
+    @Test
+    public void filterSwitchAt1M() {
+        compare(1_000_000);
+    }
+
+    private void compare(int rows) {
+        seed(helper, rows);
+        TaskColumnStore store = new TaskColumnStore(helper);
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        assertEquals(rows, store.size());
+        long loadMillis = (SystemClock.elapsedRealtimeNanos() - start) / 1_000_000;
+
+        long sqlNanos = 0;
+        long storeNanos = 0;
+        int switches = 0;
+        for (String[] filter : FILTERS) {
+            for (TaskSort sort : SORTS) {
+                int[] sqlFirstPage = new int[FIRST_PAGE];
+                start = SystemClock.elapsedRealtimeNanos();
+                int sqlRows = walkSqlList(filter[0], filter[1], sort, sqlFirstPage);
+                sqlNanos += SystemClock.elapsedRealtimeNanos() - start;
+
+                start = SystemClock.elapsedRealtimeNanos();
+                int[] ids = store.getIds(filter[0], filter[1], sort);
+                int shown = helper.getTodoItemsByIds(Arrays.copyOf(ids, Math.min(FIRST_PAGE, ids.length))).size();
+                int counted = store.count(filter[0], filter[1]);
+                storeNanos += SystemClock.elapsedRealtimeNanos() - start;
+
+                assertEquals(sqlRows, ids.length);
+                assertEquals(sqlRows, counted);
+                assertEquals(Math.min(FIRST_PAGE, sqlRows), shown);
+                int firstPage = Math.min(FIRST_PAGE, sqlRows);
+                assertArrayEquals(filter[0] + " by " + sort, Arrays.copyOf(sqlFirstPage, firstPage),
+                        Arrays.copyOf(ids, firstPage));
+                switches++;
+            }
+        }
+
+        long sqlMillis = sqlNanos / switches / 1_000_000;
+        long storeMillis = storeNanos / switches / 1_000_000;
+        Log.i(TAG, String.format(Locale.US, "%d rows: store load=%dms, per filter switch sql=%dms store=%dms",
+                rows, loadMillis, sqlMillis, storeMillis));
+        assertTrue("The column store should switch filters faster than the SQL list query", storeNanos < sqlNanos);
+    }
+
+    // Walks the whole list, keeping the ids of its first page
+    private int walkSqlList(String filter, String arg, TaskSort sort, int[] firstPage) {
+        Cursor cursor = helper.getReadableDatabase().rawQuery(
+                DatabaseHelper.listQuery(filter, sort, false, false, false, -1),
+                arg != null ? new String[]{arg} : null);
+        try {
+            int count = 0;
+            while (cursor.moveToNext()) {
+                int id = cursor.getInt(0);
+                if (count < firstPage.length) firstPage[count] = id;
+                count++;
+            }
+            return count;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void seed(DatabaseHelper helper, int rows) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        int work = helper.getCategories().idFor(db, "Work");
+        int personal = helper.getCategories().idFor(db, "Personal");
+        SQLiteStatement insert = db.compileStatement("INSERT INTO todo_items "
+                + "(task, completed, created_at, due_date, due_time, category_id, priority, description) "
+                + "VALUES (?, ?, '2024-01-01 09:00:00', ?, ?, ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < rows; i++) {
+                insert.clearBindings();
+                insert.bindString(1, "Task " + i);
+                insert.bindLong(2, i % 3 == 0 ? 1 : 0);
+                if (i % 10 != 0) {
+                    insert.bindString(3, String.format(Locale.US, "2024-%02d-%02d", 1 + i % 12, 1 + i % 28));
+                }
+                if (i % 4 != 0) {
+                    insert.bindString(4, String.format(Locale.US, "%02d:%02d", i % 24, i % 60));
+                }
+                insert.bindLong(5, i % 2 == 0 ? work : personal);
+                insert.bindLong(6, 1 + i % 3);
+                insert.bindString(7, "Description for task " + i);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        insert.close();
+    }
+}
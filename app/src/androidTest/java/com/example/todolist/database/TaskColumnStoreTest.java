@@ -0,0 +1,148 @@
+package com.example.todolist.database;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.todolist.models.TodoItem;
+import com.example.todolist.utils.TimeService;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * The column store lists, pages and counts exactly what the SQL list queries do, for every
+ * filter and the orders it supports, and keeps doing so as rows are added, edited and deleted.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskColumnStoreTest {
+
+    private static final String TEST_DATABASE = "todo_column_store_test.db";
+    private static final int ROW_COUNT = 311;
+    private static final int PAGE = 25;
+    private static final String[][] FILTERS = {
+            {"ALL", ""}, {"COMPLETED", ""}, {"PENDING", ""},
+            {"CATEGORY", "Work"}, {"CATEGORY", "Home"}, {"CATEGORY", "Nowhere"}};
+    private static final TaskSort[] SORTS = {TaskSort.PRIORITY, TaskSort.DATE};
+
+    @Rule
+    public final TestDatabaseRule database = new TestDatabaseRule(TEST_DATABASE, Runnable::run);
+
+    private DatabaseHelper helper;
+    private TaskColumnStore store;
+
+    @Before
+    public void setUp() {
+        helper = database.getHelper();
+        store = new TaskColumnStore(helper);
+        database.getTracker().addObserver(store, Runnable::run, DatabaseHelper.TABLE_TODO);
+
+        List<TodoItem> items = new ArrayList<>();
+        for (int i = 0; i < ROW_COUNT; i++) {
+            items.add(item(i));
+        }
+        helper.addTodoItems(items);
+    }
+
+    @Test
+    public void listsMatchSql() {
+        assertListsMatchSql();
+    }
+
+    @Test
+    public void pagesJoinUpToTheList() {
+        for (String[] filter : FILTERS) {
+            for (TaskSort sort : SORTS) {
+                String name = filter[0] + " " + filter[1] + " by " + sort;
+                int[] all = store.getIds(filter[0], filter[1], sort);
+                List<Integer> walked = new ArrayList<>();
+                TodoItem anchor = null;
+                while (true) {
+                    int[] page = store.getIdsAfter(filter[0], filter[1], sort, anchor, false, PAGE);
+                    assertPageMatchesSql(name, page, helper.getTodoItemsPageAfter(filter[0], filter[1], sort, anchor, false, PAGE));
+                    if (page.length == 0) break;
+                    for (int id : page) walked.add(id);
+                    anchor = helper.getTodoItemById(page[page.length - 1]);
+                }
+                assertEquals(name, toList(all), walked);
+
+                if (all.length > 0) {
+                    TodoItem last = helper.getTodoItemById(all[all.length - 1]);
+                    assertPageMatchesSql(name + " before last", store.getIdsBefore(filter[0], filter[1], sort, last, PAGE),
+                            helper.getTodoItemsPageBefore(filter[0], filter[1], sort, last, PAGE));
+                    assertPageMatchesSql(name + " from last", store.getIdsAfter(filter[0], filter[1], sort, last, true, PAGE),
+                            helper.getTodoItemsPageAfter(filter[0], filter[1], sort, last, true, PAGE));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void followsWrites() {
+        // Load once, then change rows one by one and in batches
+        assertEquals(ROW_COUNT, store.size());
+
+        TodoItem edited = helper.getTodoItems("ALL", "", TaskSort.PRIORITY).get(7);
+        edited.setPriority(3);
+        edited.setDueDate("2023-12-31");
+        edited.setDueTime("23:00");
+        edited.setCategory("Errands");
+        helper.updateTodoItem(edited);
+        helper.updateTodoItemCompletion(helper.getTodoItems("PENDING", "", TaskSort.DATE).get(0).getId(), true);
+        helper.deleteTodoItem(helper.getTodoItems("ALL", "", TaskSort.DATE).get(3).getId());
+        helper.addTodoItem(item(ROW_COUNT + 1));
+        assertListsMatchSql();
+        assertEquals(1, store.count("CATEGORY", "Errands"));
+
+        helper.clearCompletedTasks();
+        assertListsMatchSql();
+        assertEquals(0, store.count("COMPLETED", ""));
+    }
+
+    private void assertListsMatchSql() {
+        for (String[] filter : FILTERS) {
+            for (TaskSort sort : SORTS) {
+                List<TodoItem> expected = helper.getTodoItems(filter[0], filter[1], sort);
+                assertPageMatchesSql(filter[0] + " " + filter[1] + " by " + sort,
+                        store.getIds(filter[0], filter[1], sort), expected);
+                assertEquals(expected.size(), store.count(filter[0], filter[1]));
+            }
+        }
+        assertEquals(helper.getOverdueCount(), store.countOverdue(TimeService.get().now()));
+    }
+
+    private static void assertPageMatchesSql(String message, int[] ids, List<TodoItem> expected) {
+        int[] expectedIds = new int[expected.size()];
+        for (int i = 0; i < expectedIds.length; i++) {
+            expectedIds[i] = expected.get(i).getId();
+        }
+        assertEquals(message, Arrays.toString(expectedIds), Arrays.toString(ids));
+    }
+
+    private static List<Integer> toList(int[] ids) {
+        List<Integer> list = new ArrayList<>(ids.length);
+        for (int id : ids) list.add(id);
+        return list;
+    }
+
+    private static TodoItem item(int i) {
+        TodoItem item = new TodoItem("Task " + i);
+        item.setPriority(1 + i % 3);
+        item.setCompleted(i % 4 == 0);
+        item.setCategory(i % 5 == 0 ? null : (i % 2 == 0 ? "Work" : "Home"));
+        // Lots of ties, and both NULL and "" for a missing date or time
+        switch (i % 5) {
+            case 0: item.setDueDate(null); break;
+            case 1: item.setDueDate(""); break;
+            default: item.setDueDate("20" + (23 + i % 3) + "-0" + (1 + i % 9) + "-1" + (i % 7));
+        }
+        item.setDueTime(i % 7 == 0 ? null : (i % 7 == 1 ? "" : "1" + (i % 4) + ":" + (i % 6) + "0"));
+        return item;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.todolist.database;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.example.todolist.models.TodoItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Backs up and restores 100k tasks through the binary snapshot, against the same round trip
+ * through the CSV export and import.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class TaskSnapshotBenchmark {
+
+    @ClassRule
+    public static final BenchmarkGate GATE = new BenchmarkGate();
+
+    private static final String TAG = "TaskSnapshotBenchmark";
+    private static final String TEST_DATABASE = "todo_snapshot_benchmark.db";
+    private static final int ROW_COUNT = 100_000;
+
+    @Rule
+    public final TestDatabaseRule database = new TestDatabaseRule(TEST_DATABASE);
+
+    private Context context;
+    private DatabaseHelper helper;
+    private File snapshotFile;
+    private File csvFile;
+
+    @Before
+    public void setUp() {
+        context = database.getContext();
+        helper = database.getHelper();
+        snapshotFile = new File(context.getCacheDir(), "snapshot_benchmark.tds");
+        csvFile = new File(context.getCacheDir(), "snapshot_benchmark.csv");
+    }
+
+    @After
+    public void tearDown() {
+        snapshotFile.delete();
+        csvFile.delete();
+    }
+
+    @Test
+    public void restoreKeepsIdsAndFields() throws IOException {
+        seed(helper, 2_500);
+        helper.deleteTodoItem(10); // a gap the restore must keep
+        List<TodoItem> before = helper.getTodoItemsAfterId(0, Integer.MAX_VALUE);
+
+        TaskSnapshot snapshot = new TaskSnapshot(helper);
+        assertEquals(before.size(), snapshot.write(snapshotFile));
+        helper.clearCompletedTasks();
+        helper.addTodoItem(new TodoItem("Added after the backup"));
+        assertEquals(before.size(), snapshot.restore(snapshotFile));
+
+        List<TodoItem> after = helper.getTodoItemsAfterId(0, Integer.MAX_VALUE);
+        assertEquals(before.size(), after.size());
+        for (int i = 0; i < before.size(); i++) {
+            TodoItem expected = before.get(i);
+            TodoItem actual = after.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getTask(), actual.getTask());
+            assertEquals(expected.isCompleted(), actual.isCompleted());
+            assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+            assertEquals(expected.getDueDate(), actual.getDueDate());
+            assertEquals(expected.getDueTime(), actual.getDueTime());
+            assertEquals(expected.getDueAt(), actual.getDueAt());
+            assertEquals(expected.getCategory(), actual.getCategory());
+            assertEquals(expected.getPriority(), actual.getPriority());
+            assertEquals(expected.getDescription(), actual.getDescription());
+        }
+        // The trigger-maintained stats and the search index followed the restore
+        assertEquals(before.size(), helper.getTaskStats().getTotal());
+        assertEquals(1, helper.searchTodoItems("2499").size());
+    }
+
+    @Test
+    public void corruptSnapshotLeavesTasksAlone() throws IOException {
+        seed(helper, 100);
+        new TaskSnapshot(helper).write(snapshotFile);
+        try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")) {
+            file.setLength(file.length() / 2);
+        }
+        helper.deleteTodoItem(1);
+
+        try {
+            new TaskSnapshot(helper).restore(snapshotFile);
+            fail("expected an IOException");
+        } catch (IOException expected) {
+            assertEquals(99, helper.getTotalCount());
+        }
+    }
+
+    @Test
+    public void snapshotBeatsCsv() throws IOException {
+        seed(helper, ROW_COUNT);
+        TaskSnapshot snapshot = new TaskSnapshot(helper);
+        TaskTransfer transfer = new TaskTransfer(helper);
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        snapshot.write(snapshotFile);
+        long snapshotWriteMillis = (SystemClock.elapsedRealtimeNanos() - start) / 1_000_000;
+        start = SystemClock.elapsedRealtimeNanos();
+        assertEquals(ROW_COUNT, snapshot.restore(snapshotFile));
+        long snapshotRestoreMillis = (SystemClock.elapsedRealtimeNanos() - start) / 1_000_000;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        try (OutputStream out = new FileOutputStream(csvFile)) {
+            transfer.exportTasks(out, TaskTransfer.Format.CSV, null, null);
+        }
+        long csvWriteMillis = (SystemClock.elapsedRealtimeNanos() - start) / 1_000_000;
+        // Same end state as a restore: the CSV replaces the table
+        helper.deleteTodoItemsWhere("1", null);
+        start = SystemClock.elapsedRealtimeNanos();
+        try (InputStream in = new FileInputStream(csvFile)) {
+            assertEquals(ROW_COUNT, transfer.importTasks(in, TaskTransfer.Format.CSV, null, null).getCount());
+        }
+        long csvRestoreMillis = (SystemClock.elapsedRealtimeNanos() - start) / 1_000_000;
+
+        Log.i(TAG, ROW_COUNT + " rows. Snapshot: " + snapshotFile.length() / 1024 + "KB, write=" + snapshotWriteMillis
+                + "ms, restore=" + snapshotRestoreMillis + "ms. CSV: " + csvFile.length() / 1024 + "KB, write="
+                + csvWriteMillis + "ms, restore=" + csvRestoreMillis + "ms");
+        assertTrue("Snapshot should be smaller than CSV", snapshotFile.length() < csvFile.length());
+        assertTrue("Snapshot restore should beat CSV import", snapshotRestoreMillis < csvRestoreMillis);
+    }
+
+    private static void seed(DatabaseHelper helper, int rows) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        int work = helper.getCategories().idFor(db, "Work");
+        int personal = helper.getCategories().idFor(db, "Personal");
+        SQLiteStatement insert = db.compileStatement("INSERT INTO todo_items "
+                + "(task, completed, created_at, created_at_ms, due_date, due_time, due_at, category_id, priority, description) "
+                + "VALUES (?, ?, '2024-01-01 09:00:00', 1704099600000, ?, '09:00', ?, ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < rows; i++) {
+                String dueDate = String.format("2024-%02d-%02d", 1 + i % 12, 1 + i % 28);
+                insert.clearBindings();
+                insert.bindString(1, "Task " + i);
+                insert.bindLong(2, i % 3 == 0 ? 1 : 0);
+                insert.bindString(3, dueDate);
+                insert.bindLong(4, TodoItem.dueAtOf(dueDate, "09:00"));
+                insert.bindLong(5, i % 2 == 0 ? work : personal);
+                insert.bindLong(6, 1 + i % 3);
+                insert.bindString(7, "Description for task " + i);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        insert.close();
+    }
+}
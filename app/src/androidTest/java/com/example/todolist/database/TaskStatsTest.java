@@ -0,0 +1,87 @@
+package com.example.todolist.database;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.todolist.models.TaskStats;
+import com.example.todolist.models.TodoItem;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the trigger-maintained todo_stats row stays equal to the COUNT(*) queries
+ * through inserts, completion toggles, reminder changes and deletes.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskStatsTest {
+
+    private static final String TEST_DATABASE = "todo_stats_test.db";
+
+    @Rule
+    public final TestDatabaseRule database = new TestDatabaseRule(TEST_DATABASE);
+
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        helper = database.getHelper();
+    }
+
+    @Test
+    public void emptyDatabaseHasZeroStats() {
+        assertStats(0, 0, 0);
+    }
+
+    @Test
+    public void countersFollowEveryWrite() {
+        int first = (int) helper.addTodoItem(item("Buy milk", false));
+        int second = (int) helper.addTodoItem(item("Call mum", true));
+        int third = (int) helper.addTodoItem(item("Pay rent", true));
+        assertStats(3, 0, 2);
+
+        helper.updateTodoItemCompletion(second, true);
+        assertStats(3, 1, 1);
+
+        helper.updateTodoItemReminder(first, true, System.currentTimeMillis() + 60_000);
+        assertStats(3, 1, 2);
+
+        helper.updateTodoItemCompletion(second, false);
+        assertStats(3, 0, 3);
+
+        helper.deleteTodoItem(third);
+        assertStats(2, 0, 2);
+
+        helper.updateTodoItemCompletion(first, true);
+        helper.clearCompletedTasks();
+        assertStats(1, 0, 1);
+    }
+
+    private void assertStats(int total, int completed, int reminders) {
+        TaskStats stats = helper.getTaskStats();
+        assertEquals(total, stats.getTotal());
+        assertEquals(completed, stats.getCompleted());
+        assertEquals(total - completed, stats.getPending());
+        assertEquals(reminders, stats.getWithReminders());
+
+        // The single-query snapshot must agree with the individual COUNT(*) queries
+        assertEquals(helper.getTotalCount(), stats.getTotal());
+        assertEquals(helper.getCompletedCount(), stats.getCompleted());
+        assertEquals(helper.getPendingCount(), stats.getPending());
+        assertEquals(helper.getReminderCount(), stats.getWithReminders());
+        assertEquals(helper.getOverdueCount(), stats.getOverdue());
+        assertEquals(helper.getDueTodayCount(), stats.getDueToday());
+    }
+
+    private static TodoItem item(String task, boolean hasReminder) {
+        TodoItem item = new TodoItem(task);
+        item.setHasReminder(hasReminder);
+        if (hasReminder) {
+            item.setAlarmTime(System.currentTimeMillis() + 60_000);
+        }
+        return item;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.todolist.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Exports 200k tasks to a file and imports them back, in both formats, watching the heap:
+ * streaming should keep it near one batch however large the list is.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class TaskTransferBenchmark {
+
+    @ClassRule
+    public static final BenchmarkGate GATE = new BenchmarkGate();
+
+    private static final String TAG = "TaskTransferBenchmark";
+    private static final String SOURCE_DATABASE = "todo_transfer_benchmark.db";
+    private static final String TARGET_DATABASE = "todo_transfer_benchmark_import.db";
+    private static final int ROW_COUNT = 200_000;
+    // Well under what holding 200k TodoItems at once would take
+    private static final long MAX_HEAP_GROWTH = 16L * 1024 * 1024;
+    private static final int SAMPLE_EVERY = 25;
+
+    @Rule
+    public final TestDatabaseRule sourceDatabase = new TestDatabaseRule(SOURCE_DATABASE);
+    @Rule
+    public final TestDatabaseRule targetDatabase = new TestDatabaseRule(TARGET_DATABASE);
+
+    private DatabaseHelper source;
+    private DatabaseHelper target;
+    private File file;
+
+    @Before
+    public void setUp() {
+        source = sourceDatabase.getHelper();
+        target = targetDatabase.getHelper();
+        seed(source, ROW_COUNT);
+        file = new File(sourceDatabase.getContext().getCacheDir(), "transfer_benchmark");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void jsonStreamsInConstantHeap() throws IOException {
+        transfer(TaskTransfer.Format.JSON);
+    }
+
+    @Test
+    public void csvStreamsInConstantHeap() throws IOException {
+        transfer(TaskTransfer.Format.CSV);
+    }
+
+    private void transfer(TaskTransfer.Format format) throws IOException {
+        // Live heap after a GC, every few batches; collecting on every batch would swamp the timings
+        long[] peakHeap = new long[1];
+        TaskTransfer.ProgressListener sampleHeap = (done, total) -> {
+            if (done % (TaskTransfer.BATCH_SIZE * SAMPLE_EVERY) == 0) {
+                peakHeap[0] = Math.max(peakHeap[0], liveHeap());
+            }
+        };
+        long baseline = liveHeap();
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        TaskTransfer.Result exported;
+        try (OutputStream out = new FileOutputStream(file)) {
+            exported = new TaskTransfer(source).exportTasks(out, format, sampleHeap, null);
+        }
+        long exportMillis = (SystemClock.elapsedRealtimeNanos() - start) / 1_000_000;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        TaskTransfer.Result imported;
+        try (InputStream in = new FileInputStream(file)) {
+            imported = new TaskTransfer(target).importTasks(in, format, sampleHeap, null);
+        }
+        long importMillis = (SystemClock.elapsedRealtimeNanos() - start) / 1_000_000;
+
+        assertEquals(ROW_COUNT, exported.getCount());
+        assertEquals(ROW_COUNT, imported.getCount());
+        assertEquals(ROW_COUNT, target.getTotalCount());
+        long growth = peakHeap[0] - baseline;
+        Log.i(TAG, format + " " + ROW_COUNT + " rows, " + file.length() / 1024 + "KB: export=" + exportMillis
+                + "ms, import=" + importMillis + "ms, peak heap growth=" + growth / 1024 + "KB");
+        assertTrue("Heap grew by " + growth + " bytes", growth < MAX_HEAP_GROWTH);
+    }
+
+    private static long liveHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void seed(DatabaseHelper helper, int rows) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        int work = helper.getCategories().idFor(db, "Work");
+        int personal = helper.getCategories().idFor(db, "Personal");
+        SQLiteStatement insert = db.compileStatement("INSERT INTO todo_items "
+                + "(task, completed, created_at, created_at_ms, due_date, due_time, category_id, priority, description) "
+                + "VALUES (?, ?, '2024-01-01 09:00:00', 1704099600000, ?, '09:00', ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < rows; i++) {
+                insert.clearBindings();
+                insert.bindString(1, "Task " + i);
+                insert.bindLong(2, i % 3 == 0 ? 1 : 0);
+                insert.bindString(3, String.format("2024-%02d-%02d", 1 + i % 12, 1 + i % 28));
+                insert.bindLong(4, i % 2 == 0 ? work : personal);
+                insert.bindLong(5, 1 + i % 3);
+                insert.bindString(6, "Description, with a comma, for task " + i);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        insert.close();
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.todolist.database;
+
+import android.os.CancellationSignal;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.todolist.models.TodoItem;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Exports a small list, imports it into an empty database and checks every transferred field
+ * survives, in both formats.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskTransferTest {
+
+    private static final String SOURCE_DATABASE = "todo_transfer_source.db";
+    private static final String TARGET_DATABASE = "todo_transfer_target.db";
+
+    @Rule
+    public final TestDatabaseRule sourceDatabase = new TestDatabaseRule(SOURCE_DATABASE);
+    @Rule
+    public final TestDatabaseRule targetDatabase = new TestDatabaseRule(TARGET_DATABASE);
+
+    private DatabaseHelper source;
+    private DatabaseHelper target;
+
+    @Before
+    public void setUp() {
+        source = sourceDatabase.getHelper();
+        target = targetDatabase.getHelper();
+    }
+
+    @Test
+    public void jsonRoundTrip() throws IOException {
+        roundTrip(TaskTransfer.Format.JSON);
+    }
+
+    @Test
+    public void csvRoundTrip() throws IOException {
+        roundTrip(TaskTransfer.Format.CSV);
+    }
+
+    @Test
+    public void importsForeignLayouts() throws IOException {
+        String json = "[{\"task\":\"From JSON\",\"priority\":3,\"completed\":true,\"colour\":\"red\"}, {\"task\":\"\"}]";
+        TaskTransfer transfer = new TaskTransfer(target);
+        assertEquals(1, transfer.importTasks(stream(json), TaskTransfer.Format.JSON, null, null).getCount());
+
+        // Columns reordered, one missing, one unknown, and a blank line
+        String csv = "priority,notes,task\r\n1,ignored,From CSV\r\n\r\n9,,Bad priority\r\n";
+        assertEquals(2, transfer.importTasks(stream(csv), TaskTransfer.Format.CSV, null, null).getCount());
+
+        List<TodoItem> items = target.getTodoItemsAfterId(0, 10);
+        assertEquals(3, items.size());
+        assertEquals("From JSON", items.get(0).getTask());
+        assertEquals(3, items.get(0).getPriority());
+        assertTrue(items.get(0).isCompleted());
+        assertEquals(1, items.get(1).getPriority());
+        assertEquals("General", items.get(1).getCategory());
+        assertEquals(2, items.get(2).getPriority());
+        assertTrue(items.get(2).getCreatedAtMillis() > 0);
+    }
+
+    @Test
+    public void cancelStopsBetweenChunks() throws IOException {
+        List<TodoItem> items = new ArrayList<>();
+        for (int i = 0; i < TaskTransfer.BATCH_SIZE * 3; i++) {
+            items.add(new TodoItem("Task " + i));
+        }
+        source.addTodoItems(items);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new TaskTransfer(source).exportTasks(out, TaskTransfer.Format.CSV, null, null);
+
+        CancellationSignal signal = new CancellationSignal();
+        TaskTransfer.Result result = new TaskTransfer(target).importTasks(
+                new ByteArrayInputStream(out.toByteArray()), TaskTransfer.Format.CSV,
+                (done, total) -> signal.cancel(), signal);
+        assertTrue(result.isCancelled());
+        assertEquals(TaskTransfer.BATCH_SIZE, result.getCount());
+        assertEquals(TaskTransfer.BATCH_SIZE, target.getTotalCount());
+    }
+
+    private void roundTrip(TaskTransfer.Format format) throws IOException {
+        TodoItem full = new TodoItem("Pay rent, \"today\"");
+        full.setDescription("Line one\nLine two");
+        full.setDueDate("2024-06-01");
+        full.setDueTime("09:30");
+        full.setCategory("Home");
+        full.setPriority(3);
+        full.setHasReminder(true);
+        TodoItem bare = new TodoItem("Buy milk");
+        bare.setCompleted(true);
+        source.addTodoItems(Arrays.asList(full, bare));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TaskTransfer.Result exported = new TaskTransfer(source).exportTasks(out, format, null, null);
+        assertEquals(2, exported.getCount());
+        assertFalse(exported.isCancelled());
+
+        TaskTransfer.Result imported = new TaskTransfer(target).importTasks(
+                new ByteArrayInputStream(out.toByteArray()), format, null, null);
+        assertEquals(2, imported.getCount());
+
+        List<TodoItem> before = source.getTodoItemsAfterId(0, 10);
+        List<TodoItem> after = target.getTodoItemsAfterId(0, 10);
+        assertEquals(before.size(), after.size());
+        for (int i = 0; i < before.size(); i++) {
+            assertSameFields(before.get(i), after.get(i));
+        }
+    }
+
+    private static void assertSameFields(TodoItem expected, TodoItem actual) {
+        assertEquals(expected.getTask(), actual.getTask());
+        assertEquals(expected.isCompleted(), actual.isCompleted());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getCreatedAtMillis(), actual.getCreatedAtMillis());
+        assertEquals(expected.getDueDate(), actual.getDueDate());
+        assertEquals(expected.getDueTime(), actual.getDueTime());
+        assertEquals(expected.getDueAt(), actual.getDueAt());
+        assertEquals(expected.getCategory(), actual.getCategory());
+        assertEquals(expected.getPriority(), actual.getPriority());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.hasReminder(), actual.hasReminder());
+    }
+
+    private static ByteArrayInputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.todolist.database;
+
+import android.content.Context;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.rules.ExternalResource;
+
+import java.util.concurrent.Executor;
+
+/**
+ * A database file of the test's own, deleted before and after each test, with the helper and
+ * invalidation tracker on it. The helper is opened on first use, so a test can first lay down
+ * an older schema on the file and have the helper upgrade it; the rule closes it afterwards.
+ */
+public final class TestDatabaseRule extends ExternalResource {
+
+    private final String name;
+    private final InvalidationTracker tracker;
+    private Context context;
+    private DatabaseHelper helper;
+
+    /** Changes are reported on the main thread, as in the app. */
+    public TestDatabaseRule(String name) {
+        this(name, new InvalidationTracker());
+    }
+
+    /** Changes are reported through {@code deliveryExecutor}, e.g. Runnable::run to see them as the write returns. */
+    TestDatabaseRule(String name, Executor deliveryExecutor) {
+        this(name, new InvalidationTracker(deliveryExecutor));
+    }
+
+    private TestDatabaseRule(String name, InvalidationTracker tracker) {
+        this.name = name;
+        this.tracker = tracker;
+    }
+
+    @Override
+    protected void before() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(name);
+    }
+
+    @Override
+    protected void after() {
+        if (helper != null) {
+            helper.close();
+            helper = null;
+        }
+        context.deleteDatabase(name);
+    }
+
+    public Context getContext() {
+        return context;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public DatabaseHelper getHelper() {
+        if (helper == null) {
+            helper = new DatabaseHelper(context, name, tracker);
+        }
+        return helper;
+    }
+
+    /** Closes the helper and opens the file again, as a new process would. */
+    public DatabaseHelper reopen() {
+        if (helper != null) {
+            helper.close();
+            helper = null;
+        }
+        return getHelper();
+    }
+
+    InvalidationTracker getTracker() {
+        return tracker;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.todolist.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.example.todolist.models.TodoItem;
+
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Mapping cost per row of TodoItemMapper against the old per-row column lookups, over a
+ * cursor whose window is already filled so only the mapping itself is timed.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class TodoItemMapperBenchmark {
+
+    @ClassRule
+    public static final BenchmarkGate GATE = new BenchmarkGate();
+
+    private static final String TAG = "TodoItemMapperBenchmark";
+    private static final String TEST_DATABASE = "todo_mapper_benchmark.db";
+    private static final int ROW_COUNT = 5_000;
+    private static final int PASSES = 20;
+
+    @Rule
+    public final TestDatabaseRule database = new TestDatabaseRule(TEST_DATABASE);
+
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        helper = database.getHelper();
+        seed(helper, ROW_COUNT);
+    }
+
+    @Test
+    public void mapperResolvesColumnsOncePerCursor() {
+        Cursor cursor = helper.getReadableDatabase().rawQuery("SELECT * FROM todo_items", null);
+        assertEquals(ROW_COUNT, cursor.getCount());
+
+        // Warm up both paths once
+        long legacyNanos = timeLegacy(cursor, helper.getCategories());
+        long mapperNanos = timeMapper(cursor, helper.getCategories());
+        legacyNanos = 0;
+        mapperNanos = 0;
+        for (int pass = 0; pass < PASSES; pass++) {
+            legacyNanos += timeLegacy(cursor, helper.getCategories());
+            mapperNanos += timeMapper(cursor, helper.getCategories());
+        }
+        cursor.close();
+
+        long rows = (long) ROW_COUNT * PASSES;
+        Log.i(TAG, "Per row: mapper=" + mapperNanos / rows + "ns, per-row lookups=" + legacyNanos / rows + "ns");
+        assertTrue("Mapper should beat per-row column lookups", mapperNanos < legacyNanos);
+    }
+
+    @Test
+    public void narrowProjectionKeepsDefaults() {
+        Cursor cursor = helper.getReadableDatabase().rawQuery(
+                "SELECT id, task, due_date, due_time FROM todo_items WHERE id = 2", null);
+        List<TodoItem> items = TodoItemMapper.mapAll(cursor, helper.getCategories());
+        assertEquals(1, items.size());
+
+        TodoItem item = items.get(0);
+        TodoItem full = helper.getTodoItemById(2);
+        assertEquals(full.getTask(), item.getTask());
+        assertEquals(full.getDueAt(), item.getDueAt());
+        assertEquals("General", item.getCategory());
+        assertEquals(2, item.getPriority());
+        assertNull(item.getCreatedAt());
+        assertTrue(cursor.isClosed());
+    }
+
+    private static long timeMapper(Cursor cursor, CategoryDictionary categories) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        cursor.moveToPosition(-1);
+        TodoItemMapper mapper = new TodoItemMapper(cursor, categories);
+        while (cursor.moveToNext()) {
+            mapper.map(cursor);
+        }
+        return SystemClock.elapsedRealtimeNanos() - start;
+    }
+
+    // The mapping getTodoItemsWithQuery did before: a name lookup for every field of every row
+    private static long timeLegacy(Cursor cursor, CategoryDictionary categories) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            TodoItem item = TodoItem.forStoredRow(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ID)));
+            item.setTask(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TASK)));
+            item.setCompleted(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_COMPLETED)) == 1);
+            item.setCreatedAt(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CREATED_AT)));
+            item.setCreatedAtMillis(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CREATED_AT_MS)));
+            item.setDue(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_DUE_DATE)),
+                    cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_DUE_TIME)),
+                    cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_DUE_AT)));
+            int categoryId = cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CATEGORY_ID));
+            item.setCategory(categories.nameOf(categoryId));
+            item.setCategoryId(categoryId);
+            item.setPriority(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_PRIORITY)));
+            int descIndex = cursor.getColumnIndex(DatabaseHelper.COLUMN_DESCRIPTION);
+            if (!cursor.isNull(descIndex)) {
+                item.setDescription(cursor.getString(descIndex));
+            }
+            int reminderIndex = cursor.getColumnIndex(DatabaseHelper.COLUMN_HAS_REMINDER);
+            if (!cursor.isNull(reminderIndex)) {
+                item.setHasReminder(cursor.getInt(reminderIndex) == 1);
+            }
+            int alarmTimeIndex = cursor.getColumnIndex(DatabaseHelper.COLUMN_ALARM_TIME);
+            if (!cursor.isNull(alarmTimeIndex)) {
+                item.setAlarmTime(cursor.getLong(alarmTimeIndex));
+            }
+        }
+        return SystemClock.elapsedRealtimeNanos() - start;
+    }
+
+    private static void seed(DatabaseHelper helper, int rows) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        int work = helper.getCategories().idFor(db, "Work");
+        int personal = helper.getCategories().idFor(db, "Personal");
+        SQLiteStatement insert = db.compileStatement("INSERT INTO todo_items "
+                + "(task, completed, created_at, created_at_ms, due_date, due_time, due_at, category_id, priority, description) "
+                + "VALUES (?, ?, '2024-01-01 09:00:00', 1704099600000, ?, '09:00', ?, ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < rows; i++) {
+                String dueDate = String.format("2024-%02d-%02d", 1 + i % 12, 1 + i % 28);
+                insert.clearBindings();
+                insert.bindString(1, "Task " + i);
+                insert.bindLong(2, i % 3 == 0 ? 1 : 0);
+                insert.bindString(3, dueDate);
+                insert.bindLong(4, TodoItem.dueAtOf(dueDate, "09:00"));
+                insert.bindLong(5, i % 2 == 0 ? work : personal);
+                insert.bindLong(6, 1 + i % 3);
+                insert.bindString(7, "Note " + i);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        insert.close();
+    }
+}
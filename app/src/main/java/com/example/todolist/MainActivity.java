@@ -22,13 +22,19 @@ import androidx.recyclerview.widget.ItemTouchHelper;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.todolist.adapter.TodoAdapter;
-import com.example.todolist.database.DatabaseHelper;
+import com.example.todolist.database.ObservableQuery;
+import com.example.todolist.database.SearchPipeline;
+import com.example.todolist.database.TaskPager;
+import com.example.todolist.database.TaskSort;
+import com.example.todolist.database.TodoRepository;
+import com.example.todolist.models.TaskStats;
 import com.example.todolist.models.TodoItem;
-import com.example.todolist.utils.AlarmHelper;
 import com.example.todolist.utils.PermissionHelper;
+import com.example.todolist.utils.TimePickerHelper;
+import com.example.todolist.utils.TimeService;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
+import com.google.android.material.snackbar.Snackbar;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
@@ -40,8 +46,26 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
     private Button addButton;
     private RecyclerView todoRecyclerView;
     private TodoAdapter adapter;
-    private DatabaseHelper databaseHelper;
-    private List<TodoItem> todoList;
+    private TodoRepository repository;
+    private SearchPipeline searchPipeline;
+    // Re-run by the repository whenever todo items change, so writes never reload by hand.
+    // The priority-sorted lists are paged; other sorts and the menu views load in full.
+    private TaskPager pager;
+    private ObservableQuery<List<TodoItem>> listQuery;
+    private ObservableQuery<TaskStats> statsQuery;
+    private boolean paged;
+    private boolean started;
+    private boolean searching;
+
+    // Rows turn overdue as time passes without any write; recolour the bound ones each minute
+    private static final long DUE_STATE_REFRESH_MS = 60_000;
+    private final Runnable dueStateTicker = new Runnable() {
+        @Override
+        public void run() {
+            adapter.refreshDueStates();
+            todoRecyclerView.postDelayed(this, DUE_STATE_REFRESH_MS);
+        }
+    };
     private SearchView searchView;
     private TextView statsText;
     private FloatingActionButton fabAddTask;
@@ -49,7 +73,7 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
     // Filter states
     private String currentFilter = "ALL"; // ALL, COMPLETED, PENDING, CATEGORY
     private String currentCategoryFilter = "";
-    private String currentSort = "PRIORITY"; // PRIORITY, DATE, NAME
+    private TaskSort currentSort = TaskSort.PRIORITY;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -60,8 +84,10 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
         setupRecyclerView();
         setupSwipeToDelete();
         setupClickListeners();
+        pager = repository.pageTodoItems(adapter::updateList);
+        listQuery = repository.observeTodoItems(adapter::updateList);
+        statsQuery = repository.observeStats(this::showStats);
         loadTodoItems();
-        updateStats();
 
         // Check alarm permission for Android 12+
         checkAlarmPermission();
@@ -84,14 +110,38 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
         searchView = findViewById(R.id.search_view);
         statsText = findViewById(R.id.stats_text);
         fabAddTask = findViewById(R.id.fab_add_task);
-        databaseHelper = new DatabaseHelper(this);
-        todoList = new ArrayList<>();
+        repository = TodoRepository.getInstance(this);
+        searchPipeline = new SearchPipeline(repository, new SearchPipeline.Listener() {
+            @Override
+            public void onSearchResults(List<TodoItem> results) {
+                // The pipeline keeps its own results current while they are shown
+                searching = true;
+                updateListSources();
+                adapter.updateList(results);
+            }
+
+            @Override
+            public void onSearchCleared() {
+                loadTodoItems();
+            }
+        });
     }
 
     private void setupRecyclerView() {
         todoRecyclerView.setLayoutManager(new LinearLayoutManager(this));
-        adapter = new TodoAdapter(todoList, this);
+        adapter = new TodoAdapter(this, repository.getCategories());
         todoRecyclerView.setAdapter(adapter);
+        todoRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                // Also called after each layout, so a short first page pulls in the next one
+                if (paged && !searching) {
+                    LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                    pager.onVisibleRange(layoutManager.findFirstVisibleItemPosition(),
+                            layoutManager.findLastVisibleItemPosition());
+                }
+            }
+        });
     }
 
     private void setupSwipeToDelete() {
@@ -103,26 +153,10 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
 
             @Override
             public void onSwiped(@NonNull RecyclerView.ViewHolder viewHolder, int direction) {
-                int position = viewHolder.getAdapterPosition();
-                TodoItem item = todoList.get(position);
-
-                new AlertDialog.Builder(MainActivity.this)
-                        .setTitle("Delete Task")
-                        .setMessage("Delete \"" + item.getTask() + "\"?")
-                        .setPositiveButton("Delete", (dialog, which) -> {
-                            // Cancel alarm before deleting
-                            if (item.hasReminder()) {
-                                AlarmHelper.cancelAlarm(MainActivity.this, item.getId());
-                            }
-                            databaseHelper.deleteTodoItem(item.getId());
-                            loadTodoItems();
-                            Toast.makeText(MainActivity.this, "Task deleted", Toast.LENGTH_SHORT).show();
-                        })
-                        .setNegativeButton("Cancel", (dialog, which) -> {
-                            loadTodoItems(); // Reload to reset swipe
-                        })
-                        .setOnCancelListener(dialog -> loadTodoItems())
-                        .show();
+                // Undo takes the place of a confirmation
+                int position = viewHolder.getBindingAdapterPosition();
+                if (position == RecyclerView.NO_POSITION) return;
+                deleteWithUndo(adapter.getItem(position));
             }
         }).attachToRecyclerView(todoRecyclerView);
     }
@@ -145,17 +179,14 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
         searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
             @Override
             public boolean onQueryTextSubmit(String query) {
+                searchPipeline.flush();
                 return false;
             }
 
             @Override
             public boolean onQueryTextChange(String newText) {
-                if (newText.isEmpty()) {
-                    loadTodoItems();
-                } else {
-                    List<TodoItem> searchResults = databaseHelper.searchTodoItems(newText);
-                    adapter.updateList(searchResults);
-                }
+                // Debounced; the pipeline publishes only the final result
+                searchPipeline.onQueryTextChanged(newText);
                 return true;
             }
         });
@@ -170,15 +201,16 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
         }
 
         TodoItem newItem = new TodoItem(task);
-        databaseHelper.addTodoItem(newItem);
+        repository.addTodoItem(newItem, null);
         taskInput.setText("");
-
-        loadTodoItems();
-        updateStats();
         Toast.makeText(this, "Task added", Toast.LENGTH_SHORT).show();
     }
 
     private void showAddTaskDialog() {
+        repository.loadCategories(this::showAddTaskDialog);
+    }
+
+    private void showAddTaskDialog(List<String> categories) {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         View dialogView = getLayoutInflater().inflate(R.layout.dialog_add_task, null);
         builder.setView(dialogView);
@@ -194,7 +226,6 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
         CheckBox reminderCheckbox = dialogView.findViewById(R.id.dialog_reminder_checkbox);
 
         // Setup category spinner
-        List<String> categories = databaseHelper.getAllCategories();
         categories.add(0, "General");
         categories.add("Work");
         categories.add("Personal");
@@ -246,16 +277,12 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
                             newItem.setAlarmTime(alarmTime);
                         }
 
-                        databaseHelper.addTodoItem(newItem);
-
-                        // Set alarm if reminder is enabled
+                        // Queued by its alarm time; the reminder scheduler picks it up from the insert
+                        repository.addTodoItem(newItem, null);
+                        Toast.makeText(MainActivity.this, "Task added", Toast.LENGTH_SHORT).show();
                         if (hasReminder[0] && !selectedDueDate[0].isEmpty() && !selectedDueTime[0].isEmpty()) {
-                            AlarmHelper.setAlarm(MainActivity.this, newItem);
+                            showReminderToast(newItem);
                         }
-
-                        loadTodoItems();
-                        updateStats();
-                        Toast.makeText(MainActivity.this, "Task added", Toast.LENGTH_SHORT).show();
                     }
                 })
                 .setNegativeButton("Cancel", null);
@@ -265,11 +292,12 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
 
     private void showDatePickerDialog(TextView dueDateText, String[] selectedDueDate) {
         Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(TimeService.get().now());
         DatePickerDialog datePicker = new DatePickerDialog(this,
                 (view, year, month, dayOfMonth) -> {
                     String dueDate = String.format(Locale.getDefault(), "%04d-%02d-%02d", year, month + 1, dayOfMonth);
                     selectedDueDate[0] = dueDate;
-                    dueDateText.setText("Due: " + formatDateForDisplay(dueDate));
+                    dueDateText.setText("Due: " + TimeService.get().formatDisplayDate(dueDate));
                     dueDateText.setVisibility(View.VISIBLE);
                 },
                 calendar.get(Calendar.YEAR),
@@ -277,18 +305,19 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
                 calendar.get(Calendar.DAY_OF_MONTH));
 
         // Optional: Set minimum date to today
-        datePicker.getDatePicker().setMinDate(System.currentTimeMillis() - 1000);
+        datePicker.getDatePicker().setMinDate(TimeService.get().now() - 1000);
         datePicker.setTitle("Select Due Date");
         datePicker.show();
     }
 
     private void showTimePickerDialog(TextView dueTimeText, String[] selectedDueTime) {
         Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(TimeService.get().now());
         TimePickerDialog timePicker = new TimePickerDialog(this,
                 (view, hourOfDay, minute) -> {
                     String dueTime = String.format(Locale.getDefault(), "%02d:%02d", hourOfDay, minute);
                     selectedDueTime[0] = dueTime;
-                    String displayTime = formatTimeForDisplay(hourOfDay, minute);
+                    String displayTime = TimePickerHelper.formatTimeForDisplay(hourOfDay, minute);
                     dueTimeText.setText("Time: " + displayTime);
                     dueTimeText.setVisibility(View.VISIBLE);
                 },
@@ -300,163 +329,52 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
         timePicker.show();
     }
 
-    private String formatDateForDisplay(String date) {
-        try {
-            SimpleDateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-            SimpleDateFormat outputFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-            return outputFormat.format(inputFormat.parse(date));
-        } catch (Exception e) {
-            return date;
-        }
-    }
-
-    private String formatTimeForDisplay(int hour, int minute) {
-        String period = "AM";
-        int displayHour = hour;
-
-        if (hour >= 12) {
-            period = "PM";
-            if (hour > 12) {
-                displayHour = hour - 12;
-            }
-        }
-        if (hour == 0) {
-            displayHour = 12;
-        }
-
-        return String.format(Locale.getDefault(), "%d:%02d %s", displayHour, minute, period);
-    }
-
+    // Shows the list for the current filter and sort, replacing any search results on screen
     private void loadTodoItems() {
-        List<TodoItem> newList;
-
-        switch (currentFilter) {
-            case "COMPLETED":
-                newList = databaseHelper.getCompletedItems();
-                break;
-            case "PENDING":
-                newList = databaseHelper.getPendingItems();
-                break;
-            case "CATEGORY":
-                newList = databaseHelper.getTodoItemsByCategory(currentCategoryFilter);
-                break;
-            default:
-                newList = databaseHelper.getAllTodoItems();
-        }
-
-        // Apply sorting
-        switch (currentSort) {
-            case "DATE":
-                // Sort by due date and time
-                newList.sort((item1, item2) -> {
-                    boolean hasDate1 = item1.hasDueDate();
-                    boolean hasDate2 = item2.hasDueDate();
-
-                    if (hasDate1 && hasDate2) {
-                        int dateCompare = item1.getDueDate().compareTo(item2.getDueDate());
-                        if (dateCompare == 0) {
-                            // Same date, compare time
-                            boolean hasTime1 = item1.hasDueTime();
-                            boolean hasTime2 = item2.hasDueTime();
-                            if (hasTime1 && hasTime2) {
-                                return item1.getDueTime().compareTo(item2.getDueTime());
-                            } else if (hasTime1) {
-                                return -1;
-                            } else if (hasTime2) {
-                                return 1;
-                            }
-                            return 0;
-                        }
-                        return dateCompare;
-                    } else if (hasDate1) {
-                        return -1;
-                    } else if (hasDate2) {
-                        return 1;
-                    }
-                    return 0;
-                });
-                break;
-            case "NAME":
-                newList.sort((item1, item2) -> item1.getTask().compareToIgnoreCase(item2.getTask()));
-                break;
-            case "PRIORITY":
-            default:
-                // Sort by priority, then date, then time
-                newList.sort((item1, item2) -> {
-                    int priorityCompare = Integer.compare(item1.getPriority(), item2.getPriority());
-                    if (priorityCompare != 0) {
-                        return priorityCompare;
-                    }
-
-                    // Same priority, compare dates
-                    boolean hasDate1 = item1.hasDueDate();
-                    boolean hasDate2 = item2.hasDueDate();
-
-                    if (hasDate1 && hasDate2) {
-                        int dateCompare = item1.getDueDate().compareTo(item2.getDueDate());
-                        if (dateCompare == 0 && item1.hasDueTime() && item2.hasDueTime()) {
-                            return item1.getDueTime().compareTo(item2.getDueTime());
-                        }
-                        return dateCompare;
-                    } else if (hasDate1) {
-                        return -1;
-                    } else if (hasDate2) {
-                        return 1;
-                    }
-                    return 0;
-                });
-                break;
-        }
-
-        adapter.updateList(newList);
-        updateStats();
+        searchPipeline.cancel();
+        searching = false;
+        // Every sort has a list-order index, so any list can be paged in sorted order
+        paged = true;
+        pager.setFilter(currentFilter, currentCategoryFilter, currentSort);
+        updateListSources();
     }
 
-    private void updateStats() {
-        int total = databaseHelper.getTotalCount();
-        int completed = databaseHelper.getCompletedCount();
-        int pending = databaseHelper.getPendingCount();
-        int overdue = databaseHelper.getOverdueCount();
-        int dueToday = databaseHelper.getDueTodayCount();
-        int withReminders = databaseHelper.getReminderCount();
+    // Only the source behind what is on screen stays live; the others just note they are stale
+    private void updateListSources() {
+        boolean showingList = started && !searching;
+        pager.setActive(showingList && paged);
+        listQuery.setActive(showingList && !paged);
+    }
 
+    private void showStats(TaskStats taskStats) {
         String stats = String.format(Locale.getDefault(),
                 "Total: %d • Completed: %d • Pending: %d\nOverdue: %d • Due Today: %d • Reminders: %d",
-                total, completed, pending, overdue, dueToday, withReminders);
+                taskStats.getTotal(), taskStats.getCompleted(), taskStats.getPending(),
+                taskStats.getOverdue(), taskStats.getDueToday(), taskStats.getWithReminders());
         statsText.setText(stats);
     }
 
     @Override
     public void onItemClick(int position) {
-        TodoItem item = todoList.get(position);
+        TodoItem item = adapter.getItem(position);
         showEditDialog(item);
     }
 
     @Override
     public void onCheckBoxClick(int position, boolean isChecked) {
-        todoRecyclerView.postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                TodoItem item = todoList.get(position);
-                item.setCompleted(isChecked);
-
-                // Handle alarms when task completion status changes
-                if (isChecked && item.hasReminder()) {
-                    // Cancel alarm when task is completed
-                    AlarmHelper.cancelAlarm(MainActivity.this, item.getId());
-                } else if (!isChecked && item.hasReminder() && !item.isOverdue()) {
-                    // Restore alarm if task is marked incomplete and not overdue
-                    AlarmHelper.setAlarm(MainActivity.this, item);
-                }
-
-                databaseHelper.updateTodoItem(item);
-                adapter.updateItem(position, item);
-                updateStats();
-
-                String message = isChecked ? "Task completed! ✅" : "Task marked incomplete";
-                Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show();
-            }
-        }, 100);
+        TodoItem item = adapter.getItem(position);
+        // Written with any other toggles in the next moment; lists loaded meanwhile already show it
+        repository.setTodoItemCompleted(item, isChecked);
+
+        // The checkbox is already ticked; give the adapter the new state so a rebind keeps it
+        List<TodoItem> shown = new ArrayList<>(adapter.getCurrentList());
+        TodoItem toggled = new TodoItem(item);
+        toggled.setCompleted(isChecked);
+        shown.set(position, toggled);
+        adapter.updateList(shown);
+
+        String message = isChecked ? "Task completed! ✅" : "Task marked incomplete";
+        Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
     }
 
     @Override
@@ -465,6 +383,12 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
     }
 
     private void showEditDialog(final TodoItem item) {
+        // Edit a copy: the adapter diffs against the instance it was given
+        final TodoItem copy = new TodoItem(item);
+        repository.loadCategories(categories -> showEditDialog(copy, categories));
+    }
+
+    private void showEditDialog(final TodoItem item, List<String> categories) {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         View dialogView = getLayoutInflater().inflate(R.layout.dialog_add_task, null);
         builder.setView(dialogView);
@@ -484,7 +408,6 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
         descriptionInput.setText(item.getDescription() != null ? item.getDescription() : "");
 
         // Setup category spinner
-        List<String> categories = databaseHelper.getAllCategories();
         categories.add(0, "General");
         categories.add("Work");
         categories.add("Personal");
@@ -516,7 +439,7 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
         final boolean[] hasReminder = {item.hasReminder()};
 
         if (item.hasDueDate()) {
-            dueDateText.setText("Due: " + formatDateForDisplay(item.getDueDate()));
+            dueDateText.setText("Due: " + TimeService.get().formatDisplayDate(item.getDueDate()));
             dueDateText.setVisibility(View.VISIBLE);
         }
 
@@ -525,7 +448,7 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
                 String[] timeParts = item.getDueTime().split(":");
                 int hour = Integer.parseInt(timeParts[0]);
                 int minute = Integer.parseInt(timeParts[1]);
-                String displayTime = formatTimeForDisplay(hour, minute);
+                String displayTime = TimePickerHelper.formatTimeForDisplay(hour, minute);
                 dueTimeText.setText("Time: " + displayTime);
                 dueTimeText.setVisibility(View.VISIBLE);
             } catch (Exception e) {
@@ -550,11 +473,6 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
                 .setPositiveButton("Save", (dialog, which) -> {
                     String task = taskInput.getText().toString().trim();
                     if (!TextUtils.isEmpty(task)) {
-                        // Cancel existing alarm if any
-                        if (item.hasReminder()) {
-                            AlarmHelper.cancelAlarm(MainActivity.this, item.getId());
-                        }
-
                         item.setTask(task);
                         item.setDescription(descriptionInput.getText().toString());
                         item.setCategory(categorySpinner.getSelectedItem().toString());
@@ -567,11 +485,10 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
                         if (hasReminder[0] && !selectedDueDate[0].isEmpty() && !selectedDueTime[0].isEmpty()) {
                             long alarmTime = item.calculateAlarmTime();
                             item.setAlarmTime(alarmTime);
-                            AlarmHelper.setAlarm(MainActivity.this, item);
+                            showReminderToast(item);
                         }
 
-                        databaseHelper.updateTodoItem(item);
-                        loadTodoItems();
+                        repository.updateTodoItem(item, null);
                         Toast.makeText(MainActivity.this, "Task updated", Toast.LENGTH_SHORT).show();
                     }
                 })
@@ -581,7 +498,7 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
     }
 
     private void showTaskDetailsDialog(int position) {
-        TodoItem item = todoList.get(position);
+        TodoItem item = adapter.getItem(position);
 
         String dueInfo = "Not set";
         if (item.hasDueDate() && item.hasDueTime()) {
@@ -589,13 +506,13 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
                 String[] timeParts = item.getDueTime().split(":");
                 int hour = Integer.parseInt(timeParts[0]);
                 int minute = Integer.parseInt(timeParts[1]);
-                String displayTime = formatTimeForDisplay(hour, minute);
-                dueInfo = formatDateForDisplay(item.getDueDate()) + " at " + displayTime;
+                String displayTime = TimePickerHelper.formatTimeForDisplay(hour, minute);
+                dueInfo = TimeService.get().formatDisplayDate(item.getDueDate()) + " at " + displayTime;
             } catch (Exception e) {
                 dueInfo = item.getDueDate() + " at " + item.getDueTime();
             }
         } else if (item.hasDueDate()) {
-            dueInfo = formatDateForDisplay(item.getDueDate());
+            dueInfo = TimeService.get().formatDisplayDate(item.getDueDate());
         }
 
         String details = "Task: " + item.getTask() + "\n\n" +
@@ -611,31 +528,69 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
                 .setTitle("Task Details")
                 .setMessage(details)
                 .setPositiveButton("Edit", (dialog, which) -> showEditDialog(item))
-                .setNegativeButton("Delete", (dialog, which) -> showDeleteDialog(position))
+                .setNegativeButton("Delete", (dialog, which) -> showDeleteDialog(item))
                 .setNeutralButton("Close", null)
                 .show();
     }
 
-    private void showDeleteDialog(final int position) {
-        TodoItem item = todoList.get(position);
-
+    private void showDeleteDialog(final TodoItem item) {
         new AlertDialog.Builder(this)
                 .setTitle("Delete Task")
                 .setMessage("Are you sure you want to delete: \"" + item.getTask() + "\"?")
-                .setPositiveButton("Delete", (dialog, which) -> {
-                    // Cancel alarm before deleting
-                    if (item.hasReminder()) {
-                        AlarmHelper.cancelAlarm(this, item.getId());
+                .setPositiveButton("Delete", (dialog, which) -> deleteWithUndo(item))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    /**
+     * Takes the task off the list straight away and deletes it in the background, offering to
+     * undo for as long as the repository keeps it. The paged window or observed list is changed
+     * in place and told to expect the write, so neither the delete nor an undo reloads it;
+     * search results are searched again, as after any write. The list may have changed since
+     * the gesture or dialog started, so rows are found by id rather than by position.
+     */
+    private void deleteWithUndo(TodoItem item) {
+        List<TodoItem> shown = new ArrayList<>(adapter.getCurrentList());
+        int index = indexOfId(shown, item.getId());
+        if (index < 0) return; // Already gone
+        final int nextId = index + 1 < shown.size() ? shown.get(index + 1).getId() : -1;
+        if (!searching && paged) {
+            pager.removeRow(item.getId());
+        } else {
+            shown.remove(index);
+            adapter.updateList(shown);
+            if (!searching) listQuery.expectRowChange(item.getId());
+        }
+        // The reminder scheduler drops its alarm once the row is marked deleted
+        repository.deleteTodoItem(item.getId(), null);
+
+        Snackbar.make(todoRecyclerView, "Task deleted", Snackbar.LENGTH_LONG)
+                .setDuration(TodoRepository.UNDO_WINDOW_MS)
+                .setAction("Undo", v -> {
+                    if (!searching && paged) {
+                        pager.restoreRow(item, nextId);
+                    } else {
+                        List<TodoItem> restored = new ArrayList<>(adapter.getCurrentList());
+                        if (indexOfId(restored, item.getId()) < 0) {
+                            // Back in front of the row it preceded, or last if that one is gone too
+                            int before = indexOfId(restored, nextId);
+                            restored.add(before < 0 ? restored.size() : before, item);
+                            adapter.updateList(restored);
+                            if (!searching) listQuery.expectRowChange(item.getId());
+                        }
                     }
-                    databaseHelper.deleteTodoItem(item.getId());
-                    loadTodoItems();
-                    updateStats();
-                    Toast.makeText(MainActivity.this, "Task deleted", Toast.LENGTH_SHORT).show();
+                    repository.undoDeleteTodoItem(item.getId(), null);
                 })
-                .setNegativeButton("Cancel", null)
                 .show();
     }
 
+    private static int indexOfId(List<TodoItem> items, int id) {
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).getId() == id) return i;
+        }
+        return -1;
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main_menu, menu);
@@ -659,15 +614,15 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
             loadTodoItems();
             return true;
         } else if (id == R.id.menu_sort_priority) {
-            currentSort = "PRIORITY";
+            currentSort = TaskSort.PRIORITY;
             loadTodoItems();
             return true;
         } else if (id == R.id.menu_sort_date) {
-            currentSort = "DATE";
+            currentSort = TaskSort.DATE;
             loadTodoItems();
             return true;
         } else if (id == R.id.menu_sort_name) {
-            currentSort = "NAME";
+            currentSort = TaskSort.NAME;
             loadTodoItems();
             return true;
         } else if (id == R.id.menu_filter_category) {
@@ -687,8 +642,20 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
         return super.onOptionsItemSelected(item);
     }
 
+    private void showReminderToast(TodoItem item) {
+        if (item.getAlarmTime() == 0) {
+            Toast.makeText(this, "Cannot set alarm: Invalid date/time", Toast.LENGTH_SHORT).show();
+        } else {
+            Toast.makeText(this, "Reminder set for " + TimePickerHelper.formatTimeForDisplay(item.getDueTime()),
+                    Toast.LENGTH_SHORT).show();
+        }
+    }
+
     private void showCategoryFilterDialog() {
-        List<String> categories = databaseHelper.getAllCategories();
+        repository.loadCategories(this::showCategoryFilterDialog);
+    }
+
+    private void showCategoryFilterDialog(List<String> categories) {
         categories.add(0, "All Categories");
 
         String[] categoryArray = categories.toArray(new String[0]);
@@ -710,25 +677,22 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
     }
 
     private void clearCompletedTasks() {
-        List<TodoItem> completedItems = databaseHelper.getCompletedItems();
-        if (completedItems.isEmpty()) {
+        // The count comes from the stats row
+        repository.loadStats(stats -> confirmClearCompletedTasks(stats.getCompleted()));
+    }
+
+    private void confirmClearCompletedTasks(int completedCount) {
+        if (completedCount == 0) {
             Toast.makeText(this, "No completed tasks to clear", Toast.LENGTH_SHORT).show();
             return;
         }
 
         new AlertDialog.Builder(this)
                 .setTitle("Clear Completed Tasks")
-                .setMessage("Delete all " + completedItems.size() + " completed tasks?")
+                .setMessage("Delete all " + completedCount + " completed tasks?")
                 .setPositiveButton("Clear All", (dialog, which) -> {
-                    // Cancel alarms for all completed tasks
-                    for (TodoItem item : completedItems) {
-                        if (item.hasReminder()) {
-                            AlarmHelper.cancelAlarm(this, item.getId());
-                        }
-                        databaseHelper.deleteTodoItem(item.getId());
-                    }
-                    loadTodoItems();
-                    updateStats();
+                    // Completed tasks are already off the reminder queue
+                    repository.clearCompletedTasks(null);
                     Toast.makeText(MainActivity.this, "Completed tasks cleared", Toast.LENGTH_SHORT).show();
                 })
                 .setNegativeButton("Cancel", null)
@@ -736,7 +700,10 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
     }
 
     private void showUpcomingTasks() {
-        List<TodoItem> upcomingTasks = databaseHelper.getUpcomingTasks();
+        repository.loadUpcomingTasks(this::showUpcomingTasks);
+    }
+
+    private void showUpcomingTasks(List<TodoItem> upcomingTasks) {
         if (upcomingTasks.isEmpty()) {
             Toast.makeText(this, "No upcoming tasks", Toast.LENGTH_SHORT).show();
             return;
@@ -744,11 +711,17 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
 
         currentFilter = "ALL";
         adapter.updateList(upcomingTasks);
+        listQuery.swapQuery(repository.upcomingTasksQuery(), repository.upcomingTasksFilter(), upcomingTasks);
+        paged = false;
+        updateListSources();
         Toast.makeText(this, "Showing upcoming tasks", Toast.LENGTH_SHORT).show();
     }
 
     private void showTasksWithReminders() {
-        List<TodoItem> tasksWithReminders = databaseHelper.getTasksWithReminders();
+        repository.loadTasksWithReminders(this::showTasksWithReminders);
+    }
+
+    private void showTasksWithReminders(List<TodoItem> tasksWithReminders) {
         if (tasksWithReminders.isEmpty()) {
             Toast.makeText(this, "No tasks with reminders", Toast.LENGTH_SHORT).show();
             return;
@@ -756,12 +729,47 @@ public class MainActivity extends AppCompatActivity implements TodoAdapter.OnIte
 
         currentFilter = "ALL";
         adapter.updateList(tasksWithReminders);
+        listQuery.swapQuery(repository.tasksWithRemindersQuery(), repository.tasksWithRemindersFilter(),
+                tasksWithReminders);
+        paged = false;
+        updateListSources();
         Toast.makeText(this, "Showing tasks with reminders", Toast.LENGTH_SHORT).show();
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        started = true;
+        // Catch up on anything written while stopped, e.g. by BootReceiver or an alarm
+        updateListSources();
+        statsQuery.setActive(true);
+        dueStateTicker.run();
+    }
+
+    @Override
+    protected void onPause() {
+        // The process may be killed at any point from here on without another callback: unwritten
+        // toggles are journaled before this returns, and written now rather than after the window
+        repository.flushPendingWrites();
+        super.onPause();
+    }
+
+    @Override
+    protected void onStop() {
+        started = false;
+        todoRecyclerView.removeCallbacks(dueStateTicker);
+        updateListSources();
+        statsQuery.setActive(false);
+        super.onStop();
+    }
+
     @Override
     protected void onDestroy() {
-        databaseHelper.close();
+        searchPipeline.cancel();
+        pager.dispose();
+        listQuery.dispose();
+        statsQuery.dispose();
+        repository.cancelPendingReads();
         super.onDestroy();
     }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.example.todolist;
+
+import android.app.Application;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+
+import com.example.todolist.database.DatabaseHelper;
+import com.example.todolist.database.TodoRepository;
+import com.example.todolist.utils.ReminderScheduler;
+import com.example.todolist.utils.TimeService;
+
+public class TodoApplication extends Application {
+
+    // Lists this long filter and sort faster in memory than through SQLite
+    private static final int COLUMN_STORE_MIN_TASKS = 20_000;
+
+    private DatabaseHelper databaseHelper;
+
+    // The cached day and formatters go stale when the wall clock, time zone or locale is changed
+    private final BroadcastReceiver timeChangeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            TimeService.get().invalidate();
+        }
+    };
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Owns the single shared database handle for the whole process
+        databaseHelper = DatabaseHelper.getInstance(this);
+
+        IntentFilter timeChanges = new IntentFilter(Intent.ACTION_TIME_CHANGED);
+        timeChanges.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        timeChanges.addAction(Intent.ACTION_LOCALE_CHANGED);
+        registerReceiver(timeChangeReceiver, timeChanges);
+
+        // Keeps the one reminder alarm in step with the tasks from here on
+        ReminderScheduler.get(this).start();
+
+        TodoRepository repository = TodoRepository.getInstance(this);
+        repository.loadStats(stats -> repository.setColumnStoreEnabled(stats.getTotal() >= COLUMN_STORE_MIN_TASKS));
+        // Tasks deleted shortly before the process last died
+        repository.purgeTombstones();
+    }
+
+    @Override
+    public void onTerminate() {
+        // Only called on emulators, but keeps the lifecycle explicit
+        unregisterReceiver(timeChangeReceiver);
+        databaseHelper.close();
+        super.onTerminate();
+    }
+}
@@ -8,16 +8,35 @@ import android.widget.CheckBox;
 import android.widget.CompoundButton;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
-import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.todolist.R;
+import com.example.todolist.database.CategoryDictionary;
 import com.example.todolist.models.TodoItem;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
-public class TodoAdapter extends RecyclerView.Adapter<TodoAdapter.ViewHolder> {
-    private List<TodoItem> todoList;
-    private OnItemClickListener listener;
+/**
+ * Diffs each submitted list against the shown one on a background thread, keyed on the task id.
+ * A change that only touches completion or the due date is dispatched as a payload, so just
+ * that part of the row is rebound. Submitted items must not be mutated afterwards.
+ * Binding allocates nothing: listeners live as long as their holder and every string shown
+ * is built with the item, so scrolling does not feed the garbage collector.
+ */
+public class TodoAdapter extends ListAdapter<TodoItem, TodoAdapter.ViewHolder> {
+
+    // Payload bits: which parts of a row a change touched
+    static final int CHANGE_COMPLETION = 1;
+    static final int CHANGE_DUE = 1 << 1;
+
+    private final OnItemClickListener listener;
+    private final CategoryDictionary categories;
+    // Holders currently showing an item, for refreshDueStates(); a list, since a set would
+    // allocate an entry every time a recycled holder is bound again
+    private final List<ViewHolder> boundHolders = new ArrayList<>();
 
     public interface OnItemClickListener {
         void onItemClick(int position);
@@ -25,9 +44,11 @@ public class TodoAdapter extends RecyclerView.Adapter<TodoAdapter.ViewHolder> {
         void onItemLongClick(int position);
     }
 
-    public TodoAdapter(List<TodoItem> todoList, OnItemClickListener listener) {
-        this.todoList = todoList;
+    public TodoAdapter(OnItemClickListener listener, CategoryDictionary categories) {
+        super(DIFF_CALLBACK);
         this.listener = listener;
+        this.categories = categories;
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -35,40 +56,129 @@ public class TodoAdapter extends RecyclerView.Adapter<TodoAdapter.ViewHolder> {
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.todo_item_enhanced, parent, false);
-        return new ViewHolder(view);
+        return new ViewHolder(view, listener, categories);
     }
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        TodoItem item = todoList.get(position);
-        holder.bind(item, position, listener);
+        holder.bind(getItem(position));
+        if (!holder.tracked) {
+            holder.tracked = true;
+            boundHolders.add(holder);
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        int changes = 0;
+        // Indexed, as a for-each would allocate an iterator
+        for (int i = 0; i < payloads.size(); i++) {
+            changes |= (Integer) payloads.get(i);
+        }
+        TodoItem item = getItem(position);
+        if ((changes & CHANGE_COMPLETION) != 0) {
+            holder.bindCompletion(item);
+        }
+        // Overdue colour depends on completion as well as on the date
+        holder.bindDue(item);
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        holder.tracked = false;
+        boundHolders.remove(holder);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getId();
     }
 
     @Override
-    public int getItemCount() {
-        return todoList.size();
+    public TodoItem getItem(int position) {
+        return super.getItem(position);
     }
 
     public void updateList(List<TodoItem> newList) {
-        this.todoList.clear();
-        this.todoList.addAll(newList);
-        notifyDataSetChanged();
+        // Copy so later changes to the caller's list cannot race the background diff
+        submitList(new ArrayList<>(newList));
     }
 
-    public void updateItem(int position, TodoItem item) {
-        if (position >= 0 && position < todoList.size()) {
-            todoList.set(position, item);
-            notifyItemChanged(position);
+    /**
+     * Rebinds the due date of shown rows whose overdue state changed since they were bound,
+     * e.g. once their due time has passed. Only bound rows are checked; others bind fresh.
+     */
+    public void refreshDueStates() {
+        for (int i = 0; i < boundHolders.size(); i++) {
+            ViewHolder holder = boundHolders.get(i);
+            int position = holder.getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION
+                    && getItem(position).isOverdue() != holder.shownOverdue) {
+                notifyItemChanged(position, CHANGE_DUE);
+            }
         }
     }
 
+    static final DiffUtil.ItemCallback<TodoItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<TodoItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull TodoItem oldItem, @NonNull TodoItem newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull TodoItem oldItem, @NonNull TodoItem newItem) {
+            return sameOtherFields(oldItem, newItem)
+                    && oldItem.isCompleted() == newItem.isCompleted()
+                    && Objects.equals(oldItem.getDueDate(), newItem.getDueDate())
+                    && Objects.equals(oldItem.getDueTime(), newItem.getDueTime());
+        }
+
+        /** The parts that changed, or null when anything else changed and the row needs a full bind. */
+        @Override
+        public Object getChangePayload(@NonNull TodoItem oldItem, @NonNull TodoItem newItem) {
+            if (!sameOtherFields(oldItem, newItem)) {
+                return null;
+            }
+            int changes = 0;
+            if (oldItem.isCompleted() != newItem.isCompleted()) {
+                changes |= CHANGE_COMPLETION;
+            }
+            if (!Objects.equals(oldItem.getDueDate(), newItem.getDueDate())
+                    || !Objects.equals(oldItem.getDueTime(), newItem.getDueTime())) {
+                changes |= CHANGE_DUE;
+            }
+            return changes == 0 ? null : changes;
+        }
+
+        private boolean sameOtherFields(TodoItem oldItem, TodoItem newItem) {
+            return Objects.equals(oldItem.getTask(), newItem.getTask())
+                    && Objects.equals(oldItem.getCategory(), newItem.getCategory())
+                    && oldItem.getPriority() == newItem.getPriority()
+                    && Objects.equals(oldItem.getDescription(), newItem.getDescription())
+                    && oldItem.hasReminder() == newItem.hasReminder()
+                    && oldItem.getAlarmTime() == newItem.getAlarmTime();
+        }
+    };
+
     public static class ViewHolder extends RecyclerView.ViewHolder {
+
         private TextView taskText, dueDateText, categoryText, priorityText;
         private CheckBox completedCheckbox;
         private View priorityIndicator, categoryIndicator;
+        private final CompoundButton.OnCheckedChangeListener checkedChangeListener;
+        private final CategoryDictionary categories;
+        boolean shownOverdue;
+        // Whether the adapter's boundHolders holds this holder
+        boolean tracked;
 
-        public ViewHolder(@NonNull View itemView) {
+        public ViewHolder(@NonNull View itemView, final OnItemClickListener listener,
+                          CategoryDictionary categories) {
             super(itemView);
+            this.categories = categories;
             taskText = itemView.findViewById(R.id.task_text);
             dueDateText = itemView.findViewById(R.id.due_date_text);
             categoryText = itemView.findViewById(R.id.category_text);
@@ -76,65 +186,82 @@ public class TodoAdapter extends RecyclerView.Adapter<TodoAdapter.ViewHolder> {
             completedCheckbox = itemView.findViewById(R.id.completed_checkbox);
             priorityIndicator = itemView.findViewById(R.id.priority_indicator);
             categoryIndicator = itemView.findViewById(R.id.category_indicator);
-        }
-
-        public void bind(final TodoItem item, final int position, final OnItemClickListener listener) {
-            taskText.setText(item.getTask());
-
-            // Remove previous listener to avoid recursive calls
-            completedCheckbox.setOnCheckedChangeListener(null);
-            completedCheckbox.setChecked(item.isCompleted());
-
-            // Set due date
-            if (item.hasDueDate()) {
-                dueDateText.setVisibility(View.VISIBLE);
-                dueDateText.setText("Due: " + item.getDueDate());
-                if (item.isOverdue()) {
-                    dueDateText.setTextColor(0xFFFF5252); // Red for overdue
-                } else {
-                    dueDateText.setTextColor(0xFF757575); // Gray for normal
-                }
-            } else {
-                dueDateText.setVisibility(View.GONE);
-            }
-
-            // Set category
-            categoryText.setText(item.getCategory());
-            categoryIndicator.setBackgroundColor(getCategoryColor(item.getCategory()));
-
-            // Set priority
-            priorityText.setText(item.getPriorityText());
-            priorityIndicator.setBackgroundColor(item.getPriorityColor());
-
-            // Update text appearance based on completion
-            updateTextAppearance(item.isCompleted());
 
+            // Created once per holder: partial rebinds keep them, so they resolve the position on click
             itemView.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View v) {
-                    listener.onItemClick(position);
+                    int position = getBindingAdapterPosition();
+                    if (position != RecyclerView.NO_POSITION) {
+                        listener.onItemClick(position);
+                    }
                 }
             });
 
-            completedCheckbox.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            checkedChangeListener = new CompoundButton.OnCheckedChangeListener() {
                 @Override
                 public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                    int position = getBindingAdapterPosition();
+                    if (position == RecyclerView.NO_POSITION) return;
                     // Update visual immediately
                     updateTextAppearance(isChecked);
                     // Notify the activity
                     listener.onCheckBoxClick(position, isChecked);
                 }
-            });
+            };
 
             itemView.setOnLongClickListener(new View.OnLongClickListener() {
                 @Override
                 public boolean onLongClick(View v) {
-                    listener.onItemLongClick(position);
+                    int position = getBindingAdapterPosition();
+                    if (position != RecyclerView.NO_POSITION) {
+                        listener.onItemLongClick(position);
+                    }
                     return true;
                 }
             });
         }
 
+        public void bind(final TodoItem item) {
+            taskText.setText(item.getTask());
+
+            // Set category
+            categoryText.setText(item.getCategory());
+            categoryIndicator.setBackgroundColor(categories.colorOf(item.getCategoryId()));
+
+            // Set priority
+            priorityText.setText(item.getPriorityText());
+            priorityIndicator.setBackgroundColor(item.getPriorityColor());
+
+            bindCompletion(item);
+            bindDue(item);
+        }
+
+        void bindCompletion(TodoItem item) {
+            // Remove listener to avoid recursive calls
+            completedCheckbox.setOnCheckedChangeListener(null);
+            completedCheckbox.setChecked(item.isCompleted());
+            completedCheckbox.setOnCheckedChangeListener(checkedChangeListener);
+
+            // Update text appearance based on completion
+            updateTextAppearance(item.isCompleted());
+        }
+
+        void bindDue(TodoItem item) {
+            shownOverdue = item.isOverdue();
+            if (item.hasDueDate()) {
+                dueDateText.setVisibility(View.VISIBLE);
+                dueDateText.setText(item.getDueLabel());
+                if (shownOverdue) {
+                    dueDateText.setTextColor(0xFFFF5252); // Red for overdue
+                } else {
+                    dueDateText.setTextColor(0xFF757575); // Gray for normal
+                }
+            } else {
+                dueDateText.setVisibility(View.GONE);
+            }
+        }
+
         private void updateTextAppearance(boolean isCompleted) {
             if (isCompleted) {
                 taskText.setPaintFlags(taskText.getPaintFlags() | Paint.STRIKE_THRU_TEXT_FLAG);
@@ -150,15 +277,5 @@ public class TodoAdapter extends RecyclerView.Adapter<TodoAdapter.ViewHolder> {
                 priorityText.setAlpha(1.0f);
             }
         }
-
-        private int getCategoryColor(String category) {
-            // Generate consistent color based on category name
-            int hash = category.hashCode();
-            int[] colors = {
-                    0xFFFF9800, 0xFF2196F3, 0xFF4CAF50, 0xFF9C27B0,
-                    0xFFFF5722, 0xFF607D8B, 0xFF795548, 0xFF009688
-            };
-            return colors[Math.abs(hash) % colors.length];
-        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,170 @@
+package com.example.todolist.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.Nullable;
+
+import com.example.todolist.models.TodoItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The categories table held in memory: names and colours by id, and ids by name. Rows carry a
+ * category id, so showing one is an array lookup, and spinners and filters list the names
+ * without a query. Loaded on first use; a new category is added as a write first names it.
+ * Reads take an immutable snapshot and never lock.
+ */
+public final class CategoryDictionary {
+
+    // Assigned to a category once, when it is created
+    private static final int[] COLORS = {
+            0xFFFF9800, 0xFF2196F3, 0xFF4CAF50, 0xFF9C27B0,
+            0xFFFF5722, 0xFF607D8B, 0xFF795548, 0xFF009688
+    };
+    private static final int NO_CATEGORY_COLOR = 0xFF9E9E9E;
+
+    private final DatabaseHelper databaseHelper;
+    // Null until first used, and again after reset()
+    private volatile Snapshot snapshot;
+
+    CategoryDictionary(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    /** The name of a category id, or null for {@link TodoItem#NO_CATEGORY} and unknown ids. */
+    @Nullable
+    public String nameOf(int id) {
+        Snapshot current = snapshot();
+        return id > 0 && id < current.names.length ? current.names[id] : null;
+    }
+
+    public int colorOf(int id) {
+        Snapshot current = snapshot();
+        return id > 0 && id < current.colors.length && current.names[id] != null
+                ? current.colors[id] : NO_CATEGORY_COLOR;
+    }
+
+    /** The id of a category name, or {@link TodoItem#NO_CATEGORY} if there is none by that name. */
+    public int idOf(@Nullable String name) {
+        if (name == null) return TodoItem.NO_CATEGORY;
+        Integer id = snapshot().ids.get(name);
+        return id != null ? id : TodoItem.NO_CATEGORY;
+    }
+
+    /** Every category name in alphabetical order; a new list the caller may change. */
+    public List<String> getNames() {
+        return new ArrayList<>(snapshot().sortedNames);
+    }
+
+    /**
+     * The id of a category name, creating the category if it is new; {@link TodoItem#NO_CATEGORY}
+     * for null. Call on the writer thread with the database being written. A new category
+     * written in a transaction that is then rolled back must be dropped again with reset().
+     */
+    synchronized int idFor(SQLiteDatabase db, @Nullable String name) {
+        int id = idOf(name);
+        if (id != TodoItem.NO_CATEGORY || name == null) return id;
+
+        ContentValues values = new ContentValues();
+        values.put(DatabaseHelper.COLUMN_NAME, name);
+        values.put(DatabaseHelper.COLUMN_COLOR, colorFor(name));
+        id = (int) db.insertWithOnConflict(DatabaseHelper.TABLE_CATEGORIES, null, values,
+                SQLiteDatabase.CONFLICT_IGNORE);
+        if (id == -1) {
+            // Created since the snapshot was loaded, e.g. by a restore
+            reset();
+            return idOf(name);
+        }
+        snapshot = snapshot().with(id, name, colorFor(name));
+        return id;
+    }
+
+    /** Forgets what is loaded, so the next lookup reads the table again. */
+    void reset() {
+        snapshot = null;
+    }
+
+    // The colour a category gets when created: the one the list used to derive from the name
+    // on every bind, so categories moved into the table by the v11 upgrade keep theirs
+    static int colorFor(String name) {
+        return COLORS[Math.abs(name.hashCode()) % COLORS.length];
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = load();
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Fills one set of arrays and sorts the names once, rather than copying a snapshot per row
+    private Snapshot load() {
+        String[] names = new String[1];
+        int[] colors = new int[1];
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> sortedNames = new ArrayList<>();
+        Cursor cursor = databaseHelper.getReadableDatabase().rawQuery(DatabaseHelper.SQL_CATEGORIES, null);
+        try {
+            while (cursor.moveToNext()) {
+                int id = cursor.getInt(0);
+                String name = cursor.getString(1);
+                if (id >= names.length) {
+                    int length = Math.max(id + 1, names.length * 2);
+                    names = Arrays.copyOf(names, length);
+                    colors = Arrays.copyOf(colors, length);
+                }
+                names[id] = name;
+                colors[id] = cursor.getInt(2);
+                ids.put(name, id);
+                sortedNames.add(name);
+            }
+        } finally {
+            cursor.close();
+        }
+        Collections.sort(sortedNames);
+        return new Snapshot(names, colors, ids, sortedNames);
+    }
+
+    private static final class Snapshot {
+        // Indexed by id; ids are small and dense, as categories are never deleted
+        final String[] names;
+        final int[] colors;
+        final Map<String, Integer> ids;
+        final List<String> sortedNames;
+
+        Snapshot(String[] names, int[] colors, Map<String, Integer> ids, List<String> sortedNames) {
+            this.names = names;
+            this.colors = colors;
+            this.ids = ids;
+            this.sortedNames = sortedNames;
+        }
+
+        Snapshot with(int id, String name, int color) {
+            int length = Math.max(names.length, id + 1);
+            String[] newNames = Arrays.copyOf(names, length);
+            int[] newColors = Arrays.copyOf(colors, length);
+            newNames[id] = name;
+            newColors[id] = color;
+            Map<String, Integer> newIds = new HashMap<>(ids);
+            newIds.put(name, id);
+            List<String> newSorted = new ArrayList<>(sortedNames);
+            int position = Collections.binarySearch(newSorted, name);
+            newSorted.add(position < 0 ? -position - 1 : position, name);
+            return new Snapshot(newNames, newColors, newIds, newSorted);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.todolist.database;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.util.Log;
+
+import com.example.todolist.models.TodoItem;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Holds checkbox toggles for a short batch window and writes them together, so flicking down a
+ * checklist costs one transaction instead of a full-row write per tap. Toggling a task back
+ * before its write cancels it. Until written, toggled states are laid over every list the
+ * repository delivers, so a reload in between cannot flip a checkbox back. When the screen is
+ * paused, toggles not yet committed are also recorded in a small journal, replayed on the next
+ * start if the process died before their write landed. Main thread only, apart from the writes.
+ */
+final class CompletionWriteBehind {
+
+    private static final String TAG = "CompletionWriteBehind";
+
+    static final long BATCH_WINDOW_MS = 400;
+    private static final long NO_ALARM = -1;
+
+    private final DatabaseHelper databaseHelper;
+    private final ExecutorService writeExecutor;
+    private final Handler mainHandler;
+    // Task id to "completed:alarmTime" for every journaled toggle not known to be committed
+    private final SharedPreferences journal;
+    private final Runnable flushTask = this::flush;
+
+    // Not yet handed to the writer, in toggle order
+    private final Map<Integer, Toggle> pending = new LinkedHashMap<>();
+    // Handed to the writer and not yet committed; still laid over lists read meanwhile
+    private final Map<Integer, Toggle> writing = new HashMap<>();
+
+    // Metrics
+    private int toggles;
+    private int cancelled;
+    private int batches;
+    private int failedBatches;
+    private int rowsWritten;
+
+    CompletionWriteBehind(DatabaseHelper databaseHelper, ExecutorService writeExecutor, Handler mainHandler,
+                          SharedPreferences journal) {
+        this.databaseHelper = databaseHelper;
+        this.writeExecutor = writeExecutor;
+        this.mainHandler = mainHandler;
+        this.journal = journal;
+        // Ahead of any write queued from now on, so later toggles of the same task win
+        writeExecutor.execute(this::replayJournal);
+    }
+
+    /** Queues {@code item}, as shown, to become completed or pending. */
+    void toggle(TodoItem item, boolean completed) {
+        toggles++;
+        Toggle previous = pending.remove(item.getId());
+        boolean shown = previous != null ? previous.shownBefore : item.isCompleted();
+        if (completed == shown) {
+            // Back where it started: nothing to write
+            cancelled++;
+            return;
+        }
+        // A task marked pending goes back on the reminder queue if its reminder is still ahead
+        long alarmTime = !completed && item.hasReminder() ? item.calculateAlarmTime() : NO_ALARM;
+        pending.put(item.getId(), new Toggle(shown, completed, alarmTime));
+        if (previous == null && pending.size() == 1) {
+            mainHandler.postDelayed(flushTask, BATCH_WINDOW_MS);
+        }
+    }
+
+    /** {@code items} with queued and unwritten toggles applied; the list itself if there are none. */
+    List<TodoItem> overlay(List<TodoItem> items) {
+        if (pending.isEmpty() && writing.isEmpty()) return items;
+        List<TodoItem> result = new ArrayList<>(items.size());
+        for (TodoItem item : items) {
+            Toggle toggle = pending.get(item.getId());
+            if (toggle == null) {
+                toggle = writing.get(item.getId());
+            }
+            if (toggle != null && toggle.completed != item.isCompleted()) {
+                item = new TodoItem(item);
+                item.setCompleted(toggle.completed);
+                if (toggle.alarmTime != NO_ALARM) {
+                    item.setAlarmTime(toggle.alarmTime);
+                }
+            }
+            result.add(item);
+        }
+        return result;
+    }
+
+    /** Hands everything queued to the writer now; null if there was nothing. */
+    Future<?> flush() {
+        mainHandler.removeCallbacks(flushTask);
+        if (pending.isEmpty()) return null;
+
+        Map<Integer, Toggle> batch = new LinkedHashMap<>(pending);
+        pending.clear();
+        writing.putAll(batch);
+        Map<Integer, Boolean> completed = new LinkedHashMap<>();
+        Map<Integer, Long> alarmTimes = new HashMap<>();
+        for (Map.Entry<Integer, Toggle> entry : batch.entrySet()) {
+            completed.put(entry.getKey(), entry.getValue().completed);
+            if (entry.getValue().alarmTime != NO_ALARM) {
+                alarmTimes.put(entry.getKey(), entry.getValue().alarmTime);
+            }
+        }
+        batches++;
+        return writeExecutor.submit(() -> {
+            boolean written = false;
+            try {
+                int changed = databaseHelper.setTodoItemsCompletion(completed, alarmTimes).size();
+                written = true;
+                mainHandler.post(() -> {
+                    rowsWritten += changed;
+                    Log.d(TAG, getMetrics());
+                });
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Completion write failed: " + e.getMessage(), e);
+            } finally {
+                boolean failed = !written;
+                mainHandler.post(() -> {
+                    SharedPreferences.Editor settled = null;
+                    for (Map.Entry<Integer, Toggle> entry : batch.entrySet()) {
+                        // A later batch may already have replaced it, journal entry and all
+                        if (writing.remove(entry.getKey(), entry.getValue()) && entry.getValue().journaled) {
+                            if (settled == null) settled = journal.edit();
+                            settled.remove(String.valueOf(entry.getKey()));
+                        }
+                    }
+                    if (settled != null) settled.apply();
+                    if (failed) {
+                        failedBatches++;
+                        // Nothing was written: lists reload and show the checkboxes as stored again.
+                        // Table-wide, so the query cache drops entries without reading on this thread
+                        databaseHelper.getInvalidationTracker().notifyTableChanged(DatabaseHelper.TABLE_TODO);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Hands everything queued to the writer and makes sure it survives the process being killed
+     * before the write lands, e.g. as the screen is paused. Rather than waiting on the writer,
+     * which may be busy with other work, the uncommitted toggles are committed to the journal:
+     * one small file write on this thread.
+     */
+    void flushDurably() {
+        flush();
+        SharedPreferences.Editor editor = null;
+        for (Map.Entry<Integer, Toggle> entry : writing.entrySet()) {
+            Toggle toggle = entry.getValue();
+            if (toggle.journaled) continue;
+            if (editor == null) editor = journal.edit();
+            editor.putString(String.valueOf(entry.getKey()), toggle.completed + ":" + toggle.alarmTime);
+            toggle.journaled = true;
+        }
+        if (editor != null && !editor.commit()) {
+            Log.w(TAG, "Journaling completion toggles failed");
+        }
+    }
+
+    // Writer thread: toggles journaled by a process that died before writing them
+    private void replayJournal() {
+        Map<String, ?> entries = journal.getAll();
+        if (entries.isEmpty()) return;
+        Map<Integer, Boolean> completed = new LinkedHashMap<>();
+        Map<Integer, Long> alarmTimes = new HashMap<>();
+        for (Map.Entry<String, ?> entry : entries.entrySet()) {
+            try {
+                int id = Integer.parseInt(entry.getKey());
+                String[] parts = String.valueOf(entry.getValue()).split(":");
+                completed.put(id, Boolean.parseBoolean(parts[0]));
+                long alarmTime = Long.parseLong(parts[1]);
+                if (alarmTime != NO_ALARM) {
+                    alarmTimes.put(id, alarmTime);
+                }
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Skipping journal entry " + entry.getKey(), e);
+            }
+        }
+        try {
+            int changed = databaseHelper.setTodoItemsCompletion(completed, alarmTimes).size();
+            Log.i(TAG, "Replayed " + completed.size() + " journaled toggles, " + changed + " rows written");
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Replaying journaled toggles failed: " + e.getMessage(), e);
+            return;
+        }
+        SharedPreferences.Editor editor = journal.edit();
+        for (String key : entries.keySet()) {
+            editor.remove(key);
+        }
+        editor.commit();
+    }
+
+    String getMetrics() {
+        return "toggles=" + toggles + ", cancelled=" + cancelled + ", batches=" + batches
+                + ", failedBatches=" + failedBatches + ", rowsWritten=" + rowsWritten + ", pending=" + pending.size();
+    }
+
+    private static final class Toggle {
+        // Completion as shown before the first toggle of this batch
+        final boolean shownBefore;
+        final boolean completed;
+        final long alarmTime;
+        // Recorded in the journal by flushDurably(); main thread only
+        boolean journaled;
+
+        Toggle(boolean shownBefore, boolean completed, long alarmTime) {
+            this.shownBefore = shownBefore;
+            this.completed = completed;
+            this.alarmTime = alarmTime;
+        }
+    }
+}
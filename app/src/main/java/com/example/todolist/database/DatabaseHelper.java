@@ -4,35 +4,263 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
+import android.text.TextUtils;
 
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.example.todolist.models.TaskStats;
 import com.example.todolist.models.TodoItem;
+import com.example.todolist.utils.TimeService;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "todo_enhanced.db";
-    private static final int DATABASE_VERSION = 3; // Updated version
+    private static final int DATABASE_VERSION = 12; // v12: unicode61 search tokenizer
+
+    static final String TABLE_TODO = "todo_items";
+    static final String COLUMN_ID = "id";
+    static final String COLUMN_TASK = "task";
+    static final String COLUMN_COMPLETED = "completed";
+    static final String COLUMN_CREATED_AT = "created_at";
+    static final String COLUMN_DUE_DATE = "due_date";
+    static final String COLUMN_DUE_TIME = "due_time";
+    static final String COLUMN_HAS_REMINDER = "has_reminder";
+    static final String COLUMN_ALARM_TIME = "alarm_time";
+    // Until v11 the category name itself; still the name field in exports
+    static final String COLUMN_CATEGORY = "category";
+    static final String COLUMN_PRIORITY = "priority";
+    static final String COLUMN_DESCRIPTION = "description";
+    // v9: the due instant and creation time as epoch millis, next to their display strings
+    static final String COLUMN_DUE_AT = "due_at";
+    static final String COLUMN_CREATED_AT_MS = "created_at_ms";
+    // v10: when a task was deleted, NULL while it is live. A deleted task stays in the table as a
+    // tombstone until purged, so the delete can be undone; every read leaves tombstones out.
+    static final String COLUMN_DELETED_AT = "deleted_at";
+    static final String LIVE = COLUMN_DELETED_AT + " IS NULL";
+    // v11: categories in their own table, referenced by id; names and colours are read through
+    // CategoryDictionary. The v10 category column is left NULL, as SQLite before 3.35 cannot drop it.
+    static final String TABLE_CATEGORIES = "categories";
+    static final String COLUMN_NAME = "name";
+    static final String COLUMN_COLOR = "color";
+    static final String COLUMN_CATEGORY_ID = "category_id";
+
+    // v5: FTS4 index over task and description, content stored in todo_items
+    private static final String TABLE_TODO_FTS = "todo_fts";
+    private static final String COLUMN_DOCID = "docid";
+    static final int SEARCH_RESULT_LIMIT = 500;
+
+    // v6: single-row table of date-independent counters, kept current by triggers
+    private static final String TABLE_STATS = "todo_stats";
+    private static final String COLUMN_STATS_TOTAL = "total";
+    private static final String COLUMN_STATS_COMPLETED = "completed";
+    private static final String COLUMN_STATS_REMINDERS = "reminders";
+    private static final String STATS_ROW = "0";
+    private static final String[] STATS_TRIGGERS = {
+            "todo_stats_after_insert", "todo_stats_after_delete", "todo_stats_after_update"};
+
+    // Index names (v4), one per access path used by the queries below; the list-order ones
+    // (one per filter column and TaskSort) are named by listIndexName()
+    private static final String INDEX_PENDING_DUE = "idx_todo_pending_due";
+    private static final String INDEX_PENDING_REMINDERS = "idx_todo_pending_reminders";
+    private static final String INDEX_PENDING_DUE_AT = "idx_todo_pending_due_at";
+    private static final String INDEX_TOMBSTONES = "idx_todo_tombstones";
+
+    // Sort key expressions used by TaskSort. NULL and '' both mean "no date", so the keys fold
+    // them together, which also keeps keyset comparisons NULL-free. SORT_LAST sorts after any
+    // date or time, putting undated tasks (and untimed ones, in DATE order) last.
+    static final String SORT_LAST = "~";
+    static final String SORT_KEY_PRIORITY = COLUMN_PRIORITY;
+    static final String SORT_KEY_DUE_DATE = "IFNULL(NULLIF(" + COLUMN_DUE_DATE + ", ''), '" + SORT_LAST + "')";
+    static final String SORT_KEY_DUE_TIME = "IFNULL(" + COLUMN_DUE_TIME + ", '')";
+    static final String SORT_KEY_DATED_TIME = "CASE WHEN IFNULL(" + COLUMN_DUE_DATE + ", '') = '' THEN '" + SORT_LAST
+            + "' ELSE IFNULL(NULLIF(" + COLUMN_DUE_TIME + ", ''), '" + SORT_LAST + "') END";
+    static final String SORT_KEY_NAME = "IFNULL(" + COLUMN_TASK + ", '') COLLATE NOCASE";
+
+    // Query shapes, package-private so QueryPlanTest can check each one uses an index
+    static final String SQL_ALL_ITEMS = listQuery("ALL", TaskSort.PRIORITY, false, false, false, -1);
+    static final String SQL_ITEMS_BY_CATEGORY = listQuery("CATEGORY", TaskSort.PRIORITY, false, false, false, -1);
+    // Every read carries LIVE as a plain AND term, which is what lets SQLite use the partial indexes
+    static final String SQL_COMPLETED_ITEMS = "SELECT * FROM " + TABLE_TODO + " WHERE " + COLUMN_COMPLETED + " = 1"
+            + " AND " + LIVE;
+    static final String SQL_PENDING_ITEMS = "SELECT * FROM " + TABLE_TODO + " WHERE " + COLUMN_COMPLETED + " = 0"
+            + " AND " + LIVE;
+    static final String SQL_ITEMS_WITH_REMINDERS = "SELECT * FROM " + TABLE_TODO
+            + " WHERE " + COLUMN_HAS_REMINDER + " = 1 AND " + COLUMN_COMPLETED + " = 0 AND " + LIVE;
+    static final String SQL_ITEMS_DUE_ON = "SELECT * FROM " + TABLE_TODO
+            + " WHERE " + COLUMN_DUE_DATE + " = ? AND " + COLUMN_COMPLETED + " = 0 AND " + LIVE;
+    static final String SQL_ITEMS_BY_DATE_TIME = "SELECT * FROM " + TABLE_TODO + " WHERE " + COLUMN_COMPLETED + " = 0"
+            + " AND " + LIVE + " ORDER BY " + COLUMN_DUE_DATE + " ASC, " + COLUMN_DUE_TIME + " ASC, " + COLUMN_PRIORITY + " ASC";
+    static final String SQL_UPCOMING_ITEMS = "SELECT * FROM " + TABLE_TODO + " WHERE " + COLUMN_COMPLETED + " = 0"
+            + " AND " + LIVE + " AND " + COLUMN_DUE_DATE + " BETWEEN ? AND ?"
+            + " ORDER BY " + COLUMN_DUE_DATE + " ASC, " + COLUMN_DUE_TIME + " ASC";
+    // Rank 0 when every term hits the task title, rank 1 when some only hit the description
+    // (CROSS JOIN pins the FTS matches as the outer loop, so todo_items is only probed by id)
+    static final String SQL_SEARCH = "SELECT t.* FROM ("
+            + "SELECT " + COLUMN_DOCID + ", 0 AS rank FROM " + TABLE_TODO_FTS + " WHERE " + TABLE_TODO_FTS + " MATCH ?"
+            + " UNION ALL "
+            + "SELECT " + COLUMN_DOCID + ", 1 AS rank FROM " + TABLE_TODO_FTS + " WHERE " + TABLE_TODO_FTS + " MATCH ?"
+            + ") m CROSS JOIN " + TABLE_TODO + " t ON t." + COLUMN_ID + " = m." + COLUMN_DOCID
+            + " WHERE t." + LIVE
+            + " GROUP BY t." + COLUMN_ID
+            + " ORDER BY MIN(m.rank) ASC, t." + COLUMN_PRIORITY + " ASC, t." + COLUMN_DUE_DATE + " ASC, t." + COLUMN_DUE_TIME + " ASC"
+            + " LIMIT " + SEARCH_RESULT_LIMIT;
+    // The reminder queue: active reminders whose alarm has not fired yet, read in alarm order
+    // from idx_todo_pending_reminders. A fired reminder has its alarm_time reset to 0.
+    static final String SQL_NEXT_REMINDER_TIME = "SELECT " + COLUMN_ALARM_TIME + " FROM " + TABLE_TODO
+            + " WHERE " + COLUMN_HAS_REMINDER + " = 1 AND " + COLUMN_COMPLETED + " = 0 AND " + LIVE
+            + " AND " + COLUMN_ALARM_TIME + " > 0 ORDER BY " + COLUMN_ALARM_TIME + " LIMIT 1";
+    static final String SQL_DUE_REMINDERS = "SELECT * FROM " + TABLE_TODO
+            + " WHERE " + COLUMN_HAS_REMINDER + " = 1 AND " + COLUMN_COMPLETED + " = 0 AND " + LIVE
+            + " AND " + COLUMN_ALARM_TIME + " > 0 AND " + COLUMN_ALARM_TIME + " <= ? ORDER BY " + COLUMN_ALARM_TIME;
+    static final String SQL_QUEUED_REMINDER_COUNT = "SELECT COUNT(*) FROM " + TABLE_TODO
+            + " WHERE " + COLUMN_HAS_REMINDER + " = 1 AND " + COLUMN_COMPLETED + " = 0 AND " + LIVE
+            + " AND " + COLUMN_ALARM_TIME + " > ?";
+    static final String SQL_ITEMS_AFTER_ID = "SELECT * FROM " + TABLE_TODO + " WHERE " + COLUMN_ID + " > ?"
+            + " AND " + LIVE + " ORDER BY " + COLUMN_ID + " LIMIT ?";
+    static final String SQL_ITEM_BY_ID = "SELECT * FROM " + TABLE_TODO + " WHERE " + COLUMN_ID + " = ? AND " + LIVE;
+    static final String SQL_ITEMS_BY_IDS = "SELECT * FROM " + TABLE_TODO + " WHERE " + LIVE + " AND " + COLUMN_ID + " IN ";
+    // What TaskColumnStore holds of each row, in id order; the ids are bound after IN
+    static final String COLUMN_STORE_COLUMNS = COLUMN_ID + ", " + COLUMN_PRIORITY + ", " + COLUMN_DUE_DATE + ", "
+            + COLUMN_DUE_TIME + ", " + COLUMN_DUE_AT + ", " + COLUMN_COMPLETED + ", " + COLUMN_CATEGORY_ID;
+    static final String SQL_COLUMN_STORE_ROWS = "SELECT " + COLUMN_STORE_COLUMNS + " FROM " + TABLE_TODO
+            + " WHERE " + LIVE + " ORDER BY " + COLUMN_ID;
+    static final String SQL_COLUMN_STORE_ROWS_BY_IDS = "SELECT " + COLUMN_STORE_COLUMNS + " FROM " + TABLE_TODO
+            + " WHERE " + LIVE + " AND " + COLUMN_ID + " IN ";
+    // Ids bound per IN list; SQLite before 3.32 allows 999 parameters
+    static final int MAX_IN_LIST = 500;
+    // Read once into CategoryDictionary, not per dialog or filter
+    static final String SQL_CATEGORIES = "SELECT " + COLUMN_ID + ", " + COLUMN_NAME + ", " + COLUMN_COLOR
+            + " FROM " + TABLE_CATEGORIES;
+    static final String SQL_TOTAL_COUNT = "SELECT COUNT(*) FROM " + TABLE_TODO + " WHERE " + LIVE;
+    static final String SQL_COMPLETED_COUNT = "SELECT COUNT(*) FROM " + TABLE_TODO + " WHERE " + COLUMN_COMPLETED + " = 1"
+            + " AND " + LIVE;
+    static final String SQL_PENDING_COUNT = "SELECT COUNT(*) FROM " + TABLE_TODO + " WHERE " + COLUMN_COMPLETED + " = 0"
+            + " AND " + LIVE;
+    static final String SQL_REMINDER_COUNT = "SELECT COUNT(*) FROM " + TABLE_TODO
+            + " WHERE " + COLUMN_HAS_REMINDER + " = 1 AND " + COLUMN_COMPLETED + " = 0 AND " + LIVE;
+    static final String SQL_DUE_ON_COUNT = "SELECT COUNT(*) FROM " + TABLE_TODO
+            + " WHERE " + COLUMN_DUE_DATE + " = ? AND " + COLUMN_COMPLETED + " = 0 AND " + LIVE;
+    // All dashboard counters in one statement: O(1) counters from todo_stats, the two
+    // time-dependent ones from the partial pending due_at and due-date indexes
+    static final String SQL_TASK_STATS = "SELECT "
+            + COLUMN_STATS_TOTAL + ", " + COLUMN_STATS_COMPLETED + ", " + COLUMN_STATS_REMINDERS + ", "
+            + "(SELECT COUNT(*) FROM " + TABLE_TODO + " WHERE " + COLUMN_COMPLETED + " = 0 AND " + LIVE
+            + " AND " + COLUMN_DUE_AT + " < ?), "
+            + "(SELECT COUNT(*) FROM " + TABLE_TODO + " WHERE " + COLUMN_DUE_DATE + " = ? AND " + COLUMN_COMPLETED + " = 0"
+            + " AND " + LIVE + ")"
+            + " FROM " + TABLE_STATS + " WHERE " + COLUMN_ID + " = " + STATS_ROW;
+    // Overdue means past the due instant, as in TodoItem.isOverdue(); NULL due_at never matches
+    static final String SQL_OVERDUE_COUNT = "SELECT COUNT(*) FROM " + TABLE_TODO + " WHERE " + COLUMN_COMPLETED + " = 0"
+            + " AND " + LIVE + " AND " + COLUMN_DUE_AT + " < ?";
+    // Tombstones deleted at or before a time, oldest first, from the tombstone index
+    static final String SQL_TOMBSTONES_BEFORE = "SELECT " + COLUMN_ID + " FROM " + TABLE_TODO
+            + " WHERE " + COLUMN_DELETED_AT + " <= ? ORDER BY " + COLUMN_DELETED_AT + " LIMIT ?";
 
-    private static final String TABLE_TODO = "todo_items";
-    private static final String COLUMN_ID = "id";
-    private static final String COLUMN_TASK = "task";
-    private static final String COLUMN_COMPLETED = "completed";
-    private static final String COLUMN_CREATED_AT = "created_at";
-    private static final String COLUMN_DUE_DATE = "due_date";
-    private static final String COLUMN_DUE_TIME = "due_time";
-    private static final String COLUMN_HAS_REMINDER = "has_reminder";
-    private static final String COLUMN_ALARM_TIME = "alarm_time";
-    private static final String COLUMN_CATEGORY = "category";
-    private static final String COLUMN_PRIORITY = "priority";
-    private static final String COLUMN_DESCRIPTION = "description";
+    // Batch writes: compiled once per call and re-bound for every row. The item columns come first,
+    // in the order bindItem() fills them, so INSERT and UPDATE share the binding.
+    private static final String ITEM_COLUMNS = COLUMN_TASK + ", " + COLUMN_COMPLETED + ", " + COLUMN_DUE_DATE + ", "
+            + COLUMN_DUE_TIME + ", " + COLUMN_DUE_AT + ", " + COLUMN_CATEGORY_ID + ", " + COLUMN_PRIORITY + ", "
+            + COLUMN_DESCRIPTION + ", " + COLUMN_HAS_REMINDER + ", " + COLUMN_ALARM_TIME;
+    private static final int ITEM_COLUMN_COUNT = 10;
+    private static final String SQL_INSERT_ITEM = "INSERT INTO " + TABLE_TODO + " (" + ITEM_COLUMNS + ", "
+            + COLUMN_CREATED_AT + ", " + COLUMN_CREATED_AT_MS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // Spelled out rather than SET (...) = (...): row values need SQLite 3.15, API 24 ships 3.9
+    private static final String SQL_RESTORE_ITEM = "INSERT INTO " + TABLE_TODO + " (" + ITEM_COLUMNS + ", "
+            + COLUMN_CREATED_AT + ", " + COLUMN_CREATED_AT_MS + ", " + COLUMN_ID
+            + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_UPDATE_ITEM = "UPDATE " + TABLE_TODO + " SET "
+            + ITEM_COLUMNS.replace(",", " = ?,") + " = ? WHERE " + COLUMN_ID + " = ?";
+    // Rows already in the requested state are left alone, so only real changes fire the stats trigger
+    private static final String SQL_SET_COMPLETED = "UPDATE " + TABLE_TODO + " SET " + COLUMN_COMPLETED + " = ?1"
+            + " WHERE " + COLUMN_ID + " = ?2 AND " + COLUMN_COMPLETED + " != ?1";
+    private static final String SQL_SET_PENDING_WITH_ALARM = "UPDATE " + TABLE_TODO + " SET " + COLUMN_COMPLETED + " = 0, "
+            + COLUMN_ALARM_TIME + " = ?1 WHERE " + COLUMN_ID + " = ?2 AND " + COLUMN_COMPLETED + " != 0";
+    private static final String SQL_MARK_REMINDER_FIRED = "UPDATE " + TABLE_TODO + " SET " + COLUMN_ALARM_TIME + " = 0"
+            + " WHERE " + COLUMN_ID + " = ?";
+    private static final String SQL_DELETE_ITEM = "DELETE FROM " + TABLE_TODO + " WHERE " + COLUMN_ID + " = ?";
+    private static final String SQL_MARK_DELETED = "UPDATE " + TABLE_TODO + " SET " + COLUMN_DELETED_AT + " = ?"
+            + " WHERE " + COLUMN_ID + " = ? AND " + LIVE;
+    private static final String SQL_UNDELETE = "UPDATE " + TABLE_TODO + " SET " + COLUMN_DELETED_AT + " = NULL"
+            + " WHERE " + COLUMN_ID + " = ? AND " + COLUMN_DELETED_AT + " IS NOT NULL";
+    private static final String SQL_PURGE_TOMBSTONES = "DELETE FROM " + TABLE_TODO + " WHERE " + COLUMN_ID
+            + " IN (" + SQL_TOMBSTONES_BEFORE + ")";
 
-    public DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    private static volatile DatabaseHelper instance;
+
+    private final InvalidationTracker invalidationTracker;
+    private final CategoryDictionary categories = new CategoryDictionary(this);
+    // Cancels the list, search and count queries of the read running on this thread, if any
+    private final ThreadLocal<CancellationSignal> readSignal = new ThreadLocal<>();
+
+    /**
+     * Returns the process-wide helper. The connection it hands out is opened once and
+     * shared by every caller; its lifecycle belongs to {@link com.example.todolist.TodoApplication},
+     * so callers must never close it themselves.
+     */
+    public static DatabaseHelper getInstance(Context context) {
+        DatabaseHelper result = instance;
+        if (result == null) {
+            synchronized (DatabaseHelper.class) {
+                result = instance;
+                if (result == null) {
+                    result = new DatabaseHelper(context.getApplicationContext(), DATABASE_NAME);
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @VisibleForTesting
+    DatabaseHelper(Context context, String databaseName) {
+        this(context, databaseName, new InvalidationTracker());
+    }
+
+    @VisibleForTesting
+    DatabaseHelper(Context context, String databaseName, InvalidationTracker invalidationTracker) {
+        super(context, databaseName, null, DATABASE_VERSION);
+        this.invalidationTracker = invalidationTracker;
+        // WAL lets readers run alongside the writer; Android then keeps a small pool of
+        // reader connections behind the single SQLiteDatabase handle.
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    /** Every write made through this helper is reported here, whichever component made it. */
+    public InvalidationTracker getInvalidationTracker() {
+        return invalidationTracker;
+    }
+
+    /**
+     * Lets {@code signal} stop the queries made on this thread until it is cleared with null, so
+     * a read that is no longer wanted stops where it is rather than running to the end.
+     */
+    void setReadSignal(@Nullable CancellationSignal signal) {
+        if (signal != null) {
+            readSignal.set(signal);
+        } else {
+            readSignal.remove();
+        }
+    }
+
+    /** Category names and colours by id, held in memory. */
+    public CategoryDictionary getCategories() {
+        return categories;
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
+        createCategoriesTable(db);
         String CREATE_TODO_TABLE = "CREATE TABLE " + TABLE_TODO + "("
                 + COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + COLUMN_TASK + " TEXT,"
@@ -40,12 +268,131 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + COLUMN_CREATED_AT + " TEXT,"
                 + COLUMN_DUE_DATE + " TEXT,"
                 + COLUMN_DUE_TIME + " TEXT,"
-                + COLUMN_CATEGORY + " TEXT,"
+                + COLUMN_CATEGORY_ID + " INTEGER REFERENCES " + TABLE_CATEGORIES + "(" + COLUMN_ID + "),"
                 + COLUMN_PRIORITY + " INTEGER,"
                 + COLUMN_DESCRIPTION + " TEXT,"
                 + COLUMN_HAS_REMINDER + " INTEGER DEFAULT 0,"
-                + COLUMN_ALARM_TIME + " INTEGER DEFAULT 0" + ")";
+                + COLUMN_ALARM_TIME + " INTEGER DEFAULT 0,"
+                + COLUMN_DUE_AT + " INTEGER,"
+                + COLUMN_CREATED_AT_MS + " INTEGER,"
+                + COLUMN_DELETED_AT + " INTEGER" + ")";
         db.execSQL(CREATE_TODO_TABLE);
+        createIndexes(db);
+        createDueAtIndex(db);
+        createTombstoneIndex(db);
+        createSearchIndex(db);
+        createStatsTable(db);
+    }
+
+    // v4: indexes matching the WHERE/ORDER BY shapes of the read queries. The list orders use
+    // expression keys (v7, SQLite 3.9+, i.e. API 24); the implicit trailing rowid gives the id tiebreak.
+    // All partial on LIVE since v10, so tombstones neither take space in them nor slow a read.
+    private void createIndexes(SQLiteDatabase db) {
+        for (TaskSort sort : TaskSort.values()) {
+            String sortKeys = TextUtils.join(", ", sort.keys);
+            // Unfiltered list; completed / pending lists and counts; category filter
+            for (String filterColumn : new String[]{null, COLUMN_COMPLETED, COLUMN_CATEGORY_ID}) {
+                db.execSQL("CREATE INDEX IF NOT EXISTS " + listIndexName(filterColumn, sort) + " ON " + TABLE_TODO
+                        + "(" + (filterColumn != null ? filterColumn + ", " : "") + sortKeys + ") WHERE " + LIVE);
+            }
+        }
+        // Partial: due today, overdue, upcoming and date ordering only ever look at pending rows
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_PENDING_DUE + " ON " + TABLE_TODO
+                + "(" + COLUMN_DUE_DATE + ", " + COLUMN_DUE_TIME + ", " + COLUMN_PRIORITY + ")"
+                + " WHERE " + COLUMN_COMPLETED + " = 0 AND " + LIVE);
+        // Partial: active reminders, ordered by when they fire
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_PENDING_REMINDERS + " ON " + TABLE_TODO
+                + "(" + COLUMN_ALARM_TIME + ")"
+                + " WHERE " + COLUMN_HAS_REMINDER + " = 1 AND " + COLUMN_COMPLETED + " = 0 AND " + LIVE);
+    }
+
+    // v9: partial index on the due instant; overdue checks only look at pending rows
+    private void createDueAtIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_PENDING_DUE_AT + " ON " + TABLE_TODO
+                + "(" + COLUMN_DUE_AT + ") WHERE " + COLUMN_COMPLETED + " = 0 AND " + LIVE);
+    }
+
+    // v10: the tombstones alone, oldest first, for the purge
+    private void createTombstoneIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_TOMBSTONES + " ON " + TABLE_TODO
+                + "(" + COLUMN_DELETED_AT + ") WHERE " + COLUMN_DELETED_AT + " IS NOT NULL");
+    }
+
+    // v11: one row per category name; ids are never reused, as categories are never deleted
+    private void createCategoriesTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_CATEGORIES + "("
+                + COLUMN_ID + " INTEGER PRIMARY KEY,"
+                + COLUMN_NAME + " TEXT NOT NULL UNIQUE,"
+                + COLUMN_COLOR + " INTEGER NOT NULL)");
+    }
+
+    // v5: external-content FTS table kept in sync with todo_items by triggers. Since v12 it folds
+    // case beyond ASCII, as SearchQuery does, and keeps accents so "élan" finds "Élan" but not "elan".
+    private void createSearchIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE_TODO_FTS + " USING fts4("
+                + "content=\"" + TABLE_TODO + "\", " + COLUMN_TASK + ", " + COLUMN_DESCRIPTION + ", "
+                + "tokenize=unicode61 \"remove_diacritics=0\")");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS todo_fts_before_delete BEFORE DELETE ON " + TABLE_TODO + " BEGIN "
+                + "DELETE FROM " + TABLE_TODO_FTS + " WHERE " + COLUMN_DOCID + " = old." + COLUMN_ID + "; END");
+        // Only edits to the indexed columns touch the FTS table, not completion toggles
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS todo_fts_before_update BEFORE UPDATE OF "
+                + COLUMN_TASK + ", " + COLUMN_DESCRIPTION + " ON " + TABLE_TODO + " BEGIN "
+                + "DELETE FROM " + TABLE_TODO_FTS + " WHERE " + COLUMN_DOCID + " = old." + COLUMN_ID + "; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS todo_fts_after_update AFTER UPDATE OF "
+                + COLUMN_TASK + ", " + COLUMN_DESCRIPTION + " ON " + TABLE_TODO + " BEGIN "
+                + "INSERT INTO " + TABLE_TODO_FTS + "(" + COLUMN_DOCID + ", " + COLUMN_TASK + ", " + COLUMN_DESCRIPTION + ")"
+                + " VALUES (new." + COLUMN_ID + ", new." + COLUMN_TASK + ", new." + COLUMN_DESCRIPTION + "); END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS todo_fts_after_insert AFTER INSERT ON " + TABLE_TODO + " BEGIN "
+                + "INSERT INTO " + TABLE_TODO_FTS + "(" + COLUMN_DOCID + ", " + COLUMN_TASK + ", " + COLUMN_DESCRIPTION + ")"
+                + " VALUES (new." + COLUMN_ID + ", new." + COLUMN_TASK + ", new." + COLUMN_DESCRIPTION + "); END");
+
+        // Index whatever rows already exist
+        db.execSQL("INSERT INTO " + TABLE_TODO_FTS + "(" + TABLE_TODO_FTS + ") VALUES ('rebuild')");
+    }
+
+    // v6: counters maintained by triggers so reading them never scans todo_items. Since v10 they
+    // count live rows only: marking a row deleted counts as removing it, undoing as adding it back.
+    private void createStatsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_STATS + "("
+                + COLUMN_ID + " INTEGER PRIMARY KEY,"
+                + COLUMN_STATS_TOTAL + " INTEGER NOT NULL DEFAULT 0,"
+                + COLUMN_STATS_COMPLETED + " INTEGER NOT NULL DEFAULT 0,"
+                + COLUMN_STATS_REMINDERS + " INTEGER NOT NULL DEFAULT 0)");
+
+        String isLive = "CASE WHEN %1$s." + LIVE + " THEN 1 ELSE 0 END";
+        String isCompleted = "CASE WHEN %1$s." + COLUMN_COMPLETED + " = 1 AND %1$s." + LIVE + " THEN 1 ELSE 0 END";
+        String isActiveReminder = "CASE WHEN %1$s." + COLUMN_HAS_REMINDER + " = 1 AND %1$s." + COLUMN_COMPLETED
+                + " = 0 AND %1$s." + LIVE + " THEN 1 ELSE 0 END";
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + STATS_TRIGGERS[0] + " AFTER INSERT ON " + TABLE_TODO + " BEGIN "
+                + "UPDATE " + TABLE_STATS + " SET "
+                + COLUMN_STATS_TOTAL + " = " + COLUMN_STATS_TOTAL + " + " + String.format(isLive, "new") + ", "
+                + COLUMN_STATS_COMPLETED + " = " + COLUMN_STATS_COMPLETED + " + " + String.format(isCompleted, "new") + ", "
+                + COLUMN_STATS_REMINDERS + " = " + COLUMN_STATS_REMINDERS + " + " + String.format(isActiveReminder, "new")
+                + " WHERE " + COLUMN_ID + " = " + STATS_ROW + "; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + STATS_TRIGGERS[1] + " AFTER DELETE ON " + TABLE_TODO + " BEGIN "
+                + "UPDATE " + TABLE_STATS + " SET "
+                + COLUMN_STATS_TOTAL + " = " + COLUMN_STATS_TOTAL + " - " + String.format(isLive, "old") + ", "
+                + COLUMN_STATS_COMPLETED + " = " + COLUMN_STATS_COMPLETED + " - " + String.format(isCompleted, "old") + ", "
+                + COLUMN_STATS_REMINDERS + " = " + COLUMN_STATS_REMINDERS + " - " + String.format(isActiveReminder, "old")
+                + " WHERE " + COLUMN_ID + " = " + STATS_ROW + "; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + STATS_TRIGGERS[2] + " AFTER UPDATE OF "
+                + COLUMN_COMPLETED + ", " + COLUMN_HAS_REMINDER + ", " + COLUMN_DELETED_AT + " ON " + TABLE_TODO + " BEGIN "
+                + "UPDATE " + TABLE_STATS + " SET "
+                + COLUMN_STATS_TOTAL + " = " + COLUMN_STATS_TOTAL
+                + " - " + String.format(isLive, "old") + " + " + String.format(isLive, "new") + ", "
+                + COLUMN_STATS_COMPLETED + " = " + COLUMN_STATS_COMPLETED
+                + " - " + String.format(isCompleted, "old") + " + " + String.format(isCompleted, "new") + ", "
+                + COLUMN_STATS_REMINDERS + " = " + COLUMN_STATS_REMINDERS
+                + " - " + String.format(isActiveReminder, "old") + " + " + String.format(isActiveReminder, "new")
+                + " WHERE " + COLUMN_ID + " = " + STATS_ROW + "; END");
+
+        // Seed the single row from whatever is already in todo_items
+        db.execSQL("INSERT OR REPLACE INTO " + TABLE_STATS + " SELECT " + STATS_ROW + ", "
+                + "IFNULL(SUM(" + String.format(isLive, TABLE_TODO) + "), 0), "
+                + "IFNULL(SUM(" + String.format(isCompleted, TABLE_TODO) + "), 0), "
+                + "IFNULL(SUM(" + String.format(isActiveReminder, TABLE_TODO) + "), 0) FROM " + TABLE_TODO);
     }
 
     @Override
@@ -54,171 +401,294 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             // Upgrade from version 1: Drop and recreate
             db.execSQL("DROP TABLE IF EXISTS " + TABLE_TODO);
             onCreate(db);
-        } else if (oldVersion == 2) {
+            return;
+        }
+        // Each step starts from the schema the one before it left, so they run in order and
+        // none of them may use the current-shape helpers onCreate uses
+        if (oldVersion < 3) {
             // Upgrade from version 2 to 3: Add new columns for time and alarms
-            db.execSQL("ALTER TABLE " + TABLE_TODO + " ADD COLUMN " + COLUMN_DUE_TIME + " TEXT");
-            db.execSQL("ALTER TABLE " + TABLE_TODO + " ADD COLUMN " + COLUMN_HAS_REMINDER + " INTEGER DEFAULT 0");
-            db.execSQL("ALTER TABLE " + TABLE_TODO + " ADD COLUMN " + COLUMN_ALARM_TIME + " INTEGER DEFAULT 0");
+            SchemaUpgrades.upgradeTo3(db);
+        }
+        if (oldVersion < 4) {
+            // Upgrade from version 3 to 4: Secondary indexes
+            SchemaUpgrades.upgradeTo4(db);
+        }
+        if (oldVersion < 5) {
+            // Upgrade from version 4 to 5: Full-text search index
+            SchemaUpgrades.upgradeTo5(db);
+        }
+        if (oldVersion < 6) {
+            // Upgrade from version 5 to 6: Trigger-maintained stats table
+            SchemaUpgrades.upgradeTo6(db);
+        }
+        if (oldVersion < 7) {
+            // Upgrade from version 6 to 7: List-order indexes on the keyset expressions
+            SchemaUpgrades.upgradeTo7(db);
+        }
+        if (oldVersion < 8) {
+            // Upgrade from version 7 to 8: List-order indexes for every sort mode
+            SchemaUpgrades.upgradeTo8(db);
+        }
+        if (oldVersion < 9) {
+            // Upgrade from version 8 to 9: Epoch-millis due and creation times
+            SchemaUpgrades.upgradeTo9(db);
+        }
+        if (oldVersion < 10) {
+            // Upgrade from version 9 to 10: Soft deletes; indexes and stats that leave tombstones out
+            SchemaUpgrades.upgradeTo10(db);
+        }
+        if (oldVersion < 11) {
+            // Upgrade from version 10 to 11: Category names moved to the categories table
+            SchemaUpgrades.upgradeTo11(db);
+        }
+        if (oldVersion < 12) {
+            // Upgrade from version 11 to 12: Search index retokenized
+            SchemaUpgrades.upgradeTo12(db);
         }
         // If you have future upgrades, add more conditions here
     }
 
-    // Updated addTodoItem with all fields
-    public void addTodoItem(TodoItem item) {
+    // Updated addTodoItem with all fields, returns the new row id
+    public long addTodoItem(TodoItem item) {
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(COLUMN_TASK, item.getTask());
         values.put(COLUMN_COMPLETED, item.isCompleted() ? 1 : 0);
         values.put(COLUMN_CREATED_AT, item.getCreatedAt());
+        values.put(COLUMN_CREATED_AT_MS, item.getCreatedAtMillis());
         values.put(COLUMN_DUE_DATE, item.getDueDate());
         values.put(COLUMN_DUE_TIME, item.getDueTime()); // NEW: Due time
-        values.put(COLUMN_CATEGORY, item.getCategory());
+        putDueAt(values, item);
+        putCategoryId(values, categories.idFor(db, item.getCategory()));
         values.put(COLUMN_PRIORITY, item.getPriority());
         values.put(COLUMN_DESCRIPTION, item.getDescription());
         values.put(COLUMN_HAS_REMINDER, item.hasReminder() ? 1 : 0); // NEW: Reminder flag
         values.put(COLUMN_ALARM_TIME, item.getAlarmTime()); // NEW: Alarm time
 
-        db.insert(TABLE_TODO, null, values);
-        db.close();
+        long id = db.insert(TABLE_TODO, null, values);
+        if (id != -1) {
+            invalidationTracker.notifyRowsChanged(TABLE_TODO, (int) id);
+        }
+        return id;
     }
 
     public List<TodoItem> getAllTodoItems() {
-        return getTodoItemsWithQuery("SELECT * FROM " + TABLE_TODO + " ORDER BY " + COLUMN_PRIORITY + " ASC, " + COLUMN_DUE_DATE + " ASC, " + COLUMN_DUE_TIME + " ASC");
+        return getTodoItemsWithQuery(SQL_ALL_ITEMS, null);
     }
 
     public List<TodoItem> getTodoItemsByCategory(String category) {
-        return getTodoItemsWithQuery("SELECT * FROM " + TABLE_TODO + " WHERE " + COLUMN_CATEGORY + " = '" + category + "' ORDER BY " + COLUMN_PRIORITY + " ASC, " + COLUMN_DUE_DATE + " ASC");
+        return getTodoItemsWithQuery(SQL_ITEMS_BY_CATEGORY, new String[]{String.valueOf(categories.idOf(category))});
     }
 
+    /** A whole filtered list, sorted by SQLite; filter is ALL, COMPLETED, PENDING or CATEGORY. */
+    public List<TodoItem> getTodoItems(String filter, String category, TaskSort sort) {
+        return getTodoItemsWithQuery(listQuery(filter, sort, false, false, false, -1),
+                listArgs(filter, category, sort, null));
+    }
+
+    /**
+     * Up to {@code limit} items of a filtered list, in list order, starting after {@code anchor}
+     * (or at it when {@code inclusive}), or from the top when {@code anchor} is null.
+     */
+    public List<TodoItem> getTodoItemsPageAfter(String filter, String category, TaskSort sort,
+                                                @Nullable TodoItem anchor, boolean inclusive, int limit) {
+        return getTodoItemsWithQuery(listQuery(filter, sort, anchor != null, false, inclusive, limit),
+                listArgs(filter, category, sort, anchor));
+    }
+
+    /** Up to {@code limit} items just before {@code anchor}, still returned in list order. */
+    public List<TodoItem> getTodoItemsPageBefore(String filter, String category, TaskSort sort,
+                                                 TodoItem anchor, int limit) {
+        List<TodoItem> items = getTodoItemsWithQuery(listQuery(filter, sort, true, true, false, limit),
+                listArgs(filter, category, sort, anchor));
+        Collections.reverse(items);
+        return items;
+    }
+
+    // Keyset page: seeks the list-order index past the anchor instead of skipping rows with OFFSET.
+    // A negative limit returns the whole list.
+    static String listQuery(String filter, TaskSort sort, boolean keyed, boolean backwards,
+                            boolean inclusive, int limit) {
+        String gt = backwards ? " < ?" : " > ?";
+        StringBuilder sql = new StringBuilder("SELECT * FROM ").append(TABLE_TODO).append(" WHERE ").append(LIVE);
+        String filterColumn = listFilterColumn(filter);
+        if (filterColumn != null) {
+            sql.append(" AND ").append(filterColumn).append(" = ?");
+        }
+        if (keyed) {
+            // (k0, k1, ..., id) > anchor, spelled out since row values need SQLite 3.15 (API 26):
+            // k0 >= ? AND (k0 > ? OR k1 > ? OR (k1 = ? AND (... OR (kn = ? AND id > ?))))
+            String[] keys = sort.keys;
+            StringBuilder tail = new StringBuilder(COLUMN_ID).append(inclusive ? gt.replace(" ?", "= ?") : gt);
+            for (int i = keys.length - 1; i >= 1; i--) {
+                tail.insert(0, keys[i] + gt + " OR (" + keys[i] + " = ? AND (").append("))");
+            }
+            sql.append(" AND ").append(keys[0]).append(gt.replace(" ?", "= ?"))
+                    .append(" AND (").append(keys[0]).append(gt).append(" OR ").append(tail).append(')');
+        }
+        sql.append(" ORDER BY ");
+        String direction = backwards ? " DESC" : " ASC";
+        for (String key : sort.keys) {
+            sql.append(key).append(direction).append(", ");
+        }
+        sql.append(COLUMN_ID).append(direction);
+        if (limit >= 0) {
+            sql.append(" LIMIT ").append(limit);
+        }
+        return sql.toString();
+    }
+
+    @Nullable
+    private String[] listArgs(String filter, String category, TaskSort sort, @Nullable TodoItem anchor) {
+        List<String> args = new ArrayList<>();
+        switch (filter) {
+            case "COMPLETED":
+                args.add("1");
+                break;
+            case "PENDING":
+                args.add("0");
+                break;
+            case "CATEGORY":
+                // An unknown name binds NO_CATEGORY, which no row has
+                args.add(String.valueOf(categories.idOf(category)));
+                break;
+        }
+        if (anchor != null) {
+            // Same order as the placeholders in listQuery: k0 twice, each later key twice, then id
+            for (String value : sort.keyValues(anchor)) {
+                Collections.addAll(args, value, value);
+            }
+            args.add(String.valueOf(anchor.getId()));
+        }
+        return args.isEmpty() ? null : args.toArray(new String[0]);
+    }
+
+    private static String listIndexName(@Nullable String filterColumn, TaskSort sort) {
+        return "idx_todo_" + (filterColumn != null ? filterColumn : "all") + "_" + sort.name().toLowerCase(Locale.ROOT);
+    }
+
+    @Nullable
+    private static String listFilterColumn(String filter) {
+        switch (filter) {
+            case "COMPLETED":
+            case "PENDING":
+                return COLUMN_COMPLETED;
+            case "CATEGORY":
+                return COLUMN_CATEGORY_ID;
+            default:
+                return null;
+        }
+    }
+
+    // Prefix search over task and description through the FTS index, best matches first
     public List<TodoItem> searchTodoItems(String query) {
-        return getTodoItemsWithQuery("SELECT * FROM " + TABLE_TODO + " WHERE " + COLUMN_TASK + " LIKE '%" + query + "%' OR " + COLUMN_DESCRIPTION + " LIKE '%" + query + "%'");
+        return searchTodoItems(SearchQuery.parse(query));
+    }
+
+    public List<TodoItem> searchTodoItems(SearchQuery query) {
+        if (query.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return getTodoItemsWithQuery(SQL_SEARCH, new String[]{
+                query.toMatchExpression(COLUMN_TASK),
+                query.toMatchExpression()});
     }
 
     public List<TodoItem> getCompletedItems() {
-        return getTodoItemsWithQuery("SELECT * FROM " + TABLE_TODO + " WHERE " + COLUMN_COMPLETED + " = 1");
+        return getTodoItemsWithQuery(SQL_COMPLETED_ITEMS, null);
     }
 
     public List<TodoItem> getPendingItems() {
-        return getTodoItemsWithQuery("SELECT * FROM " + TABLE_TODO + " WHERE " + COLUMN_COMPLETED + " = 0");
+        return getTodoItemsWithQuery(SQL_PENDING_ITEMS, null);
     }
 
     // NEW: Get tasks with active reminders
     public List<TodoItem> getTasksWithReminders() {
-        return getTodoItemsWithQuery("SELECT * FROM " + TABLE_TODO + " WHERE " + COLUMN_HAS_REMINDER + " = 1 AND " + COLUMN_COMPLETED + " = 0");
+        return getTodoItemsWithQuery(SQL_ITEMS_WITH_REMINDERS, null);
     }
 
     // NEW: Get tasks due today
     public List<TodoItem> getTasksDueToday() {
-        String today = new java.text.SimpleDateFormat("yyyy-MM-dd", java.util.Locale.getDefault()).format(new java.util.Date());
-        return getTodoItemsWithQuery("SELECT * FROM " + TABLE_TODO + " WHERE " + COLUMN_DUE_DATE + " = '" + today + "' AND " + COLUMN_COMPLETED + " = 0");
+        return getTodoItemsWithQuery(SQL_ITEMS_DUE_ON, new String[]{TimeService.get().todayDate()});
     }
 
+    // From the dictionary; every category ever used, in alphabetical order
     public List<String> getAllCategories() {
-        List<String> categories = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery("SELECT DISTINCT " + COLUMN_CATEGORY + " FROM " + TABLE_TODO, null);
-
-        if (cursor.moveToFirst()) {
-            do {
-                categories.add(cursor.getString(0));
-            } while (cursor.moveToNext());
-        }
-        cursor.close();
-        db.close();
-        return categories;
+        return categories.getNames();
     }
 
     public int getCompletedCount() {
-        return getCountWithQuery("SELECT COUNT(*) FROM " + TABLE_TODO + " WHERE " + COLUMN_COMPLETED + " = 1");
+        return getCountWithQuery(SQL_COMPLETED_COUNT, null);
     }
 
     public int getTotalCount() {
-        return getCountWithQuery("SELECT COUNT(*) FROM " + TABLE_TODO);
+        return getCountWithQuery(SQL_TOTAL_COUNT, null);
     }
 
     public int getPendingCount() {
-        return getCountWithQuery("SELECT COUNT(*) FROM " + TABLE_TODO + " WHERE " + COLUMN_COMPLETED + " = 0");
+        return getCountWithQuery(SQL_PENDING_COUNT, null);
     }
 
     // NEW: Get count of tasks with reminders
     public int getReminderCount() {
-        return getCountWithQuery("SELECT COUNT(*) FROM " + TABLE_TODO + " WHERE " + COLUMN_HAS_REMINDER + " = 1 AND " + COLUMN_COMPLETED + " = 0");
+        return getCountWithQuery(SQL_REMINDER_COUNT, null);
     }
 
     // NEW: Get count of tasks due today
     public int getDueTodayCount() {
-        String today = new java.text.SimpleDateFormat("yyyy-MM-dd", java.util.Locale.getDefault()).format(new java.util.Date());
-        return getCountWithQuery("SELECT COUNT(*) FROM " + TABLE_TODO + " WHERE " + COLUMN_DUE_DATE + " = '" + today + "' AND " + COLUMN_COMPLETED + " = 0");
+        return getCountWithQuery(SQL_DUE_ON_COUNT, new String[]{TimeService.get().todayDate()});
     }
 
     public int getOverdueCount() {
-        String today = new java.text.SimpleDateFormat("yyyy-MM-dd", java.util.Locale.getDefault()).format(new java.util.Date());
-        return getCountWithQuery("SELECT COUNT(*) FROM " + TABLE_TODO + " WHERE " + COLUMN_COMPLETED + " = 0 AND " + COLUMN_DUE_DATE + " IS NOT NULL AND " + COLUMN_DUE_DATE + " < '" + today + "'");
+        return getCountWithQuery(SQL_OVERDUE_COUNT, new String[]{String.valueOf(TimeService.get().now())});
     }
 
-    // UPDATED: Complete cursor handling with all fields
-    private List<TodoItem> getTodoItemsWithQuery(String query) {
-        List<TodoItem> todoList = new ArrayList<>();
-        SQLiteDatabase db = this.getWritableDatabase();
-        Cursor cursor = db.rawQuery(query, null);
-
+    // Every counter the stats bar shows, filled by a single query
+    public TaskStats getTaskStats() {
+        TimeService time = TimeService.get();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(SQL_TASK_STATS, new String[]{String.valueOf(time.now()), time.todayDate()},
+                readSignal.get());
+        TaskStats stats = new TaskStats(0, 0, 0, 0, 0, 0);
         if (cursor.moveToFirst()) {
-            do {
-                TodoItem item = new TodoItem();
-                item.setId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ID)));
-                item.setTask(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_TASK)));
-                item.setCompleted(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_COMPLETED)) == 1);
-                item.setCreatedAt(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_CREATED_AT)));
-
-                // Handle due date (might be null)
-                int dueDateIndex = cursor.getColumnIndex(COLUMN_DUE_DATE);
-                if (!cursor.isNull(dueDateIndex)) {
-                    item.setDueDate(cursor.getString(dueDateIndex));
-                }
-
-                // Handle due time (might be null)
-                int dueTimeIndex = cursor.getColumnIndex(COLUMN_DUE_TIME);
-                if (!cursor.isNull(dueTimeIndex)) {
-                    item.setDueTime(cursor.getString(dueTimeIndex));
-                }
-
-                item.setCategory(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_CATEGORY)));
-                item.setPriority(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_PRIORITY)));
-
-                // Handle description (might be null)
-                int descIndex = cursor.getColumnIndex(COLUMN_DESCRIPTION);
-                if (!cursor.isNull(descIndex)) {
-                    item.setDescription(cursor.getString(descIndex));
-                }
+            int total = cursor.getInt(0);
+            int completed = cursor.getInt(1);
+            stats = new TaskStats(total, completed, total - completed,
+                    cursor.getInt(3), cursor.getInt(4), cursor.getInt(2));
+        }
+        cursor.close();
+        return stats;
+    }
 
-                // NEW: Handle reminder and alarm time
-                int reminderIndex = cursor.getColumnIndex(COLUMN_HAS_REMINDER);
-                if (!cursor.isNull(reminderIndex)) {
-                    item.setHasReminder(cursor.getInt(reminderIndex) == 1);
-                }
+    // UPDATED: Complete cursor handling with all fields
+    private List<TodoItem> getTodoItemsWithQuery(String query, String[] args) {
+        return TodoItemMapper.mapAll(getReadableDatabase().rawQuery(query, args, readSignal.get()), categories);
+    }
 
-                int alarmTimeIndex = cursor.getColumnIndex(COLUMN_ALARM_TIME);
-                if (!cursor.isNull(alarmTimeIndex)) {
-                    item.setAlarmTime(cursor.getLong(alarmTimeIndex));
-                }
+    private static void putCategoryId(ContentValues values, int categoryId) {
+        if (categoryId != TodoItem.NO_CATEGORY) {
+            values.put(COLUMN_CATEGORY_ID, categoryId);
+        } else {
+            values.putNull(COLUMN_CATEGORY_ID);
+        }
+    }
 
-                todoList.add(item);
-            } while (cursor.moveToNext());
+    private static void putDueAt(ContentValues values, TodoItem item) {
+        if (item.getDueAt() != TodoItem.NO_DUE) {
+            values.put(COLUMN_DUE_AT, item.getDueAt());
+        } else {
+            values.putNull(COLUMN_DUE_AT);
         }
-        cursor.close();
-        db.close();
-        return todoList;
     }
 
-    private int getCountWithQuery(String query) {
+    private int getCountWithQuery(String query, String[] args) {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(query, null);
+        Cursor cursor = db.rawQuery(query, args, readSignal.get());
         int count = 0;
         if (cursor.moveToFirst()) {
             count = cursor.getInt(0);
         }
         cursor.close();
-        db.close();
         return count;
     }
 
@@ -230,15 +700,17 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(COLUMN_COMPLETED, item.isCompleted() ? 1 : 0);
         values.put(COLUMN_DUE_DATE, item.getDueDate());
         values.put(COLUMN_DUE_TIME, item.getDueTime()); // NEW: Due time
-        values.put(COLUMN_CATEGORY, item.getCategory());
+        putDueAt(values, item);
+        putCategoryId(values, categories.idFor(db, item.getCategory()));
         values.put(COLUMN_PRIORITY, item.getPriority());
         values.put(COLUMN_DESCRIPTION, item.getDescription());
         values.put(COLUMN_HAS_REMINDER, item.hasReminder() ? 1 : 0); // NEW: Reminder flag
         values.put(COLUMN_ALARM_TIME, item.getAlarmTime()); // NEW: Alarm time
 
-        db.update(TABLE_TODO, values, COLUMN_ID + " = ?",
-                new String[]{String.valueOf(item.getId())});
-        db.close();
+        if (db.update(TABLE_TODO, values, COLUMN_ID + " = ?",
+                new String[]{String.valueOf(item.getId())}) > 0) {
+            invalidationTracker.notifyRowsChanged(TABLE_TODO, item.getId());
+        }
     }
 
     // NEW: Update specific fields only (for performance)
@@ -246,8 +718,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(COLUMN_COMPLETED, isCompleted ? 1 : 0);
-        db.update(TABLE_TODO, values, COLUMN_ID + " = ?", new String[]{String.valueOf(id)});
-        db.close();
+        if (db.update(TABLE_TODO, values, COLUMN_ID + " = ?", new String[]{String.valueOf(id)}) > 0) {
+            invalidationTracker.notifyRowsChanged(TABLE_TODO, id);
+        }
     }
 
     // NEW: Update reminder status
@@ -256,89 +729,418 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         ContentValues values = new ContentValues();
         values.put(COLUMN_HAS_REMINDER, hasReminder ? 1 : 0);
         values.put(COLUMN_ALARM_TIME, alarmTime);
-        db.update(TABLE_TODO, values, COLUMN_ID + " = ?", new String[]{String.valueOf(id)});
-        db.close();
+        if (db.update(TABLE_TODO, values, COLUMN_ID + " = ?", new String[]{String.valueOf(id)}) > 0) {
+            invalidationTracker.notifyRowsChanged(TABLE_TODO, id);
+        }
     }
 
     public void deleteTodoItem(int id) {
         SQLiteDatabase db = this.getWritableDatabase();
-        db.delete(TABLE_TODO, COLUMN_ID + " = ?", new String[]{String.valueOf(id)});
-        db.close();
+        if (db.delete(TABLE_TODO, COLUMN_ID + " = ?", new String[]{String.valueOf(id)}) > 0) {
+            invalidationTracker.notifyRowsChanged(TABLE_TODO, id);
+        }
     }
 
-    // NEW: Get single todo item by ID
-    public TodoItem getTodoItemById(int id) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_TODO, null, COLUMN_ID + " = ?",
-                new String[]{String.valueOf(id)}, null, null, null);
-
-        TodoItem item = null;
-        if (cursor != null && cursor.moveToFirst()) {
-            item = new TodoItem();
-            item.setId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ID)));
-            item.setTask(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_TASK)));
-            item.setCompleted(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_COMPLETED)) == 1);
-            item.setCreatedAt(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_CREATED_AT)));
-
-            int dueDateIndex = cursor.getColumnIndex(COLUMN_DUE_DATE);
-            if (!cursor.isNull(dueDateIndex)) {
-                item.setDueDate(cursor.getString(dueDateIndex));
+    // ---- Batch writes: one transaction per call, so one commit however many rows ----
+
+    /** Inserts every item, all or none; returns the new row ids in the order of {@code items}. */
+    public List<Integer> addTodoItems(List<TodoItem> items) {
+        List<Integer> ids = new ArrayList<>(items.size());
+        SQLiteDatabase db = this.getWritableDatabase();
+        int[] categoryIds = categoryIds(db, items);
+        SQLiteStatement insert = db.compileStatement(SQL_INSERT_ITEM);
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < items.size(); i++) {
+                TodoItem item = items.get(i);
+                bindItem(insert, item, categoryIds[i]);
+                bindStringOrNull(insert, ITEM_COLUMN_COUNT + 1, item.getCreatedAt());
+                insert.bindLong(ITEM_COLUMN_COUNT + 2, item.getCreatedAtMillis());
+                ids.add((int) insert.executeInsert());
             }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+        notifyRowsChanged(ids);
+        return ids;
+    }
 
-            int dueTimeIndex = cursor.getColumnIndex(COLUMN_DUE_TIME);
-            if (!cursor.isNull(dueTimeIndex)) {
-                item.setDueTime(cursor.getString(dueTimeIndex));
+    /** Writes every item's fields back, all or none; returns the ids of the rows that still existed. */
+    public List<Integer> updateTodoItems(List<TodoItem> items) {
+        List<Integer> ids = new ArrayList<>(items.size());
+        SQLiteDatabase db = this.getWritableDatabase();
+        int[] categoryIds = categoryIds(db, items);
+        SQLiteStatement update = db.compileStatement(SQL_UPDATE_ITEM);
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < items.size(); i++) {
+                TodoItem item = items.get(i);
+                bindItem(update, item, categoryIds[i]);
+                update.bindLong(ITEM_COLUMN_COUNT + 1, item.getId());
+                if (update.executeUpdateDelete() > 0) {
+                    ids.add(item.getId());
+                }
             }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            update.close();
+        }
+        notifyRowsChanged(ids);
+        return ids;
+    }
 
-            item.setCategory(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_CATEGORY)));
-            item.setPriority(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_PRIORITY)));
+    /** Marks the given rows completed or pending; returns the ids whose state actually changed. */
+    public List<Integer> setTodoItemsCompleted(Collection<Integer> ids, boolean isCompleted) {
+        List<Integer> changed = new ArrayList<>(ids.size());
+        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement update = db.compileStatement(SQL_SET_COMPLETED);
+        db.beginTransaction();
+        try {
+            update.bindLong(1, isCompleted ? 1 : 0);
+            for (int id : ids) {
+                update.bindLong(2, id);
+                if (update.executeUpdateDelete() > 0) {
+                    changed.add(id);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            update.close();
+        }
+        notifyRowsChanged(changed);
+        return changed;
+    }
 
-            int descIndex = cursor.getColumnIndex(COLUMN_DESCRIPTION);
-            if (!cursor.isNull(descIndex)) {
-                item.setDescription(cursor.getString(descIndex));
+    /**
+     * Marks each row in {@code completed} completed or pending in one transaction, writing only
+     * that column, plus the alarm time for a row in {@code alarmTimes} marked pending. Returns the
+     * ids whose state actually changed.
+     */
+    public List<Integer> setTodoItemsCompletion(Map<Integer, Boolean> completed, Map<Integer, Long> alarmTimes) {
+        List<Integer> changed = new ArrayList<>(completed.size());
+        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement setCompleted = db.compileStatement(SQL_SET_COMPLETED);
+        SQLiteStatement setPending = db.compileStatement(SQL_SET_PENDING_WITH_ALARM);
+        db.beginTransaction();
+        try {
+            for (Map.Entry<Integer, Boolean> entry : completed.entrySet()) {
+                int id = entry.getKey();
+                Long alarmTime = entry.getValue() ? null : alarmTimes.get(id);
+                SQLiteStatement update;
+                if (alarmTime != null) {
+                    update = setPending;
+                    update.bindLong(1, alarmTime);
+                } else {
+                    update = setCompleted;
+                    update.bindLong(1, entry.getValue() ? 1 : 0);
+                }
+                update.bindLong(2, id);
+                if (update.executeUpdateDelete() > 0) {
+                    changed.add(id);
+                }
             }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            setCompleted.close();
+            setPending.close();
+        }
+        notifyRowsChanged(changed);
+        return changed;
+    }
 
-            int reminderIndex = cursor.getColumnIndex(COLUMN_HAS_REMINDER);
-            if (!cursor.isNull(reminderIndex)) {
-                item.setHasReminder(cursor.getInt(reminderIndex) == 1);
+    /** Deletes the given rows; returns the ids that existed. */
+    public List<Integer> deleteTodoItems(Collection<Integer> ids) {
+        List<Integer> deleted = new ArrayList<>(ids.size());
+        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement delete = db.compileStatement(SQL_DELETE_ITEM);
+        db.beginTransaction();
+        try {
+            for (int id : ids) {
+                delete.bindLong(1, id);
+                if (delete.executeUpdateDelete() > 0) {
+                    deleted.add(id);
+                }
             }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            delete.close();
+        }
+        notifyRowsChanged(deleted);
+        return deleted;
+    }
+
+    /**
+     * Marks the given rows deleted at {@code deletedAt} in one transaction. They disappear from
+     * every read but stay in the table until purged, so {@link #undeleteTodoItems} can bring them
+     * back. Returns the ids that were live.
+     */
+    public List<Integer> markTodoItemsDeleted(Collection<Integer> ids, long deletedAt) {
+        SQLiteStatement mark = getWritableDatabase().compileStatement(SQL_MARK_DELETED);
+        mark.bindLong(1, deletedAt);
+        return updateEach(mark, 2, ids);
+    }
 
-            int alarmTimeIndex = cursor.getColumnIndex(COLUMN_ALARM_TIME);
-            if (!cursor.isNull(alarmTimeIndex)) {
-                item.setAlarmTime(cursor.getLong(alarmTimeIndex));
+    /** Brings back rows marked deleted and not purged yet; returns the ids restored. */
+    public List<Integer> undeleteTodoItems(Collection<Integer> ids) {
+        return updateEach(getWritableDatabase().compileStatement(SQL_UNDELETE), 1, ids);
+    }
+
+    /**
+     * Removes up to {@code limit} rows marked deleted at or before {@code deletedBefore}, oldest
+     * first, in one transaction; returns how many. Nothing is notified, as every read already
+     * leaves the rows out.
+     */
+    public int purgeTombstones(long deletedBefore, int limit) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement purge = db.compileStatement(SQL_PURGE_TOMBSTONES);
+        db.beginTransaction();
+        try {
+            purge.bindLong(1, deletedBefore);
+            purge.bindLong(2, limit);
+            int purged = purge.executeUpdateDelete();
+            db.setTransactionSuccessful();
+            return purged;
+        } finally {
+            db.endTransaction();
+            purge.close();
+        }
+    }
+
+    // Runs update once per id, bound at idIndex, in one transaction; returns the ids it changed
+    private List<Integer> updateEach(SQLiteStatement update, int idIndex, Collection<Integer> ids) {
+        List<Integer> changed = new ArrayList<>(ids.size());
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int id : ids) {
+                update.bindLong(idIndex, id);
+                if (update.executeUpdateDelete() > 0) {
+                    changed.add(id);
+                }
             }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            update.close();
         }
+        notifyRowsChanged(changed);
+        return changed;
+    }
 
-        if (cursor != null) {
+    /**
+     * Deletes the rows matching {@code selection}, a WHERE clause over todo_items columns as
+     * for {@link SQLiteDatabase#delete}; returns their ids. The ids are read inside the same
+     * transaction as the delete, so they are exactly the rows removed.
+     */
+    public List<Integer> deleteTodoItemsWhere(String selection, @Nullable String[] selectionArgs) {
+        List<Integer> ids = new ArrayList<>();
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            Cursor cursor = db.query(TABLE_TODO, new String[]{COLUMN_ID}, selection, selectionArgs,
+                    null, null, null);
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getInt(0));
+            }
             cursor.close();
+            if (!ids.isEmpty()) {
+                db.delete(TABLE_TODO, selection, selectionArgs);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
         }
-        db.close();
-        return item;
+        notifyRowsChanged(ids);
+        return ids;
     }
 
-    // NEW: Clear all completed tasks
-    public void clearCompletedTasks() {
+    /**
+     * Replaces every task with {@code items}, keeping their ids, in one transaction; a failure
+     * part way leaves the old tasks in place. The change notification has the reminder queue
+     * re-arm from the new rows. Returns how many were inserted.
+     */
+    int replaceAllTodoItems(Iterator<TodoItem> items) {
+        int count = 0;
         SQLiteDatabase db = this.getWritableDatabase();
-        db.delete(TABLE_TODO, COLUMN_COMPLETED + " = ?", new String[]{"1"});
-        db.close();
+        SQLiteStatement insert = db.compileStatement(SQL_RESTORE_ITEM);
+        db.beginTransaction();
+        try {
+            db.delete(TABLE_TODO, null, null);
+            while (items.hasNext()) {
+                TodoItem item = items.next();
+                bindItem(insert, item, categories.idFor(db, item.getCategory()));
+                bindStringOrNull(insert, ITEM_COLUMN_COUNT + 1, item.getCreatedAt());
+                insert.bindLong(ITEM_COLUMN_COUNT + 2, item.getCreatedAtMillis());
+                insert.bindLong(ITEM_COLUMN_COUNT + 3, item.getId());
+                insert.executeInsert();
+                count++;
+            }
+            db.setTransactionSuccessful();
+        } catch (RuntimeException e) {
+            // Categories first named by the restore were rolled back with it
+            categories.reset();
+            throw e;
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+        invalidationTracker.notifyTableChanged(TABLE_TODO);
+        return count;
+    }
+
+    // The category id of each item, creating new categories before the caller's transaction
+    // begins, so a rolled-back batch cannot leave the dictionary holding ids that were never stored
+    private int[] categoryIds(SQLiteDatabase db, List<TodoItem> items) {
+        int[] ids = new int[items.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = categories.idFor(db, items.get(i).getCategory());
+        }
+        return ids;
+    }
+
+    // Binds the ITEM_COLUMNS of an INSERT or UPDATE, parameters 1 to ITEM_COLUMN_COUNT
+    private static void bindItem(SQLiteStatement statement, TodoItem item, int categoryId) {
+        bindStringOrNull(statement, 1, item.getTask());
+        statement.bindLong(2, item.isCompleted() ? 1 : 0);
+        bindStringOrNull(statement, 3, item.getDueDate());
+        bindStringOrNull(statement, 4, item.getDueTime());
+        if (item.getDueAt() != TodoItem.NO_DUE) {
+            statement.bindLong(5, item.getDueAt());
+        } else {
+            statement.bindNull(5);
+        }
+        if (categoryId != TodoItem.NO_CATEGORY) {
+            statement.bindLong(6, categoryId);
+        } else {
+            statement.bindNull(6);
+        }
+        statement.bindLong(7, item.getPriority());
+        bindStringOrNull(statement, 8, item.getDescription());
+        statement.bindLong(9, item.hasReminder() ? 1 : 0);
+        statement.bindLong(10, item.getAlarmTime());
+    }
+
+    private static void bindStringOrNull(SQLiteStatement statement, int index, @Nullable String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    private void notifyRowsChanged(List<Integer> ids) {
+        if (!ids.isEmpty()) {
+            invalidationTracker.notifyRowsChanged(TABLE_TODO, ids);
+        }
+    }
+
+    // NEW: Get single todo item by ID
+    public TodoItem getTodoItemById(int id) {
+        List<TodoItem> items = getTodoItemsWithQuery(SQL_ITEM_BY_ID, new String[]{String.valueOf(id)});
+        return items.isEmpty() ? null : items.get(0);
+    }
+
+    /** When the earliest reminder that has not fired yet is due, or 0 if there is none. */
+    public long getNextReminderTime() {
+        Cursor cursor = getReadableDatabase().rawQuery(SQL_NEXT_REMINDER_TIME, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Takes every reminder due at or before {@code until} off the queue and returns them in alarm
+     * order. Reading and marking them fired happen in one transaction, so each is returned once.
+     */
+    public List<TodoItem> takeDueReminders(long until) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        List<TodoItem> due;
+        List<Integer> ids;
+        SQLiteStatement markFired = db.compileStatement(SQL_MARK_REMINDER_FIRED);
+        db.beginTransaction();
+        try {
+            due = TodoItemMapper.mapAll(db.rawQuery(SQL_DUE_REMINDERS, new String[]{String.valueOf(until)}), categories);
+            ids = new ArrayList<>(due.size());
+            for (TodoItem item : due) {
+                markFired.bindLong(1, item.getId());
+                markFired.executeUpdateDelete();
+                ids.add(item.getId());
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            markFired.close();
+        }
+        notifyRowsChanged(ids);
+        return due;
+    }
+
+    /** The rows with the given ids, in the order the ids are given; ids of missing rows are skipped. */
+    List<TodoItem> getTodoItemsByIds(int[] ids) {
+        Map<Integer, TodoItem> byId = new HashMap<>(ids.length * 2);
+        for (int from = 0; from < ids.length; from += MAX_IN_LIST) {
+            int to = Math.min(ids.length, from + MAX_IN_LIST);
+            for (TodoItem item : getTodoItemsWithQuery(SQL_ITEMS_BY_IDS + inList(to - from), idArgs(ids, from, to))) {
+                byId.put(item.getId(), item);
+            }
+        }
+        List<TodoItem> items = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            TodoItem item = byId.get(id);
+            if (item != null) items.add(item);
+        }
+        return items;
+    }
+
+    // "(?, ?, ...)" with count placeholders
+    static String inList(int count) {
+        StringBuilder sql = new StringBuilder(count * 3 + 1).append('(');
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.append(')').toString();
+    }
+
+    static String[] idArgs(int[] ids, int from, int to) {
+        String[] args = new String[to - from];
+        for (int i = from; i < to; i++) {
+            args[i - from] = String.valueOf(ids[i]);
+        }
+        return args;
+    }
+
+    // The next rows in id order, for walking the whole table a batch at a time
+    List<TodoItem> getTodoItemsAfterId(int lastId, int limit) {
+        return getTodoItemsWithQuery(SQL_ITEMS_AFTER_ID, new String[]{String.valueOf(lastId), String.valueOf(limit)});
+    }
+
+    /** How many reminders in the queue are due after {@code after}; counted from the reminder index alone. */
+    public int getQueuedReminderCount(long after) {
+        return getCountWithQuery(SQL_QUEUED_REMINDER_COUNT, new String[]{String.valueOf(after)});
+    }
+
+    // NEW: Clear all completed tasks, returning their ids so their alarms can be cancelled.
+    // Tombstones are left to the purge: they may still be undone.
+    public List<Integer> clearCompletedTasks() {
+        return deleteTodoItemsWhere(COLUMN_COMPLETED + " = 1 AND " + LIVE, null);
     }
 
     // NEW: Get tasks sorted by due date and time
     public List<TodoItem> getTasksSortedByDateTime() {
-        return getTodoItemsWithQuery("SELECT * FROM " + TABLE_TODO + " WHERE " + COLUMN_COMPLETED + " = 0 ORDER BY " +
-                COLUMN_DUE_DATE + " ASC, " + COLUMN_DUE_TIME + " ASC, " + COLUMN_PRIORITY + " ASC");
+        return getTodoItemsWithQuery(SQL_ITEMS_BY_DATE_TIME, null);
     }
 
     // NEW: Get upcoming tasks (next 7 days)
     public List<TodoItem> getUpcomingTasks() {
-        java.util.Calendar calendar = java.util.Calendar.getInstance();
-        String today = new java.text.SimpleDateFormat("yyyy-MM-dd", java.util.Locale.getDefault()).format(calendar.getTime());
-
-        calendar.add(java.util.Calendar.DAY_OF_YEAR, 7);
-        String nextWeek = new java.text.SimpleDateFormat("yyyy-MM-dd", java.util.Locale.getDefault()).format(calendar.getTime());
-
-        return getTodoItemsWithQuery("SELECT * FROM " + TABLE_TODO + " WHERE " + COLUMN_COMPLETED + " = 0 AND " +
-                COLUMN_DUE_DATE + " BETWEEN '" + today + "' AND '" + nextWeek + "' ORDER BY " +
-                COLUMN_DUE_DATE + " ASC, " + COLUMN_DUE_TIME + " ASC");
+        TimeService time = TimeService.get();
+        return getTodoItemsWithQuery(SQL_UPCOMING_ITEMS, new String[]{time.todayDate(), time.upcomingEndDate()});
     }
 }
\ No newline at end of file
@@ -0,0 +1,142 @@
+package com.example.todolist.database;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Records which tables and rows each write through {@link DatabaseHelper} touched and tells
+ * the observers registered for those tables. Writes that change nothing are never reported.
+ * Notifications arriving before an observer has been told about the previous ones are merged,
+ * so a burst of writes costs each observer a single callback.
+ */
+public final class InvalidationTracker {
+
+    public interface Observer {
+        /**
+         * Called on the delivery executor (the main thread in the app), or on the one the
+         * observer was registered with.
+         *
+         * @param tables the observed tables that changed
+         * @param rowIds ids of the changed rows, or null when a write did not know which rows it hit
+         */
+        void onInvalidated(Set<String> tables, @Nullable Set<Integer> rowIds);
+    }
+
+    private final Executor deliveryExecutor;
+    private final CopyOnWriteArrayList<Registration> registrations = new CopyOnWriteArrayList<>();
+
+    InvalidationTracker() {
+        this(new Handler(Looper.getMainLooper())::post);
+    }
+
+    InvalidationTracker(Executor deliveryExecutor) {
+        this.deliveryExecutor = deliveryExecutor;
+    }
+
+    public void addObserver(Observer observer, String... tables) {
+        addObserver(observer, deliveryExecutor, tables);
+    }
+
+    /**
+     * Registers an observer told on its own executor. With {@code Runnable::run} it hears of a
+     * write on the writing thread, before any observer on the main thread does.
+     */
+    void addObserver(Observer observer, Executor deliveryExecutor, String... tables) {
+        registrations.add(new Registration(observer, deliveryExecutor, new HashSet<>(Arrays.asList(tables))));
+    }
+
+    public void removeObserver(Observer observer) {
+        for (Registration registration : registrations) {
+            if (registration.observer == observer) {
+                registration.removed = true;
+                registrations.remove(registration);
+            }
+        }
+    }
+
+    /** Reports a write that changed the given rows of {@code table}. */
+    void notifyRowsChanged(String table, int... rowIds) {
+        Set<Integer> ids = new HashSet<>();
+        for (int id : rowIds) {
+            ids.add(id);
+        }
+        notifyChanged(table, ids);
+    }
+
+    /** Reports a batch write that changed the given rows of {@code table}. */
+    void notifyRowsChanged(String table, Collection<Integer> rowIds) {
+        notifyChanged(table, new HashSet<>(rowIds));
+    }
+
+    /** Reports a write that changed an unknown set of rows of {@code table}. */
+    void notifyTableChanged(String table) {
+        notifyChanged(table, null);
+    }
+
+    private void notifyChanged(String table, @Nullable Set<Integer> rowIds) {
+        for (Registration registration : registrations) {
+            if (registration.tables.contains(table) && registration.add(table, rowIds)) {
+                registration.deliveryExecutor.execute(registration::deliver);
+            }
+        }
+    }
+
+    private static final class Registration {
+        final Observer observer;
+        final Executor deliveryExecutor;
+        final Set<String> tables;
+        volatile boolean removed;
+
+        // Changes waiting for delivery; guarded by this
+        private Set<String> pendingTables;
+        private Set<Integer> pendingRows;
+        private boolean pendingAllRows;
+
+        Registration(Observer observer, Executor deliveryExecutor, Set<String> tables) {
+            this.observer = observer;
+            this.deliveryExecutor = deliveryExecutor;
+            this.tables = tables;
+        }
+
+        /** Merges a change into the pending one; true when a delivery has to be scheduled. */
+        synchronized boolean add(String table, @Nullable Set<Integer> rowIds) {
+            boolean schedule = pendingTables == null;
+            if (schedule) {
+                pendingTables = new HashSet<>();
+                pendingRows = new HashSet<>();
+                pendingAllRows = false;
+            }
+            pendingTables.add(table);
+            if (rowIds == null) {
+                pendingAllRows = true;
+            } else {
+                pendingRows.addAll(rowIds);
+            }
+            return schedule;
+        }
+
+        void deliver() {
+            Set<String> changedTables;
+            Set<Integer> changedRows;
+            synchronized (this) {
+                changedTables = pendingTables;
+                changedRows = pendingAllRows ? null : pendingRows;
+                pendingTables = null;
+                pendingRows = null;
+            }
+            if (removed || changedTables == null) return;
+            observer.onInvalidated(Collections.unmodifiableSet(changedTables),
+                    changedRows == null ? null : Collections.unmodifiableSet(changedRows));
+        }
+    }
+}
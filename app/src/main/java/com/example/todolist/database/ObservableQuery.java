@@ -0,0 +1,195 @@
+package com.example.todolist.database;
+
+import androidx.annotation.Nullable;
+
+import com.example.todolist.models.TodoItem;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * A query that is re-run whenever a table it reads from changes, instead of after every write.
+ * A list query given a {@link RowFilter} is only re-run when a write touches a row it shows or
+ * a row that now belongs in it. While inactive (e.g. the screen is stopped) invalidations only
+ * mark the result stale, and it is refreshed once on activation. All methods must be called on
+ * the main thread.
+ */
+public final class ObservableQuery<T> implements InvalidationTracker.Observer {
+
+    // Above this many changed rows, re-running the query is cheaper than checking each row
+    static final int MAX_CHECKED_ROWS = 200;
+
+    /** Which rows a list can show; a write to any other row cannot change it. */
+    public interface RowFilter {
+        boolean matches(TodoItem row);
+    }
+
+    /** The rows held by a result, or null when it is not a list of rows (e.g. counts). */
+    interface RowsOf<T> {
+        @Nullable Collection<TodoItem> rowsOf(T result);
+    }
+
+    /** Where queries run; the repository, or a fake in tests. */
+    interface Source {
+        <R> void read(@Nullable String channel, Callable<R> query, TodoRepository.Callback<R> callback);
+        boolean cancelRead(String channel);
+        /** The rows with these ids as they are now; deleted ones are missing. */
+        Callable<List<TodoItem>> rowsQuery(int[] ids);
+    }
+
+    private final Source source;
+    private final InvalidationTracker tracker;
+    private final String channel;
+    private final TodoRepository.Callback<T> callback;
+    private final RowsOf<T> rowsOf;
+
+    private Callable<T> query;
+    @Nullable private RowFilter filter;
+    // Ids of the rows on screen, or null if not known
+    @Nullable private Set<Integer> shownIds;
+    // Rows whose next write the caller already shows
+    private final Set<Integer> expectedRows = new HashSet<>();
+    private boolean reading;
+    private boolean active = true;
+    private boolean stale;
+    private boolean disposed;
+    private int rerunsSkipped;
+
+    ObservableQuery(Source source, InvalidationTracker tracker, String channel,
+                    TodoRepository.Callback<T> callback, RowsOf<T> rowsOf, String... tables) {
+        this.source = source;
+        this.tracker = tracker;
+        this.channel = channel;
+        this.callback = callback;
+        this.rowsOf = rowsOf;
+        tracker.addObserver(this, tables);
+    }
+
+    /** Replaces the query, e.g. when a filter changes, and runs it if active. */
+    public void setQuery(Callable<T> query) {
+        setQuery(query, null);
+    }
+
+    /** As {@link #setQuery(Callable)}, re-running later only for writes to rows matching {@code filter}. */
+    public void setQuery(Callable<T> query, @Nullable RowFilter filter) {
+        this.query = query;
+        this.filter = filter;
+        shownIds = null;
+        invalidate();
+    }
+
+    /** Replaces the query without running it, for when the caller already shows its result. */
+    public void swapQuery(Callable<T> query, @Nullable RowFilter filter, T shown) {
+        this.query = query;
+        this.filter = filter;
+        shownIds = idsOf(shown);
+    }
+
+    /**
+     * The caller already shows the effect of the coming write to this row, e.g. a delete it took
+     * off the list; that write alone does not re-run the query. A result still being read may
+     * predate the write, so then it re-runs as usual.
+     */
+    public void expectRowChange(int id) {
+        if (!reading) expectedRows.add(id);
+    }
+
+    /** Re-runs the query now if active, otherwise as soon as it becomes active. */
+    public void invalidate() {
+        if (active && !disposed && query != null) {
+            stale = false;
+            expectedRows.clear();
+            reading = true;
+            source.read(channel, query, new TodoRepository.Callback<T>() {
+                @Override
+                public void onResult(T result) {
+                    reading = false;
+                    shownIds = idsOf(result);
+                    callback.onResult(result);
+                }
+
+                @Override
+                public void onError(Exception error) {
+                    reading = false;
+                    callback.onError(error);
+                }
+            });
+        } else {
+            stale = true;
+        }
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+        if (active && stale) {
+            invalidate();
+        } else if (!active && source.cancelRead(channel)) {
+            // A result now would overwrite whatever replaced this query on screen; fetch it later
+            reading = false;
+            stale = true;
+        }
+    }
+
+    public void dispose() {
+        disposed = true;
+        tracker.removeObserver(this);
+        source.cancelRead(channel);
+    }
+
+    /** Invalidations that turned out not to touch the result. */
+    public int getRerunsSkipped() {
+        return rerunsSkipped;
+    }
+
+    @Override
+    public void onInvalidated(Set<String> tables, @Nullable Set<Integer> rowIds) {
+        if (rowIds != null && !expectedRows.isEmpty() && expectedRows.containsAll(rowIds)) {
+            expectedRows.removeAll(rowIds);
+            rerunsSkipped++;
+            return;
+        }
+        if (rowIds == null || rowIds.size() > MAX_CHECKED_ROWS || filter == null || shownIds == null
+                || !active || disposed) {
+            invalidate();
+            return;
+        }
+        for (int id : rowIds) {
+            if (shownIds.contains(id)) {
+                // Changed or deleted under the user's eyes
+                invalidate();
+                return;
+            }
+        }
+        // None of them is shown: only one that now matches the filter can change the list
+        final RowFilter checkedFilter = filter;
+        int[] ids = new int[rowIds.size()];
+        int i = 0;
+        for (int id : rowIds) {
+            ids[i++] = id;
+        }
+        source.read(null, source.rowsQuery(ids), rows -> {
+            if (checkedFilter != filter) return; // Swapped meanwhile; the new query is fresh
+            for (TodoItem row : rows) {
+                if (checkedFilter.matches(row)) {
+                    invalidate();
+                    return;
+                }
+            }
+            rerunsSkipped++;
+        });
+    }
+
+    @Nullable
+    private Set<Integer> idsOf(T result) {
+        Collection<TodoItem> rows = rowsOf.rowsOf(result);
+        if (rows == null) return null;
+        Set<Integer> ids = new HashSet<>(rows.size() * 2);
+        for (TodoItem row : rows) {
+            ids.add(row.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.todolist.database;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.example.todolist.models.TodoItem;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * A bounded LRU cache of list results keyed on filter, category, sort and search text, so going
+ * back to a list shown a moment ago needs no query. It hears of each write on the writing
+ * thread, reads the changed rows back once, and drops only the entries that hold one of them or
+ * whose filter or search one of them now matches. Items are copied in and out, so callers may
+ * change theirs freely.
+ */
+public final class QueryCache implements InvalidationTracker.Observer {
+
+    private static final String TAG = "QueryCache";
+
+    static final int MAX_ENTRIES = 12;
+    // Across all entries; a longer list is not cached at all
+    static final int MAX_ITEMS = 2_000;
+    // A write to more rows than this drops everything instead of reading them all back
+    private static final int MAX_CHANGED_ROWS = 200;
+
+    private final DatabaseHelper databaseHelper;
+    // Access order, so the eldest entry is the least recently used; guarded by this
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int cachedItems;
+    // Bumped by every write; a load that started before one may hold rows it changed
+    private int generation;
+
+    // Metrics
+    private int hits;
+    private int misses;
+    private int invalidated;
+    private int evicted;
+
+    QueryCache(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    /**
+     * {@code query} answered from the cache when it holds the first {@code limit} rows of
+     * {@code key}'s list (all of them for a negative limit), otherwise run and remembered.
+     */
+    Callable<List<TodoItem>> cached(Key key, int limit, Callable<List<TodoItem>> query) {
+        return () -> {
+            int loadGeneration;
+            synchronized (this) {
+                List<TodoItem> cached = get(key, limit);
+                if (cached != null) {
+                    hits++;
+                    return cached;
+                }
+                misses++;
+                loadGeneration = generation;
+            }
+            List<TodoItem> items = query.call();
+            synchronized (this) {
+                if (loadGeneration == generation) {
+                    put(key, limit, items);
+                }
+                Log.d(TAG, getMetrics());
+            }
+            return items;
+        };
+    }
+
+    @Override
+    public void onInvalidated(Set<String> tables, @Nullable Set<Integer> rowIds) {
+        if (rowIds == null || rowIds.size() > MAX_CHANGED_ROWS) {
+            synchronized (this) {
+                generation++;
+                invalidated += entries.size();
+                entries.clear();
+                cachedItems = 0;
+            }
+            return;
+        }
+        synchronized (this) {
+            if (entries.isEmpty()) {
+                generation++;
+                return;
+            }
+        }
+        // The rows as they are now, read outside the lock; deleted ones are simply missing
+        int[] ids = new int[rowIds.size()];
+        int i = 0;
+        for (int id : rowIds) {
+            ids[i++] = id;
+        }
+        List<TodoItem> changedRows = databaseHelper.getTodoItemsByIds(ids);
+        synchronized (this) {
+            generation++;
+            Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Key, Entry> entry = iterator.next();
+                if (entry.getValue().isAffected(entry.getKey(), rowIds, changedRows)) {
+                    cachedItems -= entry.getValue().items.size();
+                    invalidated++;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    public synchronized int getHits() { return hits; }
+    public synchronized int getMisses() { return misses; }
+    public synchronized int getInvalidated() { return invalidated; }
+    public synchronized int getEvicted() { return evicted; }
+
+    public synchronized String getMetrics() {
+        return "hits=" + hits + ", misses=" + misses + ", invalidated=" + invalidated + ", evicted=" + evicted
+                + ", entries=" + entries.size() + ", items=" + cachedItems;
+    }
+
+    @Nullable
+    private List<TodoItem> get(Key key, int limit) {
+        Entry entry = entries.get(key);
+        if (entry == null) return null;
+        int available = entry.items.size();
+        if (!entry.complete && (limit < 0 || available < limit)) return null;
+        int count = limit < 0 ? available : Math.min(limit, available);
+        List<TodoItem> copies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            copies.add(new TodoItem(entry.items.get(i)));
+        }
+        return copies;
+    }
+
+    private void put(Key key, int limit, List<TodoItem> items) {
+        if (items.size() > MAX_ITEMS) return;
+        List<TodoItem> copies = new ArrayList<>(items.size());
+        for (TodoItem item : items) {
+            copies.add(new TodoItem(item));
+        }
+        Entry previous = entries.put(key, new Entry(copies, limit < 0 || items.size() < limit));
+        if (previous != null) {
+            cachedItems -= previous.items.size();
+        }
+        cachedItems += copies.size();
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > MAX_ENTRIES || cachedItems > MAX_ITEMS) {
+            cachedItems -= eldest.next().items.size();
+            eldest.remove();
+            evicted++;
+        }
+    }
+
+    /** What a cached list shows: a filtered list in one order, or search results. */
+    static final class Key {
+        final String filter;
+        @Nullable final String category;
+        @Nullable final TaskSort sort;
+        @Nullable final SearchQuery search;
+
+        private Key(String filter, @Nullable String category, @Nullable TaskSort sort, @Nullable SearchQuery search) {
+            this.filter = filter;
+            this.category = category;
+            this.sort = sort;
+            this.search = search;
+        }
+
+        static Key list(String filter, String category, TaskSort sort) {
+            // The category only narrows the CATEGORY filter; every other filter shares one entry
+            return new Key(filter, "CATEGORY".equals(filter) ? category : null, sort, null);
+        }
+
+        static Key search(SearchQuery query) {
+            return new Key("SEARCH", null, null, query);
+        }
+
+        /** Whether a row with these values belongs in the list, wherever it sorts. */
+        boolean matches(TodoItem row) {
+            if (search != null) return search.matches(row);
+            switch (filter) {
+                case "COMPLETED":
+                    return row.isCompleted();
+                case "PENDING":
+                    return !row.isCompleted();
+                case "CATEGORY":
+                    return category != null && category.equals(row.getCategory());
+                default:
+                    return true;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return filter.equals(other.filter) && Objects.equals(category, other.category)
+                    && sort == other.sort && Objects.equals(search, other.search);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(filter, category, sort, search);
+        }
+    }
+
+    private static final class Entry {
+        final List<TodoItem> items;
+        // The whole list, rather than only its first rows
+        final boolean complete;
+
+        Entry(List<TodoItem> items, boolean complete) {
+            this.items = items;
+            this.complete = complete;
+        }
+
+        boolean isAffected(Key key, Set<Integer> changedIds, List<TodoItem> changedRows) {
+            for (TodoItem item : items) {
+                if (changedIds.contains(item.getId())) return true;
+            }
+            for (TodoItem row : changedRows) {
+                if (key.matches(row)) return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.todolist.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.example.todolist.models.TodoItem;
+
+/**
+ * The upgrade steps behind {@link DatabaseHelper#onUpgrade}, one per schema version. Each step
+ * takes a database exactly as the version before it left one and leaves it exactly as that
+ * version did, so the steps run in numeric order and their SQL is written out as it was then.
+ * {@link DatabaseHelper#onCreate} builds the current shapes instead; a step is never edited
+ * after its version ships, and a change to the schema is a new version with a new step.
+ */
+final class SchemaUpgrades {
+
+    private static final int BACKFILL_BATCH = 500;
+
+    private SchemaUpgrades() {
+    }
+
+    // v3: due times and reminders
+    static void upgradeTo3(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE todo_items ADD COLUMN due_time TEXT");
+        db.execSQL("ALTER TABLE todo_items ADD COLUMN has_reminder INTEGER DEFAULT 0");
+        db.execSQL("ALTER TABLE todo_items ADD COLUMN alarm_time INTEGER DEFAULT 0");
+    }
+
+    // v4: secondary indexes for the list orders, due dates and reminders
+    static void upgradeTo4(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_todo_priority_order ON todo_items(priority, due_date, due_time)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_todo_completed_order ON todo_items(completed, priority, due_date, due_time)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_todo_category_order ON todo_items(category, priority, due_date)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_todo_pending_due ON todo_items(due_date, due_time, priority)"
+                + " WHERE completed = 0");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_todo_pending_reminders ON todo_items(alarm_time)"
+                + " WHERE has_reminder = 1 AND completed = 0");
+    }
+
+    // v5: external-content FTS4 index over task and description, kept in sync by triggers
+    static void upgradeTo5(SQLiteDatabase db) {
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS todo_fts USING fts4(content=\"todo_items\", task, description)");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS todo_fts_before_delete BEFORE DELETE ON todo_items BEGIN "
+                + "DELETE FROM todo_fts WHERE docid = old.id; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS todo_fts_before_update BEFORE UPDATE OF task, description ON todo_items BEGIN "
+                + "DELETE FROM todo_fts WHERE docid = old.id; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS todo_fts_after_update AFTER UPDATE OF task, description ON todo_items BEGIN "
+                + "INSERT INTO todo_fts(docid, task, description) VALUES (new.id, new.task, new.description); END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS todo_fts_after_insert AFTER INSERT ON todo_items BEGIN "
+                + "INSERT INTO todo_fts(docid, task, description) VALUES (new.id, new.task, new.description); END");
+        db.execSQL("INSERT INTO todo_fts(todo_fts) VALUES ('rebuild')");
+    }
+
+    // v6: single-row table of counters kept current by triggers
+    static void upgradeTo6(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS todo_stats(id INTEGER PRIMARY KEY,"
+                + "total INTEGER NOT NULL DEFAULT 0,completed INTEGER NOT NULL DEFAULT 0,reminders INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS todo_stats_after_insert AFTER INSERT ON todo_items BEGIN "
+                + "UPDATE todo_stats SET total = total + 1, "
+                + "completed = completed + CASE WHEN new.completed = 1 THEN 1 ELSE 0 END, "
+                + "reminders = reminders + CASE WHEN new.has_reminder = 1 AND new.completed = 0 THEN 1 ELSE 0 END"
+                + " WHERE id = 0; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS todo_stats_after_delete AFTER DELETE ON todo_items BEGIN "
+                + "UPDATE todo_stats SET total = total - 1, "
+                + "completed = completed - CASE WHEN old.completed = 1 THEN 1 ELSE 0 END, "
+                + "reminders = reminders - CASE WHEN old.has_reminder = 1 AND old.completed = 0 THEN 1 ELSE 0 END"
+                + " WHERE id = 0; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS todo_stats_after_update AFTER UPDATE OF completed, has_reminder ON todo_items BEGIN "
+                + "UPDATE todo_stats SET "
+                + "completed = completed - CASE WHEN old.completed = 1 THEN 1 ELSE 0 END"
+                + " + CASE WHEN new.completed = 1 THEN 1 ELSE 0 END, "
+                + "reminders = reminders - CASE WHEN old.has_reminder = 1 AND old.completed = 0 THEN 1 ELSE 0 END"
+                + " + CASE WHEN new.has_reminder = 1 AND new.completed = 0 THEN 1 ELSE 0 END"
+                + " WHERE id = 0; END");
+        db.execSQL("INSERT OR REPLACE INTO todo_stats SELECT 0, COUNT(*), "
+                + "IFNULL(SUM(CASE WHEN todo_items.completed = 1 THEN 1 ELSE 0 END), 0), "
+                + "IFNULL(SUM(CASE WHEN todo_items.has_reminder = 1 AND todo_items.completed = 0 THEN 1 ELSE 0 END), 0)"
+                + " FROM todo_items");
+    }
+
+    // v7: list-order indexes on the keyset expressions
+    static void upgradeTo7(SQLiteDatabase db) {
+        db.execSQL("DROP INDEX IF EXISTS idx_todo_priority_order");
+        db.execSQL("DROP INDEX IF EXISTS idx_todo_completed_order");
+        db.execSQL("DROP INDEX IF EXISTS idx_todo_category_order");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_todo_priority_keyset"
+                + " ON todo_items(priority, IFNULL(due_date, ''), IFNULL(due_time, ''))");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_todo_completed_keyset"
+                + " ON todo_items(completed, priority, IFNULL(due_date, ''), IFNULL(due_time, ''))");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_todo_category_keyset"
+                + " ON todo_items(category, priority, IFNULL(due_date, ''), IFNULL(due_time, ''))");
+    }
+
+    // v8: one list-order index per filter column and sort, undated tasks last
+    static void upgradeTo8(SQLiteDatabase db) {
+        db.execSQL("DROP INDEX IF EXISTS idx_todo_priority_keyset");
+        db.execSQL("DROP INDEX IF EXISTS idx_todo_completed_keyset");
+        db.execSQL("DROP INDEX IF EXISTS idx_todo_category_keyset");
+        createV8ListIndexes(db, "");
+    }
+
+    // v9: epoch-millis due and creation times, filled in from the text dates a batch of rows
+    // per query so the cursor window stays small however many tasks there are
+    static void upgradeTo9(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE todo_items ADD COLUMN due_at INTEGER");
+        db.execSQL("ALTER TABLE todo_items ADD COLUMN created_at_ms INTEGER");
+
+        SQLiteStatement update = db.compileStatement(
+                "UPDATE todo_items SET due_at = ?, created_at_ms = ? WHERE id = ?");
+        int lastId = 0;
+        int batchSize;
+        do {
+            Cursor cursor = db.rawQuery("SELECT id, due_date, due_time, created_at FROM todo_items WHERE id > ?"
+                    + " ORDER BY id LIMIT " + BACKFILL_BATCH, new String[]{String.valueOf(lastId)});
+            batchSize = cursor.getCount();
+            while (cursor.moveToNext()) {
+                lastId = cursor.getInt(0);
+                long dueAt = TodoItem.dueAtOf(cursor.getString(1), cursor.getString(2));
+                if (dueAt != TodoItem.NO_DUE) {
+                    update.bindLong(1, dueAt);
+                } else {
+                    update.bindNull(1);
+                }
+                update.bindLong(2, TodoItem.createdAtMillisOf(cursor.getString(3)));
+                update.bindLong(3, lastId);
+                update.executeUpdateDelete();
+            }
+            cursor.close();
+        } while (batchSize == BACKFILL_BATCH);
+        update.close();
+
+        // Built after the backfill, in one pass over the filled column
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_todo_pending_due_at ON todo_items(due_at) WHERE completed = 0");
+    }
+
+    // v10: soft deletes. Every index and stats trigger is rebuilt to leave the tombstones out,
+    // and the tombstones get an index of their own for the purge.
+    static void upgradeTo10(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE todo_items ADD COLUMN deleted_at INTEGER");
+
+        for (String filter : new String[]{"all", "completed", "category"}) {
+            for (String sort : new String[]{"priority", "date", "name"}) {
+                db.execSQL("DROP INDEX IF EXISTS idx_todo_" + filter + "_" + sort);
+            }
+        }
+        db.execSQL("DROP INDEX IF EXISTS idx_todo_pending_due");
+        db.execSQL("DROP INDEX IF EXISTS idx_todo_pending_reminders");
+        db.execSQL("DROP INDEX IF EXISTS idx_todo_pending_due_at");
+        createV8ListIndexes(db, " WHERE deleted_at IS NULL");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_todo_pending_due ON todo_items(due_date, due_time, priority)"
+                + " WHERE completed = 0 AND deleted_at IS NULL");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_todo_pending_reminders ON todo_items(alarm_time)"
+                + " WHERE has_reminder = 1 AND completed = 0 AND deleted_at IS NULL");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_todo_pending_due_at ON todo_items(due_at)"
+                + " WHERE completed = 0 AND deleted_at IS NULL");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_todo_tombstones ON todo_items(deleted_at)"
+                + " WHERE deleted_at IS NOT NULL");
+
+        db.execSQL("DROP TRIGGER IF EXISTS todo_stats_after_insert");
+        db.execSQL("DROP TRIGGER IF EXISTS todo_stats_after_delete");
+        db.execSQL("DROP TRIGGER IF EXISTS todo_stats_after_update");
+        db.execSQL("CREATE TABLE IF NOT EXISTS todo_stats(id INTEGER PRIMARY KEY,"
+                + "total INTEGER NOT NULL DEFAULT 0,completed INTEGER NOT NULL DEFAULT 0,reminders INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS todo_stats_after_insert AFTER INSERT ON todo_items BEGIN "
+                + "UPDATE todo_stats SET "
+                + "total = total + CASE WHEN new.deleted_at IS NULL THEN 1 ELSE 0 END, "
+                + "completed = completed + CASE WHEN new.completed = 1 AND new.deleted_at IS NULL THEN 1 ELSE 0 END, "
+                + "reminders = reminders + CASE WHEN new.has_reminder = 1 AND new.completed = 0"
+                + " AND new.deleted_at IS NULL THEN 1 ELSE 0 END"
+                + " WHERE id = 0; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS todo_stats_after_delete AFTER DELETE ON todo_items BEGIN "
+                + "UPDATE todo_stats SET "
+                + "total = total - CASE WHEN old.deleted_at IS NULL THEN 1 ELSE 0 END, "
+                + "completed = completed - CASE WHEN old.completed = 1 AND old.deleted_at IS NULL THEN 1 ELSE 0 END, "
+                + "reminders = reminders - CASE WHEN old.has_reminder = 1 AND old.completed = 0"
+                + " AND old.deleted_at IS NULL THEN 1 ELSE 0 END"
+                + " WHERE id = 0; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS todo_stats_after_update"
+                + " AFTER UPDATE OF completed, has_reminder, deleted_at ON todo_items BEGIN "
+                + "UPDATE todo_stats SET "
+                + "total = total - CASE WHEN old.deleted_at IS NULL THEN 1 ELSE 0 END"
+                + " + CASE WHEN new.deleted_at IS NULL THEN 1 ELSE 0 END, "
+                + "completed = completed - CASE WHEN old.completed = 1 AND old.deleted_at IS NULL THEN 1 ELSE 0 END"
+                + " + CASE WHEN new.completed = 1 AND new.deleted_at IS NULL THEN 1 ELSE 0 END, "
+                + "reminders = reminders - CASE WHEN old.has_reminder = 1 AND old.completed = 0"
+                + " AND old.deleted_at IS NULL THEN 1 ELSE 0 END"
+                + " + CASE WHEN new.has_reminder = 1 AND new.completed = 0 AND new.deleted_at IS NULL THEN 1 ELSE 0 END"
+                + " WHERE id = 0; END");
+        db.execSQL("INSERT OR REPLACE INTO todo_stats SELECT 0, "
+                + "IFNULL(SUM(CASE WHEN todo_items.deleted_at IS NULL THEN 1 ELSE 0 END), 0), "
+                + "IFNULL(SUM(CASE WHEN todo_items.completed = 1 AND todo_items.deleted_at IS NULL THEN 1 ELSE 0 END), 0), "
+                + "IFNULL(SUM(CASE WHEN todo_items.has_reminder = 1 AND todo_items.completed = 0"
+                + " AND todo_items.deleted_at IS NULL THEN 1 ELSE 0 END), 0)"
+                + " FROM todo_items");
+    }
+
+    // v11: every name in the category column becomes a categories row, keeping the colour the
+    // list derived from it, and each task points at its row. The name column is cleared rather
+    // than dropped (DROP COLUMN needs SQLite 3.35), and its list indexes move to the id.
+    static void upgradeTo11(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS categories(id INTEGER PRIMARY KEY,"
+                + "name TEXT NOT NULL UNIQUE,color INTEGER NOT NULL)");
+        db.execSQL("ALTER TABLE todo_items ADD COLUMN category_id INTEGER REFERENCES categories(id)");
+
+        for (String sort : new String[]{"priority", "date", "name"}) {
+            db.execSQL("DROP INDEX IF EXISTS idx_todo_category_" + sort);
+        }
+        Cursor cursor = db.rawQuery("SELECT DISTINCT category FROM todo_items WHERE category IS NOT NULL", null);
+        SQLiteStatement insert = db.compileStatement("INSERT OR IGNORE INTO categories(name, color) VALUES (?, ?)");
+        try {
+            while (cursor.moveToNext()) {
+                String name = cursor.getString(0);
+                insert.bindString(1, name);
+                insert.bindLong(2, CategoryDictionary.colorFor(name));
+                insert.executeInsert();
+            }
+        } finally {
+            cursor.close();
+            insert.close();
+        }
+        db.execSQL("UPDATE todo_items SET category_id = (SELECT id FROM categories WHERE name = todo_items.category),"
+                + " category = NULL WHERE category IS NOT NULL");
+
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_todo_category_id_priority ON todo_items(category_id, "
+                + V8_PRIORITY_KEYS + ") WHERE deleted_at IS NULL");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_todo_category_id_date ON todo_items(category_id, "
+                + V8_DATE_KEYS + ") WHERE deleted_at IS NULL");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_todo_category_id_name ON todo_items(category_id, "
+                + V8_NAME_KEYS + ") WHERE deleted_at IS NULL");
+    }
+
+    // v12: the search index retokenized to fold case beyond ASCII and keep accents. The sync
+    // triggers only name the table, so they stay.
+    static void upgradeTo12(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS todo_fts");
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS todo_fts USING fts4(content=\"todo_items\", task, description, "
+                + "tokenize=unicode61 \"remove_diacritics=0\")");
+        db.execSQL("INSERT INTO todo_fts(todo_fts) VALUES ('rebuild')");
+    }
+
+    // The v8 list-order keys, unchanged since: NULL and '' both mean no date, and '~' sorts
+    // undated tasks (and untimed ones, by date) last
+    private static final String V8_PRIORITY_KEYS = "priority, IFNULL(NULLIF(due_date, ''), '~'), IFNULL(due_time, '')";
+    private static final String V8_DATE_KEYS = "IFNULL(NULLIF(due_date, ''), '~'),"
+            + " CASE WHEN IFNULL(due_date, '') = '' THEN '~' ELSE IFNULL(NULLIF(due_time, ''), '~') END, priority";
+    private static final String V8_NAME_KEYS = "IFNULL(task, '') COLLATE NOCASE";
+
+    // The nine v8 list-order indexes, unfiltered and on completed and category, with the
+    // partial-index clause v10 added
+    private static void createV8ListIndexes(SQLiteDatabase db, String where) {
+        String[][] sorts = {{"priority", V8_PRIORITY_KEYS}, {"date", V8_DATE_KEYS}, {"name", V8_NAME_KEYS}};
+        for (String[] sort : sorts) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_todo_all_" + sort[0] + " ON todo_items(" + sort[1] + ")" + where);
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_todo_completed_" + sort[0]
+                    + " ON todo_items(completed, " + sort[1] + ")" + where);
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_todo_category_" + sort[0]
+                    + " ON todo_items(category, " + sort[1] + ")" + where);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.todolist.database;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.todolist.models.TodoItem;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Turns SearchView keystrokes into as few database searches as possible. Input is debounced,
+ * a stale query in flight is cancelled, and a query that only narrows the previous one is
+ * answered by filtering the previous results in memory. Only the final result is published.
+ * While results are on screen, a write to the todo items re-runs the search against the database.
+ * All methods must be called on the main thread.
+ */
+public class SearchPipeline {
+
+    private static final String TAG = "SearchPipeline";
+    static final long DEBOUNCE_MS = 250;
+
+    public interface Listener {
+        void onSearchResults(List<TodoItem> results);
+        void onSearchCleared();
+    }
+
+    /** Where searches run and write notifications come from; the repository, or a fake in tests. */
+    interface Source {
+        void search(SearchQuery query, TodoRepository.Callback<List<TodoItem>> callback);
+        void addObserver(InvalidationTracker.Observer observer);
+        void removeObserver(InvalidationTracker.Observer observer);
+    }
+
+    private final Source source;
+    private final Listener listener;
+    private final Handler handler;
+    private final Runnable runPendingSearch = this::runPendingSearch;
+    private final InvalidationTracker.Observer itemsChanged = (tables, rowIds) -> refresh();
+    private boolean observingItems;
+
+    private String pendingText;
+    private boolean searchScheduled;
+    // Bumped whenever a newer search takes over, so late results from older ones are dropped
+    private int generation;
+
+    // Query whose results are on screen or on their way
+    private SearchQuery currentQuery;
+    // Last results fetched from SQLite (or refined from them), reused for narrowing queries
+    private SearchQuery publishedQuery;
+    private List<TodoItem> publishedResults;
+    private boolean publishedResultsComplete;
+
+    // Metrics
+    private int keystrokes;
+    private int queriesIssued;
+    private int queriesSkipped;
+    private int queriesRefined;
+    private int queriesCancelled;
+
+    public SearchPipeline(TodoRepository repository, Listener listener) {
+        this(new Source() {
+            @Override
+            public void search(SearchQuery query, TodoRepository.Callback<List<TodoItem>> callback) {
+                repository.searchTodoItems(query, callback);
+            }
+
+            @Override
+            public void addObserver(InvalidationTracker.Observer observer) {
+                repository.addTodoItemsObserver(observer);
+            }
+
+            @Override
+            public void removeObserver(InvalidationTracker.Observer observer) {
+                repository.removeObserver(observer);
+            }
+        }, listener, new Handler(Looper.getMainLooper()));
+    }
+
+    SearchPipeline(Source source, Listener listener, Handler handler) {
+        this.source = source;
+        this.listener = listener;
+        this.handler = handler;
+    }
+
+    public void onQueryTextChanged(String text) {
+        keystrokes++;
+        if (searchScheduled) {
+            // The earlier keystroke never reached the database
+            queriesSkipped++;
+            handler.removeCallbacks(runPendingSearch);
+        }
+        pendingText = text;
+        searchScheduled = true;
+        handler.postDelayed(runPendingSearch, DEBOUNCE_MS);
+    }
+
+    /** Runs the pending search now, e.g. when the user submits the query. */
+    public void flush() {
+        if (searchScheduled) {
+            handler.removeCallbacks(runPendingSearch);
+            runPendingSearch();
+        }
+    }
+
+    /** Drops scheduled and in-flight searches and forgets the cached results. */
+    public void cancel() {
+        handler.removeCallbacks(runPendingSearch);
+        searchScheduled = false;
+        generation++;
+        currentQuery = null;
+        publishedQuery = null;
+        publishedResults = null;
+        if (observingItems) {
+            observingItems = false;
+            source.removeObserver(itemsChanged);
+        }
+    }
+
+    /** The shown results may be out of date: fetch the current query again from the database. */
+    private void refresh() {
+        if (currentQuery == null || searchScheduled) return;
+        publishedQuery = null;
+        publishedResults = null;
+        search(currentQuery);
+    }
+
+    private void runPendingSearch() {
+        searchScheduled = false;
+        SearchQuery query = SearchQuery.parse(pendingText);
+
+        if (query.isEmpty()) {
+            cancel();
+            listener.onSearchCleared();
+            return;
+        }
+
+        if (query.equals(publishedQuery)) {
+            // e.g. a trailing space or punctuation: same terms, results already on screen. A
+            // different search still in flight must not replace them when it lands.
+            if (!query.equals(currentQuery)) {
+                ++generation;
+                currentQuery = query;
+            }
+            queriesSkipped++;
+            return;
+        }
+
+        if (publishedResultsComplete && query.refines(publishedQuery)) {
+            ++generation;
+            currentQuery = query;
+            queriesRefined++;
+            publish(query, refine(query, publishedResults), true);
+            return;
+        }
+
+        search(query);
+    }
+
+    private void search(SearchQuery query) {
+        final int searchGeneration = ++generation;
+        currentQuery = query;
+        if (!observingItems) {
+            observingItems = true;
+            source.addObserver(itemsChanged);
+        }
+        queriesIssued++;
+        source.search(query, results -> {
+            if (searchGeneration != generation) {
+                queriesCancelled++;
+                return;
+            }
+            // A capped result set may be missing rows that a longer query would match
+            publish(query, results, results.size() < DatabaseHelper.SEARCH_RESULT_LIMIT);
+        });
+    }
+
+    private void publish(SearchQuery query, List<TodoItem> results, boolean complete) {
+        publishedQuery = query;
+        publishedResults = results;
+        publishedResultsComplete = complete;
+        Log.d(TAG, getMetrics());
+        listener.onSearchResults(new ArrayList<>(results));
+    }
+
+    private static List<TodoItem> refine(SearchQuery query, List<TodoItem> previous) {
+        List<TodoItem> refined = new ArrayList<>();
+        for (TodoItem item : previous) {
+            if (query.matches(item)) {
+                refined.add(item);
+            }
+        }
+        // Same order as the SQL search: rank, then priority, due date and time
+        refined.sort(Comparator.<TodoItem>comparingInt(query::rank)
+                .thenComparingInt(TodoItem::getPriority)
+                .thenComparing(TodoItem::getDueDate, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                .thenComparing(TodoItem::getDueTime, Comparator.nullsFirst(Comparator.<String>naturalOrder())));
+        return refined;
+    }
+
+    public int getQueriesIssued() { return queriesIssued; }
+    public int getQueriesSkipped() { return queriesSkipped; }
+    public int getQueriesRefined() { return queriesRefined; }
+    public int getQueriesCancelled() { return queriesCancelled; }
+
+    public String getMetrics() {
+        return "keystrokes=" + keystrokes + ", issued=" + queriesIssued + ", skipped=" + queriesSkipped
+                + ", refined=" + queriesRefined + ", cancelled=" + queriesCancelled;
+    }
+}
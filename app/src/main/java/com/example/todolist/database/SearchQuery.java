@@ -0,0 +1,129 @@
+package com.example.todolist.database;
+
+import com.example.todolist.models.TodoItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Search box text split into lower-case terms. Terms are plain letters and digits only, and
+ * lower case keeps words like "or" from being read as FTS operators, so the generated MATCH
+ * expressions never carry query syntax typed by the user.
+ */
+public final class SearchQuery {
+
+    private final List<String> terms;
+
+    private SearchQuery(List<String> terms) {
+        this.terms = terms;
+    }
+
+    public static SearchQuery parse(String raw) {
+        List<String> terms = new ArrayList<>();
+        if (raw != null) {
+            StringBuilder term = new StringBuilder();
+            for (int i = 0; i < raw.length(); i++) {
+                char c = raw.charAt(i);
+                if (Character.isLetterOrDigit(c)) {
+                    term.append(c);
+                } else if (term.length() > 0) {
+                    terms.add(term.toString().toLowerCase(Locale.ROOT));
+                    term.setLength(0);
+                }
+            }
+            if (term.length() > 0) {
+                terms.add(term.toString().toLowerCase(Locale.ROOT));
+            }
+        }
+        return new SearchQuery(Collections.unmodifiableList(terms));
+    }
+
+    public List<String> getTerms() {
+        return terms;
+    }
+
+    public boolean isEmpty() {
+        return terms.isEmpty();
+    }
+
+    /**
+     * True when every result of this query is also a result of {@code previous}: each earlier
+     * term was only extended and any new terms were appended, e.g. "gro" then "groc milk".
+     */
+    public boolean refines(SearchQuery previous) {
+        if (previous == null || previous.isEmpty() || terms.size() < previous.terms.size()) {
+            return false;
+        }
+        for (int i = 0; i < previous.terms.size(); i++) {
+            if (!terms.get(i).startsWith(previous.terms.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** In-memory equivalent of the FTS prefix match over task and description. */
+    public boolean matches(TodoItem item) {
+        for (String term : terms) {
+            if (!hasWordWithPrefix(item.getTask(), term) && !hasWordWithPrefix(item.getDescription(), term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Same rank the SQL search assigns: 0 when every term is in the title, otherwise 1. */
+    public int rank(TodoItem item) {
+        for (String term : terms) {
+            if (!hasWordWithPrefix(item.getTask(), term)) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean hasWordWithPrefix(String text, String prefix) {
+        if (text == null) return false;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            boolean wordStart = Character.isLetterOrDigit(text.charAt(i))
+                    && (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)));
+            if (wordStart && text.regionMatches(true, i, prefix, 0, prefix.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof SearchQuery && terms.equals(((SearchQuery) o).terms);
+    }
+
+    @Override
+    public int hashCode() {
+        return terms.hashCode();
+    }
+
+    /** Every term as a prefix match in any indexed column, e.g. {@code gro* mil*}. */
+    String toMatchExpression() {
+        return toMatchExpression(null);
+    }
+
+    /** Every term as a prefix match restricted to one column, e.g. {@code task:gro* task:mil*}. */
+    String toMatchExpression(String column) {
+        StringBuilder expression = new StringBuilder();
+        for (String term : terms) {
+            if (expression.length() > 0) {
+                expression.append(' ');
+            }
+            if (column != null) {
+                expression.append(column).append(':');
+            }
+            expression.append(term).append('*');
+        }
+        return expression.toString();
+    }
+}
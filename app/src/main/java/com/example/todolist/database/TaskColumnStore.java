@@ -0,0 +1,408 @@
+package com.example.todolist.database;
+
+import android.database.Cursor;
+
+import androidx.annotation.Nullable;
+
+import com.example.todolist.models.TodoItem;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An in-memory copy of the columns the task list filters, sorts and counts by, for very large
+ * lists. Each column is a primitive array indexed by row, with rows kept in id order: ids,
+ * priorities, due dates as a day ordinal and a minute of day, due instants, a completed bitset
+ * and category ids. A sorted list is a {@code long[]} of packed sort keys with
+ * the row in the low bits, so filtering and sorting allocate one array and box nothing.
+ *
+ * <p>SQLite stays the store of record: writes go there as before, and the rows they report are
+ * re-read before the next query. Name order needs the task text, which is left in SQLite, so
+ * {@link TaskSort#NAME} lists keep using the name index. Dates and times the pickers did not
+ * write (anything but "yyyy-MM-dd" and "HH:mm") sort as if missing.
+ */
+public final class TaskColumnStore implements InvalidationTracker.Observer {
+
+    // Sort key layout, high to low: three fields per sort, then the row. 7 + 22 + 11 + 23 = 63
+    // bits, so keys stay positive and sort as signed longs.
+    private static final int ROW_BITS = 23;
+    static final int MAX_ROWS = 1 << ROW_BITS;
+    private static final long ROW_MASK = MAX_ROWS - 1;
+    private static final int PRIORITY_BITS = 7;
+    private static final int PRIORITY_MAX = (1 << PRIORITY_BITS) - 1;
+    private static final int DAY_BITS = 22;
+    // After every real day, like SORT_LAST after every date string
+    private static final int NO_DAY = (1 << DAY_BITS) - 1;
+    private static final int MINUTE_BITS = 11;
+    private static final int LAST_MINUTE = (1 << MINUTE_BITS) - 1;
+    private static final int NO_MINUTE = -1;
+
+    // A change to more rows than size / RELOAD_DIVISOR is re-read whole rather than row by row
+    private static final int RELOAD_DIVISOR = 8;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final DatabaseHelper databaseHelper;
+
+    // The columns, valid up to size, rows in ascending id order; all guarded by this
+    private int size;
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private byte[] priorities = new byte[INITIAL_CAPACITY];
+    private int[] dueDays = new int[INITIAL_CAPACITY];
+    private short[] dueMinutes = new short[INITIAL_CAPACITY];
+    private long[] dueAts = new long[INITIAL_CAPACITY];
+    private final BitSet completed = new BitSet();
+    // Ids from the categories table, NO_CATEGORY for none
+    private int[] categoryIds = new int[INITIAL_CAPACITY];
+    // Bumped on every change to the columns; the cached order is valid for one version
+    private int version;
+
+    private String cachedFilter;
+    private String cachedCategory;
+    private TaskSort cachedSort;
+    private int cachedVersion = -1;
+    private long[] cachedOrder;
+
+    // Changes reported since the last sync. A separate lock, so the writing thread that reports
+    // them never waits behind a sort.
+    private final Object pendingLock = new Object();
+    private Set<Integer> pendingRows = new HashSet<>();
+    private boolean pendingAll = true;
+
+    TaskColumnStore(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    /** Whether lists in this order can come from the store. */
+    public static boolean supports(TaskSort sort) {
+        return sort != TaskSort.NAME;
+    }
+
+    @Override
+    public void onInvalidated(Set<String> tables, @Nullable Set<Integer> rowIds) {
+        synchronized (pendingLock) {
+            if (rowIds == null) {
+                pendingAll = true;
+            } else if (!pendingAll) {
+                pendingRows.addAll(rowIds);
+            }
+        }
+    }
+
+    /** The ids of a whole filtered list, in list order. */
+    public synchronized int[] getIds(String filter, String category, TaskSort sort) {
+        long[] order = order(filter, category, sort);
+        return idsOf(order, 0, order.length);
+    }
+
+    /**
+     * Up to {@code limit} ids of a filtered list, in list order, starting after {@code anchor}
+     * (or at it when {@code inclusive}), or from the top when {@code anchor} is null. The same
+     * keyset rules as {@link DatabaseHelper#getTodoItemsPageAfter}.
+     */
+    public synchronized int[] getIdsAfter(String filter, String category, TaskSort sort,
+                                          @Nullable TodoItem anchor, boolean inclusive, int limit) {
+        long[] order = order(filter, category, sort);
+        int from = anchor == null ? 0 : positionAfter(order, sort, anchor, inclusive);
+        return idsOf(order, from, Math.min(order.length, from + limit));
+    }
+
+    /** Up to {@code limit} ids just before {@code anchor}, still in list order. */
+    public synchronized int[] getIdsBefore(String filter, String category, TaskSort sort,
+                                           TodoItem anchor, int limit) {
+        long[] order = order(filter, category, sort);
+        int to = positionAfter(order, sort, anchor, true);
+        return idsOf(order, Math.max(0, to - limit), to);
+    }
+
+    /** How many tasks a filter shows. */
+    public synchronized int count(String filter, String category) {
+        sync();
+        switch (filter) {
+            case "COMPLETED":
+                return completed.cardinality();
+            case "PENDING":
+                return size - completed.cardinality();
+            case "CATEGORY":
+                int categoryId = databaseHelper.getCategories().idOf(category);
+                if (categoryId == TodoItem.NO_CATEGORY) return 0;
+                int count = 0;
+                for (int row = 0; row < size; row++) {
+                    if (categoryIds[row] == categoryId) count++;
+                }
+                return count;
+            default:
+                return size;
+        }
+    }
+
+    /** How many pending tasks fell due before {@code now}. */
+    public synchronized int countOverdue(long now) {
+        sync();
+        int count = 0;
+        for (int row = completed.nextClearBit(0); row < size; row = completed.nextClearBit(row + 1)) {
+            if (dueAts[row] != TodoItem.NO_DUE && dueAts[row] < now) count++;
+        }
+        return count;
+    }
+
+    /** How many tasks the store holds. */
+    public synchronized int size() {
+        sync();
+        return size;
+    }
+
+    // ---- Sorting ----
+
+    private long[] order(String filter, String category, TaskSort sort) {
+        if (!supports(sort)) {
+            throw new IllegalArgumentException("The column store cannot sort by " + sort);
+        }
+        sync();
+        if (cachedVersion == version && cachedSort == sort && filter.equals(cachedFilter)
+                && (category == null ? cachedCategory == null : category.equals(cachedCategory))) {
+            return cachedOrder;
+        }
+
+        long[] order = new long[size];
+        int count = 0;
+        switch (filter) {
+            case "COMPLETED":
+                for (int row = completed.nextSetBit(0); row >= 0 && row < size; row = completed.nextSetBit(row + 1)) {
+                    order[count++] = sortKey(sort, row);
+                }
+                break;
+            case "PENDING":
+                for (int row = completed.nextClearBit(0); row < size; row = completed.nextClearBit(row + 1)) {
+                    order[count++] = sortKey(sort, row);
+                }
+                break;
+            case "CATEGORY":
+                int categoryId = databaseHelper.getCategories().idOf(category);
+                if (categoryId == TodoItem.NO_CATEGORY) break;
+                for (int row = 0; row < size; row++) {
+                    if (categoryIds[row] == categoryId) order[count++] = sortKey(sort, row);
+                }
+                break;
+            default:
+                for (int row = 0; row < size; row++) {
+                    order[count++] = sortKey(sort, row);
+                }
+        }
+        if (count < order.length) {
+            order = Arrays.copyOf(order, count);
+        }
+        // Rows are in id order, so equal keys fall back to the id like the SQL ORDER BY does
+        Arrays.sort(order);
+
+        cachedFilter = filter;
+        cachedCategory = category;
+        cachedSort = sort;
+        cachedVersion = version;
+        cachedOrder = order;
+        return order;
+    }
+
+    private long sortKey(TaskSort sort, int row) {
+        return sortKey(sort, priorities[row], dueDays[row], dueMinutes[row]) | row;
+    }
+
+    // The keys of TaskSort, packed: see the SORT_KEY expressions in DatabaseHelper
+    private static long sortKey(TaskSort sort, int priority, int day, int minute) {
+        long p = priority;
+        long key;
+        if (sort == TaskSort.PRIORITY) {
+            // Priority, due date, due time with untimed tasks first
+            key = ((p << DAY_BITS | day) << MINUTE_BITS) | (minute + 1);
+        } else {
+            // Due date, due time with untimed and undated tasks last, priority
+            long datedTime = day == NO_DAY || minute == NO_MINUTE ? LAST_MINUTE : minute;
+            key = (((long) day << MINUTE_BITS | datedTime) << PRIORITY_BITS) | p;
+        }
+        return key << ROW_BITS;
+    }
+
+    // First position in the order whose (key, id) comes after the anchor's, or at it when inclusive
+    private int positionAfter(long[] order, TaskSort sort, TodoItem anchor, boolean inclusive) {
+        long anchorKey = sortKey(sort, clampPriority(anchor.getPriority()),
+                dayOf(anchor.getDueDate()), minuteOf(anchor.getDueTime()));
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            long key = order[mid] & ~ROW_MASK;
+            int compare = key != anchorKey
+                    ? Long.compare(key, anchorKey)
+                    : Integer.compare(ids[(int) (order[mid] & ROW_MASK)], anchor.getId());
+            if (compare > 0 || (inclusive && compare == 0)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private int[] idsOf(long[] order, int from, int to) {
+        int[] result = new int[Math.max(0, to - from)];
+        for (int i = from; i < to; i++) {
+            result[i - from] = ids[(int) (order[i] & ROW_MASK)];
+        }
+        return result;
+    }
+
+    // ---- Keeping up with SQLite ----
+
+    private void sync() {
+        Set<Integer> changed;
+        boolean all;
+        synchronized (pendingLock) {
+            changed = pendingRows;
+            all = pendingAll;
+            pendingRows = new HashSet<>();
+            pendingAll = false;
+        }
+        if (!all && changed.isEmpty()) return;
+        try {
+            if (all || changed.size() > size / RELOAD_DIVISOR) {
+                reload();
+            } else {
+                refresh(changed);
+            }
+        } catch (RuntimeException e) {
+            // Whatever was half applied is re-read next time
+            synchronized (pendingLock) {
+                pendingAll = true;
+            }
+            throw e;
+        }
+        version++;
+    }
+
+    private void reload() {
+        Cursor cursor = databaseHelper.getReadableDatabase().rawQuery(DatabaseHelper.SQL_COLUMN_STORE_ROWS, null);
+        try {
+            int count = cursor.getCount();
+            if (count > MAX_ROWS) {
+                throw new IllegalStateException("Too many tasks for the column store: " + count);
+            }
+            ensureCapacity(count);
+            size = 0;
+            completed.clear();
+            while (cursor.moveToNext()) {
+                setRow(size++, cursor);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void refresh(Set<Integer> changed) {
+        int[] changedIds = new int[changed.size()];
+        int i = 0;
+        for (int id : changed) {
+            changedIds[i++] = id;
+        }
+        Set<Integer> found = new HashSet<>();
+        for (int from = 0; from < changedIds.length; from += DatabaseHelper.MAX_IN_LIST) {
+            int to = Math.min(changedIds.length, from + DatabaseHelper.MAX_IN_LIST);
+            Cursor cursor = databaseHelper.getReadableDatabase().rawQuery(
+                    DatabaseHelper.SQL_COLUMN_STORE_ROWS_BY_IDS + DatabaseHelper.inList(to - from),
+                    DatabaseHelper.idArgs(changedIds, from, to));
+            try {
+                while (cursor.moveToNext()) {
+                    int id = cursor.getInt(0);
+                    found.add(id);
+                    int row = Arrays.binarySearch(ids, 0, size, id);
+                    if (row < 0) {
+                        row = -row - 1;
+                        if (size == MAX_ROWS) {
+                            throw new IllegalStateException("Too many tasks for the column store");
+                        }
+                        insertRow(row);
+                    }
+                    setRow(row, cursor);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        // Rows reported but no longer there were deleted
+        for (int id : changedIds) {
+            if (found.contains(id)) continue;
+            int row = Arrays.binarySearch(ids, 0, size, id);
+            if (row >= 0) deleteRow(row);
+        }
+    }
+
+    // Columns in the order of DatabaseHelper.COLUMN_STORE_COLUMNS
+    private void setRow(int row, Cursor cursor) {
+        ids[row] = cursor.getInt(0);
+        priorities[row] = (byte) clampPriority(cursor.getInt(1));
+        dueDays[row] = dayOf(cursor.getString(2));
+        dueMinutes[row] = (short) minuteOf(cursor.getString(3));
+        dueAts[row] = cursor.isNull(4) ? TodoItem.NO_DUE : cursor.getLong(4);
+        completed.set(row, cursor.getInt(5) == 1);
+        // A NULL id reads as 0, NO_CATEGORY
+        categoryIds[row] = cursor.getInt(6);
+    }
+
+    private void insertRow(int row) {
+        ensureCapacity(size + 1);
+        int moved = size - row;
+        System.arraycopy(ids, row, ids, row + 1, moved);
+        System.arraycopy(priorities, row, priorities, row + 1, moved);
+        System.arraycopy(dueDays, row, dueDays, row + 1, moved);
+        System.arraycopy(dueMinutes, row, dueMinutes, row + 1, moved);
+        System.arraycopy(dueAts, row, dueAts, row + 1, moved);
+        System.arraycopy(categoryIds, row, categoryIds, row + 1, moved);
+        for (int i = size; i > row; i--) {
+            completed.set(i, completed.get(i - 1));
+        }
+        size++;
+    }
+
+    private void deleteRow(int row) {
+        int moved = size - row - 1;
+        System.arraycopy(ids, row + 1, ids, row, moved);
+        System.arraycopy(priorities, row + 1, priorities, row, moved);
+        System.arraycopy(dueDays, row + 1, dueDays, row, moved);
+        System.arraycopy(dueMinutes, row + 1, dueMinutes, row, moved);
+        System.arraycopy(dueAts, row + 1, dueAts, row, moved);
+        System.arraycopy(categoryIds, row + 1, categoryIds, row, moved);
+        for (int i = row; i < size - 1; i++) {
+            completed.set(i, completed.get(i + 1));
+        }
+        completed.clear(size - 1);
+        size--;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) return;
+        int grown = Math.max(capacity, Math.min(MAX_ROWS, ids.length + (ids.length >> 1)));
+        ids = Arrays.copyOf(ids, grown);
+        priorities = Arrays.copyOf(priorities, grown);
+        dueDays = Arrays.copyOf(dueDays, grown);
+        dueMinutes = Arrays.copyOf(dueMinutes, grown);
+        dueAts = Arrays.copyOf(dueAts, grown);
+        categoryIds = Arrays.copyOf(categoryIds, grown);
+    }
+
+    // Priorities are 1 to 3; clamping only keeps a stray value from spilling into the other keys
+    private static int clampPriority(int priority) {
+        return Math.max(0, Math.min(PRIORITY_MAX, priority));
+    }
+
+    // A day ordinal in the same order as "yyyy-MM-dd" strings, or NO_DAY
+    static int dayOf(@Nullable String dueDate) {
+        int packed = TaskSnapshot.packDate(dueDate, false);
+        if (packed == 0) return NO_DAY;
+        return (packed / 10000 * 13 + packed / 100 % 100) * 32 + packed % 100;
+    }
+
+    static int minuteOf(@Nullable String dueTime) {
+        int minute = TaskSnapshot.packTimeOfDay(dueTime, 0, false);
+        return minute >= 0 ? minute : NO_MINUTE;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.todolist.database;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * RFC 4180 records, one at a time. An empty unquoted field stands for null and {@code ""} for
+ * the empty string, so both survive a round trip. Line breaks inside quoted fields are kept.
+ */
+final class TaskCsv {
+
+    private TaskCsv() {
+    }
+
+    static final class RecordWriter {
+        private final Writer out;
+
+        RecordWriter(Writer out) {
+            this.out = out;
+        }
+
+        void write(List<String> fields) throws IOException {
+            for (int i = 0; i < fields.size(); i++) {
+                if (i > 0) out.write(',');
+                writeField(fields.get(i));
+            }
+            out.write("\r\n");
+        }
+
+        private void writeField(@Nullable String value) throws IOException {
+            if (value == null) return;
+            if (!value.isEmpty() && !needsQuotes(value)) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') out.write('"');
+                out.write(c);
+            }
+            out.write('"');
+        }
+
+        private static boolean needsQuotes(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == ',' || c == '"' || c == '\r' || c == '\n') return true;
+            }
+            // Leading or trailing spaces would be trimmed by spreadsheet tools otherwise
+            return value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' ';
+        }
+    }
+
+    static final class RecordReader {
+        private static final int END = -1;
+        private static final int NONE = -2;
+
+        private final Reader in;
+        private final StringBuilder field = new StringBuilder();
+        private int pending = NONE; // a character read ahead after a bare CR
+        private int line = 1;
+
+        RecordReader(Reader in) {
+            this.in = in;
+        }
+
+        /**
+         * Reads the next record into {@code fields}, replacing its contents.
+         * Returns false at the end of the input.
+         */
+        boolean read(List<String> fields) throws IOException {
+            fields.clear();
+            int c = next();
+            if (c == END) return false;
+            while (true) {
+                field.setLength(0);
+                boolean quoted = false;
+                if (c == '"') {
+                    quoted = true;
+                    int startLine = line;
+                    while (true) {
+                        c = next();
+                        if (c == END) {
+                            throw new IOException("Unterminated quoted field starting on line " + startLine);
+                        }
+                        if (c == '"') {
+                            c = next();
+                            if (c != '"') break;
+                        }
+                        if (c == '\n') line++;
+                        field.append((char) c);
+                    }
+                } else {
+                    while (c != ',' && c != '\r' && c != '\n' && c != END) {
+                        field.append((char) c);
+                        c = next();
+                    }
+                }
+                fields.add(quoted || field.length() > 0 ? field.toString() : null);
+
+                if (c == ',') {
+                    c = next();
+                    continue;
+                }
+                if (c == '\r') {
+                    // CRLF or a bare CR both end the record
+                    int after = next();
+                    if (after != '\n') pending = after;
+                    line++;
+                    return true;
+                }
+                if (c == '\n') {
+                    line++;
+                    return true;
+                }
+                if (c == END) return true;
+                throw new IOException("Unexpected character after quoted field on line " + line);
+            }
+        }
+
+        int getLine() {
+            return line;
+        }
+
+        private int next() throws IOException {
+            if (pending != NONE) {
+                int c = pending;
+                pending = NONE;
+                return c;
+            }
+            return in.read();
+        }
+    }
+}
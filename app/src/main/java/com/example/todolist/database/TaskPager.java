@@ -0,0 +1,251 @@
+package com.example.todolist.database;
+
+import androidx.annotation.Nullable;
+
+import com.example.todolist.models.TodoItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Keeps a sliding window of a filtered task list in memory, loaded page by page with keyset
+ * queries. Pages are fetched ahead of the visible range in either direction and pages that fall
+ * out of the window are dropped, so memory stays bounded however many tasks there are. Like
+ * {@link ObservableQuery}, the window is reloaded in place when todo items change, or once on
+ * activation if they changed while inactive. A row the caller takes out or puts back itself,
+ * e.g. on a swipe-delete and its undo, is changed in the window in place, and the write behind
+ * it does not reload anything. All methods must be called on the main thread.
+ */
+public final class TaskPager implements InvalidationTracker.Observer {
+
+    static final int PAGE_SIZE = 50;
+    static final int MAX_PAGES = 5;
+    // Start fetching the next page this many rows before the window edge comes into view
+    private static final int PREFETCH_DISTANCE = PAGE_SIZE / 2;
+
+    private final TodoRepository repository;
+    private final InvalidationTracker tracker;
+    private final String channel;
+    private final TodoRepository.Callback<List<TodoItem>> callback;
+
+    private String filter;
+    private String category;
+    private TaskSort sort;
+    private final List<TodoItem> window = new ArrayList<>();
+    private boolean hasMoreBefore;
+    private boolean hasMoreAfter;
+    // One load at a time; a newer refresh takes over from any page load in flight
+    private boolean loading;
+    private int generation;
+    private int firstVisible;
+    private int lastVisible;
+
+    // Rows whose next write the window already shows
+    private final Set<Integer> expectedRows = new HashSet<>();
+
+    private boolean active = true;
+    private boolean stale;
+    private boolean disposed;
+
+    TaskPager(TodoRepository repository, InvalidationTracker tracker, String channel,
+              TodoRepository.Callback<List<TodoItem>> callback, String... tables) {
+        this.repository = repository;
+        this.tracker = tracker;
+        this.channel = channel;
+        this.callback = callback;
+        tracker.addObserver(this, tables);
+    }
+
+    /** Switches to another filter or sort order and loads its first page. */
+    public void setFilter(String filter, String category, TaskSort sort) {
+        this.filter = filter;
+        this.category = category;
+        this.sort = sort;
+        window.clear();
+        hasMoreBefore = false;
+        hasMoreAfter = false;
+        firstVisible = 0;
+        lastVisible = 0;
+        invalidate();
+    }
+
+    /** Reports the adapter positions on screen; loads or drops pages around them. */
+    public void onVisibleRange(int first, int last) {
+        firstVisible = first;
+        lastVisible = last;
+        loadAroundVisibleRange();
+    }
+
+    /** Reloads the window now if active, otherwise as soon as it becomes active. */
+    public void invalidate() {
+        if (!active || disposed || filter == null) {
+            stale = true;
+            return;
+        }
+        stale = false;
+        // Whatever was expected is in the rows about to be read
+        expectedRows.clear();
+        final int loadGeneration = ++generation;
+        loading = true;
+
+        // Keep the user where they are: reload from the first row held, or from the top if that is shown
+        final TodoItem anchor = hasMoreBefore && !window.isEmpty() ? window.get(0) : null;
+        final int limit = Math.max(PAGE_SIZE, roundUpToPage(window.size()));
+        Callable<List<TodoItem>> page = repository.pageAfterQuery(filter, category, sort, anchor, true, limit);
+        repository.read(channel, page, load(loadGeneration, items -> {
+            window.clear();
+            window.addAll(items);
+            hasMoreAfter = items.size() == limit;
+            if (anchor != null && items.isEmpty()) {
+                // Everything from the anchor on is gone: start over from the top
+                hasMoreBefore = false;
+                invalidate();
+                return;
+            }
+            publish();
+        }));
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+        if (active && stale) {
+            invalidate();
+        } else if (!active && repository.cancelRead(channel)) {
+            loading = false;
+            stale = true;
+        }
+    }
+
+    public void dispose() {
+        disposed = true;
+        tracker.removeObserver(this);
+        repository.cancelRead(channel);
+    }
+
+    /**
+     * Takes a row out of the window now, ahead of the write that deletes it. A page still being
+     * read may predate the write, so then the write reloads the window as usual.
+     */
+    public void removeRow(int id) {
+        int index = indexOf(id);
+        if (index < 0) return;
+        window.remove(index);
+        if (!loading) expectedRows.add(id);
+        publish();
+    }
+
+    /**
+     * Puts a row back in front of the row with {@code beforeId}, or at the end of the list for
+     * -1, ahead of the write that restores it. If that place is not in the window the write
+     * reloads it as usual.
+     */
+    public void restoreRow(TodoItem row, int beforeId) {
+        if (indexOf(row.getId()) >= 0) return;
+        int index = beforeId == -1 && !hasMoreAfter ? window.size() : indexOf(beforeId);
+        if (index < 0) return;
+        window.add(index, row);
+        if (!loading) expectedRows.add(row.getId());
+        publish();
+    }
+
+    @Override
+    public void onInvalidated(Set<String> tables, @Nullable Set<Integer> rowIds) {
+        if (rowIds != null && !expectedRows.isEmpty() && expectedRows.containsAll(rowIds)) {
+            // Only writes the window already shows
+            expectedRows.removeAll(rowIds);
+            return;
+        }
+        invalidate();
+    }
+
+    private int indexOf(int id) {
+        for (int i = 0; i < window.size(); i++) {
+            if (window.get(i).getId() == id) return i;
+        }
+        return -1;
+    }
+
+    private void loadAroundVisibleRange() {
+        if (loading || !active || disposed || filter == null) return;
+        if (hasMoreAfter && lastVisible >= window.size() - PREFETCH_DISTANCE) {
+            loadAfter();
+        } else if (hasMoreBefore && firstVisible <= PREFETCH_DISTANCE) {
+            loadBefore();
+        }
+    }
+
+    private void loadAfter() {
+        final int loadGeneration = ++generation;
+        loading = true;
+        TodoItem last = window.get(window.size() - 1);
+        Callable<List<TodoItem>> page = repository.pageAfterQuery(filter, category, sort, last, false, PAGE_SIZE);
+        repository.read(channel, page, load(loadGeneration, items -> {
+            window.addAll(items);
+            hasMoreAfter = items.size() == PAGE_SIZE;
+            int excess = window.size() - MAX_PAGES * PAGE_SIZE;
+            if (excess > 0) {
+                // Drop the rows furthest above the viewport
+                window.subList(0, excess).clear();
+                hasMoreBefore = true;
+                firstVisible -= excess;
+                lastVisible -= excess;
+            }
+            publish();
+        }));
+    }
+
+    private void loadBefore() {
+        final int loadGeneration = ++generation;
+        loading = true;
+        TodoItem first = window.get(0);
+        Callable<List<TodoItem>> page = repository.pageBeforeQuery(filter, category, sort, first, PAGE_SIZE);
+        repository.read(channel, page, load(loadGeneration, items -> {
+            window.addAll(0, items);
+            hasMoreBefore = items.size() == PAGE_SIZE;
+            firstVisible += items.size();
+            lastVisible += items.size();
+            int excess = window.size() - MAX_PAGES * PAGE_SIZE;
+            if (excess > 0) {
+                // Drop the rows furthest below the viewport
+                window.subList(window.size() - excess, window.size()).clear();
+                hasMoreAfter = true;
+            }
+            publish();
+        }));
+    }
+
+    /** Hands {@code onLoaded} the rows unless a newer load took over; either way the next load may start. */
+    private TodoRepository.Callback<List<TodoItem>> load(int loadGeneration,
+                                                         TodoRepository.Callback<List<TodoItem>> onLoaded) {
+        return new TodoRepository.Callback<List<TodoItem>>() {
+            @Override
+            public void onResult(List<TodoItem> items) {
+                if (loadGeneration != generation) return;
+                loading = false;
+                onLoaded.onResult(items);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                if (loadGeneration != generation) return;
+                // Already logged; the window as shown stays, and is reloaded in full once active again
+                loading = false;
+                stale = true;
+            }
+        };
+    }
+
+    private void publish() {
+        callback.onResult(Collections.unmodifiableList(new ArrayList<>(window)));
+        // The window may still end inside the viewport, e.g. after the first page
+        loadAroundVisibleRange();
+    }
+
+    private static int roundUpToPage(int rows) {
+        return Math.min(MAX_PAGES, (rows + PAGE_SIZE - 1) / PAGE_SIZE) * PAGE_SIZE;
+    }
+}
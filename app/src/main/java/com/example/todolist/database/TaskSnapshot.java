@@ -0,0 +1,398 @@
+package com.example.todolist.database;
+
+import androidx.annotation.Nullable;
+
+import com.example.todolist.models.TodoItem;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A compact binary backup of todo_items. Writing goes through a FileChannel into a temporary
+ * file that replaces the target only once complete; restoring maps the file and replaces every
+ * task in one transaction, keeping ids so a reminder notification still showing opens its own
+ * task. The reminder queue re-arms itself from the restored table.
+ *
+ * <p>Layout (big-endian): a header of magic, version, record count and the category dictionary,
+ * then one record per task, each prefixed with its length so later versions can append fields.
+ * Dates in the app's own formats are packed into ints; anything else is kept as text.
+ */
+public final class TaskSnapshot {
+
+    static final int MAGIC = 0x54445331; // "TDS1"
+    static final short VERSION = 1;
+    private static final int COUNT_OFFSET = 8;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Record flags
+    private static final int FLAG_COMPLETED = 1;
+    private static final int FLAG_REMINDER = 1 << 1;
+    private static final int FLAG_TEXT_DATES = 1 << 2;
+
+    // Category references: 0 is null, 1 an inline string, n >= 2 dictionary entry n - 2
+    private static final int CATEGORY_NULL = 0;
+    private static final int CATEGORY_INLINE = 1;
+    private static final int CATEGORY_FIRST_ENTRY = 2;
+
+    private static final int NO_DATE = 0;
+    private static final int NO_TIME = -1;
+
+    private final DatabaseHelper databaseHelper;
+
+    public TaskSnapshot(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    /** Writes every task to {@code file}, replacing it only once the snapshot is complete. */
+    public int write(File file) throws IOException {
+        File partial = new File(file.getPath() + ".partial");
+        int count = 0;
+        try (RandomAccessFile out = new RandomAccessFile(partial, "rw")) {
+            out.setLength(0);
+            FileChannel channel = out.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            ByteBuffer record = ByteBuffer.allocate(BUFFER_SIZE);
+
+            // Categories are written once up front; any that appear while the snapshot runs go inline
+            List<String> categories = databaseHelper.getAllCategories();
+            categories.remove(null);
+            Map<String, Integer> dictionary = new HashMap<>();
+            buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putInt(0);
+            putVarint(buffer, categories.size());
+            for (String category : categories) {
+                dictionary.put(category, dictionary.size());
+                byte[] bytes = category.getBytes(StandardCharsets.UTF_8);
+                drainIfNeeded(channel, buffer, 5);
+                putVarint(buffer, bytes.length + 1);
+                put(channel, buffer, ByteBuffer.wrap(bytes));
+            }
+
+            int lastId = 0;
+            List<TodoItem> batch;
+            do {
+                batch = databaseHelper.getTodoItemsAfterId(lastId, TaskTransfer.BATCH_SIZE);
+                for (TodoItem item : batch) {
+                    record = encodeInto(record, item, dictionary);
+                    drainIfNeeded(channel, buffer, 4);
+                    buffer.putInt(record.remaining());
+                    put(channel, buffer, record);
+                    lastId = item.getId();
+                }
+                count += batch.size();
+            } while (batch.size() == TaskTransfer.BATCH_SIZE);
+
+            buffer.flip();
+            writeFully(channel, buffer);
+            ByteBuffer header = ByteBuffer.allocate(4).putInt(0, count);
+            channel.write(header, COUNT_OFFSET);
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            partial.delete();
+            throw e;
+        }
+        if (!partial.renameTo(file)) {
+            partial.delete();
+            throw new IOException("Could not replace " + file);
+        }
+        return count;
+    }
+
+    /** Replaces every task with the ones in {@code file}; returns how many were restored. */
+    public int restore(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return databaseHelper.replaceAllTodoItems(new RecordIterator(map));
+        } catch (BufferUnderflowException | IllegalArgumentException | IllegalStateException
+                | IndexOutOfBoundsException e) {
+            // Truncated or corrupt files surface as decoding errors; the transaction has rolled back
+            throw new IOException("Unreadable snapshot " + file + ": " + e, e);
+        }
+    }
+
+    /** Decodes records lazily, so the restore inserts straight from the mapped file. */
+    static final class RecordIterator implements Iterator<TodoItem> {
+        private final ByteBuffer in;
+        private final List<String> categories;
+        private final int total;
+        private int count;
+
+        RecordIterator(ByteBuffer in) throws IOException {
+            this.in = in;
+            if (in.remaining() < 12 || in.getInt() != MAGIC) {
+                throw new IOException("Not a task snapshot");
+            }
+            short version = in.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            in.getShort();
+            total = in.getInt();
+            int categoryCount = getVarint(in);
+            categories = new ArrayList<>(categoryCount);
+            for (int i = 0; i < categoryCount; i++) {
+                categories.add(getString(in));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return count < total;
+        }
+
+        @Override
+        public TodoItem next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            int length = in.getInt();
+            int end = in.position() + length;
+            TodoItem item = decode(in, categories);
+            // Skips any fields a newer version appended
+            in.position(end);
+            count++;
+            return item;
+        }
+    }
+
+    // ---- Record codec ----
+
+    /** Encodes {@code item} into {@code record}, growing it if needed; returns it flipped for reading. */
+    static ByteBuffer encodeInto(ByteBuffer record, TodoItem item, Map<String, Integer> dictionary) {
+        while (true) {
+            record.clear();
+            try {
+                encode(record, item, dictionary);
+                record.flip();
+                return record;
+            } catch (BufferOverflowException e) {
+                record = ByteBuffer.allocate(record.capacity() * 2);
+            }
+        }
+    }
+
+    private static void encode(ByteBuffer out, TodoItem item, Map<String, Integer> dictionary) {
+        int createdDate = packDate(item.getCreatedAt(), true);
+        int createdSeconds = packTimeOfDay(item.getCreatedAt(), 11, true);
+        int dueDate = packDate(item.getDueDate(), false);
+        int dueMinutes = packTimeOfDay(item.getDueTime(), 0, false);
+        boolean textDates = (item.getCreatedAt() != null && (createdDate == NO_DATE || createdSeconds == NO_TIME))
+                || (item.getDueDate() != null && dueDate == NO_DATE)
+                || (item.getDueTime() != null && dueMinutes == NO_TIME);
+
+        int flags = (item.isCompleted() ? FLAG_COMPLETED : 0)
+                | (item.hasReminder() ? FLAG_REMINDER : 0)
+                | (textDates ? FLAG_TEXT_DATES : 0);
+        out.putInt(item.getId());
+        out.put((byte) flags);
+        out.put((byte) item.getPriority());
+
+        String category = item.getCategory();
+        Integer entry = category != null ? dictionary.get(category) : null;
+        if (category == null) {
+            putVarint(out, CATEGORY_NULL);
+        } else if (entry == null) {
+            putVarint(out, CATEGORY_INLINE);
+            putString(out, category);
+        } else {
+            putVarint(out, CATEGORY_FIRST_ENTRY + entry);
+        }
+
+        putString(out, item.getTask());
+        putString(out, item.getDescription());
+        if (textDates) {
+            putString(out, item.getCreatedAt());
+            putString(out, item.getDueDate());
+            putString(out, item.getDueTime());
+        } else {
+            out.putInt(createdDate);
+            out.putInt(createdSeconds);
+            out.putInt(dueDate);
+            out.putShort((short) dueMinutes);
+        }
+        out.putLong(item.getCreatedAtMillis());
+        out.putLong(item.getAlarmTime());
+    }
+
+    static TodoItem decode(ByteBuffer in, List<String> categories) {
+        TodoItem item = TodoItem.forStoredRow(in.getInt());
+        int flags = in.get();
+        item.setCompleted((flags & FLAG_COMPLETED) != 0);
+        item.setHasReminder((flags & FLAG_REMINDER) != 0);
+        item.setPriority(in.get());
+
+        int category = getVarint(in);
+        if (category == CATEGORY_NULL) {
+            item.setCategory(null);
+        } else if (category == CATEGORY_INLINE) {
+            item.setCategory(getString(in));
+        } else {
+            item.setCategory(categories.get(category - CATEGORY_FIRST_ENTRY));
+        }
+
+        item.setTask(getString(in));
+        item.setDescription(getString(in));
+        String dueDate;
+        String dueTime;
+        if ((flags & FLAG_TEXT_DATES) != 0) {
+            item.setCreatedAt(getString(in));
+            dueDate = getString(in);
+            dueTime = getString(in);
+        } else {
+            int createdDate = in.getInt();
+            int createdSeconds = in.getInt();
+            if (createdDate != NO_DATE) {
+                item.setCreatedAt(unpackDate(createdDate) + " " + unpackTimeOfDay(createdSeconds, true));
+            }
+            int packedDue = in.getInt();
+            int dueMinutes = in.getShort();
+            dueDate = packedDue != NO_DATE ? unpackDate(packedDue) : null;
+            dueTime = dueMinutes != NO_TIME ? unpackTimeOfDay(dueMinutes, false) : null;
+        }
+        item.setDue(dueDate, dueTime, TodoItem.dueAtOf(dueDate, dueTime));
+        item.setCreatedAtMillis(in.getLong());
+        item.setAlarmTime(in.getLong());
+        return item;
+    }
+
+    // "yyyy-MM-dd" at the start of text as yyyymmdd, or NO_DATE unless it is exactly that format
+    static int packDate(@Nullable String text, boolean timestamp) {
+        if (text == null || text.length() != (timestamp ? 19 : 10)) return NO_DATE;
+        if (text.charAt(4) != '-' || text.charAt(7) != '-') return NO_DATE;
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31) return NO_DATE;
+        return year * 10000 + month * 100 + day;
+    }
+
+    // "HH:mm" (minutes) or "HH:mm:ss" (seconds) starting at offset, or NO_TIME
+    static int packTimeOfDay(@Nullable String text, int offset, boolean withSeconds) {
+        if (text == null || text.length() != offset + (withSeconds ? 8 : 5)) return NO_TIME;
+        if (withSeconds && text.charAt(offset - 1) != ' ') return NO_TIME;
+        if (text.charAt(offset + 2) != ':' || (withSeconds && text.charAt(offset + 5) != ':')) return NO_TIME;
+        int hour = digits(text, offset, 2);
+        int minute = digits(text, offset + 3, 2);
+        int second = withSeconds ? digits(text, offset + 6, 2) : 0;
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) return NO_TIME;
+        int minutes = hour * 60 + minute;
+        return withSeconds ? minutes * 60 + second : minutes;
+    }
+
+    static String unpackDate(int packed) {
+        char[] text = new char[10];
+        write(text, 0, packed / 10000, 4);
+        text[4] = '-';
+        write(text, 5, packed / 100 % 100, 2);
+        text[7] = '-';
+        write(text, 8, packed % 100, 2);
+        return new String(text);
+    }
+
+    static String unpackTimeOfDay(int packed, boolean withSeconds) {
+        int minutes = withSeconds ? packed / 60 : packed;
+        char[] text = new char[withSeconds ? 8 : 5];
+        write(text, 0, minutes / 60, 2);
+        text[2] = ':';
+        write(text, 3, minutes % 60, 2);
+        if (withSeconds) {
+            text[5] = ':';
+            write(text, 6, packed % 60, 2);
+        }
+        return new String(text);
+    }
+
+    private static int digits(String text, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static void write(char[] text, int offset, int value, int count) {
+        for (int i = offset + count - 1; i >= offset; i--) {
+            text[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    // Strings are a varint of byte length + 1 (0 for null) and their UTF-8 bytes
+    private static void putString(ByteBuffer out, @Nullable String value) {
+        if (value == null) {
+            putVarint(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putVarint(out, bytes.length + 1);
+        out.put(bytes);
+    }
+
+    @Nullable
+    private static String getString(ByteBuffer in) {
+        int length = getVarint(in) - 1;
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    // ---- Channel plumbing ----
+
+    // Makes room for {@code bytes} in the staging buffer, writing out what it holds if needed
+    private static void drainIfNeeded(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            buffer.flip();
+            writeFully(channel, buffer);
+            buffer.clear();
+        }
+    }
+
+    // Stages {@code data}, or writes it straight through, after what is staged, when it is larger
+    // than the staging buffer
+    private static void put(FileChannel channel, ByteBuffer buffer, ByteBuffer data) throws IOException {
+        drainIfNeeded(channel, buffer, data.remaining());
+        if (data.remaining() <= buffer.remaining()) {
+            buffer.put(data);
+        } else {
+            writeFully(channel, data);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.todolist.database;
+
+import com.example.todolist.models.TodoItem;
+
+/**
+ * Sort modes of the task list. Each is an ORDER BY over SQL key expressions, with the row id as
+ * the final tiebreak, and has a list-order index per filter, so lists come back sorted from
+ * SQLite and can be paged by keyset. Keys follow the rules the list has always used:
+ * undated tasks after dated ones, and names compared case-insensitively.
+ */
+public enum TaskSort {
+
+    /** Priority, then due date, then due time; untimed tasks first within a day. */
+    PRIORITY(DatabaseHelper.SORT_KEY_PRIORITY, DatabaseHelper.SORT_KEY_DUE_DATE, DatabaseHelper.SORT_KEY_DUE_TIME) {
+        @Override
+        String[] keyValues(TodoItem item) {
+            return new String[]{String.valueOf(item.getPriority()), dueDateKey(item), dueTimeKey(item)};
+        }
+    },
+
+    /** Due date, then due time with untimed tasks after timed ones, then priority. */
+    DATE(DatabaseHelper.SORT_KEY_DUE_DATE, DatabaseHelper.SORT_KEY_DATED_TIME, DatabaseHelper.SORT_KEY_PRIORITY) {
+        @Override
+        String[] keyValues(TodoItem item) {
+            String datedTime = item.hasDueDate() && item.hasDueTime() ? item.getDueTime() : DatabaseHelper.SORT_LAST;
+            return new String[]{dueDateKey(item), datedTime, String.valueOf(item.getPriority())};
+        }
+    },
+
+    /** Task name, ignoring case. */
+    NAME(DatabaseHelper.SORT_KEY_NAME) {
+        @Override
+        String[] keyValues(TodoItem item) {
+            return new String[]{item.getTask() != null ? item.getTask() : ""};
+        }
+    };
+
+    // SQL expressions compared in order; the id comes after them
+    final String[] keys;
+
+    TaskSort(String... keys) {
+        this.keys = keys;
+    }
+
+    /** The values of {@link #keys} for an item, as bound into a keyset predicate. */
+    abstract String[] keyValues(TodoItem item);
+
+    private static String dueDateKey(TodoItem item) {
+        return item.hasDueDate() ? item.getDueDate() : DatabaseHelper.SORT_LAST;
+    }
+
+    private static String dueTimeKey(TodoItem item) {
+        return item.getDueTime() != null ? item.getDueTime() : "";
+    }
+}
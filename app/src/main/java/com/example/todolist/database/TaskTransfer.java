@@ -0,0 +1,400 @@
+package com.example.todolist.database;
+
+import android.os.CancellationSignal;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.JsonWriter;
+
+import androidx.annotation.Nullable;
+
+import com.example.todolist.models.TodoItem;
+import com.example.todolist.utils.TimeService;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streams tasks to and from JSON or CSV. Export reads the table in id-ordered batches and import
+ * inserts in chunked transactions, so the heap holds one batch whatever the size of the list.
+ * Both run on the calling thread; use {@link TodoRepository#exportTasks} and
+ * {@link TodoRepository#importTasks} from the UI.
+ *
+ * <p>Ids, alarm times and derived columns are not transferred. Imported tasks keep their
+ * reminder flag, but their alarms are not scheduled here.
+ */
+public final class TaskTransfer {
+
+    public enum Format {
+        JSON("application/json"),
+        CSV("text/csv");
+
+        public final String mimeType;
+
+        Format(String mimeType) {
+            this.mimeType = mimeType;
+        }
+    }
+
+    public interface ProgressListener {
+        /**
+         * Called after each batch, on the transfer thread.
+         *
+         * @param done  tasks written or imported so far
+         * @param total tasks to export, or -1 for an import, whose size is not known up front
+         */
+        void onProgress(int done, int total);
+    }
+
+    /** What a transfer did; a cancelled or failed one keeps whatever it finished before stopping. */
+    public static final class Result {
+        private final int count;
+        private final boolean cancelled;
+        @Nullable private final Exception error;
+
+        Result(int count, boolean cancelled) {
+            this(count, cancelled, null);
+        }
+
+        Result(int count, boolean cancelled, @Nullable Exception error) {
+            this.count = count;
+            this.cancelled = cancelled;
+            this.error = error;
+        }
+
+        public int getCount() { return count; }
+        public boolean isCancelled() { return cancelled; }
+        @Nullable public Exception getError() { return error; }
+    }
+
+    static final int BATCH_SIZE = 1000;
+    private static final int FORMAT_VERSION = 1;
+    private static final String JSON_VERSION = "version";
+    private static final String JSON_TASKS = "tasks";
+
+    // The transferred fields, named after their columns; also the CSV header
+    private static final List<String> FIELDS = Arrays.asList(
+            DatabaseHelper.COLUMN_TASK, DatabaseHelper.COLUMN_COMPLETED, DatabaseHelper.COLUMN_CREATED_AT,
+            DatabaseHelper.COLUMN_DUE_DATE, DatabaseHelper.COLUMN_DUE_TIME, DatabaseHelper.COLUMN_CATEGORY,
+            DatabaseHelper.COLUMN_PRIORITY, DatabaseHelper.COLUMN_DESCRIPTION, DatabaseHelper.COLUMN_HAS_REMINDER);
+    private static final int TASK = 0;
+    private static final int COMPLETED = 1;
+    private static final int CREATED_AT = 2;
+    private static final int DUE_DATE = 3;
+    private static final int DUE_TIME = 4;
+    private static final int CATEGORY = 5;
+    private static final int PRIORITY = 6;
+    private static final int DESCRIPTION = 7;
+    private static final int HAS_REMINDER = 8;
+
+    private final DatabaseHelper databaseHelper;
+
+    public TaskTransfer(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    // ---- Export ----
+
+    /** Writes every task to {@code out}, which is flushed but left open. */
+    public Result exportTasks(OutputStream out, Format format, @Nullable ProgressListener listener,
+                              @Nullable CancellationSignal signal) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        RowSink sink = format == Format.JSON ? new JsonSink(writer) : new CsvSink(writer);
+        int total = databaseHelper.getTotalCount();
+        int done = 0;
+        boolean cancelled = false;
+
+        sink.begin();
+        List<String> fields = new ArrayList<>(FIELDS.size());
+        int lastId = 0;
+        List<TodoItem> batch;
+        do {
+            if (signal != null && signal.isCanceled()) {
+                cancelled = true;
+                break;
+            }
+            batch = databaseHelper.getTodoItemsAfterId(lastId, BATCH_SIZE);
+            for (TodoItem item : batch) {
+                toFields(item, fields);
+                sink.write(fields);
+                lastId = item.getId();
+            }
+            done += batch.size();
+            if (listener != null) listener.onProgress(done, total);
+        } while (batch.size() == BATCH_SIZE);
+        sink.end();
+        writer.flush();
+        return new Result(done, cancelled);
+    }
+
+    private static void toFields(TodoItem item, List<String> fields) {
+        fields.clear();
+        fields.add(item.getTask());
+        fields.add(item.isCompleted() ? "1" : "0");
+        fields.add(item.getCreatedAt());
+        fields.add(item.getDueDate());
+        fields.add(item.getDueTime());
+        fields.add(item.getCategory());
+        fields.add(String.valueOf(item.getPriority()));
+        fields.add(item.getDescription());
+        fields.add(item.hasReminder() ? "1" : "0");
+    }
+
+    private interface RowSink {
+        void begin() throws IOException;
+        void write(List<String> fields) throws IOException;
+        void end() throws IOException;
+    }
+
+    private static final class CsvSink implements RowSink {
+        private final TaskCsv.RecordWriter csv;
+
+        CsvSink(Writer writer) {
+            csv = new TaskCsv.RecordWriter(writer);
+        }
+
+        @Override
+        public void begin() throws IOException {
+            csv.write(FIELDS);
+        }
+
+        @Override
+        public void write(List<String> fields) throws IOException {
+            csv.write(fields);
+        }
+
+        @Override
+        public void end() {
+        }
+    }
+
+    private static final class JsonSink implements RowSink {
+        private final JsonWriter json;
+
+        JsonSink(Writer writer) {
+            json = new JsonWriter(writer);
+        }
+
+        @Override
+        public void begin() throws IOException {
+            json.beginObject();
+            json.name(JSON_VERSION).value(FORMAT_VERSION);
+            json.name(JSON_TASKS).beginArray();
+        }
+
+        @Override
+        public void write(List<String> fields) throws IOException {
+            json.beginObject();
+            for (int i = 0; i < FIELDS.size(); i++) {
+                String value = fields.get(i);
+                if (value == null) continue;
+                json.name(FIELDS.get(i));
+                if (i == COMPLETED || i == HAS_REMINDER) {
+                    json.value("1".equals(value));
+                } else if (i == PRIORITY) {
+                    json.value(Long.parseLong(value));
+                } else {
+                    json.value(value);
+                }
+            }
+            json.endObject();
+        }
+
+        @Override
+        public void end() throws IOException {
+            json.endArray();
+            json.endObject();
+            json.flush();
+        }
+    }
+
+    // ---- Import ----
+
+    /**
+     * Adds the tasks in {@code in}, {@link #BATCH_SIZE} per transaction. Rows without a task
+     * title are skipped. On a parse error or a cancel the chunks already inserted stay.
+     */
+    public Result importTasks(InputStream in, Format format, @Nullable ProgressListener listener,
+                              @Nullable CancellationSignal signal) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        RowSource source = format == Format.JSON ? new JsonSource(reader) : new CsvSource(reader);
+        List<TodoItem> chunk = new ArrayList<>(BATCH_SIZE);
+        List<String> fields = new ArrayList<>(FIELDS.size());
+        // Tasks without a usable creation time are stamped with the time of the import
+        long importedAt = TimeService.get().now();
+        String importedAtText = TimeService.get().formatTimestamp(importedAt);
+        int done = 0;
+        boolean cancelled = false;
+
+        while (source.read(fields)) {
+            if (signal != null && signal.isCanceled()) {
+                cancelled = true;
+                break;
+            }
+            TodoItem item = toItem(fields, importedAt, importedAtText);
+            if (item == null) continue;
+            chunk.add(item);
+            if (chunk.size() == BATCH_SIZE) {
+                done += insert(chunk, listener, done);
+            }
+        }
+        if (!cancelled && !chunk.isEmpty()) {
+            done += insert(chunk, listener, done);
+        }
+        return new Result(done, cancelled);
+    }
+
+    private int insert(List<TodoItem> chunk, @Nullable ProgressListener listener, int doneBefore) {
+        int inserted = databaseHelper.addTodoItems(chunk).size();
+        chunk.clear();
+        if (listener != null) listener.onProgress(doneBefore + inserted, -1);
+        return inserted;
+    }
+
+    @Nullable
+    private static TodoItem toItem(List<String> fields, long importedAt, String importedAtText) {
+        String task = fields.get(TASK);
+        if (task == null || task.trim().isEmpty()) return null;
+
+        // Not new TodoItem(task), which would format a creation time for every row; the id comes from the insert
+        TodoItem item = TodoItem.forStoredRow(0);
+        item.setTask(task);
+        item.setCompleted(isTrue(fields.get(COMPLETED)));
+        String createdAt = fields.get(CREATED_AT);
+        long createdAtMillis = TodoItem.createdAtMillisOf(createdAt);
+        if (createdAtMillis != 0) {
+            item.setCreatedAt(createdAt);
+            item.setCreatedAtMillis(createdAtMillis);
+        } else {
+            item.setCreatedAt(importedAtText);
+            item.setCreatedAtMillis(importedAt);
+        }
+        String dueDate = fields.get(DUE_DATE);
+        String dueTime = fields.get(DUE_TIME);
+        item.setDue(dueDate, dueTime, TodoItem.dueAtOf(dueDate, dueTime));
+        if (fields.get(CATEGORY) != null) {
+            item.setCategory(fields.get(CATEGORY));
+        }
+        item.setPriority(priorityOf(fields.get(PRIORITY)));
+        item.setDescription(fields.get(DESCRIPTION));
+        item.setHasReminder(isTrue(fields.get(HAS_REMINDER)));
+        return item;
+    }
+
+    private static boolean isTrue(@Nullable String value) {
+        return "1".equals(value) || "true".equalsIgnoreCase(value);
+    }
+
+    // 1 to 3, as the priority spinner offers; anything else falls back to the default
+    private static int priorityOf(@Nullable String value) {
+        if (value == null) return 2;
+        try {
+            int priority = Integer.parseInt(value.trim());
+            return priority >= 1 && priority <= 3 ? priority : 2;
+        } catch (NumberFormatException e) {
+            return 2;
+        }
+    }
+
+    private interface RowSource {
+        /** Fills {@code fields} in FIELDS order, null where absent; false at the end. */
+        boolean read(List<String> fields) throws IOException;
+    }
+
+    private static final class CsvSource implements RowSource {
+        private final TaskCsv.RecordReader csv;
+        private final List<String> record = new ArrayList<>();
+        private int[] positions;
+
+        CsvSource(BufferedReader reader) {
+            csv = new TaskCsv.RecordReader(reader);
+        }
+
+        @Override
+        public boolean read(List<String> fields) throws IOException {
+            if (positions == null) {
+                if (!csv.read(record)) return false;
+                // Columns are matched by header name, so files from other tools can reorder them
+                positions = new int[FIELDS.size()];
+                for (int i = 0; i < positions.length; i++) {
+                    positions[i] = record.indexOf(FIELDS.get(i));
+                }
+                if (positions[TASK] < 0) {
+                    throw new IOException("CSV header has no " + FIELDS.get(TASK) + " column");
+                }
+            }
+            while (csv.read(record)) {
+                if (record.size() == 1 && record.get(0) == null) continue; // blank line
+                fields.clear();
+                for (int position : positions) {
+                    fields.add(position >= 0 && position < record.size() ? record.get(position) : null);
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class JsonSource implements RowSource {
+        private final JsonReader json;
+        private boolean started;
+
+        JsonSource(BufferedReader reader) {
+            json = new JsonReader(reader);
+        }
+
+        @Override
+        public boolean read(List<String> fields) throws IOException {
+            if (!started) {
+                started = true;
+                openTaskArray();
+            }
+            if (!json.hasNext()) return false;
+
+            fields.clear();
+            for (int i = 0; i < FIELDS.size(); i++) {
+                fields.add(null);
+            }
+            json.beginObject();
+            while (json.hasNext()) {
+                int field = FIELDS.indexOf(json.nextName());
+                if (field < 0 || json.peek() == JsonToken.NULL) {
+                    json.skipValue();
+                } else if (json.peek() == JsonToken.BOOLEAN) {
+                    fields.set(field, json.nextBoolean() ? "1" : "0");
+                } else {
+                    // nextString() also reads numbers, as their text
+                    fields.set(field, json.nextString());
+                }
+            }
+            json.endObject();
+            return true;
+        }
+
+        // Accepts our {"version":1,"tasks":[...]} export as well as a bare array of tasks
+        private void openTaskArray() throws IOException {
+            if (json.peek() == JsonToken.BEGIN_ARRAY) {
+                json.beginArray();
+                return;
+            }
+            json.beginObject();
+            while (json.hasNext()) {
+                if (JSON_TASKS.equals(json.nextName())) {
+                    json.beginArray();
+                    return;
+                }
+                json.skipValue();
+            }
+            throw new IOException("JSON has no " + JSON_TASKS + " array");
+        }
+    }
+}
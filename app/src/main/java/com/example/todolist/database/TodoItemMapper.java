@@ -0,0 +1,98 @@
+package com.example.todolist.database;
+
+import android.database.Cursor;
+
+import com.example.todolist.models.TodoItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns todo_items rows into TodoItems. Column positions are looked up once per cursor rather
+ * than once per row and field; columns the query did not select are left at the TodoItem
+ * defaults, so narrow projections map too. Category ids are turned back into names through
+ * the in-memory dictionary.
+ */
+final class TodoItemMapper {
+
+    private static final int ABSENT = -1;
+
+    private final int id;
+    private final int task;
+    private final int completed;
+    private final int createdAt;
+    private final int createdAtMillis;
+    private final int dueDate;
+    private final int dueTime;
+    private final int dueAt;
+    private final int categoryId;
+    private final int priority;
+    private final int description;
+    private final int hasReminder;
+    private final int alarmTime;
+
+    private final CategoryDictionary categories;
+
+    TodoItemMapper(Cursor cursor, CategoryDictionary categories) {
+        this.categories = categories;
+        id = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ID);
+        task = cursor.getColumnIndex(DatabaseHelper.COLUMN_TASK);
+        completed = cursor.getColumnIndex(DatabaseHelper.COLUMN_COMPLETED);
+        createdAt = cursor.getColumnIndex(DatabaseHelper.COLUMN_CREATED_AT);
+        createdAtMillis = cursor.getColumnIndex(DatabaseHelper.COLUMN_CREATED_AT_MS);
+        dueDate = cursor.getColumnIndex(DatabaseHelper.COLUMN_DUE_DATE);
+        dueTime = cursor.getColumnIndex(DatabaseHelper.COLUMN_DUE_TIME);
+        dueAt = cursor.getColumnIndex(DatabaseHelper.COLUMN_DUE_AT);
+        categoryId = cursor.getColumnIndex(DatabaseHelper.COLUMN_CATEGORY_ID);
+        priority = cursor.getColumnIndex(DatabaseHelper.COLUMN_PRIORITY);
+        description = cursor.getColumnIndex(DatabaseHelper.COLUMN_DESCRIPTION);
+        hasReminder = cursor.getColumnIndex(DatabaseHelper.COLUMN_HAS_REMINDER);
+        alarmTime = cursor.getColumnIndex(DatabaseHelper.COLUMN_ALARM_TIME);
+    }
+
+    /** Maps every remaining row and closes the cursor. */
+    static List<TodoItem> mapAll(Cursor cursor, CategoryDictionary categories) {
+        try {
+            List<TodoItem> items = new ArrayList<>(cursor.getCount());
+            TodoItemMapper mapper = new TodoItemMapper(cursor, categories);
+            while (cursor.moveToNext()) {
+                items.add(mapper.map(cursor));
+            }
+            return items;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /** Maps the row the cursor is on. */
+    TodoItem map(Cursor cursor) {
+        TodoItem item = TodoItem.forStoredRow(cursor.getInt(id));
+        if (task != ABSENT) item.setTask(cursor.getString(task));
+        if (completed != ABSENT) item.setCompleted(cursor.getInt(completed) == 1);
+        if (createdAt != ABSENT) item.setCreatedAt(cursor.getString(createdAt));
+        if (createdAtMillis != ABSENT) item.setCreatedAtMillis(cursor.getLong(createdAtMillis));
+
+        // Due date and time might be null; due_at is their stored instant, so nothing is parsed
+        // unless the query left it out
+        String date = dueDate != ABSENT ? cursor.getString(dueDate) : null;
+        String time = dueTime != ABSENT ? cursor.getString(dueTime) : null;
+        if (dueAt != ABSENT) {
+            item.setDue(date, time, cursor.getLong(dueAt));
+        } else if (date != null) {
+            item.setDue(date, time, TodoItem.dueAtOf(date, time));
+        }
+
+        if (categoryId != ABSENT) {
+            // A NULL id reads as 0, NO_CATEGORY
+            int id = cursor.getInt(categoryId);
+            item.setCategory(categories.nameOf(id));
+            item.setCategoryId(id);
+        }
+        if (priority != ABSENT) item.setPriority(cursor.getInt(priority));
+        if (description != ABSENT) item.setDescription(cursor.getString(description));
+        // A NULL reminder flag or alarm time reads as 0, their column default
+        if (hasReminder != ABSENT) item.setHasReminder(cursor.getInt(hasReminder) == 1);
+        if (alarmTime != ABSENT) item.setAlarmTime(cursor.getLong(alarmTime));
+        return item;
+    }
+}
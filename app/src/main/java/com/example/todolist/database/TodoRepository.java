@@ -0,0 +1,618 @@
+package com.example.todolist.database;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.example.todolist.models.TaskStats;
+import com.example.todolist.models.TodoItem;
+import com.example.todolist.utils.TimeService;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous front for {@link DatabaseHelper}. Reads run on a small bounded pool, writes
+ * are serialised on a single writer thread, and every callback is delivered on the main thread.
+ * Reads submitted on the same channel supersede each other: only the latest one is delivered,
+ * and a superseded read leaves the queue or, if already running, has its query cancelled.
+ * Screens that keep showing data should {@code observe...} it rather than reload after writes.
+ */
+public class TodoRepository {
+
+    private static final String TAG = "TodoRepository";
+
+    private static final int READ_THREADS = 3;
+    private static final int READ_QUEUE_CAPACITY = 64;
+
+    // Reads that replace each other, e.g. a filter change while the previous list load is running
+    private static final String CHANNEL_LIST = "list";
+    private static final String CHANNEL_STATS = "stats";
+    private static final String CHANNEL_OBSERVED = "observed-";
+    private static final String CHANNEL_PAGED = "paged-";
+
+    // How long a deleted task can still be brought back with undoDeleteTodoItem()
+    public static final int UNDO_WINDOW_MS = 5_000;
+    // Tombstones outlive the undo window by a margin, then are purged this many per transaction
+    private static final long PURGE_DELAY_MS = UNDO_WINDOW_MS + 5_000;
+    private static final int PURGE_BATCH = 200;
+    private static final String COMPLETION_JOURNAL = "completion_journal";
+
+    public interface Callback<T> {
+        void onResult(T result);
+
+        /** The read or write failed, already logged, and {@link #onResult} will not be called. */
+        default void onError(Exception error) {
+        }
+    }
+
+    private static volatile TodoRepository instance;
+
+    private final DatabaseHelper databaseHelper;
+    private final ThreadPoolExecutor readExecutor;
+    private final ExecutorService writeExecutor;
+    // Imports and exports are long; they get their own thread so ordinary writes are not queued behind them
+    private final ExecutorService transferExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, ReadTask<?>> latestReads = new HashMap<>();
+    private final AtomicInteger observedQueries = new AtomicInteger();
+    // Answers list queries from memory when enabled; null otherwise
+    private volatile TaskColumnStore columnStore;
+    private final QueryCache queryCache;
+    // Checkbox toggles not yet written; main thread only
+    private final CompletionWriteBehind completionWrites;
+    private final Runnable purgeTask = this::purgeTombstones;
+    private final ObservableQuery.Source observedSource = new ObservableQuery.Source() {
+        @Override
+        public <R> void read(@Nullable String channel, Callable<R> query, Callback<R> callback) {
+            TodoRepository.this.read(channel, query, callback);
+        }
+
+        @Override
+        public boolean cancelRead(String channel) {
+            return TodoRepository.this.cancelRead(channel);
+        }
+
+        @Override
+        public Callable<List<TodoItem>> rowsQuery(int[] ids) {
+            return () -> databaseHelper.getTodoItemsByIds(ids);
+        }
+    };
+
+    public static TodoRepository getInstance(Context context) {
+        TodoRepository result = instance;
+        if (result == null) {
+            synchronized (TodoRepository.class) {
+                result = instance;
+                if (result == null) {
+                    Context appContext = context.getApplicationContext();
+                    result = new TodoRepository(appContext, DatabaseHelper.getInstance(appContext));
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private TodoRepository(Context context, DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+        this.readExecutor = new ThreadPoolExecutor(READ_THREADS, READ_THREADS,
+                30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(READ_QUEUE_CAPACITY),
+                new NamedThreadFactory("todo-db-read"),
+                (task, executor) -> {
+                    Log.w(TAG, "Read queue full, dropping query");
+                    if (task instanceof ReadTask) {
+                        ((ReadTask<?>) task).reject();
+                    }
+                });
+        this.readExecutor.allowCoreThreadTimeOut(true);
+        this.writeExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("todo-db-write"));
+        this.transferExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("todo-transfer"));
+        this.queryCache = new QueryCache(databaseHelper);
+        // Told on the writing thread, so stale entries are gone before any list reloads for the write
+        databaseHelper.getInvalidationTracker().addObserver(queryCache, Runnable::run, DatabaseHelper.TABLE_TODO);
+        this.completionWrites = new CompletionWriteBehind(databaseHelper, writeExecutor, mainHandler,
+                context.getSharedPreferences(COMPLETION_JOURNAL, Context.MODE_PRIVATE));
+    }
+
+    // ---- Reads ----
+
+    public void loadTodoItems(String filter, String category, TaskSort sort, Callback<List<TodoItem>> callback) {
+        read(CHANNEL_LIST, todoItemsQuery(filter, category, sort), withToggles(callback));
+    }
+
+    /** The list query for a filter, for {@link ObservableQuery#setQuery}. */
+    public Callable<List<TodoItem>> todoItemsQuery(String filter, String category, TaskSort sort) {
+        TaskColumnStore store = columnStoreFor(sort);
+        Callable<List<TodoItem>> query = store != null
+                ? () -> databaseHelper.getTodoItemsByIds(store.getIds(filter, category, sort))
+                : () -> databaseHelper.getTodoItems(filter, category, sort);
+        return queryCache.cached(QueryCache.Key.list(filter, category, sort), -1, query);
+    }
+
+    public void searchTodoItems(SearchQuery query, Callback<List<TodoItem>> callback) {
+        read(CHANNEL_LIST, queryCache.cached(QueryCache.Key.search(query), -1,
+                () -> databaseHelper.searchTodoItems(query)), withToggles(callback));
+    }
+
+    public void loadUpcomingTasks(Callback<List<TodoItem>> callback) {
+        read(CHANNEL_LIST, upcomingTasksQuery(), withToggles(callback));
+    }
+
+    public Callable<List<TodoItem>> upcomingTasksQuery() {
+        return databaseHelper::getUpcomingTasks;
+    }
+
+    /** The rows {@link #upcomingTasksQuery} returns: pending, due from today to the end of the upcoming range. */
+    public ObservableQuery.RowFilter upcomingTasksFilter() {
+        return row -> {
+            TimeService time = TimeService.get();
+            String dueDate = row.getDueDate();
+            return !row.isCompleted() && dueDate != null
+                    && dueDate.compareTo(time.todayDate()) >= 0 && dueDate.compareTo(time.upcomingEndDate()) <= 0;
+        };
+    }
+
+    public void loadTasksWithReminders(Callback<List<TodoItem>> callback) {
+        read(CHANNEL_LIST, tasksWithRemindersQuery(), withToggles(callback));
+    }
+
+    public Callable<List<TodoItem>> tasksWithRemindersQuery() {
+        return databaseHelper::getTasksWithReminders;
+    }
+
+    /** The rows {@link #tasksWithRemindersQuery} returns. */
+    public ObservableQuery.RowFilter tasksWithRemindersFilter() {
+        return row -> row.hasReminder() && !row.isCompleted();
+    }
+
+    public void loadCompletedItems(Callback<List<TodoItem>> callback) {
+        read(null, databaseHelper::getCompletedItems, callback);
+    }
+
+    public void loadCategories(Callback<List<String>> callback) {
+        read(null, databaseHelper::getAllCategories, callback);
+    }
+
+    public void loadStats(Callback<TaskStats> callback) {
+        read(CHANNEL_STATS, databaseHelper::getTaskStats, callback);
+    }
+
+    // ---- Observed reads ----
+
+    /** A list that re-runs whenever todo items change; give it a query with setQuery(). */
+    public ObservableQuery<List<TodoItem>> observeTodoItems(Callback<List<TodoItem>> callback) {
+        return observe(withToggles(callback), items -> items, DatabaseHelper.TABLE_TODO);
+    }
+
+    /** Stats that refresh whenever todo items change; loaded once straight away. */
+    public ObservableQuery<TaskStats> observeStats(Callback<TaskStats> callback) {
+        // Any write can move the counts
+        ObservableQuery<TaskStats> stats = observe(callback, result -> null, DatabaseHelper.TABLE_TODO);
+        stats.setQuery(databaseHelper::getTaskStats);
+        return stats;
+    }
+
+    /** A filtered list loaded in keyset pages around the scroll position; start it with setFilter(). */
+    public TaskPager pageTodoItems(Callback<List<TodoItem>> callback) {
+        return new TaskPager(this, databaseHelper.getInvalidationTracker(),
+                CHANNEL_PAGED + observedQueries.incrementAndGet(), withToggles(callback), DatabaseHelper.TABLE_TODO);
+    }
+
+    Callable<List<TodoItem>> pageAfterQuery(String filter, String category, TaskSort sort,
+                                            @Nullable TodoItem anchor, boolean inclusive, int limit) {
+        if (anchor == null) {
+            // The top of a list, as shown on every switch of filter or sort
+            return queryCache.cached(QueryCache.Key.list(filter, category, sort), limit,
+                    uncachedPageAfterQuery(filter, category, sort, null, inclusive, limit));
+        }
+        return uncachedPageAfterQuery(filter, category, sort, anchor, inclusive, limit);
+    }
+
+    private Callable<List<TodoItem>> uncachedPageAfterQuery(String filter, String category, TaskSort sort,
+                                                            @Nullable TodoItem anchor, boolean inclusive, int limit) {
+        TaskColumnStore store = columnStoreFor(sort);
+        if (store != null) {
+            return () -> databaseHelper.getTodoItemsByIds(
+                    store.getIdsAfter(filter, category, sort, anchor, inclusive, limit));
+        }
+        return () -> databaseHelper.getTodoItemsPageAfter(filter, category, sort, anchor, inclusive, limit);
+    }
+
+    Callable<List<TodoItem>> pageBeforeQuery(String filter, String category, TaskSort sort,
+                                             TodoItem anchor, int limit) {
+        TaskColumnStore store = columnStoreFor(sort);
+        if (store != null) {
+            return () -> databaseHelper.getTodoItemsByIds(store.getIdsBefore(filter, category, sort, anchor, limit));
+        }
+        return () -> databaseHelper.getTodoItemsPageBefore(filter, category, sort, anchor, limit);
+    }
+
+    /**
+     * Filters and sorts lists in a {@link TaskColumnStore} instead of SQLite, only reading the
+     * rows shown. Worth it for very large lists; it holds about 30 bytes per task in memory.
+     */
+    public synchronized void setColumnStoreEnabled(boolean enabled) {
+        if (enabled == (columnStore != null)) return;
+        InvalidationTracker tracker = databaseHelper.getInvalidationTracker();
+        if (enabled) {
+            TaskColumnStore store = new TaskColumnStore(databaseHelper);
+            // Told on the writing thread, so it knows of a write before any list reloads for it
+            tracker.addObserver(store, Runnable::run, DatabaseHelper.TABLE_TODO);
+            columnStore = store;
+        } else {
+            tracker.removeObserver(columnStore);
+            columnStore = null;
+        }
+    }
+
+    @Nullable
+    private TaskColumnStore columnStoreFor(TaskSort sort) {
+        TaskColumnStore store = columnStore;
+        return store != null && TaskColumnStore.supports(sort) ? store : null;
+    }
+
+    /** Hit and miss counts of the list results kept in memory. */
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /** Category names and colours, for binding rows without a query. */
+    public CategoryDictionary getCategories() {
+        return databaseHelper.getCategories();
+    }
+
+    /** Lists are delivered with checkbox toggles that are not written yet already applied. */
+    private Callback<List<TodoItem>> withToggles(Callback<List<TodoItem>> callback) {
+        return new Callback<List<TodoItem>>() {
+            @Override
+            public void onResult(List<TodoItem> items) {
+                callback.onResult(completionWrites.overlay(items));
+            }
+
+            @Override
+            public void onError(Exception error) {
+                callback.onError(error);
+            }
+        };
+    }
+
+    /** Registers for the raw table/row changes behind the observed queries. */
+    public void addTodoItemsObserver(InvalidationTracker.Observer observer) {
+        databaseHelper.getInvalidationTracker().addObserver(observer, DatabaseHelper.TABLE_TODO);
+    }
+
+    public void removeObserver(InvalidationTracker.Observer observer) {
+        databaseHelper.getInvalidationTracker().removeObserver(observer);
+    }
+
+    private <T> ObservableQuery<T> observe(Callback<T> callback, ObservableQuery.RowsOf<T> rowsOf, String... tables) {
+        return new ObservableQuery<>(observedSource, databaseHelper.getInvalidationTracker(),
+                CHANNEL_OBSERVED + observedQueries.incrementAndGet(), callback, rowsOf, tables);
+    }
+
+    /** Drops any list or stats load that has not been delivered yet. */
+    public void cancelPendingReads() {
+        synchronized (latestReads) {
+            for (ReadTask<?> task : latestReads.values()) {
+                task.cancel();
+            }
+            latestReads.clear();
+        }
+    }
+
+    // ---- Writes ----
+
+    public void addTodoItem(TodoItem item, @Nullable Callback<TodoItem> callback) {
+        write(() -> {
+            item.setId((int) databaseHelper.addTodoItem(item));
+            return item;
+        }, callback);
+    }
+
+    public void updateTodoItem(TodoItem item, @Nullable Callback<Void> callback) {
+        write(() -> {
+            databaseHelper.updateTodoItem(item);
+            return null;
+        }, callback);
+    }
+
+    public void updateTodoItemCompletion(int id, boolean isCompleted, @Nullable Callback<Void> callback) {
+        write(() -> {
+            databaseHelper.updateTodoItemCompletion(id, isCompleted);
+            return null;
+        }, callback);
+    }
+
+    /**
+     * Marks {@code item}, as shown, completed or pending after a short batch window, together
+     * with any other toggles in it; call on the main thread. Lists delivered meanwhile already
+     * show the new state.
+     */
+    public void setTodoItemCompleted(TodoItem item, boolean isCompleted) {
+        completionWrites.toggle(item, isCompleted);
+    }
+
+    /**
+     * Hands queued checkbox toggles to the writer now instead of at the end of their batch
+     * window, and journals those not yet committed so they survive the process being killed,
+     * e.g. as the app leaves the foreground. Does not wait for the writer.
+     */
+    public void flushPendingWrites() {
+        completionWrites.flushDurably();
+    }
+
+    /**
+     * Deletes a task so that {@link #undoDeleteTodoItem} can still bring it back for
+     * {@link #UNDO_WINDOW_MS}. The row stays behind as a tombstone, left out of every read,
+     * until a purge in the background removes it.
+     */
+    public void deleteTodoItem(int id, @Nullable Callback<Void> callback) {
+        write(() -> {
+            databaseHelper.markTodoItemsDeleted(Collections.singletonList(id), TimeService.get().now());
+            return null;
+        }, callback);
+        // One purge for a run of deletes, once the last of them can no longer be undone
+        mainHandler.removeCallbacks(purgeTask);
+        mainHandler.postDelayed(purgeTask, PURGE_DELAY_MS);
+    }
+
+    public void undoDeleteTodoItem(int id, @Nullable Callback<Void> callback) {
+        write(() -> {
+            databaseHelper.undeleteTodoItems(Collections.singletonList(id));
+            return null;
+        }, callback);
+    }
+
+    /**
+     * Removes the tombstones of tasks deleted long enough ago, a batch per transaction. Each
+     * batch queues behind the writes already waiting, so a long purge never holds them up.
+     */
+    public void purgeTombstones() {
+        writeExecutor.execute(() -> {
+            int purged;
+            try {
+                purged = databaseHelper.purgeTombstones(TimeService.get().now() - PURGE_DELAY_MS, PURGE_BATCH);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Purge failed: " + e.getMessage(), e);
+                return;
+            }
+            Log.d(TAG, "Purged " + purged + " deleted tasks");
+            if (purged == PURGE_BATCH) {
+                purgeTombstones();
+            }
+        });
+    }
+
+    /** Delivers the ids of the deleted tasks, e.g. to cancel their alarms in one go. */
+    public void clearCompletedTasks(@Nullable Callback<List<Integer>> callback) {
+        write(databaseHelper::clearCompletedTasks, callback);
+    }
+
+    // Batch writes run as one transaction and deliver the ids they affected
+
+    public void addTodoItems(List<TodoItem> items, @Nullable Callback<List<TodoItem>> callback) {
+        write(() -> {
+            List<Integer> ids = databaseHelper.addTodoItems(items);
+            for (int i = 0; i < items.size(); i++) {
+                items.get(i).setId(ids.get(i));
+            }
+            return items;
+        }, callback);
+    }
+
+    public void updateTodoItems(List<TodoItem> items, @Nullable Callback<List<Integer>> callback) {
+        write(() -> databaseHelper.updateTodoItems(items), callback);
+    }
+
+    public void setTodoItemsCompleted(Collection<Integer> ids, boolean isCompleted,
+                                      @Nullable Callback<List<Integer>> callback) {
+        write(() -> databaseHelper.setTodoItemsCompleted(ids, isCompleted), callback);
+    }
+
+    public void deleteTodoItems(Collection<Integer> ids, @Nullable Callback<List<Integer>> callback) {
+        write(() -> databaseHelper.deleteTodoItems(ids), callback);
+    }
+
+    // ---- Import and export ----
+
+    /**
+     * Streams every task to {@code out} on the transfer thread and closes it when done.
+     * Progress and the result are delivered on the main thread.
+     */
+    public void exportTasks(OutputStream out, TaskTransfer.Format format,
+                            @Nullable TaskTransfer.ProgressListener listener,
+                            CancellationSignal signal, Callback<TaskTransfer.Result> callback) {
+        transfer(out, () -> new TaskTransfer(databaseHelper)
+                .exportTasks(out, format, onMainThread(listener), signal), callback);
+    }
+
+    /** Adds the tasks in {@code in} on the transfer thread, a chunk per transaction, and closes it. */
+    public void importTasks(InputStream in, TaskTransfer.Format format,
+                            @Nullable TaskTransfer.ProgressListener listener,
+                            CancellationSignal signal, Callback<TaskTransfer.Result> callback) {
+        transfer(in, () -> new TaskTransfer(databaseHelper)
+                .importTasks(in, format, onMainThread(listener), signal), callback);
+    }
+
+    /** Writes a binary snapshot of every task to {@code file} on the transfer thread. */
+    public void backupTasks(File file, Callback<TaskTransfer.Result> callback) {
+        transfer(null, () -> new TaskTransfer.Result(new TaskSnapshot(databaseHelper).write(file), false), callback);
+    }
+
+    /** Replaces every task with the snapshot in {@code file}; the reminder queue re-arms from the restored rows. */
+    public void restoreTasks(File file, Callback<TaskTransfer.Result> callback) {
+        transfer(null, () -> new TaskTransfer.Result(new TaskSnapshot(databaseHelper).restore(file), false), callback);
+    }
+
+    private void transfer(@Nullable Closeable stream, Callable<TaskTransfer.Result> operation,
+                          Callback<TaskTransfer.Result> callback) {
+        transferExecutor.execute(() -> {
+            TaskTransfer.Result result;
+            try {
+                result = operation.call();
+            } catch (Exception e) {
+                Log.e(TAG, "Transfer failed: " + e.getMessage(), e);
+                result = new TaskTransfer.Result(0, false, e);
+            } finally {
+                if (stream != null) {
+                    try {
+                        stream.close();
+                    } catch (IOException e) {
+                        Log.w(TAG, "Closing transfer stream failed", e);
+                    }
+                }
+            }
+            TaskTransfer.Result delivered = result;
+            mainHandler.post(() -> callback.onResult(delivered));
+        });
+    }
+
+    @Nullable
+    private TaskTransfer.ProgressListener onMainThread(@Nullable TaskTransfer.ProgressListener listener) {
+        if (listener == null) return null;
+        return (done, total) -> mainHandler.post(() -> listener.onProgress(done, total));
+    }
+
+    // ---- Plumbing ----
+
+    /** Drops the undelivered read on {@code channel}; true if there was one. */
+    boolean cancelRead(String channel) {
+        synchronized (latestReads) {
+            ReadTask<?> task = latestReads.remove(channel);
+            if (task != null) {
+                task.cancel();
+            }
+            return task != null;
+        }
+    }
+
+    <T> void read(@Nullable String channel, Callable<T> query, Callback<T> callback) {
+        ReadTask<T> task = new ReadTask<>(channel, query, callback);
+        if (channel != null) {
+            synchronized (latestReads) {
+                ReadTask<?> superseded = latestReads.put(channel, task);
+                if (superseded != null) {
+                    superseded.cancel();
+                }
+            }
+        }
+        readExecutor.execute(task);
+    }
+
+    private <T> void write(Callable<T> operation, @Nullable Callback<T> callback) {
+        writeExecutor.execute(() -> {
+            T result;
+            try {
+                result = operation.call();
+            } catch (Exception e) {
+                Log.e(TAG, "Write failed: " + e.getMessage(), e);
+                if (callback != null) {
+                    mainHandler.post(() -> callback.onError(e));
+                }
+                return;
+            }
+            if (callback != null) {
+                mainHandler.post(() -> callback.onResult(result));
+            }
+        });
+    }
+
+    private final class ReadTask<T> implements Runnable {
+        private final String channel;
+        private final Callable<T> query;
+        private final Callback<T> callback;
+        private final CancellationSignal signal = new CancellationSignal();
+        private volatile boolean cancelled;
+
+        ReadTask(@Nullable String channel, Callable<T> query, Callback<T> callback) {
+            this.channel = channel;
+            this.query = query;
+            this.callback = callback;
+        }
+
+        /** Frees the queue slot if the read has not started, and stops its query if it has. */
+        void cancel() {
+            cancelled = true;
+            readExecutor.remove(this);
+            signal.cancel();
+        }
+
+        @Override
+        public void run() {
+            // Superseded before it reached a thread: skip the query entirely
+            if (cancelled) return;
+
+            T result;
+            databaseHelper.setReadSignal(signal);
+            try {
+                result = query.call();
+            } catch (Exception e) {
+                if (cancelled) return; // Stopped on purpose; nobody is waiting for it
+                Log.e(TAG, "Read failed: " + e.getMessage(), e);
+                deliver(() -> callback.onError(e));
+                return;
+            } finally {
+                databaseHelper.setReadSignal(null);
+            }
+            deliver(() -> callback.onResult(result));
+        }
+
+        /** Turned away by the full read queue; the caller hears of it instead of waiting for a result. */
+        void reject() {
+            deliver(() -> callback.onError(new RejectedExecutionException("Read queue full")));
+        }
+
+        private void deliver(Runnable delivery) {
+            mainHandler.post(() -> {
+                if (cancelled) return;
+                if (channel != null) {
+                    synchronized (latestReads) {
+                        if (latestReads.get(channel) == this) {
+                            latestReads.remove(channel);
+                        }
+                    }
+                }
+                delivery.run();
+            });
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.todolist.models;
+
+public class TaskStats {
+    private final int total;
+    private final int completed;
+    private final int pending;
+    private final int overdue;
+    private final int dueToday;
+    private final int withReminders;
+
+    public TaskStats(int total, int completed, int pending, int overdue, int dueToday, int withReminders) {
+        this.total = total;
+        this.completed = completed;
+        this.pending = pending;
+        this.overdue = overdue;
+        this.dueToday = dueToday;
+        this.withReminders = withReminders;
+    }
+
+    public int getTotal() { return total; }
+    public int getCompleted() { return completed; }
+    public int getPending() { return pending; }
+    public int getOverdue() { return overdue; }
+    public int getDueToday() { return dueToday; }
+    public int getWithReminders() { return withReminders; }
+}
@@ -1,19 +1,32 @@
 package com.example.todolist.models;
 import android.util.Log;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import com.example.todolist.utils.TimeService;
+
 import java.util.Date;
-import java.util.Locale;
 
 public class TodoItem {
+    /** {@link #getDueAt()} of a task without a due date. */
+    public static final long NO_DUE = 0;
+    /** {@link #getCategoryId()} of a task without a category, or whose category is not stored yet. */
+    public static final int NO_CATEGORY = 0;
+    // A due date without a time falls due at the end of that day
+    private static final String END_OF_DAY = "23:59";
+
     private int id;
     private String task;
     private boolean isCompleted;
     private String createdAt;
+    private long createdAtMillis;
     private String dueDate;
     private String dueTime;
+    // Epoch millis of dueDate + dueTime, parsed once when they are set
+    private long dueAt;
+    // Due date as the list shows it, built once per due date rather than on every bind
+    private String dueLabel;
     private String category;
+    // The stored category's id, filled in when read back; writes go by the name
+    private int categoryId;
     private int priority;
     private String description;
     private boolean hasReminder;
@@ -21,7 +34,8 @@ public class TodoItem {
 
     // Constructors
     public TodoItem() {
-        this.createdAt = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date());
+        this.createdAtMillis = TimeService.get().now();
+        this.createdAt = TimeService.get().formatTimestamp(createdAtMillis);
         this.priority = 2;
         this.category = "General";
         this.hasReminder = false;
@@ -33,6 +47,37 @@ public class TodoItem {
         this.task = task;
     }
 
+    // For rows read back from the database, which carry their own creation time
+    private TodoItem(int id) {
+        this.id = id;
+        this.priority = 2;
+        this.category = "General";
+    }
+
+    /** An item for a stored row, without stamping a creation time the row then overwrites. */
+    public static TodoItem forStoredRow(int id) {
+        return new TodoItem(id);
+    }
+
+    // Copy for editing, so items already handed to the adapter are never mutated
+    public TodoItem(TodoItem other) {
+        this.id = other.id;
+        this.task = other.task;
+        this.isCompleted = other.isCompleted;
+        this.createdAt = other.createdAt;
+        this.createdAtMillis = other.createdAtMillis;
+        this.dueDate = other.dueDate;
+        this.dueTime = other.dueTime;
+        this.dueAt = other.dueAt;
+        this.dueLabel = other.dueLabel;
+        this.category = other.category;
+        this.categoryId = other.categoryId;
+        this.priority = other.priority;
+        this.description = other.description;
+        this.hasReminder = other.hasReminder;
+        this.alarmTime = other.alarmTime;
+    }
+
     // Getters and Setters
     public int getId() { return id; }
     public void setId(int id) { this.id = id; }
@@ -46,14 +91,46 @@ public class TodoItem {
     public String getCreatedAt() { return createdAt; }
     public void setCreatedAt(String createdAt) { this.createdAt = createdAt; }
 
+    public long getCreatedAtMillis() { return createdAtMillis; }
+    public void setCreatedAtMillis(long createdAtMillis) { this.createdAtMillis = createdAtMillis; }
+
     public String getDueDate() { return dueDate; }
-    public void setDueDate(String dueDate) { this.dueDate = dueDate; }
+    public void setDueDate(String dueDate) {
+        this.dueDate = dueDate;
+        this.dueAt = dueAtOf(dueDate, dueTime);
+        this.dueLabel = dueLabelOf(dueDate);
+    }
 
     public String getDueTime() { return dueTime; }
-    public void setDueTime(String dueTime) { this.dueTime = dueTime; }
+    public void setDueTime(String dueTime) {
+        this.dueTime = dueTime;
+        this.dueAt = dueAtOf(dueDate, dueTime);
+    }
+
+    /** When the task falls due in epoch millis, or {@link #NO_DUE}. */
+    public long getDueAt() { return dueAt; }
+
+    /** Sets the due date and time together with their already computed {@link #getDueAt()}. */
+    public void setDue(String dueDate, String dueTime, long dueAt) {
+        this.dueDate = dueDate;
+        this.dueTime = dueTime;
+        this.dueAt = dueAt;
+        this.dueLabel = dueLabelOf(dueDate);
+    }
+
+    /** "Due: " and the due date, or null without one. */
+    public String getDueLabel() { return dueLabel; }
 
     public String getCategory() { return category; }
-    public void setCategory(String category) { this.category = category; }
+    public void setCategory(String category) {
+        if (category == null ? this.category != null : !category.equals(this.category)) {
+            categoryId = NO_CATEGORY;
+        }
+        this.category = category;
+    }
+
+    public int getCategoryId() { return categoryId; }
+    public void setCategoryId(int categoryId) { this.categoryId = categoryId; }
 
     public int getPriority() { return priority; }
     public void setPriority(int priority) { this.priority = priority; }
@@ -103,27 +180,30 @@ public class TodoItem {
     }
 
     public boolean isOverdue() {
-        if (!hasDueDate()) return false;
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
-            String dateTimeString = hasDueTime() ? dueDate + " " + dueTime : dueDate + " 23:59";
-            Date due = sdf.parse(dateTimeString);
-            Date now = new Date();
-            return due != null && due.before(now) && !isCompleted;
-        } catch (Exception e) {
-            return false;
-        }
+        return dueAt != NO_DUE && !isCompleted && dueAt < TimeService.get().now();
     }
 
     public boolean isDueToday() {
-        if (!hasDueDate()) return false;
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-            String today = sdf.format(new Date());
-            return dueDate.equals(today);
-        } catch (Exception e) {
-            return false;
-        }
+        return dueAt != NO_DUE && TimeService.get().isToday(dueAt);
+    }
+
+    /**
+     * Epoch millis of a "yyyy-MM-dd" date and "HH:mm" time in the default time zone, with a
+     * missing time meaning the end of the day; {@link #NO_DUE} without a parseable date.
+     */
+    public static long dueAtOf(String dueDate, String dueTime) {
+        if (dueDate == null || dueDate.isEmpty()) return NO_DUE;
+        String time = dueTime != null && !dueTime.isEmpty() ? dueTime : END_OF_DAY;
+        return TimeService.get().parseDateTime(dueDate + " " + time);
+    }
+
+    /** Epoch millis of a "yyyy-MM-dd HH:mm:ss" creation time, or 0 if it cannot be parsed. */
+    public static long createdAtMillisOf(String createdAt) {
+        return TimeService.get().parseTimestamp(createdAt);
+    }
+
+    private static String dueLabelOf(String dueDate) {
+        return dueDate != null && !dueDate.isEmpty() ? "Due: " + dueDate : null;
     }
 
     // NEW: Calculate alarm time from due date and time
@@ -161,45 +241,22 @@ public class TodoItem {
             Log.d("TodoItem", "Missing date or time - Date: " + dueDate + ", Time: " + dueTime);
             return 0;
         }
-
-        try {
-            // Parse the date and time
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
-            String dateTimeString = dueDate + " " + dueTime;
-            Date dueDateTime = sdf.parse(dateTimeString);
-
-            if (dueDateTime == null) {
-                Log.e("TodoItem", "Failed to parse date/time: " + dateTimeString);
-                return 0;
-            }
-
-            // Set alarm 1 minute before due time (for testing)
-            long alarmTime = dueDateTime.getTime() - (1 * 60 * 1000);
-
-            // For production, use 5 minutes before:
-            // long alarmTime = dueDateTime.getTime() - (5 * 60 * 1000);
-
-            long currentTime = System.currentTimeMillis();
-
-            Log.d("TodoItem", "Current time: " + new Date(currentTime));
-            Log.d("TodoItem", "Due time: " + dueDateTime);
-            Log.d("TodoItem", "Alarm time: " + new Date(alarmTime));
-            Log.d("TodoItem", "Time difference: " + (alarmTime - currentTime) + "ms");
-
-            // Check if alarm is in the future
-            if (alarmTime > currentTime) {
-                return alarmTime;
-            } else {
-                Log.w("TodoItem", "Alarm time is in the past: " + new Date(alarmTime));
-                // REMOVED: Toast.makeText(context, "Cannot set alarm for past time", Toast.LENGTH_SHORT).show();
-                return 0;
-            }
-
-        } catch (ParseException e) {
-            Log.e("TodoItem", "Parse error for date/time: " + dueDate + " " + dueTime + " - " + e.getMessage());
+        if (dueAt == NO_DUE) {
+            Log.e("TodoItem", "Failed to parse date/time: " + dueDate + " " + dueTime);
             return 0;
-        } catch (Exception e) {
-            Log.e("TodoItem", "Unexpected error: " + e.getMessage());
+        }
+
+        // Set alarm 1 minute before due time (for testing)
+        long alarmTime = dueAt - (1 * 60 * 1000);
+
+        // For production, use 5 minutes before:
+        // long alarmTime = dueAt - (5 * 60 * 1000);
+
+        // Check if alarm is in the future
+        if (alarmTime > TimeService.get().now()) {
+            return alarmTime;
+        } else {
+            Log.w("TodoItem", "Alarm time is in the past: " + new Date(alarmTime));
             return 0;
         }
     }
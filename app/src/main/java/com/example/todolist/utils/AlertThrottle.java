@@ -0,0 +1,27 @@
+package com.example.todolist.utils;
+
+/**
+ * Lets a sound and vibration through at most once per interval. Reminders that arrive in
+ * between are still shown, only quietly, so a burst of them buzzes the device once.
+ */
+final class AlertThrottle {
+
+    private final long minIntervalMs;
+    private boolean alerted;
+    private long lastAlertAt;
+
+    AlertThrottle(long minIntervalMs) {
+        this.minIntervalMs = minIntervalMs;
+    }
+
+    /** Whether a notification posted at {@code now} may alert; if so, the interval starts over. */
+    synchronized boolean tryAlert(long now) {
+        // A clock set backwards is not held against the next alert
+        if (alerted && now >= lastAlertAt && now - lastAlertAt < minIntervalMs) {
+            return false;
+        }
+        alerted = true;
+        lastAlertAt = now;
+        return true;
+    }
+}
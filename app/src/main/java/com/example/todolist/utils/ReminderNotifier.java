@@ -0,0 +1,200 @@
+package com.example.todolist.utils;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Color;
+import android.media.RingtoneManager;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+
+import com.example.todolist.MainActivity;
+import com.example.todolist.models.TodoItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shows the reminders of one wakeup. A single reminder gets a notification of its own; several
+ * are posted quietly under one group whose summary lists them and makes the only sound.
+ * Sound and vibration are further limited to once per {@link #MIN_ALERT_INTERVAL_MS}, and
+ * reminders missed long ago never make any. Each delivery is logged with its counts and how
+ * late the reminders were shown.
+ */
+public final class ReminderNotifier {
+
+    private static final String TAG = "ReminderNotifier";
+    private static final String CHANNEL_ID = "todo_alarm_channel";
+    private static final String CHANNEL_NAME = "To-Do Alarms";
+    private static final String GROUP_KEY = "com.example.todolist.REMINDERS";
+    // Row ids start at 1, so the summary never replaces a task's notification
+    private static final int SUMMARY_ID = 0;
+    private static final int SUMMARY_LINES = 5;
+    private static final long[] VIBRATION = {0, 500, 200, 500};
+
+    // Reminders arriving sooner than this after an alert are shown without one
+    static final long MIN_ALERT_INTERVAL_MS = 2 * 60_000;
+
+    private static volatile ReminderNotifier instance;
+
+    private final Context context;
+    private final NotificationManager notificationManager;
+    private final AlertThrottle throttle = new AlertThrottle(MIN_ALERT_INTERVAL_MS);
+    private final Uri alertSound;
+
+    // Totals since the process started; only touched on the reminder scheduler's thread
+    private int deliveredCount;
+    private int alertCount;
+
+    public static ReminderNotifier get(Context context) {
+        ReminderNotifier result = instance;
+        if (result == null) {
+            synchronized (ReminderNotifier.class) {
+                result = instance;
+                if (result == null) {
+                    result = new ReminderNotifier(context.getApplicationContext());
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private ReminderNotifier(Context context) {
+        this.context = context;
+        this.notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        Uri sound = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
+        this.alertSound = sound != null ? sound : RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
+        // Once per process rather than once per notification
+        createNotificationChannel();
+    }
+
+    /**
+     * Posts the reminders taken off the queue by one wakeup, each list in alarm order. The
+     * {@code missed} ones, long overdue, are posted too but only the others may alert.
+     */
+    public void deliver(List<TodoItem> reminders, List<TodoItem> missed) {
+        if (notificationManager == null) {
+            Log.e(TAG, "NotificationManager is null!");
+            return;
+        }
+        long now = TimeService.get().now();
+        boolean alert = !reminders.isEmpty() && throttle.tryAlert(now);
+        // Missed ones are older, so they come first
+        List<TodoItem> shown = new ArrayList<>(missed.size() + reminders.size());
+        shown.addAll(missed);
+        shown.addAll(reminders);
+        boolean grouped = shown.size() > 1;
+
+        long totalLatency = 0;
+        long maxLatency = 0;
+        for (TodoItem reminder : shown) {
+            notificationManager.notify(reminder.getId(), buildReminder(reminder, grouped, alert && !grouped));
+            long latency = Math.max(0, now - reminder.getAlarmTime());
+            totalLatency += latency;
+            maxLatency = Math.max(maxLatency, latency);
+        }
+        if (grouped) {
+            notificationManager.notify(SUMMARY_ID, buildSummary(shown, alert));
+        }
+
+        deliveredCount += shown.size();
+        if (alert) alertCount++;
+        Log.i(TAG, "Delivered " + shown.size() + (grouped ? " reminders as a group" : " reminder")
+                + " (" + missed.size() + " missed)" + (alert ? " with" : " without") + " alert, latency avg="
+                + totalLatency / shown.size() + "ms max=" + maxLatency + "ms; " + deliveredCount
+                + " delivered with " + alertCount + " alerts since start");
+    }
+
+    private Notification buildReminder(TodoItem reminder, boolean grouped, boolean alert) {
+        String title = reminder.getTask() != null ? reminder.getTask() : "Task Reminder";
+        String description = reminder.getDescription();
+        NotificationCompat.Builder builder = newBuilder(openAppIntent(reminder.getId()), alert)
+                .setContentTitle("🔔 " + title)
+                .setContentText(description != null ? description : "Task due now!")
+                .setStyle(new NotificationCompat.BigTextStyle()
+                        .bigText(description != null ? description : "Your task is due now. Don't forget to complete it!"))
+                .setWhen(reminder.getAlarmTime());
+        if (grouped) {
+            // The summary alerts for the group, if anything does
+            builder.setGroup(GROUP_KEY)
+                    .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY);
+        }
+        return builder.build();
+    }
+
+    private Notification buildSummary(List<TodoItem> reminders, boolean alert) {
+        String title = reminders.size() + " tasks due now";
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle().setBigContentTitle("🔔 " + title);
+        int lines = Math.min(SUMMARY_LINES, reminders.size());
+        for (int i = 0; i < lines; i++) {
+            String task = reminders.get(i).getTask();
+            style.addLine(task != null ? task : "Task Reminder");
+        }
+        if (reminders.size() > lines) {
+            style.setSummaryText("+" + (reminders.size() - lines) + " more");
+        }
+        return newBuilder(openAppIntent(SUMMARY_ID), alert)
+                .setContentTitle("🔔 " + title)
+                .setContentText("Tap to see your tasks")
+                .setStyle(style)
+                .setNumber(reminders.size())
+                .setGroup(GROUP_KEY)
+                .setGroupSummary(true)
+                .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY)
+                .build();
+    }
+
+    private NotificationCompat.Builder newBuilder(PendingIntent contentIntent, boolean alert) {
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.ic_lock_idle_alarm)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setCategory(NotificationCompat.CATEGORY_REMINDER)
+                .setContentIntent(contentIntent)
+                .setAutoCancel(true);
+        if (alert) {
+            builder.setSound(alertSound)
+                    .setVibrate(VIBRATION)
+                    .setLights(Color.RED, 1000, 1000);
+        } else {
+            builder.setSilent(true);
+        }
+        return builder;
+    }
+
+    private PendingIntent openAppIntent(int requestCode) {
+        Intent appIntent = new Intent(context, MainActivity.class);
+        appIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+
+        int flags = PendingIntent.FLAG_UPDATE_CURRENT;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            flags |= PendingIntent.FLAG_IMMUTABLE;
+        }
+        return PendingIntent.getActivity(context, requestCode, appIntent, flags);
+    }
+
+    private void createNotificationChannel() {
+        if (notificationManager != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(
+                    CHANNEL_ID,
+                    CHANNEL_NAME,
+                    NotificationManager.IMPORTANCE_HIGH
+            );
+            channel.setDescription("Notifications for to-do task reminders");
+            channel.enableLights(true);
+            channel.setLightColor(Color.RED);
+            channel.enableVibration(true);
+            channel.setVibrationPattern(VIBRATION);
+            channel.setLockscreenVisibility(Notification.VISIBILITY_PUBLIC);
+
+            notificationManager.createNotificationChannel(channel);
+            Log.d(TAG, "Notification channel created");
+        }
+    }
+}
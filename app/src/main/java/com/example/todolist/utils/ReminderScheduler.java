@@ -0,0 +1,182 @@
+package com.example.todolist.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.example.todolist.database.DatabaseHelper;
+import com.example.todolist.database.InvalidationTracker;
+import com.example.todolist.database.TodoRepository;
+import com.example.todolist.models.TodoItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps a single AlarmManager alarm armed for the earliest reminder that has not fired yet,
+ * rather than one alarm per task. The queue is todo_items itself, read through the partial
+ * reminder index, so any write that adds, moves, completes or deletes a reminder re-arms the
+ * alarm through the invalidation tracker. When the alarm fires, every reminder due within
+ * {@link #COALESCE_WINDOW_MS} is delivered by that one wakeup.
+ */
+public final class ReminderScheduler implements InvalidationTracker.Observer {
+
+    private static final String TAG = "ReminderScheduler";
+
+    // Reminders due this soon after a wakeup are delivered with it instead of waking the device again
+    public static final long COALESCE_WINDOW_MS = 60_000;
+    // Reminders missed by more than this, e.g. while the phone was off, are still shown but quietly
+    static final long MISSED_REMINDER_GRACE_MS = 15 * 60_000;
+
+    private static final String PREFS = "reminder_scheduler";
+    private static final String PREF_LEGACY_ALARMS_CANCELLED = "legacy_alarms_cancelled";
+
+    public interface Delivery {
+        /**
+         * Shows the reminders taken off the queue by one wakeup, each list in alarm order;
+         * {@code missed} ones are long overdue and should not make a sound.
+         */
+        void deliver(List<TodoItem> reminders, List<TodoItem> missed);
+    }
+
+    private static volatile ReminderScheduler instance;
+
+    private final Context context;
+    private final DatabaseHelper databaseHelper;
+    // Every queue read and alarm change happens here, in order
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "todo-reminders"));
+
+    // The trigger time last handed to AlarmManager, 0 for none; only touched on the executor
+    private long armedAt;
+
+    public static ReminderScheduler get(Context context) {
+        ReminderScheduler result = instance;
+        if (result == null) {
+            synchronized (ReminderScheduler.class) {
+                result = instance;
+                if (result == null) {
+                    Context appContext = context.getApplicationContext();
+                    result = new ReminderScheduler(appContext, DatabaseHelper.getInstance(appContext));
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @VisibleForTesting
+    ReminderScheduler(Context context, DatabaseHelper databaseHelper) {
+        this.context = context;
+        this.databaseHelper = databaseHelper;
+    }
+
+    /** Follows todo_items from now on and arms the alarm for whatever is already queued. */
+    public void start() {
+        TodoRepository.getInstance(context).addTodoItemsObserver(this);
+        executor.execute(this::cancelLegacyAlarms);
+        reschedule();
+    }
+
+    @Override
+    public void onInvalidated(Set<String> tables, @Nullable Set<Integer> rowIds) {
+        reschedule();
+    }
+
+    /** Re-arms the alarm for the earliest queued reminder, or cancels it when there is none. */
+    public void reschedule() {
+        executor.execute(this::armNext);
+    }
+
+    /**
+     * Arms the alarm again after a reboot, which clears every alarm, off the calling thread.
+     * The queue itself survives, so this is one indexed read whatever the number of reminders.
+     * {@code onDone} runs last whatever happens, e.g. to finish a broadcast's PendingResult.
+     */
+    public void restoreAfterBoot(Runnable onDone) {
+        executor.execute(() -> {
+            long start = SystemClock.elapsedRealtime();
+            try {
+                // Whatever was armed before the reboot is gone
+                armedAt = 0;
+                // Reminders missed while the device was off are at the head of the queue and
+                // fire straight away, quietly if they are past the grace period
+                int queued = databaseHelper.getQueuedReminderCount(0);
+                armNext();
+                Log.i(TAG, "Restored after boot: " + queued + " reminders behind one alarm in "
+                        + (SystemClock.elapsedRealtime() - start) + "ms");
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Restoring reminders failed: " + e.getMessage(), e);
+            } finally {
+                onDone.run();
+            }
+        });
+    }
+
+    /**
+     * Takes the reminders due now or within the coalescing window off the queue, hands them to
+     * {@code delivery} and arms the alarm for the next one, all off the calling thread.
+     * {@code onDone} runs last whatever happens, e.g. to finish a broadcast's PendingResult.
+     */
+    public void deliverDue(Delivery delivery, Runnable onDone) {
+        executor.execute(() -> {
+            try {
+                // The alarm that woke us is spent
+                armedAt = 0;
+                long now = TimeService.get().now();
+                List<TodoItem> due = databaseHelper.takeDueReminders(now + COALESCE_WINDOW_MS);
+                List<TodoItem> timely = new ArrayList<>(due.size());
+                List<TodoItem> missed = new ArrayList<>();
+                for (TodoItem reminder : due) {
+                    if (reminder.getAlarmTime() >= now - MISSED_REMINDER_GRACE_MS) {
+                        timely.add(reminder);
+                    } else {
+                        missed.add(reminder);
+                    }
+                }
+                Log.i(TAG, "Wakeup: " + timely.size() + " reminders delivered, "
+                        + missed.size() + " missed ones delivered quietly");
+                if (!due.isEmpty()) {
+                    delivery.deliver(timely, missed);
+                }
+                armNext();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Delivering reminders failed: " + e.getMessage(), e);
+            } finally {
+                onDone.run();
+            }
+        });
+    }
+
+    private void armNext() {
+        long next = databaseHelper.getNextReminderTime();
+        if (next == armedAt) return;
+        if (next == 0) {
+            AlarmHelper.cancelReminderAlarm(context);
+        } else {
+            AlarmHelper.setReminderAlarm(context, next);
+        }
+        armedAt = next;
+    }
+
+    // Reminders set before the queue existed each have their own alarm; the queue now covers
+    // them, so those are cancelled once rather than left to fire twice
+    private void cancelLegacyAlarms() {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        if (prefs.getBoolean(PREF_LEGACY_ALARMS_CANCELLED, false)) return;
+
+        List<Integer> ids = new ArrayList<>();
+        for (TodoItem item : databaseHelper.getTasksWithReminders()) {
+            ids.add(item.getId());
+        }
+        AlarmHelper.cancelAlarms(context, ids);
+        prefs.edit().putBoolean(PREF_LEGACY_ALARMS_CANCELLED, true).apply();
+    }
+}
@@ -3,6 +3,10 @@ import java.util.Locale;
 
 public class TimePickerHelper {
 
+    // "h:mm AM/PM" for each minute of the day, formatted on first use; rebuilt if the locale changes
+    private static volatile String[] timeLabels = new String[24 * 60];
+    private static volatile Locale timeLabelsLocale = Locale.getDefault();
+
     public static String formatTimeForDisplay(String time) {
         try {
             String[] parts = time.split(":");
@@ -15,6 +19,26 @@ public class TimePickerHelper {
     }
 
     public static String formatTimeForDisplay(int hour, int minute) {
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return format(hour, minute, Locale.getDefault());
+        }
+        Locale locale = Locale.getDefault();
+        String[] labels = timeLabels;
+        if (!locale.equals(timeLabelsLocale)) {
+            labels = new String[24 * 60];
+            timeLabels = labels;
+            timeLabelsLocale = locale;
+        }
+        int index = hour * 60 + minute;
+        String label = labels[index];
+        if (label == null) {
+            // Strings are immutable, so a racing thread at worst formats the same label twice
+            label = labels[index] = format(hour, minute, locale);
+        }
+        return label;
+    }
+
+    private static String format(int hour, int minute, Locale locale) {
         String period = "AM";
         int displayHour = hour;
 
@@ -28,6 +52,6 @@ public class TimePickerHelper {
             displayHour = 12;
         }
 
-        return String.format(Locale.getDefault(), "%d:%02d %s", displayHour, minute, period);
+        return String.format(locale, "%d:%02d %s", displayHour, minute, period);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,173 @@
+package com.example.todolist.utils;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * The app's single source of "now" and "today". Today's bounds and date strings are computed
+ * once per day, the first time they are asked for after midnight, and the date formats the app
+ * stores and shows are kept per thread, since SimpleDateFormat is not thread-safe. The clock can
+ * be swapped in tests to simulate the day rolling over.
+ */
+public final class TimeService {
+
+    public interface Clock {
+        long currentTimeMillis();
+    }
+
+    public static final Clock SYSTEM_CLOCK = System::currentTimeMillis;
+
+    // Storage formats of TodoItem's date, due date-time and creation time strings
+    private static final String DATE_PATTERN = "yyyy-MM-dd";
+    private static final String DATE_TIME_PATTERN = "yyyy-MM-dd HH:mm";
+    private static final String TIMESTAMP_PATTERN = "yyyy-MM-dd HH:mm:ss";
+    private static final String DISPLAY_DATE_PATTERN = "MMM dd, yyyy";
+    private static final int UPCOMING_DAYS = 7;
+
+    private static volatile TimeService instance = new TimeService(SYSTEM_CLOCK);
+
+    private final Clock clock;
+    private volatile Day today;
+    // Replaced on invalidate() so every thread picks up the new default time zone and locale
+    private volatile Formats formats = new Formats();
+
+    @VisibleForTesting
+    public TimeService(Clock clock) {
+        this.clock = clock;
+    }
+
+    public static TimeService get() {
+        return instance;
+    }
+
+    @VisibleForTesting
+    public static void setInstance(TimeService timeService) {
+        instance = timeService;
+    }
+
+    public long now() {
+        return clock.currentTimeMillis();
+    }
+
+    /** Local midnight at the start of today. */
+    public long startOfToday() {
+        return today().start;
+    }
+
+    /** Local midnight at the end of today. */
+    public long startOfTomorrow() {
+        return today().end;
+    }
+
+    public boolean isToday(long millis) {
+        Day day = today();
+        return millis >= day.start && millis < day.end;
+    }
+
+    /** Today as stored in due_date, "yyyy-MM-dd". */
+    public String todayDate() {
+        return today().date;
+    }
+
+    /** The last day of the upcoming-tasks window, a week from today, as "yyyy-MM-dd". */
+    public String upcomingEndDate() {
+        return today().upcomingEnd;
+    }
+
+    /**
+     * Drops the cached day and formatters, e.g. after the time zone, locale or wall clock
+     * was changed; they are rebuilt on next use.
+     */
+    public void invalidate() {
+        formats = new Formats();
+        today = null;
+    }
+
+    /** Epoch millis of a "yyyy-MM-dd HH:mm" string, or 0 if it cannot be parsed. */
+    public long parseDateTime(String dateTime) {
+        return parse(formats.dateTime.get(), dateTime);
+    }
+
+    /** Epoch millis of a "yyyy-MM-dd HH:mm:ss" string, or 0 if it cannot be parsed. */
+    public long parseTimestamp(String timestamp) {
+        return parse(formats.timestamp.get(), timestamp);
+    }
+
+    /** "yyyy-MM-dd HH:mm:ss", the format of TodoItem's creation time. */
+    public String formatTimestamp(long millis) {
+        return formats.timestamp.get().format(new Date(millis));
+    }
+
+    /** A stored "yyyy-MM-dd" date as shown in dialogs, e.g. "Jun 01, 2024"; as is if unparseable. */
+    public String formatDisplayDate(String date) {
+        Formats current = formats;
+        try {
+            return current.displayDate.get().format(current.date.get().parse(date));
+        } catch (Exception e) {
+            return date;
+        }
+    }
+
+    private static long parse(SimpleDateFormat format, String text) {
+        if (text == null) return 0;
+        try {
+            Date date = format.parse(text);
+            return date != null ? date.getTime() : 0;
+        } catch (ParseException e) {
+            return 0;
+        }
+    }
+
+    private Day today() {
+        long now = clock.currentTimeMillis();
+        Day day = today;
+        if (day == null || now < day.start || now >= day.end) {
+            day = today = new Day(now, formats.date.get());
+        }
+        return day;
+    }
+
+    // One immutable snapshot per day, so readers on any thread see consistent values
+    private static final class Day {
+        final long start;
+        final long end;
+        final String date;
+        final String upcomingEnd;
+
+        Day(long now, SimpleDateFormat dateFormat) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTimeInMillis(now);
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            start = calendar.getTimeInMillis();
+            date = dateFormat.format(calendar.getTime());
+            calendar.add(Calendar.DAY_OF_YEAR, UPCOMING_DAYS);
+            upcomingEnd = dateFormat.format(calendar.getTime());
+            calendar.add(Calendar.DAY_OF_YEAR, 1 - UPCOMING_DAYS);
+            end = calendar.getTimeInMillis();
+        }
+    }
+
+    private static final class Formats {
+        final ThreadLocal<SimpleDateFormat> date = format(DATE_PATTERN);
+        final ThreadLocal<SimpleDateFormat> dateTime = format(DATE_TIME_PATTERN);
+        final ThreadLocal<SimpleDateFormat> timestamp = format(TIMESTAMP_PATTERN);
+        final ThreadLocal<SimpleDateFormat> displayDate = format(DISPLAY_DATE_PATTERN);
+
+        private static ThreadLocal<SimpleDateFormat> format(String pattern) {
+            return new ThreadLocal<SimpleDateFormat>() {
+                @Override
+                protected SimpleDateFormat initialValue() {
+                    return new SimpleDateFormat(pattern, Locale.getDefault());
+                }
+            };
+        }
+    }
+}
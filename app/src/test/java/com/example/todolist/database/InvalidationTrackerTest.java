@@ -0,0 +1,95 @@
+package com.example.todolist.database;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class InvalidationTrackerTest {
+
+    private final List<Runnable> queued = new ArrayList<>();
+    private final InvalidationTracker tracker = new InvalidationTracker(queued::add);
+
+    @Test
+    public void notifiesOnlyObserversOfTheChangedTable() {
+        RecordingObserver items = new RecordingObserver();
+        RecordingObserver other = new RecordingObserver();
+        tracker.addObserver(items, "todo_items");
+        tracker.addObserver(other, "categories");
+
+        tracker.notifyRowsChanged("todo_items", 7);
+        runQueued();
+
+        assertEquals(1, items.calls);
+        assertEquals(new HashSet<>(Arrays.asList(7)), items.rowIds);
+        assertEquals(0, other.calls);
+    }
+
+    @Test
+    public void coalescesABurstIntoOneCallback() {
+        RecordingObserver observer = new RecordingObserver();
+        tracker.addObserver(observer, "todo_items");
+
+        tracker.notifyRowsChanged("todo_items", 1);
+        tracker.notifyRowsChanged("todo_items", 2, 3);
+        assertEquals(1, queued.size());
+        runQueued();
+
+        assertEquals(1, observer.calls);
+        assertEquals(new HashSet<>(Arrays.asList(1, 2, 3)), observer.rowIds);
+
+        tracker.notifyRowsChanged("todo_items", 4);
+        runQueued();
+        assertEquals(2, observer.calls);
+        assertEquals(new HashSet<>(Arrays.asList(4)), observer.rowIds);
+    }
+
+    @Test
+    public void unknownRowsWinOverKnownOnes() {
+        RecordingObserver observer = new RecordingObserver();
+        tracker.addObserver(observer, "todo_items");
+
+        tracker.notifyRowsChanged("todo_items", 1);
+        tracker.notifyTableChanged("todo_items");
+        runQueued();
+
+        assertEquals(1, observer.calls);
+        assertNull(observer.rowIds);
+    }
+
+    @Test
+    public void removedObserverIsNotCalledForQueuedChanges() {
+        RecordingObserver observer = new RecordingObserver();
+        tracker.addObserver(observer, "todo_items");
+
+        tracker.notifyRowsChanged("todo_items", 1);
+        tracker.removeObserver(observer);
+        runQueued();
+
+        assertEquals(0, observer.calls);
+    }
+
+    private void runQueued() {
+        List<Runnable> batch = new ArrayList<>(queued);
+        queued.clear();
+        for (Runnable runnable : batch) {
+            runnable.run();
+        }
+    }
+
+    private static final class RecordingObserver implements InvalidationTracker.Observer {
+        int calls;
+        Set<Integer> rowIds;
+
+        @Override
+        public void onInvalidated(Set<String> tables, Set<Integer> rowIds) {
+            calls++;
+            this.rowIds = rowIds;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.todolist.database;
+
+import com.example.todolist.models.TodoItem;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.*;
+
+public class ObservableQueryTest {
+
+    private static final ObservableQuery.RowFilter PENDING = row -> !row.isCompleted();
+
+    private final List<Runnable> queued = new ArrayList<>();
+    private final InvalidationTracker tracker = new InvalidationTracker(queued::add);
+    private final FakeSource source = new FakeSource();
+    private final List<List<TodoItem>> delivered = new ArrayList<>();
+    private ObservableQuery<List<TodoItem>> query;
+
+    @Before
+    public void setUp() {
+        source.put(task(1, false));
+        source.put(task(2, false));
+        source.put(task(3, true));
+        query = new ObservableQuery<>(source, tracker, "list", delivered::add, items -> items, "todo_items");
+        query.setQuery(source::pending, PENDING);
+        assertEquals(1, source.listReads);
+    }
+
+    @Test
+    public void changeToAShownRowReruns() {
+        source.put(task(2, true));
+        tracker.notifyRowsChanged("todo_items", 2);
+        runQueued();
+
+        assertEquals(2, source.listReads);
+        assertEquals(1, delivered.get(1).size());
+    }
+
+    @Test
+    public void changeToARowOutsideTheFilterIsSkipped() {
+        source.put(task(3, true));
+        source.put(task(4, true));
+        tracker.notifyRowsChanged("todo_items", 3, 4);
+        runQueued();
+
+        assertEquals(1, source.listReads);
+        assertEquals(1, query.getRerunsSkipped());
+    }
+
+    @Test
+    public void rowThatNowMatchesReruns() {
+        source.put(task(3, false));
+        tracker.notifyRowsChanged("todo_items", 3);
+        runQueued();
+
+        assertEquals(2, source.listReads);
+        assertEquals(3, delivered.get(1).size());
+    }
+
+    @Test
+    public void unknownRowsRerun() {
+        tracker.notifyTableChanged("todo_items");
+        runQueued();
+
+        assertEquals(2, source.listReads);
+    }
+
+    @Test
+    public void withoutAFilterEveryChangeReruns() {
+        query.setQuery(source::pending);
+        tracker.notifyRowsChanged("todo_items", 3);
+        runQueued();
+
+        assertEquals(3, source.listReads);
+        assertEquals(0, query.getRerunsSkipped());
+    }
+
+    @Test
+    public void expectedRowChangeIsSkippedOnce() {
+        query.expectRowChange(2);
+        source.rows.remove(2);
+        tracker.notifyRowsChanged("todo_items", 2);
+        runQueued();
+
+        assertEquals(1, source.listReads);
+        assertEquals(1, query.getRerunsSkipped());
+
+        // Only the one write was expected
+        tracker.notifyRowsChanged("todo_items", 2);
+        runQueued();
+        assertEquals(2, source.listReads);
+    }
+
+    @Test
+    public void swappedResultIsWhatGetsChecked() {
+        List<TodoItem> shown = Arrays.asList(task(3, true));
+        query.swapQuery(source::completed, row -> row.isCompleted(), shown);
+        source.put(task(3, false));
+        tracker.notifyRowsChanged("todo_items", 3);
+        runQueued();
+
+        assertEquals(2, source.listReads);
+        assertTrue(delivered.get(1).isEmpty());
+    }
+
+    private void runQueued() {
+        List<Runnable> batch = new ArrayList<>(queued);
+        queued.clear();
+        for (Runnable runnable : batch) {
+            runnable.run();
+        }
+    }
+
+    private static TodoItem task(int id, boolean completed) {
+        TodoItem item = new TodoItem("Task " + id);
+        item.setId(id);
+        item.setCompleted(completed);
+        return item;
+    }
+
+    /** Runs every read straight away against an in-memory table. */
+    private static final class FakeSource implements ObservableQuery.Source {
+        final Map<Integer, TodoItem> rows = new HashMap<>();
+        int listReads;
+
+        void put(TodoItem row) {
+            rows.put(row.getId(), row);
+        }
+
+        List<TodoItem> pending() {
+            listReads++;
+            List<TodoItem> items = new ArrayList<>();
+            for (TodoItem row : rows.values()) {
+                if (!row.isCompleted()) items.add(row);
+            }
+            return items;
+        }
+
+        List<TodoItem> completed() {
+            listReads++;
+            List<TodoItem> items = new ArrayList<>();
+            for (TodoItem row : rows.values()) {
+                if (row.isCompleted()) items.add(row);
+            }
+            return items;
+        }
+
+        @Override
+        public <R> void read(String channel, Callable<R> query, TodoRepository.Callback<R> callback) {
+            try {
+                callback.onResult(query.call());
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        @Override
+        public boolean cancelRead(String channel) {
+            return false;
+        }
+
+        @Override
+        public Callable<List<TodoItem>> rowsQuery(int[] ids) {
+            return () -> {
+                List<TodoItem> found = new ArrayList<>();
+                for (int id : ids) {
+                    if (rows.containsKey(id)) found.add(rows.get(id));
+                }
+                return found;
+            };
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.todolist.database;
+
+import com.example.todolist.models.TodoItem;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class SearchQueryTest {
+
+    @Test
+    public void splitsOnNonWordCharactersAndLowercases() {
+        SearchQuery query = SearchQuery.parse("  Buy MILK, eggs!");
+        assertEquals(Arrays.asList("buy", "milk", "eggs"), query.getTerms());
+    }
+
+    @Test
+    public void buildsPrefixMatchExpressions() {
+        SearchQuery query = SearchQuery.parse("gro mil");
+        assertEquals("gro* mil*", query.toMatchExpression());
+        assertEquals("task:gro* task:mil*", query.toMatchExpression("task"));
+    }
+
+    @Test
+    public void dropsFtsSyntax() {
+        SearchQuery query = SearchQuery.parse("\"a\" OR -b* NEAR(c)");
+        assertEquals("a* or* b* near* c*", query.toMatchExpression());
+    }
+
+    @Test
+    public void emptyForPunctuationOnly() {
+        assertTrue(SearchQuery.parse(" *-\" ").isEmpty());
+        assertTrue(SearchQuery.parse(null).isEmpty());
+    }
+
+    @Test
+    public void extendingOrAddingTermsRefines() {
+        SearchQuery gro = SearchQuery.parse("gro");
+        assertTrue(SearchQuery.parse("groc").refines(gro));
+        assertTrue(SearchQuery.parse("gro milk").refines(gro));
+        assertFalse(SearchQuery.parse("gr").refines(gro));
+        assertFalse(SearchQuery.parse("milk gro").refines(gro));
+        assertFalse(gro.refines(SearchQuery.parse("")));
+    }
+
+    @Test
+    public void matchesWordPrefixesInTaskOrDescription() {
+        TodoItem item = new TodoItem("Buy groceries");
+        item.setDescription("Milk and eggs");
+
+        assertTrue(SearchQuery.parse("groc").matches(item));
+        assertTrue(SearchQuery.parse("buy MIL").matches(item));
+        assertFalse(SearchQuery.parse("roceries").matches(item));
+        assertFalse(SearchQuery.parse("bread").matches(item));
+
+        assertEquals(0, SearchQuery.parse("buy gro").rank(item));
+        assertEquals(1, SearchQuery.parse("buy milk").rank(item));
+    }
+
+    // Folded like the unicode61 tokenizer of todo_fts: case beyond ASCII, accents kept
+    @Test
+    public void foldsNonAsciiCaseButNotAccents() {
+        SearchQuery query = SearchQuery.parse("ÉLAN Straße—café");
+        assertEquals(Arrays.asList("élan", "straße", "café"), query.getTerms());
+
+        TodoItem item = new TodoItem("Élan vital");
+        item.setDescription("Straße café");
+        assertTrue(query.matches(item));
+        assertTrue(SearchQuery.parse("éla").matches(item));
+        assertFalse(SearchQuery.parse("elan").matches(item));
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.todolist.database;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TaskCsvTest {
+
+    @Test
+    public void quotesOnlyWhenNeeded() throws IOException {
+        StringWriter out = new StringWriter();
+        new TaskCsv.RecordWriter(out).write(Arrays.asList("plain", "a,b", "say \"hi\"", null, "", " padded"));
+        assertEquals("plain,\"a,b\",\"say \"\"hi\"\"\",,\"\",\" padded\"\r\n", out.toString());
+    }
+
+    @Test
+    public void roundTripsAwkwardFields() throws IOException {
+        List<String> first = Arrays.asList("Buy milk", "line one\nline two", null, "");
+        List<String> second = Arrays.asList("\"quoted\"", "comma, inside", "x", "crlf\r\ninside");
+        StringWriter out = new StringWriter();
+        TaskCsv.RecordWriter writer = new TaskCsv.RecordWriter(out);
+        writer.write(first);
+        writer.write(second);
+
+        TaskCsv.RecordReader reader = new TaskCsv.RecordReader(new StringReader(out.toString()));
+        List<String> record = new ArrayList<>();
+        assertTrue(reader.read(record));
+        assertEquals(first, record);
+        assertTrue(reader.read(record));
+        assertEquals(second, record);
+        assertFalse(reader.read(record));
+    }
+
+    @Test
+    public void acceptsAnyLineEnding() throws IOException {
+        TaskCsv.RecordReader reader = new TaskCsv.RecordReader(new StringReader("a,b\rc,d\ne,f"));
+        List<String> record = new ArrayList<>();
+        assertTrue(reader.read(record));
+        assertEquals(Arrays.asList("a", "b"), record);
+        assertTrue(reader.read(record));
+        assertEquals(Arrays.asList("c", "d"), record);
+        assertTrue(reader.read(record));
+        assertEquals(Arrays.asList("e", "f"), record);
+        assertFalse(reader.read(record));
+        assertEquals(3, reader.getLine());
+    }
+
+    @Test
+    public void rejectsUnterminatedQuote() {
+        TaskCsv.RecordReader reader = new TaskCsv.RecordReader(new StringReader("ok\n\"never closed"));
+        List<String> record = new ArrayList<>();
+        try {
+            assertTrue(reader.read(record));
+            reader.read(record);
+            fail("expected an IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("line 2"));
+        }
+    }
+}
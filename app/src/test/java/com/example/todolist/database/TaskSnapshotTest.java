@@ -0,0 +1,132 @@
+package com.example.todolist.database;
+
+import com.example.todolist.models.TodoItem;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TaskSnapshotTest {
+
+    private final List<String> categories = Arrays.asList("General", "Work");
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    {
+        for (String category : categories) {
+            dictionary.put(category, dictionary.size());
+        }
+    }
+
+    @Test
+    public void packsTheAppsDateFormats() {
+        assertEquals(20240601, TaskSnapshot.packDate("2024-06-01", false));
+        assertEquals(20240601, TaskSnapshot.packDate("2024-06-01 23:59:58", true));
+        assertEquals(9 * 60 + 30, TaskSnapshot.packTimeOfDay("09:30", 0, false));
+        assertEquals((23 * 60 + 59) * 60 + 58, TaskSnapshot.packTimeOfDay("2024-06-01 23:59:58", 11, true));
+        assertEquals("2024-06-01", TaskSnapshot.unpackDate(20240601));
+        assertEquals("09:30", TaskSnapshot.unpackTimeOfDay(9 * 60 + 30, false));
+        assertEquals("23:59:58", TaskSnapshot.unpackTimeOfDay((23 * 60 + 59) * 60 + 58, true));
+
+        assertEquals(0, TaskSnapshot.packDate("2024-6-1", false));
+        assertEquals(0, TaskSnapshot.packDate("2024-13-01", false));
+        assertEquals(-1, TaskSnapshot.packTimeOfDay("9:30", 0, false));
+        assertEquals(-1, TaskSnapshot.packTimeOfDay("24:00", 0, false));
+    }
+
+    @Test
+    public void roundTripsEveryField() {
+        TodoItem item = TodoItem.forStoredRow(42);
+        item.setTask("Pay rent — ünïcode");
+        item.setDescription("Line one\nLine two");
+        item.setCompleted(true);
+        item.setHasReminder(true);
+        item.setAlarmTime(1_717_230_600_000L);
+        item.setPriority(3);
+        item.setCategory("Work");
+        item.setCreatedAt("2024-05-30 08:15:42");
+        item.setCreatedAtMillis(TodoItem.createdAtMillisOf("2024-05-30 08:15:42"));
+        item.setDueDate("2024-06-01");
+        item.setDueTime("09:30");
+
+        TodoItem copy = roundTrip(item);
+        assertEquals(42, copy.getId());
+        assertEquals(item.getTask(), copy.getTask());
+        assertEquals(item.getDescription(), copy.getDescription());
+        assertTrue(copy.isCompleted());
+        assertTrue(copy.hasReminder());
+        assertEquals(item.getAlarmTime(), copy.getAlarmTime());
+        assertEquals(3, copy.getPriority());
+        assertEquals("Work", copy.getCategory());
+        assertEquals(item.getCreatedAt(), copy.getCreatedAt());
+        assertEquals(item.getCreatedAtMillis(), copy.getCreatedAtMillis());
+        assertEquals("2024-06-01", copy.getDueDate());
+        assertEquals("09:30", copy.getDueTime());
+        assertEquals(item.getDueAt(), copy.getDueAt());
+    }
+
+    @Test
+    public void keepsNullsAndUnpackableText() {
+        TodoItem item = TodoItem.forStoredRow(7);
+        item.setCategory("Not in the dictionary");
+        item.setDueDate("next week");
+
+        TodoItem copy = roundTrip(item);
+        assertNull(copy.getTask());
+        assertNull(copy.getDescription());
+        assertNull(copy.getCreatedAt());
+        assertNull(copy.getDueTime());
+        assertEquals("next week", copy.getDueDate());
+        assertEquals(TodoItem.NO_DUE, copy.getDueAt());
+        assertEquals("Not in the dictionary", copy.getCategory());
+
+        item.setCategory(null);
+        assertNull(roundTrip(item).getCategory());
+    }
+
+    @Test
+    public void recordsAreCompact() {
+        TodoItem item = TodoItem.forStoredRow(1);
+        item.setTask("Buy milk");
+        item.setCategory("General");
+        item.setCreatedAt("2024-05-30 08:15:42");
+        item.setDueDate("2024-06-01");
+        ByteBuffer record = TaskSnapshot.encodeInto(ByteBuffer.allocate(16), item, dictionary);
+        // id, flags, priority, category, task, description, four packed dates, two longs
+        assertEquals(4 + 1 + 1 + 1 + 9 + 1 + 4 + 4 + 4 + 2 + 8 + 8, record.remaining());
+    }
+
+    @Test
+    public void readsRecordsAfterTheHeader() throws Exception {
+        ByteBuffer file = ByteBuffer.allocate(256);
+        file.putInt(TaskSnapshot.MAGIC).putShort(TaskSnapshot.VERSION).putShort((short) 0).putInt(1);
+        file.put((byte) 1).put((byte) 8).put("General".getBytes("UTF-8"));
+        TodoItem item = TodoItem.forStoredRow(3);
+        item.setTask("Only task");
+        item.setCategory("General");
+        ByteBuffer record = TaskSnapshot.encodeInto(ByteBuffer.allocate(64), item, Collections.singletonMap("General", 0));
+        file.putInt(record.remaining() + 2).put(record).putShort((short) 0x7FFF); // two bytes from a newer version
+        file.flip();
+
+        TaskSnapshot.RecordIterator records = new TaskSnapshot.RecordIterator(file);
+        assertTrue(records.hasNext());
+        TodoItem copy = records.next();
+        assertEquals("Only task", copy.getTask());
+        assertEquals("General", copy.getCategory());
+        assertFalse(records.hasNext());
+        assertFalse(file.hasRemaining());
+    }
+
+    private TodoItem roundTrip(TodoItem item) {
+        ByteBuffer record = TaskSnapshot.encodeInto(ByteBuffer.allocate(8), item, dictionary);
+        TodoItem copy = TaskSnapshot.decode(record, categories);
+        assertFalse("decode should consume the whole record", record.hasRemaining());
+        return copy;
+    }
+}
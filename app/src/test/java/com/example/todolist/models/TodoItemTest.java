@@ -0,0 +1,95 @@
+package com.example.todolist.models;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class TodoItemTest {
+
+    @Test
+    public void dueAtFollowsDateAndTime() {
+        Calendar expected = Calendar.getInstance();
+        expected.clear();
+        expected.set(2024, Calendar.JUNE, 1, 9, 30);
+        assertEquals(expected.getTimeInMillis(), TodoItem.dueAtOf("2024-06-01", "09:30"));
+
+        // Without a time the task falls due at the end of the day
+        expected.set(2024, Calendar.JUNE, 1, 23, 59);
+        assertEquals(expected.getTimeInMillis(), TodoItem.dueAtOf("2024-06-01", null));
+        assertEquals(expected.getTimeInMillis(), TodoItem.dueAtOf("2024-06-01", ""));
+
+        assertEquals(TodoItem.NO_DUE, TodoItem.dueAtOf(null, "09:30"));
+        assertEquals(TodoItem.NO_DUE, TodoItem.dueAtOf("", null));
+        assertEquals(TodoItem.NO_DUE, TodoItem.dueAtOf("soon", null));
+    }
+
+    @Test
+    public void settersKeepDueAtInStep() {
+        TodoItem item = new TodoItem("Pay rent");
+        assertEquals(TodoItem.NO_DUE, item.getDueAt());
+        item.setDueDate("2024-06-01");
+        assertEquals(TodoItem.dueAtOf("2024-06-01", null), item.getDueAt());
+        assertEquals("Due: 2024-06-01", item.getDueLabel());
+        item.setDueTime("08:00");
+        assertEquals(TodoItem.dueAtOf("2024-06-01", "08:00"), item.getDueAt());
+        assertEquals(item.getDueAt(), new TodoItem(item).getDueAt());
+        item.setDueDate(null);
+        assertEquals(TodoItem.NO_DUE, item.getDueAt());
+        assertNull(item.getDueLabel());
+    }
+
+    @Test
+    public void renamingTheCategoryForgetsItsId() {
+        TodoItem item = new TodoItem("Pay rent");
+        item.setCategory("Home");
+        item.setCategoryId(3);
+        item.setCategory("Home");
+        assertEquals(3, new TodoItem(item).getCategoryId());
+        item.setCategory("Work");
+        assertEquals(TodoItem.NO_CATEGORY, item.getCategoryId());
+    }
+
+    @Test
+    public void overdueComparesTheDueInstant() {
+        long hour = 60 * 60 * 1000;
+        TodoItem item = new TodoItem("Call mum");
+        assertFalse(item.isOverdue());
+
+        item.setDue("2000-01-01", "00:00", System.currentTimeMillis() - hour);
+        assertTrue(item.isOverdue());
+        item.setCompleted(true);
+        assertFalse(item.isOverdue());
+
+        item.setCompleted(false);
+        item.setDue("2999-01-01", "00:00", System.currentTimeMillis() + hour);
+        assertFalse(item.isOverdue());
+    }
+
+    @Test
+    public void dueTodayMatchesTheLocalDate() {
+        String today = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date());
+        TodoItem item = new TodoItem("Buy milk");
+        item.setDueDate(today);
+        assertTrue(item.isDueToday());
+        item.setDueTime("00:00");
+        assertTrue(item.isDueToday());
+
+        item.setDueDate("2000-01-01");
+        assertFalse(item.isDueToday());
+        item.setDueDate(null);
+        assertFalse(item.isDueToday());
+    }
+
+    @Test
+    public void createdAtMillisParsesTheStoredString() {
+        TodoItem item = new TodoItem("Water plants");
+        assertEquals(item.getCreatedAtMillis() / 1000 * 1000, TodoItem.createdAtMillisOf(item.getCreatedAt()));
+        assertEquals(0, TodoItem.createdAtMillisOf(null));
+        assertEquals(0, TodoItem.createdAtMillisOf("yesterday"));
+    }
+}
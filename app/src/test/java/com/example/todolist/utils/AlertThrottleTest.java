@@ -0,0 +1,39 @@
+package com.example.todolist.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AlertThrottleTest {
+
+    private static final long INTERVAL = 120_000;
+    private final AlertThrottle throttle = new AlertThrottle(INTERVAL);
+
+    @Test
+    public void firstAlertGoesThrough() {
+        assertTrue(throttle.tryAlert(0));
+    }
+
+    @Test
+    public void burstAlertsOnce() {
+        long start = 1_717_200_000_000L;
+        assertTrue(throttle.tryAlert(start));
+        assertFalse(throttle.tryAlert(start + 1_000));
+        assertFalse(throttle.tryAlert(start + INTERVAL - 1));
+        assertTrue(throttle.tryAlert(start + INTERVAL));
+    }
+
+    @Test
+    public void quietDeliveriesDoNotExtendTheInterval() {
+        assertTrue(throttle.tryAlert(1_000));
+        assertFalse(throttle.tryAlert(1_000 + INTERVAL / 2));
+        assertTrue(throttle.tryAlert(1_000 + INTERVAL));
+    }
+
+    @Test
+    public void clockSetBackAlertsAgain() {
+        assertTrue(throttle.tryAlert(10 * INTERVAL));
+        assertTrue(throttle.tryAlert(5 * INTERVAL));
+        assertFalse(throttle.tryAlert(5 * INTERVAL + 1));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.todolist.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class TimeServiceTest {
+
+    private long now;
+    private final TimeService time = new TimeService(() -> now);
+
+    @Test
+    public void todayRollsOverAtMidnight() {
+        now = at(2024, Calendar.JUNE, 1, 23, 59);
+        assertEquals("2024-06-01", time.todayDate());
+        assertEquals("2024-06-08", time.upcomingEndDate());
+        assertEquals(at(2024, Calendar.JUNE, 1, 0, 0), time.startOfToday());
+        assertEquals(at(2024, Calendar.JUNE, 2, 0, 0), time.startOfTomorrow());
+        assertTrue(time.isToday(at(2024, Calendar.JUNE, 1, 9, 0)));
+        assertFalse(time.isToday(at(2024, Calendar.JUNE, 2, 0, 0)));
+
+        now = at(2024, Calendar.JUNE, 2, 0, 1);
+        assertEquals("2024-06-02", time.todayDate());
+        assertEquals("2024-06-09", time.upcomingEndDate());
+        assertTrue(time.isToday(at(2024, Calendar.JUNE, 2, 0, 0)));
+        assertFalse(time.isToday(at(2024, Calendar.JUNE, 1, 9, 0)));
+    }
+
+    @Test
+    public void clockGoingBackRecomputesToday() {
+        now = at(2024, Calendar.JUNE, 2, 12, 0);
+        assertEquals("2024-06-02", time.todayDate());
+        now = at(2024, Calendar.MAY, 31, 12, 0);
+        assertEquals("2024-05-31", time.todayDate());
+    }
+
+    @Test
+    public void parsesAndFormatsStoredStrings() {
+        long nineThirty = at(2024, Calendar.JUNE, 1, 9, 30);
+        assertEquals(nineThirty, time.parseDateTime("2024-06-01 09:30"));
+        assertEquals(nineThirty, time.parseTimestamp(time.formatTimestamp(nineThirty)));
+        assertEquals(0, time.parseDateTime("tomorrow"));
+        assertEquals(0, time.parseTimestamp(null));
+        assertEquals("not a date", time.formatDisplayDate("not a date"));
+    }
+
+    @Test
+    public void formattersAreSafeAcrossThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                final int day = 1 + thread;
+                results.add(executor.submit((Callable<Boolean>) () -> {
+                    long expected = at(2024, Calendar.JUNE, day, 9, 30);
+                    String text = String.format("2024-06-%02d 09:30", day);
+                    for (int i = 0; i < 2_000; i++) {
+                        if (time.parseDateTime(text) != expected) return false;
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue("a shared formatter mixed up another thread's date", result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void timeLabelsAreCachedPerMinute() {
+        assertEquals("12:05 AM", TimePickerHelper.formatTimeForDisplay(0, 5));
+        assertEquals("1:30 PM", TimePickerHelper.formatTimeForDisplay("13:30"));
+        assertSame(TimePickerHelper.formatTimeForDisplay(13, 30), TimePickerHelper.formatTimeForDisplay(13, 30));
+        assertEquals("oops", TimePickerHelper.formatTimeForDisplay("oops"));
+    }
+
+    private static long at(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+}